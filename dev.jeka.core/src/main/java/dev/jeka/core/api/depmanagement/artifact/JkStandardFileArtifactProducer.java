@@ -1,10 +1,16 @@
 package dev.jeka.core.api.depmanagement.artifact;
 
+import dev.jeka.core.api.function.JkRunnables;
 import dev.jeka.core.api.system.JkLog;
 import dev.jeka.core.api.utils.JkUtilsAssert;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -12,7 +18,10 @@ import java.util.function.Function;
  * This {@link JkArtifactProducer} produces artifacts files at a standardized path
  * determined by a provided function (outputPath, artifactId) -> path. <p/>
  * This function is supposed to be supplied by the caller. To add artifacts to produce, caller has
- * to provide a {@link Consumer<Path>} generating the artifact file at the given path.
+ * to provide a {@link Consumer<Path>} generating the artifact file at the given path. <p/>
+ * When several artifacts are requested at once, they can be made concurrently according the parallelism set on
+ * this producer. In this case, artifact makers must be thread-safe. Steps they share (as compilation) can be
+ * registered as pre-actions so they are run once before artifacts are made.
  */
 public class JkStandardFileArtifactProducer<T> implements JkArtifactProducer {
 
@@ -27,8 +36,13 @@ public class JkStandardFileArtifactProducer<T> implements JkArtifactProducer {
 
     private String mainArtifactExt = "jar";
 
+    private int parallelism = 1;
+
+    private final JkRunnables<JkStandardFileArtifactProducer<T>> preActions;
+
     private JkStandardFileArtifactProducer(T __) {
         this.__ = __;
+        this.preActions = JkRunnables.ofParent(this);
     }
 
     public static <T> JkStandardFileArtifactProducer<T> ofParent(T __) {
@@ -53,6 +67,67 @@ public class JkStandardFileArtifactProducer<T> implements JkArtifactProducer {
         JkLog.endTask();
     }
 
+    /**
+     * Makes the specified artifacts, concurrently if parallelism is greater than 1. Logs of each artifact are
+     * displayed as a whole once it is made. If an artifact fails, the first failure is rethrown once running
+     * ones are complete.
+     */
+    @Override
+    public void makeArtifacts(Iterable<JkArtifactId> artifactIds) {
+        final List<JkArtifactId> ids = new LinkedList<>();
+        artifactIds.forEach(ids::add);
+        if (ids.isEmpty()) {
+            return;
+        }
+        preActions.run();
+        if (parallelism <= 1 || ids.size() <= 1) {
+            ids.forEach(this::makeArtifact);
+            return;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, ids.size()),
+                new WorkerThreadFactory());
+        try {
+            final List<Future<?>> futures = new LinkedList<>();
+            for (final JkArtifactId artifactId : ids) {
+                futures.add(executor.submit(JkLog.inCurrentContext(() -> makeArtifact(artifactId))));
+            }
+            Throwable failure = null;
+            for (final Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (final ExecutionException e) {
+                    failure = failure == null ? e.getCause() : failure;
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw JkUtilsThrowable.unchecked(e);
+                }
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            if (failure != null) {
+                throw JkUtilsThrowable.unchecked((Exception) failure);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void makeMissingArtifacts(Iterable<JkArtifactId> artifactIds) {
+        final List<JkArtifactId> missingIds = new LinkedList<>();
+        for (final JkArtifactId artifactId : artifactIds) {
+            final Path path = getArtifactPath(artifactId);
+            if (!Files.exists(path)) {
+                missingIds.add(artifactId);
+            } else {
+                JkLog.info("Make artifact file " + JkUtilsPath.relativizeFromWorkingDir(path)
+                        + " ... Skip : already exist.");
+            }
+        }
+        makeArtifacts(missingIds);
+    }
+
     @Override
     public Path getArtifactPath(JkArtifactId artifactId) {
         JkUtilsAssert.state(artifactFileFunction != null, "artifactFileFunction has not been set.");
@@ -100,4 +175,38 @@ public class JkStandardFileArtifactProducer<T> implements JkArtifactProducer {
         return this;
     }
 
+    /**
+     * Returns actions run once before making artifacts with {@link #makeArtifacts(Iterable)}.
+     */
+    public JkRunnables<JkStandardFileArtifactProducer<T>> getPreActions() {
+        return preActions;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the max number of artifacts made concurrently by {@link #makeArtifacts(Iterable)}. Default is 1,
+     * meaning artifacts are made one after the other, in the order they have been put.
+     */
+    public JkStandardFileArtifactProducer<T> setParallelism(int parallelism) {
+        JkUtilsAssert.argument(parallelism > 0, "Parallelism must be greater than 0, was " + parallelism);
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger COUNT = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "jeka-artifact-" + COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setContextClassLoader(Thread.currentThread().getContextClassLoader());
+            return thread;
+        }
+    }
+
 }
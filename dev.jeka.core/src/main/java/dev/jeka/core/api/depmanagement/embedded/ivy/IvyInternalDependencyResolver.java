@@ -70,11 +70,20 @@ final class IvyInternalDependencyResolver implements JkInternalDependencyResolve
         resolveOptions.setLog(logLevel());
         resolveOptions.setRefresh(parameters.isRefreshed());
         resolveOptions.setCheckIfChanged(true);
-        resolveOptions.setOutputReport(true);
+        resolveOptions.setUseCacheOnly(parameters.isOffline());
+        resolveOptions.setOutputReport(false);
+        resolveOptions.setDownload(false);  // artifacts are downloaded in parallel afterward
         final ResolveReport resolveReport;
         Ivy ivy = IvyTranslatorToIvy.toIvy(repoSet, parameters);
         try {
             resolveReport = ivy.resolve(moduleDescriptor, resolveOptions);
+            final DownloadOptions downloadOptions = new DownloadOptions();
+            downloadOptions.setLog(resolveOptions.getLog());
+            new IvyParallelArtifactDownloader(ivy, parameters.getDownloadThreadCount(),
+                    parameters.getMaxDownloadsPerRepo())
+                    .download(resolveReport, resolveOptions.getArtifactFilter(), downloadOptions);
+            ivy.getResolveEngine().outputReport(resolveReport, ivy.getSettings().getResolutionCacheManager(),
+                    resolveOptions);
         } catch (final Exception e) {
             throw JkUtilsThrowable.unchecked(e);
         }
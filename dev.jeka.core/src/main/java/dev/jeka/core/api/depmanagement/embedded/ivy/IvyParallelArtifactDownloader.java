@@ -0,0 +1,139 @@
+package dev.jeka.core.api.depmanagement.embedded.ivy;
+
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyContext;
+import org.apache.ivy.core.event.download.PrepareDownloadEvent;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.DownloadReport;
+import org.apache.ivy.core.report.DownloadStatus;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.DownloadOptions;
+import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.util.Message;
+import org.apache.ivy.util.filter.Filter;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/*
+ * Downloads artifacts of an already resolved graph concurrently. This is a parallel counterpart of
+ * Ivy ResolveEngine#downloadArtifacts : downloads are run in a bounded thread pool, and the number of
+ * simultaneous downloads on a same repository is limited. Reports are updated in the graph order, on the calling
+ * thread, as Ivy reports are not thread-safe.
+ */
+final class IvyParallelArtifactDownloader {
+
+    private final Ivy ivy;
+
+    private final int threadCount;
+
+    private final int maxDownloadsPerRepo;
+
+    private final Map<String, Semaphore> repoSemaphores = new ConcurrentHashMap<>();
+
+    IvyParallelArtifactDownloader(Ivy ivy, int threadCount, int maxDownloadsPerRepo) {
+        this.ivy = ivy;
+        this.threadCount = threadCount;
+        this.maxDownloadsPerRepo = maxDownloadsPerRepo;
+    }
+
+    void download(ResolveReport report, Filter<Artifact> artifactFilter, DownloadOptions options) {
+        if (threadCount <= 1) {
+            ivy.getResolveEngine().downloadArtifacts(report, artifactFilter, options);
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        ivy.getEventManager().fireIvyEvent(new PrepareDownloadEvent(
+                report.getArtifacts().toArray(new Artifact[0])));
+        final List<IvyNode> dependencies = new LinkedList<>();
+        for (final IvyNode dependency : report.getDependencies()) {
+            if (!dependency.isCompletelyEvicted() && !dependency.hasProblem()
+                    && dependency.getModuleRevision() != null) {
+                dependencies.add(dependency);
+            }
+        }
+        final ExecutorService executorService = Executors.newFixedThreadPool(
+                Math.min(threadCount, Math.max(1, dependencies.size())), new DownloadThreadFactory());
+        final Map<IvyNode, Future<DownloadReport>> futures = new LinkedHashMap<>();
+        try {
+            for (final IvyNode dependency : dependencies) {
+                final DependencyResolver resolver = dependency.getModuleRevision().getArtifactResolver();
+                final Artifact[] selectedArtifacts = dependency.getSelectedArtifacts(artifactFilter);
+                futures.put(dependency, executorService.submit(JkLog.inCurrentContext(
+                        () -> download(resolver, selectedArtifacts, options))));
+            }
+            long totalSize = 0;
+            for (final Map.Entry<IvyNode, Future<DownloadReport>> entry : futures.entrySet()) {
+                final IvyNode dependency = entry.getKey();
+                final DependencyResolver resolver = dependency.getModuleRevision().getArtifactResolver();
+                final DownloadReport downloadReport = get(entry.getValue());
+                for (final ArtifactDownloadReport adr : downloadReport.getArtifactsReports()) {
+                    if (adr.getDownloadStatus() == DownloadStatus.FAILED) {
+                        if (adr.getArtifact().getExtraAttribute("ivy:merged") != null) {
+                            Message.warn("\tmerged artifact not found: " + adr.getArtifact()
+                                    + ". It was required in " + adr.getArtifact().getExtraAttribute("ivy:merged"));
+                        } else {
+                            Message.warn("\t" + adr);
+                            resolver.reportFailure(adr.getArtifact());
+                        }
+                    } else if (adr.getDownloadStatus() == DownloadStatus.SUCCESSFUL) {
+                        totalSize += adr.getSize();
+                    }
+                }
+                for (final String conf : dependency.getRootModuleConfigurations()) {
+                    if (dependency.isEvicted(conf) || dependency.isBlacklisted(conf)) {
+                        report.getConfigurationReport(conf).addDependency(dependency);
+                    } else {
+                        report.getConfigurationReport(conf).addDependency(dependency, downloadReport);
+                    }
+                }
+            }
+            report.setDownloadTime(System.currentTimeMillis() - start);
+            report.setDownloadSize(totalSize);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private DownloadReport download(DependencyResolver resolver, Artifact[] artifacts, DownloadOptions options)
+            throws InterruptedException {
+        final Semaphore semaphore = repoSemaphores.computeIfAbsent(resolver.getName(),
+                name -> new Semaphore(maxDownloadsPerRepo));
+        semaphore.acquire();
+        IvyContext.pushNewContext().setIvy(ivy);
+        try {
+            return resolver.download(artifacts, options);
+        } finally {
+            IvyContext.popContext();
+            semaphore.release();
+        }
+    }
+
+    private static DownloadReport get(Future<DownloadReport> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw JkUtilsThrowable.unchecked(e);
+        } catch (final ExecutionException e) {
+            throw JkUtilsThrowable.unchecked(e.getCause(), "Error while downloading artifacts");
+        }
+    }
+
+    private static class DownloadThreadFactory implements ThreadFactory {
+
+        private int count;
+
+        @Override
+        public synchronized Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "jeka-download-" + (++count));
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+package dev.jeka.core.api.depmanagement.embedded.ivy;
+
+import dev.jeka.core.api.depmanagement.resolution.JkResolutionParameters;
+import org.apache.ivy.core.cache.CacheDownloadOptions;
+import org.apache.ivy.core.cache.CacheMetadataOptions;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.DownloadStatus;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.repository.ArtifactResourceResolver;
+import org.apache.ivy.plugins.repository.ResourceDownloader;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.plugins.resolver.util.ResolvedResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.text.ParseException;
+
+/*
+ * Repository cache manager deciding when module metadata have to be checked again against remote repositories.
+ * Resolvers are configured to check modified modules, and snapshot or dynamic dependencies are declared as changing,
+ * so without this cache manager, every module would be checked at each resolution. Here :
+ *   - release versions are always taken from the cache when present,
+ *   - snapshot versions are taken from the cache if they have been checked for less than the metadata TTL,
+ *   - dynamic versions rely on Ivy resolved revision TTL, set to the metadata TTL.
+ * When parameters are 'refreshed', snapshot and dynamic versions are checked anyway. When parameters are 'offline',
+ * Ivy resolves modules from the cache only, and artifacts missing from the cache are reported as failed instead of
+ * being downloaded. Cache entries are locked using native file locks, as several resolutions may run concurrently,
+ * in this JVM or in others.
+ */
+final class IvyRepositoryCacheManager extends DefaultRepositoryCacheManager {
+
+    private static final String NAME = "jeka-cache";
+
+    private static final String LAST_CHECK_SUFFIX = ".lastcheck";
+
+    private static final String LOCK_STRATEGY = "artifact-lock-nio";
+
+    private final boolean offline;
+
+    private final long ttlMillis;
+
+    private IvyRepositoryCacheManager(IvySettings ivySettings, File baseDir, boolean offline, long ttlMillis) {
+        super(NAME, ivySettings, baseDir);
+        this.offline = offline;
+        this.ttlMillis = ttlMillis;
+        setDefaultTTL(ttlMillis);
+        setLockStrategy(LOCK_STRATEGY);
+    }
+
+    static IvyRepositoryCacheManager of(IvySettings ivySettings, File baseDir, JkResolutionParameters<?> parameters) {
+        return new IvyRepositoryCacheManager(ivySettings, baseDir, parameters.isOffline(),
+                parameters.getMetadataTtl().toMillis());
+    }
+
+    @Override
+    public ResolvedModuleRevision findModuleInCache(DependencyDescriptor dd, ModuleRevisionId requestedRevisionId,
+                                                    CacheMetadataOptions options, String expectedResolver) {
+        if (!options.isUseCacheOnly() && isUpToDate(requestedRevisionId, options)) {
+
+            // Jeka marks snapshot and dynamic dependencies as changing, Ivy would not look in the cache otherwise.
+            options.setCheckmodified(false);
+            options.setChangingPattern(null);
+            return super.findModuleInCache(new DefaultDependencyDescriptor(requestedRevisionId, false, false),
+                    requestedRevisionId, options, expectedResolver);
+        }
+        return super.findModuleInCache(dd, requestedRevisionId, options, expectedResolver);
+    }
+
+    @Override
+    public ResolvedModuleRevision cacheModuleDescriptor(DependencyResolver resolver, ResolvedResource mdRef,
+                                                        DependencyDescriptor dd, Artifact moduleArtifact,
+                                                        ResourceDownloader downloader, CacheMetadataOptions options)
+            throws ParseException {
+        final ResolvedModuleRevision result = super.cacheModuleDescriptor(resolver, mdRef, dd, moduleArtifact,
+                downloader, options);
+        if (result != null && isSnapshot(moduleArtifact.getModuleRevisionId())) {
+            markChecked(moduleArtifact.getModuleRevisionId());
+        }
+        return result;
+    }
+
+    @Override
+    public ArtifactDownloadReport download(Artifact artifact, ArtifactResourceResolver resourceResolver,
+                                           ResourceDownloader resourceDownloader, CacheDownloadOptions options) {
+        if (!offline) {
+            return super.download(artifact, resourceResolver, resourceDownloader, options);
+        }
+        final ArtifactDownloadReport report = super.download(artifact, missing -> null, resourceDownloader, options);
+        if (report.getDownloadStatus() == DownloadStatus.FAILED) {
+            report.setDownloadDetails("not found in repository cache (offline mode)");
+        }
+        return report;
+    }
+
+    private boolean isUpToDate(ModuleRevisionId moduleRevisionId, CacheMetadataOptions options) {
+        if (getSettings().getVersionMatcher().isDynamic(moduleRevisionId) || !isSnapshot(moduleRevisionId)) {
+            return true;
+        }
+        if (options.isForce()) {
+            return false;
+        }
+        final Path lastCheckFile = lastCheckFile(moduleRevisionId);
+        try {
+            return Files.exists(lastCheckFile) && System.currentTimeMillis()
+                    < Files.getLastModifiedTime(lastCheckFile).toMillis() + ttlMillis;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void markChecked(ModuleRevisionId moduleRevisionId) {
+        final Path lastCheckFile = lastCheckFile(moduleRevisionId);
+        try {
+            if (!Files.exists(lastCheckFile)) {
+                Files.createDirectories(lastCheckFile.getParent());
+                Files.createFile(lastCheckFile);
+            }
+            Files.setLastModifiedTime(lastCheckFile, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // The module will just be checked again next time
+        }
+    }
+
+    private Path lastCheckFile(ModuleRevisionId moduleRevisionId) {
+        final File ivyFile = getIvyFileInCache(moduleRevisionId);
+        return ivyFile.toPath().resolveSibling(ivyFile.getName() + LAST_CHECK_SUFFIX);
+    }
+
+    private static boolean isSnapshot(ModuleRevisionId moduleRevisionId) {
+        return moduleRevisionId.getRevision() != null && moduleRevisionId.getRevision().endsWith("-SNAPSHOT");
+    }
+
+}
@@ -11,6 +11,8 @@ import org.apache.ivy.plugins.conflict.AbstractConflictManager;
 import org.apache.ivy.plugins.resolver.AbstractResolver;
 import org.apache.ivy.util.url.URLHandlerRegistry;
 
+import java.io.File;
+
 class IvyTranslatorToIvy {
 
     private static final String MAIN_RESOLVER_NAME = "MAIN";
@@ -48,7 +50,11 @@ class IvyTranslatorToIvy {
             conflictManager.setSettings(ivySettings);
             ivySettings.setDefaultConflictManager(conflictManager);
         }
-        ivySettings.setDefaultCache(JkLocator.getJekaRepositoryCache().toFile());
+        final File cacheDir = JkLocator.getJekaRepositoryCache().toFile();
+        ivySettings.setDefaultCache(cacheDir);
+        final IvyRepositoryCacheManager cacheManager = IvyRepositoryCacheManager.of(ivySettings, cacheDir, parameters);
+        ivySettings.addRepositoryCacheManager(cacheManager);
+        ivySettings.setDefaultRepositoryCacheManager(cacheManager);
         return ivySettings;
     }
 
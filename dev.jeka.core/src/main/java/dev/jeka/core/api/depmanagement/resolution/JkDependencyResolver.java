@@ -113,14 +113,13 @@ public final class JkDependencyResolver<T> {
         if (repos.getRepos().isEmpty() && hasModule) {
             JkLog.warn("You are trying to resolve dependencies on zero repository. Won't be possible to resolve modules.");
         }
-        JkInternalDependencyResolver internalDepResolver = JkInternalDependencyResolver.of(this.repos);
         JkLog.trace("Preparing to resolve dependencies");
         JkLog.startTask("Resolve dependencies");
         JkResolveResult resolveResult;
         if (hasModule) {
             JkUtilsAssert.state(!repos.getRepos().isEmpty(), "Cannot resolve module dependency cause no " +
                     "repos has defined on resolver " + this);
-            resolveResult = internalDepResolver.resolve(moduleHolder, moduleQualifiedDependencies, parameters);
+            resolveResult = resolveModules(moduleQualifiedDependencies);
         } else {
             resolveResult = JkResolveResult.ofRoot(moduleHolder);
         }
@@ -146,6 +145,33 @@ public final class JkDependencyResolver<T> {
         return resolveResult;
     }
 
+    /**
+     * Clears the resolution cache, both in memory and on disk.
+     */
+    public static void clearCache() {
+        ResolveResultCache.clear();
+    }
+
+    private JkResolveResult resolveModules(JkQualifiedDependencySet moduleQualifiedDependencies) {
+        final String cacheKey = parameters.isCached()
+                ? ResolveResultCache.key(moduleHolder, moduleQualifiedDependencies, repos, parameters) : null;
+        if (cacheKey == null) {
+            return JkInternalDependencyResolver.of(this.repos)
+                    .resolve(moduleHolder, moduleQualifiedDependencies, parameters);
+        }
+        synchronized (ResolveResultCache.lock(cacheKey)) {
+            final JkResolvedDependencyNode cachedTree = ResolveResultCache.get(cacheKey);
+            if (cachedTree != null) {
+                JkLog.trace("Dependency tree taken from resolution cache.");
+                return JkResolveResult.of(cachedTree, JkResolveResult.JkErrorReport.allFine());
+            }
+            final JkResolveResult resolveResult = JkInternalDependencyResolver.of(this.repos)
+                    .resolve(moduleHolder, moduleQualifiedDependencies, parameters);
+            ResolveResultCache.put(cacheKey, resolveResult);
+            return resolveResult;
+        }
+    }
+
     /**
      * Returns an alphabetical sorted list of groupId present in these repositories
      */
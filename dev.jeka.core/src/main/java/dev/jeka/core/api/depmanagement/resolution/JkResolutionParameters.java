@@ -2,6 +2,8 @@ package dev.jeka.core.api.depmanagement.resolution;
 
 import dev.jeka.core.api.utils.JkUtilsAssert;
 
+import java.time.Duration;
+
 /**
  * Contains parameters likely to impact module resolution behavior.
  */
@@ -36,12 +38,32 @@ public final class JkResolutionParameters<T> {
         LATEST_VERSION;
     }
 
-    private boolean refreshed = true;
+    /**
+     * Default time during which metadata of snapshot and dynamic versions fetched from remote repositories are
+     * considered up to date.
+     */
+    public static final Duration DEFAULT_METADATA_TTL = Duration.ofHours(24);
+
+    private static boolean defaultOffline;
+
+    private static boolean defaultRefreshed;
+
+    private boolean refreshed = defaultRefreshed;
+
+    private boolean offline = defaultOffline;
+
+    private Duration metadataTtl = DEFAULT_METADATA_TTL;
 
     private JkConflictResolver conflictResolver = JkConflictResolver.DEFAULT;
 
     private boolean failOnDependencyResolutionError = true;
 
+    private boolean cached = true;
+
+    private int downloadThreadCount = 8;
+
+    private int maxDownloadsPerRepo = 4;
+
     /**
      * For parent chaining
      */
@@ -76,8 +98,24 @@ public final class JkResolutionParameters<T> {
     }
 
     /**
-     * Returns <code>true</code> if during the resolution phase, the dynamic
-     * version must be resolved as well or the cache can be reused.
+     * Sets the default value of {@link #isOffline()} for instances created afterward.
+     */
+    public static void setDefaultOffline(boolean offline) {
+        defaultOffline = offline;
+    }
+
+    /**
+     * Sets the default value of {@link #isRefreshed()} for instances created afterward.
+     */
+    public static void setDefaultRefreshed(boolean refreshed) {
+        defaultRefreshed = refreshed;
+    }
+
+    /**
+     * Returns <code>true</code> if during the resolution phase, metadata of snapshot and dynamic versions must be
+     * fetched again from remote repositories, even if the ones in cache have not expired.
+     * Release versions are never fetched again once in cache. <code>false</code> by default.
+     * @see #getMetadataTtl()
      */
     public boolean isRefreshed() {
         return refreshed;
@@ -91,6 +129,40 @@ public final class JkResolutionParameters<T> {
         return this;
     }
 
+    /**
+     * Returns <code>true</code> if the resolution must rely only on the Jeka repository cache, without accessing
+     * remote repositories. In this mode, the resolution fails as soon as a module or an artifact is missing
+     * from the cache. <code>false</code> by default.
+     */
+    public boolean isOffline() {
+        return offline;
+    }
+
+    /**
+     * @see JkResolutionParameters#isOffline()
+     */
+    public JkResolutionParameters<T> setOffline(boolean offline) {
+        this.offline = offline;
+        return this;
+    }
+
+    /**
+     * Returns the time during which metadata of snapshot and dynamic versions, once fetched from remote
+     * repositories, are considered up to date. Metadata of release versions never expire.
+     */
+    public Duration getMetadataTtl() {
+        return metadataTtl;
+    }
+
+    /**
+     * @see JkResolutionParameters#getMetadataTtl()
+     */
+    public JkResolutionParameters<T> setMetadataTtl(Duration metadataTtl) {
+        JkUtilsAssert.argument(metadataTtl != null && !metadataTtl.isNegative(),
+                "metadataTtl can not be null or negative.");
+        this.metadataTtl = metadataTtl;
+        return this;
+    }
 
     public boolean isFailOnDependencyResolutionError() {
         return failOnDependencyResolutionError;
@@ -104,4 +176,53 @@ public final class JkResolutionParameters<T> {
         this.failOnDependencyResolutionError = failOnDependencyResolutionError;
         return this;
     }
+
+    /**
+     * Returns <code>true</code> if resolution results can be taken from, and stored in, the resolution cache.
+     * Only resolutions involving static versions are cached.
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * @see JkResolutionParameters#isCached()
+     */
+    public JkResolutionParameters<T> setCached(boolean cached) {
+        this.cached = cached;
+        return this;
+    }
+
+    /**
+     * Returns the number of threads used to download artifacts once the dependency graph is resolved.
+     */
+    public int getDownloadThreadCount() {
+        return downloadThreadCount;
+    }
+
+    /**
+     * Sets the number of threads used to download artifacts. <code>1</code> means artifacts are downloaded
+     * sequentially.
+     */
+    public JkResolutionParameters<T> setDownloadThreadCount(int downloadThreadCount) {
+        JkUtilsAssert.argument(downloadThreadCount > 0, "downloadThreadCount must be greater than 0.");
+        this.downloadThreadCount = downloadThreadCount;
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of artifacts downloaded simultaneously from a same repository.
+     */
+    public int getMaxDownloadsPerRepo() {
+        return maxDownloadsPerRepo;
+    }
+
+    /**
+     * @see JkResolutionParameters#getMaxDownloadsPerRepo()
+     */
+    public JkResolutionParameters<T> setMaxDownloadsPerRepo(int maxDownloadsPerRepo) {
+        JkUtilsAssert.argument(maxDownloadsPerRepo > 0, "maxDownloadsPerRepo must be greater than 0.");
+        this.maxDownloadsPerRepo = maxDownloadsPerRepo;
+        return this;
+    }
 }
@@ -415,6 +415,10 @@ public class JkResolvedDependencyNode {
             return resolvedVersion == null;
         }
 
+        boolean isTreeRoot() {
+            return treeRoot;
+        }
+
         @Override
         public List<Path> getFiles() {
             return JkUtilsPath.toPaths(artifacts);
@@ -0,0 +1,227 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.depmanagement.*;
+import dev.jeka.core.api.depmanagement.resolution.JkResolvedDependencyNode.JkModuleNodeInfo;
+import dev.jeka.core.api.file.JkFingerprint;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/*
+ * Cache for module resolution results. Results are kept in memory for the JVM lifetime and stored in the Jeka user
+ * home, so next builds can skip resolution as long as dependencies, repositories and parameters stay the same.
+ * Results involving dynamic versions (snapshots, ranges, ...) or resolution errors are never cached.
+ */
+final class ResolveResultCache {
+
+    private static final Map<String, CachedNode> MEMORY_CACHE = new ConcurrentHashMap<>();
+
+    // Striped, so the number of monitors stays bounded whatever the number of keys
+    private static final Object[] LOCKS = new Object[64];
+
+    static {
+        Arrays.setAll(LOCKS, i -> new Object());
+    }
+
+    private static final String DIR_NAME = "cache/resolutions";
+
+    private ResolveResultCache() {
+    }
+
+    /*
+     * Returns the key identifying the resolution of the specified inputs or <code>null</code> if the resolution
+     * can not be cached.
+     */
+    static String key(JkVersionedModule moduleHolder, JkQualifiedDependencySet dependencies, JkRepoSet repos,
+                      JkResolutionParameters<?> parameters) {
+        final JkFingerprint fingerprint = JkFingerprint.of().and(String.valueOf(moduleHolder));
+        for (final JkQualifiedDependency qualifiedDependency : dependencies.getEntries()) {
+            final JkModuleDependency dependency = (JkModuleDependency) qualifiedDependency.getDependency();
+            if (dependency.getVersion().isDynamic()) {
+                return null;
+            }
+            fingerprint.and(qualifiedDependency.getQualifier(), dependency.toString());
+            dependency.getArtifactSpecifications().forEach(spec -> fingerprint.and(spec.getClassifier(), spec.getType()));
+            dependency.getExclusions().forEach(exclusion -> fingerprint.and(exclusionKey(exclusion)));
+        }
+        fingerprint.and("exclusions");
+        dependencies.getGlobalExclusions().stream()
+                .map(ResolveResultCache::exclusionKey).sorted().forEach(fingerprint::and);
+        fingerprint.and(dependencies.getVersionProvider().toString());
+        for (final JkRepo repo : repos.getRepos()) {
+            fingerprint.and(repo.getUrl().toString(), Boolean.toString(repo.isIvyRepo()));
+            if (repo.isIvyRepo()) {
+                fingerprint.and(repo.getIvyConfig().artifactPatterns()).and(repo.getIvyConfig().ivyPatterns());
+            }
+            if (repo.getCredentials() != null) {
+                fingerprint.and(repo.getCredentials().getUserName(), repo.getCredentials().getRealm());
+            }
+        }
+        fingerprint.and(parameters.getConflictResolver().name());
+        return fingerprint.get();
+    }
+
+    /*
+     * Returns the monitor to hold while looking up then resolving and storing the result for the specified key,
+     * so that concurrent identical resolutions, as when building several projects at once, run only once.
+     * Distinct keys may share a monitor.
+     */
+    static Object lock(String key) {
+        return LOCKS[(key.hashCode() & Integer.MAX_VALUE) % LOCKS.length];
+    }
+
+    /*
+     * Returns the cached dependency tree for the specified key or <code>null</code> if none is cached or if
+     * some resolved files have disappeared since.
+     */
+    static JkResolvedDependencyNode get(String key) {
+        CachedNode cachedNode = MEMORY_CACHE.get(key);
+        if (cachedNode == null) {
+            final Path file = file(key);
+            if (!Files.exists(file)) {
+                return null;
+            }
+            try {
+                cachedNode = JkUtilsIO.deserialize(file);
+            } catch (RuntimeException e) {
+                JkLog.trace("Can not read cached resolution " + file + " : " + e.getMessage());
+                JkUtilsPath.deleteIfExists(file);
+                return null;
+            }
+        }
+        if (!cachedNode.filesExist()) {
+            MEMORY_CACHE.remove(key);
+            return null;
+        }
+        MEMORY_CACHE.put(key, cachedNode);
+        return cachedNode.toNode();
+    }
+
+    /*
+     * Stores the specified resolution result if it does not involve dynamic versions nor errors.
+     */
+    static void put(String key, JkResolveResult resolveResult) {
+        if (resolveResult.getErrorReport().hasErrors()) {
+            return;
+        }
+        final CachedNode cachedNode = CachedNode.of(resolveResult.getDependencyTree(), true);
+        if (cachedNode == null) {
+            return;
+        }
+        MEMORY_CACHE.put(key, cachedNode);
+        final Path file = file(key);
+        try {
+            JkUtilsPath.createDirectories(file.getParent());
+            final Path tempFile = file.resolveSibling(file.getFileName() + "." + UUID.randomUUID() + ".tmp");
+            JkUtilsIO.serialize(cachedNode, tempFile);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            JkLog.trace("Can not store resolution in " + file + " : " + e.getMessage());
+        }
+    }
+
+    /*
+     * Clears the in-memory and on-disk caches.
+     */
+    static void clear() {
+        MEMORY_CACHE.clear();
+        final Path dir = dir();
+        if (Files.exists(dir)) {
+            JkPathTree.of(dir).deleteContent();
+        }
+    }
+
+    private static Path dir() {
+        return JkLocator.getJekaUserHomeDir().resolve(DIR_NAME);
+    }
+
+    private static Path file(String key) {
+        return dir().resolve(key + ".ser");
+    }
+
+    private static String exclusionKey(JkDependencyExclusion exclusion) {
+        return exclusion.getModuleId() + ":" + exclusion.getClassifier() + ":" + exclusion.getType();
+    }
+
+    // JkModuleId and JkVersion are not serializable so nodes are stored as plain strings
+    private static final class CachedNode implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String moduleId;
+
+        private final String declaredVersion;
+
+        private final Set<String> declaredConfigurations;
+
+        private final Set<String> rootConfigurations;
+
+        private final String resolvedVersion;  // null if evicted
+
+        private final List<String> files;
+
+        private final boolean treeRoot;
+
+        private final List<CachedNode> children;
+
+        private CachedNode(JkModuleNodeInfo info, List<CachedNode> children) {
+            this.moduleId = info.getModuleId().toString();
+            this.declaredVersion = info.getDeclaredVersion().getValue();
+            this.declaredConfigurations = new HashSet<>(info.getDeclaredConfigurations());
+            this.rootConfigurations = new HashSet<>(info.getRootConfigurations());
+            this.resolvedVersion = info.isEvicted() ? null : info.getResolvedVersion().getValue();
+            this.files = info.getFiles().stream()
+                    .map(path -> path.toAbsolutePath().toString()).collect(Collectors.toList());
+            this.treeRoot = info.isTreeRoot();
+            this.children = children;
+        }
+
+        // Returns null if the tree contains non-module or dynamic version nodes
+        static CachedNode of(JkResolvedDependencyNode node, boolean root) {
+            if (!node.isModuleNode()) {
+                return null;
+            }
+            final JkModuleNodeInfo info = node.getModuleInfo();
+            if (!root && info.getDeclaredVersion().isDynamic()) {
+                return null;
+            }
+            final List<CachedNode> children = new ArrayList<>();
+            for (final JkResolvedDependencyNode child : node.getChildren()) {
+                final CachedNode cachedChild = of(child, false);
+                if (cachedChild == null) {
+                    return null;
+                }
+                children.add(cachedChild);
+            }
+            return new CachedNode(info, children);
+        }
+
+        boolean filesExist() {
+            return files.stream().allMatch(file -> new File(file).exists())
+                    && children.stream().allMatch(CachedNode::filesExist);
+        }
+
+        JkResolvedDependencyNode toNode() {
+            final List<Path> paths = files.stream().map(Paths::get).collect(Collectors.toList());
+            final JkModuleNodeInfo info = new JkModuleNodeInfo(JkModuleId.of(moduleId), JkVersion.of(declaredVersion),
+                    new HashSet<>(declaredConfigurations), new HashSet<>(rootConfigurations),
+                    resolvedVersion == null ? null : JkVersion.of(resolvedVersion), paths, treeRoot);
+            return JkResolvedDependencyNode.ofModuleDep(info, children.stream()
+                    .map(CachedNode::toNode).collect(Collectors.toList()));
+        }
+    }
+
+}
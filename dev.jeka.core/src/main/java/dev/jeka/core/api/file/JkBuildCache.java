@@ -0,0 +1,28 @@
+package dev.jeka.core.api.file;
+
+import java.nio.file.Path;
+
+/**
+ * Store of build outputs (as class directories or jar files) addressed by a key computed from the inputs
+ * producing them. When inputs are the same, outputs can be restored from the cache instead of being built again,
+ * even in another checkout or on another branch. <p>
+ *
+ * {@link JkLocalBuildCache} stores entries in a local directory. Other implementations may delegate to a store
+ * shared among machines.
+ */
+public interface JkBuildCache {
+
+    /**
+     * Copies the entry stored under the specified key at the specified location. If the entry is a directory,
+     * the content of the target directory is replaced by the entry content.
+     * @return <code>false</code> if no entry is stored under the specified key.
+     */
+    boolean restore(String key, Path target);
+
+    /**
+     * Stores a copy of the specified file or directory under the specified key. Does nothing if an entry already
+     * exists for this key.
+     */
+    void store(String key, Path source);
+
+}
@@ -0,0 +1,189 @@
+package dev.jeka.core.api.file;
+
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Computes a digest over string values, file contents and file stamps. Two fingerprints computed on the same
+ * inputs are equal, so comparing a fingerprint with a previously stored one tells if inputs or outputs
+ * of a task have changed in between.<p>
+ *
+ * Content based methods read every byte of files while stamp based methods only look at file names,
+ * sizes and last modification times. These last are much cheaper but are sensitive to files being touched.
+ *
+ * @author Jerome Angibaud
+ */
+public final class JkFingerprint {
+
+    private static final String DEFAULT_ALGORITHM = "MD5";
+
+    private final MessageDigest digest;
+
+    private JkFingerprint(MessageDigest digest) {
+        this.digest = digest;
+    }
+
+    /**
+     * Creates an empty fingerprint using the specified hashing algorithm (MD5, SHA-1, SHA-256, ...).
+     */
+    public static JkFingerprint of(String algorithm) {
+        try {
+            return new JkFingerprint(MessageDigest.getInstance(algorithm));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Hashing algorithm " + algorithm + " not supported.", e);
+        }
+    }
+
+    /**
+     * Creates an empty fingerprint using MD5 hashing algorithm.
+     */
+    public static JkFingerprint of() {
+        return of(DEFAULT_ALGORITHM);
+    }
+
+    /**
+     * Adds the specified values to this fingerprint. <code>null</code> values are accepted.
+     */
+    public JkFingerprint and(String ... values) {
+        return and(Arrays.asList(values));
+    }
+
+    /**
+     * @see #and(String...)
+     */
+    public JkFingerprint and(Iterable<String> values) {
+        for (String value : values) {
+            update(String.valueOf(value));
+        }
+        return this;
+    }
+
+    /**
+     * Adds the content of the specified file to this fingerprint. If the file does not exist, only the fact
+     * that it is absent is taken in account.
+     */
+    public JkFingerprint andFileContent(Path file) {
+        if (!Files.isRegularFile(file)) {
+            update("<absent>");
+            return this;
+        }
+        final byte[] buffer = new byte[8192];
+        try (InputStream is = Files.newInputStream(file)) {
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, len);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        digest.update((byte) 0);
+        return this;
+    }
+
+    /**
+     * Adds relative path and content of each file of the specified tree to this fingerprint.
+     */
+    public JkFingerprint andContent(JkPathTree tree) {
+        update(tree.getRoot().toAbsolutePath().normalize().toString());
+        for (final Path relativeFile : sorted(tree.getRelativeFiles())) {
+            update(relativeFile.toString().replace('\\', '/'));
+            andFileContent(tree.getRoot().resolve(relativeFile));
+        }
+        return this;
+    }
+
+    /**
+     * Same as {@link #andContent(JkPathTree)} but ignoring the location of the tree root, so the fingerprint
+     * is the same for identical trees located in different places (as in two checkouts of a project).
+     */
+    public JkFingerprint andRelocatableContent(JkPathTree tree) {
+        for (final Path relativeFile : sorted(tree.getRelativeFiles())) {
+            update(relativeFile.toString().replace('\\', '/'));
+            andFileContent(tree.getRoot().resolve(relativeFile));
+        }
+        return this;
+    }
+
+    /**
+     * Adds relative path and content of each file of the specified tree set to this fingerprint.
+     */
+    public JkFingerprint andContent(JkPathTreeSet treeSet) {
+        treeSet.toList().forEach(this::andContent);
+        return this;
+    }
+
+    /**
+     * Adds stamps of the specified paths to this fingerprint. For a file, the stamp is made of its
+     * path, size and last modification time. For a directory, the stamps of all files it contains are
+     * taken in account. This is convenient for fingerprinting a classpath.
+     */
+    public JkFingerprint andStamps(Iterable<Path> paths) {
+        for (final Path path : JkUtilsPath.disambiguate(paths)) {
+            update(path.toAbsolutePath().normalize().toString());
+            if (Files.isDirectory(path)) {
+                final List<Path> files;
+                try (Stream<Path> stream = JkUtilsPath.walk(path)) {
+                    files = stream.filter(Files::isRegularFile).map(path::relativize).collect(Collectors.toList());
+                }
+                for (final Path relativeFile : sorted(files)) {
+                    update(relativeFile.toString().replace('\\', '/'));
+                    update(stamp(path.resolve(relativeFile)));
+                }
+            } else {
+                update(stamp(path));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @see #andStamps(Iterable)
+     */
+    public JkFingerprint andStamps(Path ... paths) {
+        return andStamps(Arrays.asList(paths));
+    }
+
+    /**
+     * Returns the hexadecimal representation of this fingerprint. This method can be invoked only once.
+     */
+    public String get() {
+        return JkUtilsString.toHexString(digest.digest());
+    }
+
+    private void update(String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static String stamp(Path file) {
+        if (!Files.exists(file)) {
+            return "<absent>";
+        }
+        try {
+            return Files.size(file) + "-" + Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            throw JkUtilsThrowable.unchecked(e);
+        }
+    }
+
+    private static List<Path> sorted(List<Path> paths) {
+        return paths.stream()
+                .sorted((path1, path2) -> path1.toString().compareTo(path2.toString()))
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,194 @@
+package dev.jeka.core.api.file;
+
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsAssert;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * {@link JkBuildCache} storing entries in a local directory, by default located in Jeka user home. When the
+ * total size of entries exceeds the max size, the least recently used entries are deleted. <p>
+ *
+ * Entries are written in a temporary location then moved in place, so several processes can share the same
+ * cache directory.
+ */
+public final class JkLocalBuildCache implements JkBuildCache {
+
+    private static final long DEFAULT_MAX_SIZE = 1024L * 1024 * 1024;
+
+    private static final String CONTENT = "content";
+
+    private static final String SIZE = "size";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final long TEMP_MAX_AGE_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private final Path dir;
+
+    private final long maxSize;
+
+    private JkLocalBuildCache(Path dir, long maxSize) {
+        this.dir = dir;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Creates a cache storing entries in the specified directory, up to the specified total size in bytes.
+     */
+    public static JkLocalBuildCache of(Path dir, long maxSize) {
+        JkUtilsAssert.argument(maxSize > 0, "Max size must be greater than 0, was " + maxSize);
+        return new JkLocalBuildCache(dir, maxSize);
+    }
+
+    /**
+     * Creates a cache storing entries in [Jeka user home]/cache/build, up to 1 GB.
+     */
+    public static JkLocalBuildCache of() {
+        return of(JkLocator.getJekaUserHomeDir().resolve("cache/build"), DEFAULT_MAX_SIZE);
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public boolean restore(String key, Path target) {
+        final Path entry = dir.resolve(key);
+        final Path content = entry.resolve(CONTENT);
+        if (!Files.exists(content)) {
+            return false;
+        }
+        try {
+            if (Files.isDirectory(content)) {
+                if (Files.exists(target)) {
+                    JkPathTree.of(target).deleteContent();
+                }
+                JkUtilsPath.copyDirContent(content, target, JkPathMatcher.of());
+            } else {
+                JkUtilsPath.createDirectories(target.toAbsolutePath().getParent());
+                JkUtilsPath.copy(content, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            touch(entry);
+            return true;
+        } catch (final UncheckedIOException e) {  // entry evicted by another process meanwhile
+            JkLog.trace("Can not restore build cache entry " + key + " : " + e.getMessage());
+            if (Files.isDirectory(target)) {
+                JkPathTree.of(target).deleteContent();
+            } else {
+                JkUtilsPath.deleteIfExists(target);
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public void store(String key, Path source) {
+        final Path entry = dir.resolve(key);
+        if (Files.exists(entry)) {
+            touch(entry);
+            return;
+        }
+        final Path tempEntry = dir.resolve(key + "." + UUID.randomUUID() + TEMP_SUFFIX);
+        try {
+            JkUtilsPath.createDirectories(tempEntry);
+            if (Files.isDirectory(source)) {
+                JkUtilsPath.copyDirContent(source, tempEntry.resolve(CONTENT), JkPathMatcher.of());
+            } else {
+                JkUtilsPath.copy(source, tempEntry.resolve(CONTENT));
+            }
+            JkUtilsPath.write(tempEntry.resolve(SIZE), Long.toString(size(tempEntry.resolve(CONTENT)))
+                    .getBytes(StandardCharsets.UTF_8));
+            Files.move(tempEntry, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            // stored by another process meanwhile
+        } catch (IOException | UncheckedIOException e) {
+            JkLog.trace("Can not store build cache entry " + key + " : " + e.getMessage());
+        } finally {
+            if (Files.exists(tempEntry)) {
+                JkPathTree.of(tempEntry).deleteRoot();
+            }
+        }
+        evict();
+    }
+
+    /*
+     * Deletes least recently used entries until the total size fits in the max size.
+     */
+    private void evict() {
+        final List<Path> entries = new ArrayList<>();
+        final long now = System.currentTimeMillis();
+        for (final Path path : JkUtilsPath.listDirectChildren(dir)) {
+            if (!path.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                entries.add(path);
+            } else if (lastModified(path) < now - TEMP_MAX_AGE_MILLIS) {  // left by a killed process
+                delete(path);
+            }
+        }
+        entries.sort(Comparator.comparingLong(JkLocalBuildCache::lastModified).reversed());
+        long size = 0;
+        for (final Path entry : entries) {
+            size += entrySize(entry);
+            if (size > maxSize) {
+                JkLog.trace("Evict build cache entry " + entry.getFileName());
+                delete(entry);
+            }
+        }
+    }
+
+    private static void touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (final IOException e) {
+            JkLog.trace("Can not touch build cache entry " + entry + " : " + e.getMessage());
+        }
+    }
+
+    private static long entrySize(Path entry) {
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(entry.resolve(SIZE)), StandardCharsets.UTF_8));
+        } catch (IOException | RuntimeException e) {
+            return size(entry);
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (final IOException e) {
+            return 0;
+        }
+    }
+
+    private static long size(Path path) {
+        try (Stream<Path> stream = Files.walk(path)) {
+            return stream.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        } catch (IOException | UncheckedIOException e) {
+            return 0;
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            JkPathTree.of(path).deleteRoot();
+        } catch (final UncheckedIOException e) {
+            JkLog.trace("Can not delete build cache entry " + path + " : " + e.getMessage());
+        }
+    }
+
+}
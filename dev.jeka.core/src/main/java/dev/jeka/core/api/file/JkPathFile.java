@@ -84,7 +84,7 @@ public final class JkPathFile {
         try (Stream<String> stream = Files.lines(path, charset)) {
             List<String> result = stream.map(line -> interpolated(line, tokens))
                 .collect(Collectors.toList());
-            Files.write(to, result, charset, StandardOpenOption.CREATE);
+            Files.write(to, result, charset, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
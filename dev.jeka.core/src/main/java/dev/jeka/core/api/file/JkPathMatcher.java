@@ -69,14 +69,15 @@ public final class JkPathMatcher implements PathMatcher {
         if (!it.hasNext()) {
             return JkPathMatcher.of();
         }
-        String pattern = it.next();
-        PathMatcher result = path -> positive == globMatcher(fileSystem, pattern).matches(path);
+        // Glob patterns are compiled once, not on each evaluation
+        PathMatcher firstMatcher = globMatcher(fileSystem, it.next());
+        PathMatcher result = path -> positive == firstMatcher.matches(path);
         while (it.hasNext()) {
-            String itPattern = it.next();
+            PathMatcher itMatcher = globMatcher(fileSystem, it.next());
             if (positive) {
-                result = new OrMatcher(result, globMatcher(fileSystem, itPattern));
+                result = new OrMatcher(result, itMatcher);
             } else {
-                result = new AndMatcher(result, path -> !globMatcher(fileSystem, itPattern).matches(path));
+                result = new AndMatcher(result, path -> !itMatcher.matches(path));
             }
         }
         String name = positive ? "in" : "out";
@@ -31,6 +31,8 @@ public final class JkPathTree implements Closeable {
 
     private static final JkPathMatcher ACCEPT_ALL = JkPathMatcher.of();
 
+    private static final int PARALLEL_MATCHING_THRESHOLD = 5000;
+
     /**
      * Creates a {@link JkPathTree} having the specified root directory.
      */
@@ -134,6 +136,10 @@ public final class JkPathTree implements Closeable {
         if(!exists()) {
             return new LinkedList<Path>().stream();
         }
+        if (options.length == 0 && !rootHolder.isZip() && PathTreeSnapshot.isSupported(getRoot())) {
+            final Path root = getRoot();
+            return matchingEntries(false).stream().map(entry -> root.resolve(entry.relativePath));
+        }
         final JkPathMatcher matcher = JkPathMatcher.of(this.matcher);
         return JkUtilsPath.walk(getRoot(), options)
                 .filter(path -> matcher.matches(getRoot().relativize(path)))
@@ -144,6 +150,9 @@ public final class JkPathTree implements Closeable {
      * Same as {@link #getFiles()} but returning paths relative to this tree root.
      */
     public List<Path> getRelativeFiles() {
+        if (!rootHolder.isZip() && exists() && PathTreeSnapshot.isSupported(getRoot())) {
+            return matchingEntries(true).stream().map(entry -> entry.relativePath).collect(Collectors.toList());
+        }
         try(Stream<Path> stream = stream()) {
             return stream.filter(JkPathMatcher.ofNoDirectory().toPredicate()).map(relativePathFunction()).collect(Collectors.toList());
         }
@@ -153,11 +162,29 @@ public final class JkPathTree implements Closeable {
      * Returns list of paths returned by {@link #stream(FileVisitOption...)} but excluding directories from the result.
      */
     public List<Path> getFiles() {
+        if (!rootHolder.isZip() && exists() && PathTreeSnapshot.isSupported(getRoot())) {
+            final Path root = getRoot();
+            return matchingEntries(true).stream().map(entry -> root.resolve(entry.relativePath))
+                    .collect(Collectors.toList());
+        }
         try (Stream<Path> stream = stream()) {
             return stream.filter(JkPathMatcher.ofNoDirectory().toPredicate()).collect(Collectors.toList());
         }
     }
 
+    /*
+     * Returns the entries of the directory snapshot matching this tree matcher. Large trees are matched in parallel.
+     */
+    private List<PathTreeSnapshot.Entry> matchingEntries(boolean excludeDirectories) {
+        final List<PathTreeSnapshot.Entry> entries = PathTreeSnapshot.entries(getRoot());
+        final Stream<PathTreeSnapshot.Entry> stream = entries.size() >= PARALLEL_MATCHING_THRESHOLD
+                ? entries.parallelStream() : entries.stream();
+        return stream
+                .filter(entry -> !excludeDirectories || !entry.directory)
+                .filter(entry -> matcher.matches(entry.relativePath))
+                .collect(Collectors.toList());
+    }
+
 
     // ---------------------- Navigate -----------------------------------------------------------
 
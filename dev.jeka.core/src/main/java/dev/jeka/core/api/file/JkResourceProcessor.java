@@ -1,16 +1,11 @@
 package dev.jeka.core.api.file;
 
 import dev.jeka.core.api.system.JkLog;
-import dev.jeka.core.api.utils.JkUtilsAssert;
-import dev.jeka.core.api.utils.JkUtilsIterable;
-import dev.jeka.core.api.utils.JkUtilsPath;
-import dev.jeka.core.api.utils.JkUtilsString;
+import dev.jeka.core.api.utils.*;
 
+import java.io.IOException;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.PathMatcher;
-import java.nio.file.Paths;
+import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -144,6 +139,172 @@ public final class JkResourceProcessor<T> {
         JkLog.endTask();
     }
 
+    /**
+     * Same as {@link #generate(JkPathTreeSet, Path)} but processes only what has changed since the last run
+     * recorded in the specified state file : a resource is copied again only if its content, the values to
+     * interpolate in it or its output file have changed. Resources no interpolator applies to are copied as is.
+     * Output files of resources removed since the last run are deleted.<p>
+     * Content of unchanged resources is not read, as long as their size and last modification time are unchanged.
+     */
+    public void generateIncrementally(JkPathTreeSet resourceTrees, Path outputDir, Path stateFile) {
+        JkLog.startTask("Copy resource files to %s", outputDir);
+        final Map<String, String> previousState = Files.exists(stateFile)
+                ? JkUtilsFile.readPropertyFileAsMap(stateFile) : Collections.emptyMap();
+        JkUtilsPath.deleteIfExists(stateFile);  // Remains absent if processing fails
+
+        // When several trees contain the same resource, the last one wins as for #generate
+        final Map<String, Path> sources = new LinkedHashMap<>();
+        for (final JkPathTree resourceTree : resourceTrees.toList()) {
+            if (!resourceTree.exists()) {
+                continue;
+            }
+            resourceTree.stream().forEach(path -> {
+                final Path relativePath = resourceTree.getRoot().relativize(path);
+                if (Files.isDirectory(path)) {
+                    JkUtilsPath.createDirectories(outputDir.resolve(relativePath));
+                } else {
+                    sources.put(relativePath.toString(), path);
+                }
+            });
+        }
+        final Map<String, String> state = new HashMap<>();
+        int processedCount = 0;
+        for (final Map.Entry<String, Path> entry : sources.entrySet()) {
+            final String key = entry.getKey().replace('\\', '/');
+            final Path source = entry.getValue();
+            final Path out = outputDir.resolve(entry.getKey());
+            final Map<String, String> data = JkInterpolator.of(entry.getKey(), interpolators);
+            final String interpolation = data.isEmpty() ? "" : JkFingerprint.of()
+                    .and(JkUtilsIterable.toStrings(new TreeMap<>(data)))
+                    .and(interpolationCharset.name()).get();
+            final ResourceState current = new ResourceState(stamp(source), null, interpolation, null);
+            final ResourceState previous = ResourceState.parse(previousState.get(key));
+            if (previous != null && previous.interpolation.equals(interpolation)
+                    && previous.outputStamp.equals(stamp(out))) {
+                if (previous.sourceStamp.equals(current.sourceStamp)) {
+                    state.put(key, previous.toString());
+                    continue;
+                }
+                current.hash = JkFingerprint.of().andFileContent(source).get();
+                if (previous.hash.equals(current.hash)) {
+                    current.outputStamp = previous.outputStamp;
+                    state.put(key, current.toString());
+                    continue;
+                }
+            } else {
+                current.hash = JkFingerprint.of().andFileContent(source).get();
+            }
+            if (data.isEmpty()) {
+                JkUtilsPath.createDirectories(out.getParent());
+                JkUtilsPath.copy(source, out, StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                JkPathFile.of(source).copyReplacingTokens(out, data, interpolationCharset);
+            }
+            current.outputStamp = stamp(out);
+            state.put(key, current.toString());
+            processedCount++;
+        }
+        int removedCount = 0;
+        for (final String key : previousState.keySet()) {
+            final Path out = outputDir.resolve(key);
+            if (!state.containsKey(key) && Files.exists(out)) {
+                JkUtilsPath.deleteFile(out);
+                removedCount++;
+            }
+        }
+        JkUtilsPath.createDirectories(stateFile.getParent());
+        JkUtilsFile.writePropertyFile(stateFile, state, "Resources processed by last run. Delete this file to force " +
+                "processing all resources.");
+        JkLog.info("%s processed, %s unchanged, %s removed.", JkUtilsString.plurialize(processedCount, "file"),
+                sources.size() - processedCount, removedCount);
+        JkLog.endTask();
+    }
+
+    private static String stamp(Path file) {
+        if (!Files.exists(file)) {
+            return "<absent>";
+        }
+        try {
+            return Files.size(file) + "-" + Files.getLastModifiedTime(file).toMillis();
+        } catch (final IOException e) {
+            throw JkUtilsThrowable.unchecked(e);
+        }
+    }
+
+    /**
+     * Returns a fingerprint of the specified resources as processed by this processor. It changes as soon as
+     * a resource is added, removed or modified, or as interpolation settings change. It does not depend on
+     * the location of resource trees.
+     */
+    public String getFingerprint(JkPathTreeSet resourceTrees) {
+        final JkFingerprint fingerprint = JkFingerprint.of();
+        for (final JkPathTree resourceTree : resourceTrees.toList()) {
+            fingerprint.and("<tree>").andRelocatableContent(resourceTree);
+        }
+        fingerprint.and(interpolationCharset.name());
+        for (final JkInterpolator interpolator : interpolators) {
+            fingerprint.and(interpolator.matcher.toString())
+                    .and(JkUtilsIterable.toStrings(new TreeMap<>(interpolator.keyValues)));
+        }
+        return fingerprint.get();
+    }
+
+    /**
+     * Returns a fingerprint of the resources processed by the last {@link #generateIncrementally(JkPathTreeSet,
+     * Path, Path)} run recorded in the specified state file, or <code>null</code> if no state is recorded. As
+     * {@link #getFingerprint(JkPathTreeSet)}, it depends on resource content and interpolated values but not
+     * on the location of resource trees. Resource content is not read, as hashes are taken from the state file.
+     */
+    public String getFingerprint(Path stateFile) {
+        if (!Files.exists(stateFile)) {
+            return null;
+        }
+        final JkFingerprint fingerprint = JkFingerprint.of();
+        for (final Map.Entry<String, String> entry : new TreeMap<>(JkUtilsFile.readPropertyFileAsMap(stateFile))
+                .entrySet()) {
+            final ResourceState state = ResourceState.parse(entry.getValue());
+            if (state == null) {
+                return null;
+            }
+            fingerprint.and(entry.getKey(), state.hash, state.interpolation);
+        }
+        return fingerprint.get();
+    }
+
+    /*
+     * State of a processed resource, stored as 'sourceStamp;hash;interpolation;outputStamp'.
+     */
+    private static final class ResourceState {
+
+        private final String sourceStamp;
+
+        private String hash;
+
+        private final String interpolation;
+
+        private String outputStamp;
+
+        ResourceState(String sourceStamp, String hash, String interpolation, String outputStamp) {
+            this.sourceStamp = sourceStamp;
+            this.hash = hash;
+            this.interpolation = interpolation;
+            this.outputStamp = outputStamp;
+        }
+
+        static ResourceState parse(String value) {
+            if (value == null) {
+                return null;
+            }
+            final String[] items = value.split(";", -1);
+            return items.length == 4 ? new ResourceState(items[0], items[1], items[2], items[3]) : null;
+        }
+
+        @Override
+        public String toString() {
+            return sourceStamp + ";" + hash + ";" + interpolation + ";" + outputStamp;
+        }
+    }
+
     /**
      * Defines values to be interpolated (replacing key by their
      * value), and the file filter to apply it. Keys are generally formatted as <code>${keyName}</code>
@@ -0,0 +1,239 @@
+package dev.jeka.core.api.file;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+
+/*
+ * Listing of a directory tree, walked in parallel (one fork-join task per sub-directory) and kept in memory so a
+ * tree walked several times during a build is listed once. A snapshot is reused as long as none of its
+ * directories has been modified : the last modification time of a directory changes as soon as an entry is
+ * added, removed or renamed in it, so only modified directories are listed again.
+ * Directories modified shortly before being listed are listed again on next use, as their modification time
+ * may not reflect subsequent changes, due to timestamp granularity.
+ */
+final class PathTreeSnapshot {
+
+    private static final long RACY_MILLIS = 2000;
+
+    private static final int MAX_CACHED_ROOTS = 64;
+
+    private static final Path EMPTY = Paths.get("");
+
+    private static final Map<Path, PathTreeSnapshot> CACHE = new LinkedHashMap<Path, PathTreeSnapshot>(16, 0.75f,
+            true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, PathTreeSnapshot> eldest) {
+            return size() > MAX_CACHED_ROOTS;
+        }
+    };
+
+    private final Path root;
+
+    private final Map<Path, DirListing> listings = new ConcurrentHashMap<>();
+
+    private List<Entry> entries;
+
+    private PathTreeSnapshot(Path root) {
+        this.root = root;
+    }
+
+    /*
+     * Returns <code>true</code> if the specified directory can be listed through a snapshot.
+     */
+    static boolean isSupported(Path dir) {
+        return dir.getFileSystem() == FileSystems.getDefault() && !Files.isSymbolicLink(dir);
+    }
+
+    /*
+     * Returns the entries of the specified existing directory, in the order Files#walk would return them.
+     * The root itself is the first entry.
+     */
+    static List<Entry> entries(Path dir) {
+        final Path key = dir.toAbsolutePath().normalize();
+        final PathTreeSnapshot snapshot;
+        synchronized (CACHE) {
+            snapshot = CACHE.computeIfAbsent(key, PathTreeSnapshot::new);
+        }
+        return snapshot.refreshedEntries();
+    }
+
+    static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    private synchronized List<Entry> refreshedEntries() {
+        if (listings.isEmpty()) {
+            walk(Collections.singletonList(EMPTY));
+        } else {
+            final List<Path> modifiedDirs = listings.values().parallelStream()
+                    .filter(DirListing::isModified)
+                    .map(listing -> listing.relativePath)
+                    .collect(Collectors.toList());
+            if (!modifiedDirs.isEmpty()) {
+                entries = null;
+                modifiedDirs.forEach(listings::remove);
+                walk(modifiedDirs.stream().filter(dir -> Files.isDirectory(root.resolve(dir),
+                        LinkOption.NOFOLLOW_LINKS)).collect(Collectors.toList()));
+            }
+        }
+        if (entries == null) {
+            entries = flatten();
+        }
+        return entries;
+    }
+
+    // Lists the specified directories and their sub-directories not listed yet
+    private void walk(List<Path> relativeDirs) {
+        final List<ListTask> tasks = relativeDirs.stream().map(ListTask::new).collect(Collectors.toList());
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    // Collects entries in pre-order and forgets about listings of directories that are no longer part of the tree
+    private List<Entry> flatten() {
+        final List<Entry> result = new ArrayList<>();
+        final Set<Path> reached = new HashSet<>();
+        result.add(new Entry(EMPTY, true));
+        final Deque<Iterator<Entry>> stack = new ArrayDeque<>();
+        final DirListing rootListing = listings.get(EMPTY);
+        if (rootListing != null) {
+            reached.add(EMPTY);
+            stack.push(rootListing.children.iterator());
+        }
+        while (!stack.isEmpty()) {
+            final Iterator<Entry> it = stack.peek();
+            if (!it.hasNext()) {
+                stack.pop();
+                continue;
+            }
+            final Entry entry = it.next();
+            result.add(entry);
+            final DirListing listing = entry.walkable ? listings.get(entry.relativePath) : null;
+            if (listing != null) {
+                reached.add(entry.relativePath);
+                stack.push(listing.children.iterator());
+            }
+        }
+        listings.keySet().retainAll(reached);
+        return Collections.unmodifiableList(result);
+    }
+
+    /*
+     * An entry of the tree. Symbolic links are not walked, but are considered as directories if they point to one,
+     * as {@link Files#isDirectory(Path, LinkOption...)} does.
+     */
+    static final class Entry {
+
+        final Path relativePath;
+
+        final boolean directory;
+
+        private final boolean walkable;
+
+        private Entry(Path relativePath, boolean directory, boolean walkable) {
+            this.relativePath = relativePath;
+            this.directory = directory;
+            this.walkable = walkable;
+        }
+
+        private Entry(Path relativePath, boolean directory) {
+            this(relativePath, directory, directory);
+        }
+    }
+
+    private final class DirListing {
+
+        private final Path relativePath;
+
+        private final FileTime lastModifiedTime;
+
+        private final boolean racy;
+
+        private final List<Entry> children = new ArrayList<>();
+
+        private DirListing(Path relativePath) throws IOException {
+            this.relativePath = relativePath;
+            final Path dir = root.resolve(relativePath);
+            final long now = System.currentTimeMillis();
+            this.lastModifiedTime = Files.getLastModifiedTime(dir, LinkOption.NOFOLLOW_LINKS);
+            this.racy = lastModifiedTime.toMillis() >= now - RACY_MILLIS;
+            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(dir)) {
+                for (final Path child : directoryStream) {
+                    final Path childRelativePath = relativePath.resolve(child.getFileName());
+                    final BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(child, BasicFileAttributes.class,
+                                LinkOption.NOFOLLOW_LINKS);
+                    } catch (final NoSuchFileException e) {
+                        continue;  // deleted meanwhile
+                    }
+                    if (attributes.isSymbolicLink()) {
+                        children.add(new Entry(childRelativePath, Files.isDirectory(child), false));
+                    } else {
+                        children.add(new Entry(childRelativePath, attributes.isDirectory()));
+                    }
+                }
+            }
+        }
+
+        boolean isModified() {
+            if (racy) {
+                return true;
+            }
+            try {
+                return !lastModifiedTime.equals(Files.getLastModifiedTime(root.resolve(relativePath),
+                        LinkOption.NOFOLLOW_LINKS));
+            } catch (final IOException e) {
+                return true;
+            }
+        }
+    }
+
+    private final class ListTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path relativeDir;
+
+        ListTask(Path relativeDir) {
+            this.relativeDir = relativeDir;
+        }
+
+        @Override
+        protected void compute() {
+            final DirListing listing;
+            try {
+                listing = new DirListing(relativeDir);
+            } catch (final NoSuchFileException e) {
+                return;  // deleted meanwhile
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            listings.put(relativeDir, listing);
+            final List<ListTask> subTasks = new ArrayList<>();
+            for (final Entry child : listing.children) {
+                if (child.walkable && !listings.containsKey(child.relativePath)) {
+                    subTasks.add(new ListTask(child.relativePath));
+                }
+            }
+            invokeAll(subTasks);
+        }
+    }
+
+}
@@ -0,0 +1,221 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.file.JkFingerprint;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Minimal reader of Java class files, extracting what is needed for incremental compilation :
+ * class name, source file name, referenced classes and a hash of the class ABI (the part visible
+ * from other classes).
+ */
+final class ClassFileInfo {
+
+    private static final Pattern TYPE_IN_DESCRIPTOR = Pattern.compile("L([\\w/$]+)[;<]");
+
+    private static final int ACC_PRIVATE = 0x0002;
+
+    private static final int ACC_STATIC = 0x0008;
+
+    private static final int ACC_FINAL = 0x0010;
+
+    private static final int ACC_SUPER = 0x0020;
+
+    final String className;  // internal form as 'java/lang/String'
+
+    final String sourceFile;  // null if no SourceFile attribute
+
+    final Set<String> referencedClasses;
+
+    final Set<String> supertypes;  // superclass and implemented interfaces
+
+    final String abiHash;
+
+    final String constantsHash;
+
+    ClassFileInfo(String className, String sourceFile, Set<String> referencedClasses, Set<String> supertypes,
+                  String abiHash, String constantsHash) {
+        this.className = className;
+        this.sourceFile = sourceFile;
+        this.referencedClasses = referencedClasses;
+        this.supertypes = supertypes;
+        this.abiHash = abiHash;
+        this.constantsHash = constantsHash;
+    }
+
+    static ClassFileInfo of(InputStream inputStream) {
+        try {
+            return read(new DataInputStream(inputStream));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ClassFileInfo read(DataInputStream in) throws IOException {
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IllegalArgumentException("Not a class file");
+        }
+        in.readUnsignedShort();  // minor version
+        in.readUnsignedShort();  // major version
+        final int constantPoolCount = in.readUnsignedShort();
+        final Object[] constants = new Object[constantPoolCount];
+        final int[] classNameIndexes = new int[constantPoolCount];
+        for (int i = 1; i < constantPoolCount; i++) {
+            final int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1: constants[i] = in.readUTF(); break;
+                case 3: constants[i] = in.readInt(); break;
+                case 4: constants[i] = in.readFloat(); break;
+                case 5: constants[i] = in.readLong(); i++; break;
+                case 6: constants[i] = in.readDouble(); i++; break;
+                case 7: classNameIndexes[i] = in.readUnsignedShort(); break;
+                case 8: constants[i] = new StringRef(in.readUnsignedShort()); break;
+                case 16: case 19: case 20: in.readUnsignedShort(); break;
+                case 15: in.readUnsignedByte(); in.readUnsignedShort(); break;
+                case 9: case 10: case 11: case 12: case 17: case 18: in.readInt(); break;
+                default: throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+            }
+        }
+        final int accessFlags = in.readUnsignedShort();
+        final String className = classNameAt(constants, classNameIndexes, in.readUnsignedShort());
+        final String superName = classNameAt(constants, classNameIndexes, in.readUnsignedShort());
+        final List<String> interfaces = new ArrayList<>();
+        final int interfaceCount = in.readUnsignedShort();
+        for (int i = 0; i < interfaceCount; i++) {
+            interfaces.add(classNameAt(constants, classNameIndexes, in.readUnsignedShort()));
+        }
+        Collections.sort(interfaces);
+        final List<String> fields = readMembers(in, constants, classNameIndexes);
+        final List<String> methods = readMembers(in, constants, classNameIndexes);
+        final Map<String, String> classAttributes = readAttributes(in, constants, classNameIndexes);
+
+        final JkFingerprint abi = JkFingerprint.of()
+                .and(Integer.toString(accessFlags & ~ACC_SUPER), className, superName)
+                .and(interfaces)
+                .and(String.valueOf(classAttributes.get("Signature")));
+        final JkFingerprint constantValues = JkFingerprint.of();
+        for (final String field : fields) {
+            abi.and(field);
+            if (field.contains("=")) {
+                constantValues.and(field);
+            }
+        }
+        abi.and(methods);
+
+        final Set<String> referencedClasses = new TreeSet<>();
+        for (int i = 1; i < constantPoolCount; i++) {
+            if (classNameIndexes[i] > 0) {
+                addClassName(referencedClasses, (String) constants[classNameIndexes[i]]);
+            } else if (constants[i] instanceof String) {
+                final Matcher matcher = TYPE_IN_DESCRIPTOR.matcher((String) constants[i]);
+                while (matcher.find()) {
+                    referencedClasses.add(matcher.group(1));
+                }
+            }
+        }
+        referencedClasses.remove(className);
+        final Set<String> supertypes = new TreeSet<>(interfaces);
+        if (superName != null) {
+            supertypes.add(superName);
+        }
+        return new ClassFileInfo(className, classAttributes.get("SourceFile"), referencedClasses, supertypes,
+                abi.get(), constantValues.get());
+    }
+
+    /*
+     * Returns a string description of each non private member, sorted.
+     */
+    private static List<String> readMembers(DataInputStream in, Object[] constants, int[] classNameIndexes)
+            throws IOException {
+        final List<String> result = new ArrayList<>();
+        final int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            final int accessFlags = in.readUnsignedShort();
+            final String name = (String) constants[in.readUnsignedShort()];
+            final String descriptor = (String) constants[in.readUnsignedShort()];
+            final Map<String, String> attributes = readAttributes(in, constants, classNameIndexes);
+            if ((accessFlags & ACC_PRIVATE) != 0) {
+                continue;
+            }
+            final StringBuilder description = new StringBuilder()
+                    .append(accessFlags).append(' ').append(name).append(' ').append(descriptor);
+            if (attributes.containsKey("Signature")) {
+                description.append(' ').append(attributes.get("Signature"));
+            }
+            if (attributes.containsKey("Exceptions")) {
+                description.append(" throws ").append(attributes.get("Exceptions"));
+            }
+            if (attributes.containsKey("ConstantValue") && (accessFlags & (ACC_STATIC | ACC_FINAL)) != 0) {
+                description.append(" = ").append(attributes.get("ConstantValue"));
+            }
+            result.add(description.toString());
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /*
+     * Reads attributes, returning the value of the ones relevant for ABI or source mapping.
+     */
+    private static Map<String, String> readAttributes(DataInputStream in, Object[] constants,
+                                                      int[] classNameIndexes) throws IOException {
+        final Map<String, String> result = new HashMap<>();
+        final int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            final String name = (String) constants[in.readUnsignedShort()];
+            final int length = in.readInt();
+            if ("SourceFile".equals(name) || "Signature".equals(name)) {
+                result.put(name, (String) constants[in.readUnsignedShort()]);
+            } else if ("ConstantValue".equals(name)) {
+                final Object value = constants[in.readUnsignedShort()];
+                result.put(name, value instanceof StringRef
+                        ? "\"" + constants[((StringRef) value).index] + "\"" : String.valueOf(value));
+            } else if ("Exceptions".equals(name)) {
+                final int exceptionCount = in.readUnsignedShort();
+                final List<String> exceptions = new ArrayList<>();
+                for (int j = 0; j < exceptionCount; j++) {
+                    exceptions.add(classNameAt(constants, classNameIndexes, in.readUnsignedShort()));
+                }
+                Collections.sort(exceptions);
+                result.put(name, exceptions.toString());
+            } else {
+                in.readFully(new byte[length]);
+            }
+        }
+        return result;
+    }
+
+    private static String classNameAt(Object[] constants, int[] classNameIndexes, int index) {
+        if (index == 0) {
+            return null;
+        }
+        return (String) constants[classNameIndexes[index]];
+    }
+
+    private static void addClassName(Set<String> classNames, String name) {
+        if (!name.startsWith("[")) {
+            classNames.add(name);
+            return;
+        }
+        final Matcher matcher = TYPE_IN_DESCRIPTOR.matcher(name);
+        if (matcher.find()) {
+            classNames.add(matcher.group(1));
+        }
+    }
+
+    private static final class StringRef {
+
+        private final int index;
+
+        StringRef(int index) {
+            this.index = index;
+        }
+    }
+
+}
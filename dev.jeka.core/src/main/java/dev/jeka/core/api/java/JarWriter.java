@@ -0,0 +1,324 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.file.JkPathTreeSet;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsIterable;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/*
+ * Writes the content of a tree set in a jar file in a single streaming pass. When several trees contain the
+ * same entry, the one from the last tree wins. Entries are written in a deterministic order : manifest first,
+ * then alphabetically. Entries having an extension of an already compressed format can be stored without
+ * compression.
+ */
+final class JarWriter {
+
+    private static final String MANIFEST_DIR = "META-INF/";
+
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = JkUtilsIterable.setOf("jar", "war", "ear", "zip",
+            "gz", "tgz", "bz2", "xz", "7z", "png", "jpg", "jpeg", "gif", "webp", "mp3", "mp4", "woff", "woff2");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int compressionLevel;
+
+    private final boolean storeCompressedEntries;
+
+    JarWriter(int compressionLevel, boolean storeCompressedEntries) {
+        this.compressionLevel = compressionLevel;
+        this.storeCompressedEntries = storeCompressedEntries;
+    }
+
+    void write(JkPathTreeSet treeSet, Path target) {
+        final Map<String, Source> sources = new HashMap<>();
+        for (final JkPathTree tree : treeSet.toList()) {
+            collect(tree, sources);
+        }
+        final List<String> names = new ArrayList<>(withParentDirs(sources.keySet()));
+        names.sort(JarWriter::compareEntryNames);
+        if (target.getParent() != null) {
+            JkUtilsPath.createDirectories(target.getParent());
+        }
+        final Map<Path, ZipFile> zipFiles = new HashMap<>();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        try (ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(target), BUFFER_SIZE))) {
+            out.setLevel(compressionLevel);
+            for (final String name : names) {
+                final Source source = sources.get(name);
+                final ZipEntry entry = new ZipEntry(name);
+                final long lastModified = source == null ? -1 : source.lastModified(zipFiles);
+                if (lastModified >= 0) {
+                    entry.setTime(lastModified);
+                }
+                if (name.endsWith("/")) {
+                    out.putNextEntry(entry);
+                } else if (storeCompressedEntries && isCompressed(name)) {
+                    final byte[] bytes;
+                    try (InputStream inputStream = source.open(zipFiles)) {
+                        bytes = toBytes(inputStream, buffer);
+                    }
+                    final CRC32 crc = new CRC32();
+                    crc.update(bytes);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(bytes.length);
+                    entry.setCompressedSize(bytes.length);
+                    entry.setCrc(crc.getValue());
+                    out.putNextEntry(entry);
+                    out.write(bytes);
+                } else {
+                    out.putNextEntry(entry);
+                    try (InputStream inputStream = source.open(zipFiles)) {
+                        copy(inputStream, out, buffer);
+                    }
+                }
+                out.closeEntry();
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            zipFiles.values().forEach(zipFile -> JkUtilsIO.closeQuietly(zipFile));
+        }
+    }
+
+    /*
+     * Writes a jar containing the main trees content followed by the content of the specified jars. Entries from
+     * jars are copied without being decompressed, skipping the ones already present or not matching the filter.
+     * Jars that can not be copied this way are read entry by entry. As for #write, when several jars contain
+     * the same entry, the one from the last jar wins, so jars are processed in reverse order.
+     */
+    void writeFatJar(JkPathTreeSet mainTrees, Iterable<Path> jars, PathMatcher filter, Path target) {
+        final Map<String, Source> sources = new HashMap<>();
+        for (final JkPathTree tree : mainTrees.toList()) {
+            collect(tree, sources);
+        }
+        final List<String> names = new ArrayList<>(withParentDirs(sources.keySet()));
+        names.sort(JarWriter::compareEntryNames);
+        if (target.getParent() != null) {
+            JkUtilsPath.createDirectories(target.getParent());
+        }
+        final Map<Path, ZipFile> zipFiles = new HashMap<>();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        final Deflater deflater = new Deflater(compressionLevel, true);
+        try (RawZipWriter out = new RawZipWriter(new BufferedOutputStream(
+                Files.newOutputStream(target), BUFFER_SIZE))) {
+            final Set<String> writtenNames = new HashSet<>();
+            for (final String name : names) {
+                final Source source = sources.get(name);
+                final long lastModified = source == null ? -1 : source.lastModified(zipFiles);
+                if (name.endsWith("/")) {
+                    writeEntry(out, name, null, lastModified, deflater);
+                } else {
+                    try (InputStream inputStream = source.open(zipFiles)) {
+                        writeEntry(out, name, toBytes(inputStream, buffer), lastModified, deflater);
+                    }
+                }
+                writtenNames.add(name);
+            }
+            final List<Path> reversedJars = new ArrayList<>(JkUtilsPath.disambiguate(jars));
+            Collections.reverse(reversedJars);
+            for (final Path jar : reversedJars) {
+                try (RawZipWriter.SourceZip sourceZip = RawZipWriter.SourceZip.of(jar)) {
+                    final List<RawZipWriter.SourceEntry> entries = sourceZip.entries();
+                    if (entries == null) {
+                        copyEntryByEntry(out, jar, filter, writtenNames, deflater, buffer);
+                        continue;
+                    }
+                    for (final RawZipWriter.SourceEntry entry : entries) {
+                        final String name = entry.getName();
+                        if (accept(name, filter) && writtenNames.add(name)) {
+                            out.copy(entry);
+                        }
+                    }
+                }
+            }
+        } catch (final RawZipWriter.ZipOverflowException e) {
+            JkLog.trace(e.getMessage() + ". Write " + target + " in streaming mode.");
+            write(JkPathTreeSet.ofEmpty().andZips(jars).andMatcher(filter).and(mainTrees), target);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+            zipFiles.values().forEach(zipFile -> JkUtilsIO.closeQuietly(zipFile));
+        }
+    }
+
+    private void copyEntryByEntry(RawZipWriter out, Path jar, PathMatcher filter, Set<String> writtenNames,
+                                  Deflater deflater, byte[] buffer) throws IOException {
+        try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                final String name = entry.getName();
+                if (!accept(name, filter) || !writtenNames.add(name)) {
+                    continue;
+                }
+                if (entry.isDirectory()) {
+                    writeEntry(out, name, null, entry.getTime(), deflater);
+                } else {
+                    try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                        writeEntry(out, name, toBytes(inputStream, buffer), entry.getTime(), deflater);
+                    }
+                }
+            }
+        }
+    }
+
+    private void writeEntry(RawZipWriter out, String name, byte[] content, long lastModified, Deflater deflater)
+            throws IOException {
+        final long time = lastModified >= 0 ? lastModified : System.currentTimeMillis();
+        if (content == null) {
+            out.write(name, ZipEntry.STORED, 0, new byte[0], 0, time);
+            return;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        if (compressionLevel == Deflater.NO_COMPRESSION || (storeCompressedEntries && isCompressed(name))) {
+            out.write(name, ZipEntry.STORED, crc.getValue(), content, content.length, time);
+            return;
+        }
+        deflater.reset();
+        deflater.setInput(content);
+        deflater.finish();
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, content.length / 2));
+        final byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            final int len = deflater.deflate(chunk);
+            compressed.write(chunk, 0, len);
+        }
+        out.write(name, ZipEntry.DEFLATED, crc.getValue(), compressed.toByteArray(), content.length, time);
+    }
+
+    // Matchers are designed to match relative paths, so entry names are converted
+    private static boolean accept(String entryName, PathMatcher filter) {
+        final String name = entryName.endsWith("/") ? entryName.substring(0, entryName.length() - 1) : entryName;
+        return !name.isEmpty() && filter.matches(Paths.get(name));
+    }
+
+    private static byte[] toBytes(InputStream in, byte[] buffer) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        copy(in, out, buffer);
+        return out.toByteArray();
+    }
+
+    private static void copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+    }
+
+    private static void collect(JkPathTree tree, Map<String, Source> sources) {
+        if (!tree.exists()) {
+            return;
+        }
+        final Path rootFile = tree.getRootDirOrZipFile();
+        final Path zipFile = Files.isRegularFile(rootFile) ? rootFile : null;
+        final Path root = tree.getRoot();
+        try (Stream<Path> stream = tree.stream()) {
+            stream.filter(path -> !path.equals(root)).forEach(path -> {
+                String name = root.relativize(path).toString().replace('\\', '/');
+                final boolean dir = Files.isDirectory(path);
+                if (dir) {
+                    name = name + "/";
+                }
+                sources.put(name, zipFile == null ? new Source(path, null, null)
+                        : new Source(null, zipFile, name));
+            });
+        }
+    }
+
+    private static Set<String> withParentDirs(Set<String> names) {
+        final Set<String> result = new HashSet<>(names);
+        for (final String name : names) {
+            int index = name.lastIndexOf('/', name.length() - 2);
+            while (index > 0) {
+                result.add(name.substring(0, index + 1));
+                index = name.lastIndexOf('/', index - 1);
+            }
+        }
+        return result;
+    }
+
+    private static int compareEntryNames(String name1, String name2) {
+        final int rank = Integer.compare(rank(name1), rank(name2));
+        return rank != 0 ? rank : name1.compareTo(name2);
+    }
+
+    // Manifest must come first so it can be read by JarInputStream
+    private static int rank(String name) {
+        if (MANIFEST_DIR.equalsIgnoreCase(name)) {
+            return 0;
+        }
+        if (MANIFEST.equalsIgnoreCase(name)) {
+            return 1;
+        }
+        return 2;
+    }
+
+    private static boolean isCompressed(String name) {
+        final int dotIndex = name.lastIndexOf('.');
+        if (dotIndex < 0 || dotIndex < name.lastIndexOf('/')) {
+            return false;
+        }
+        return COMPRESSED_EXTENSIONS.contains(name.substring(dotIndex + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static class Source {
+
+        private final Path file;
+
+        private final Path zipFile;
+
+        private final String entryName;
+
+        Source(Path file, Path zipFile, String entryName) {
+            this.file = file;
+            this.zipFile = zipFile;
+            this.entryName = entryName;
+        }
+
+        long lastModified(Map<Path, ZipFile> zipFiles) throws IOException {
+            if (file != null) {
+                return Files.getLastModifiedTime(file).toMillis();
+            }
+            final ZipEntry zipEntry = zipFile(zipFiles).getEntry(entryName);
+            return zipEntry == null ? -1 : zipEntry.getTime();
+        }
+
+        InputStream open(Map<Path, ZipFile> zipFiles) throws IOException {
+            if (file != null) {
+                return Files.newInputStream(file);
+            }
+            final ZipFile zip = zipFile(zipFiles);
+            return zip.getInputStream(zip.getEntry(entryName));
+        }
+
+        private ZipFile zipFile(Map<Path, ZipFile> zipFiles) throws IOException {
+            ZipFile result = zipFiles.get(zipFile);
+            if (result == null) {
+                result = new ZipFile(zipFile.toFile());
+                zipFiles.put(zipFile, result);
+            }
+            return result;
+        }
+    }
+
+}
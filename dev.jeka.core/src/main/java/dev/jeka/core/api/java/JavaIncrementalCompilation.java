@@ -0,0 +1,551 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.file.JkFingerprint;
+import dev.jeka.core.api.file.JkPathFile;
+import dev.jeka.core.api.file.JkPathSequence;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/*
+ * Performs incremental compilation on behalf of {@link JkJavaCompiler}.
+ *
+ * For each compiled class, the state of the last compilation records the source it comes from, the
+ * hash of its ABI, its supertypes and the classes it references. On next compilation, only modified sources are
+ * recompiled, then the sources depending on a class whose ABI has changed, and so on. A class inherits ABI changes
+ * of its supertypes, as its dependents may use inherited members. Classpath
+ * entries are tracked the same way : when an entry changes, only sources referencing one of its
+ * classes whose ABI has changed are recompiled. A full compilation occurs when compile options or
+ * classpath composition change, when a compile-time constant changes or when annotation processors
+ * may be involved.
+ */
+final class JavaIncrementalCompilation {
+
+    private static final String PROCESSOR_SERVICE = "META-INF/services/javax.annotation.processing.Processor";
+
+    private final JkJavaCompiler<?> compiler;
+
+    private final JkJavaCompileSpec<?> spec;
+
+    private final Path stateFile;
+
+    private final Path outputDir;
+
+    private final List<Path> classpath;
+
+    private final Map<String, Path> sourceFiles = new TreeMap<>();  // absolute path as string -> path
+
+    private JavaIncrementalCompilation(JkJavaCompiler<?> compiler, JkJavaCompileSpec<?> spec, Path stateFile) {
+        this.compiler = compiler;
+        this.spec = spec;
+        this.stateFile = stateFile;
+        this.outputDir = spec.getOutputDir().toAbsolutePath().normalize();
+        this.classpath = spec.getClasspath().getEntries().stream()
+                .map(path -> path.toAbsolutePath().normalize())
+                .filter(path -> !path.equals(outputDir))
+                .collect(Collectors.toList());
+        for (final Path path : spec.getSourceFiles()) {
+            if (Files.isDirectory(path)) {
+                JkPathTree.of(path).andMatching(true, "**/*.java").getFiles()
+                        .forEach(file -> sourceFiles.put(key(file), file));
+            } else {
+                sourceFiles.put(key(path), path);
+            }
+        }
+    }
+
+    static boolean compile(JkJavaCompiler<?> compiler, JkJavaCompileSpec<?> spec, Path stateFile) {
+        return new JavaIncrementalCompilation(compiler, spec, stateFile).run();
+    }
+
+    private boolean run() {
+        if (sourceFiles.isEmpty()) {
+            JkLog.info("No Java source files found.");
+            return true;
+        }
+        final State previous = State.read(stateFile);
+        JkUtilsPath.deleteIfExists(stateFile);  // Remains absent if compilation fails
+        final State current = new State();
+        current.contextHash = contextHash();
+        sourceFiles.forEach((key, path) -> current.sourceHashes.put(key, JkPathFile.of(path).getChecksum("MD5")));
+        classpath.forEach(entry -> current.entryStamps.put(key(entry), JkFingerprint.of().andStamps(entry).get()));
+        final String fullCompileReason = fullCompileReason(previous, current);
+        final boolean success;
+        if (fullCompileReason != null) {
+            JkLog.trace("Full compilation : " + fullCompileReason);
+            success = fullCompile(previous, current);
+        } else {
+            success = incrementalCompile(previous, current);
+        }
+        if (success) {
+            current.write(stateFile);
+        }
+        return success;
+    }
+
+    private String fullCompileReason(State previous, State current) {
+        if (previous == null) {
+            return "no previous compilation state";
+        }
+        if (!previous.contextHash.equals(current.contextHash)) {
+            return "compile options have changed";
+        }
+        if (!new ArrayList<>(previous.entryStamps.keySet()).equals(new ArrayList<>(current.entryStamps.keySet()))) {
+            return "classpath composition has changed";
+        }
+        if (mayUseAnnotationProcessors()) {
+            return "annotation processors may be involved";
+        }
+        return null;
+    }
+
+    private boolean fullCompile(State previous, State current) {
+        if (previous != null) {
+            previous.classes.keySet().forEach(this::deleteClassFiles);
+        }
+        if (!compiler.compile(spec)) {
+            return false;
+        }
+        for (final ClassFileInfo info : classFilesIn(sourceFiles.keySet(), 0)) {
+            current.add(info, sourceOf(info));
+        }
+        if (previous != null) {
+            previous.entryConstantHashes.forEach((entry, hash) -> {
+                if (previous.entryStamps.get(entry).equals(current.entryStamps.get(entry))) {
+                    current.entryConstantHashes.putIfAbsent(entry, hash);
+                }
+            });
+        }
+        updateExternalAbis(current);
+        return true;
+    }
+
+    private boolean incrementalCompile(State previous, State current) {
+        current.classes.putAll(previous.classes);
+        current.classesOfSource.putAll(previous.classesOfSource);
+        current.entryConstantHashes.putAll(previous.entryConstantHashes);
+        current.externalAbis.putAll(previous.externalAbis);
+
+        final Set<String> removedSources = new TreeSet<>(previous.sourceHashes.keySet());
+        removedSources.removeAll(current.sourceHashes.keySet());
+        final Set<String> dirtySources = new TreeSet<>();
+        current.sourceHashes.forEach((source, hash) -> {
+            if (!hash.equals(previous.sourceHashes.get(source))) {
+                dirtySources.add(source);
+            }
+        });
+
+        // Classes whose ABI has changed or that do not exist anymore
+        final Set<String> changedClasses = new HashSet<>();
+        removedSources.forEach(source -> changedClasses.addAll(previous.classesOf(source)));
+        final Set<String> changedExternalClasses = changedExternalClasses(previous, current);
+        if (changedExternalClasses == null) {
+            JkLog.trace("Full compilation : compile-time constants of classpath have changed.");
+            return fullCompile(previous, current.reset());
+        }
+        changedClasses.addAll(changedExternalClasses);
+        dirtySources.addAll(current.sourcesDependingOn(current.withSubtypes(changedClasses)));
+        dirtySources.removeAll(removedSources);
+        for (final String source : removedSources) {
+            current.classesOf(source).forEach(this::deleteClassFiles);
+            current.removeSource(source);
+        }
+
+        final Set<String> compiledSources = new HashSet<>();
+        while (!dirtySources.isEmpty()) {
+            JkLog.info("Compile incrementally " + JkUtilsString.plurialize(dirtySources.size(), "source file")
+                    + " out of " + sourceFiles.size() + ".");
+            final Map<String, ClassFileInfo> oldClasses = new HashMap<>();
+            for (final String source : dirtySources) {
+                for (final String className : current.classesOf(source)) {
+                    oldClasses.put(className, current.classes.get(className).toInfo(className));
+                    deleteClassFiles(className);
+                }
+                current.removeSource(source);
+            }
+            final JkJavaCompileSpec<?> subSpec = JkJavaCompileSpec.of()
+                    .addOptions(spec.getOptions())
+                    .setClasspath(JkPathSequence.of(classpath).andPrepend(outputDir))
+                    .addSources(dirtySources.stream().map(sourceFiles::get).collect(Collectors.toList()));
+            final long compileStart = System.currentTimeMillis() - 2000;  // Some file systems have poor precision
+            if (!compiler.compile(subSpec)) {
+                return false;
+            }
+            compiledSources.addAll(dirtySources);
+            final Set<String> abiChangedClasses = new HashSet<>(oldClasses.keySet());
+            for (final ClassFileInfo info : classFilesIn(dirtySources, compileStart)) {
+                final ClassFileInfo old = oldClasses.get(info.className);
+                if (old != null && !old.constantsHash.equals(info.constantsHash)) {
+                    JkLog.trace("Full compilation : compile-time constants of " + info.className + " have changed.");
+                    return fullCompile(previous, current.reset());
+                }
+                if (old != null && old.abiHash.equals(info.abiHash)) {
+                    abiChangedClasses.remove(info.className);
+                } else {
+                    abiChangedClasses.add(info.className);
+                }
+                current.add(info, sourceOf(info));
+            }
+            dirtySources.clear();
+            dirtySources.addAll(current.sourcesDependingOn(current.withSubtypes(abiChangedClasses)));
+            dirtySources.removeAll(compiledSources);
+        }
+        updateExternalAbis(current);
+        return true;
+    }
+
+    /*
+     * Returns the classes of modified classpath entries having an ABI change and referenced by sources,
+     * or <code>null</code> if compile-time constants of a modified entry have changed or were unknown.
+     */
+    private Set<String> changedExternalClasses(State previous, State current) {
+        final Set<String> result = new HashSet<>();
+        boolean constantsChanged = false;
+        for (final Path entry : classpath) {
+            final String entryKey = key(entry);
+            if (current.entryStamps.get(entryKey).equals(previous.entryStamps.get(entryKey))) {
+                continue;
+            }
+            JkLog.trace("Classpath entry " + entry + " has changed.");
+            final Map<String, ClassFileInfo> entryClasses = classFilesOf(entry);
+            final String constantsHash = constantsHash(entryClasses.values());
+            constantsChanged = constantsChanged || !constantsHash.equals(previous.entryConstantHashes.get(entryKey));
+            current.entryConstantHashes.put(entryKey, constantsHash);
+            previous.externalAbis.forEach((className, abiHash) -> {
+                final ClassFileInfo info = entryClasses.get(className);
+                if (info != null && !info.abiHash.equals(abiHash)) {
+                    result.add(className);
+                    current.externalAbis.put(className, info.abiHash);
+                }
+            });
+        }
+        return constantsChanged ? null : result;
+    }
+
+    /*
+     * Records ABI hashes of classpath classes referenced by compiled classes and not yet recorded.
+     * The first classpath entry containing the class wins.
+     */
+    private void updateExternalAbis(State current) {
+        final Set<String> referencedClasses = new HashSet<>();
+        current.classes.values().forEach(classState -> referencedClasses.addAll(classState.references));
+        referencedClasses.removeAll(current.classes.keySet());
+        current.externalAbis.keySet().retainAll(referencedClasses);
+        final Set<String> missingClasses = new HashSet<>(referencedClasses);
+        missingClasses.removeAll(current.externalAbis.keySet());
+        for (final Path entry : classpath) {
+            if (missingClasses.isEmpty()) {
+                return;
+            }
+            for (final ClassFileInfo info : classFilesOf(entry, missingClasses)) {
+                current.externalAbis.put(info.className, info.abiHash);
+                missingClasses.remove(info.className);
+            }
+        }
+    }
+
+    private String contextHash() {
+        final List<String> options = new LinkedList<>(spec.getOptions());
+        final int cpIndex = options.indexOf("-cp");
+        if (cpIndex >= 0 && cpIndex + 1 < options.size()) {
+            options.remove(cpIndex + 1);
+            options.remove(cpIndex);
+        }
+        return JkFingerprint.of().and(options).and(System.getProperty("java.version")).get();
+    }
+
+    private boolean mayUseAnnotationProcessors() {
+        if (spec.getOptions().contains("-proc:none")) {
+            return false;
+        }
+        for (final Path entry : classpath) {
+            if (Files.isDirectory(entry)) {
+                if (Files.exists(entry.resolve(PROCESSOR_SERVICE))) {
+                    return true;
+                }
+            } else if (Files.isRegularFile(entry)) {
+                try (ZipFile zipFile = new ZipFile(entry.toFile())) {
+                    if (zipFile.getEntry(PROCESSOR_SERVICE) != null) {
+                        return true;
+                    }
+                } catch (IOException e) {
+                    JkLog.trace("Can not read " + entry + " : " + e.getMessage());
+                }
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Returns info about class files present in output dir, modified after the specified time and
+     * coming from the specified sources.
+     */
+    private List<ClassFileInfo> classFilesIn(Collection<String> sources, long modifiedAfter) {
+        final Set<String> sourceNames = sources.stream()
+                .map(source -> sourceFiles.get(source).getFileName().toString())
+                .collect(Collectors.toSet());
+        final List<ClassFileInfo> result = new LinkedList<>();
+        try (Stream<Path> stream = JkUtilsPath.walk(outputDir)) {
+            stream.filter(path -> path.toString().endsWith(".class"))
+                    .filter(path -> modifiedAfter <= 0 || lastModified(path) >= modifiedAfter)
+                    .forEach(path -> {
+                final ClassFileInfo info = read(path);
+                if (info != null && sourceNames.contains(info.sourceFile)) {
+                    final String source = sourceOf(info);
+                    if (source != null && sources.contains(source)) {
+                        result.add(info);
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * Finds the source file the specified class comes from. It relies on SourceFile attribute and package name.
+     */
+    private String sourceOf(ClassFileInfo info) {
+        if (info.sourceFile == null) {
+            return null;
+        }
+        final String packagePath = info.className.contains("/")
+                ? JkUtilsString.substringBeforeLast(info.className, "/") + "/" : "";
+        final String suffix = "/" + packagePath + info.sourceFile;
+        for (final String source : sourceFiles.keySet()) {
+            if (source.replace('\\', '/').endsWith(suffix)) {
+                return source;
+            }
+        }
+        return null;
+    }
+
+    private Map<String, ClassFileInfo> classFilesOf(Path entry) {
+        final Map<String, ClassFileInfo> result = new HashMap<>();
+        classFilesOf(entry, null).forEach(info -> result.put(info.className, info));
+        return result;
+    }
+
+    /*
+     * Returns info about classes contained in the specified classpath entry. If classNames is not null, only
+     * the classes having the specified names are returned.
+     */
+    private static List<ClassFileInfo> classFilesOf(Path entry, Set<String> classNames) {
+        final List<ClassFileInfo> result = new LinkedList<>();
+        if (Files.isDirectory(entry)) {
+            if (classNames != null) {
+                classNames.stream()
+                        .map(className -> entry.resolve(className + ".class"))
+                        .filter(Files::exists)
+                        .forEach(path -> addIfNotNull(result, read(path)));
+            } else {
+                try (Stream<Path> stream = JkUtilsPath.walk(entry)) {
+                    stream.filter(path -> path.toString().endsWith(".class"))
+                            .forEach(path -> addIfNotNull(result, read(path)));
+                }
+            }
+        } else if (Files.isRegularFile(entry)) {
+            try (ZipFile zipFile = new ZipFile(entry.toFile())) {
+                if (classNames != null) {
+                    for (final String className : classNames) {
+                        final ZipEntry zipEntry = zipFile.getEntry(className + ".class");
+                        if (zipEntry != null) {
+                            addIfNotNull(result, read(zipFile, zipEntry));
+                        }
+                    }
+                } else {
+                    for (final ZipEntry zipEntry : Collections.list(zipFile.entries())) {
+                        if (zipEntry.getName().endsWith(".class") && !zipEntry.getName().startsWith("META-INF/")) {
+                            addIfNotNull(result, read(zipFile, zipEntry));
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return result;
+    }
+
+    private static String constantsHash(Collection<ClassFileInfo> classInfos) {
+        final JkFingerprint fingerprint = JkFingerprint.of();
+        classInfos.stream()
+                .sorted(Comparator.comparing(info -> info.className))
+                .forEach(info -> fingerprint.and(info.className, info.constantsHash));
+        return fingerprint.get();
+    }
+
+    private void deleteClassFiles(String className) {
+        JkUtilsPath.deleteIfExists(outputDir.resolve(className + ".class"));
+    }
+
+    private static ClassFileInfo read(Path classFile) {
+        try (InputStream inputStream = Files.newInputStream(classFile)) {
+            return ClassFileInfo.of(inputStream);
+        } catch (IOException | RuntimeException e) {
+            JkLog.trace("Can not read class file " + classFile + " : " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static ClassFileInfo read(ZipFile zipFile, ZipEntry zipEntry) {
+        try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+            return ClassFileInfo.of(inputStream);
+        } catch (IOException | RuntimeException e) {
+            JkLog.trace("Can not read class file " + zipEntry.getName() + " : " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void addIfNotNull(List<ClassFileInfo> list, ClassFileInfo info) {
+        if (info != null) {
+            list.add(info);
+        }
+    }
+
+    private static String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    private static final class State implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String contextHash;
+
+        // Source path -> content hash
+        private final Map<String, String> sourceHashes = new TreeMap<>();
+
+        // Source path -> names of the classes compiled from it
+        private final Map<String, Set<String>> classesOfSource = new HashMap<>();
+
+        // Class name -> state
+        private final Map<String, ClassState> classes = new HashMap<>();
+
+        // Classpath entry path -> stamp, in classpath order
+        private final LinkedHashMap<String, String> entryStamps = new LinkedHashMap<>();
+
+        // Classpath entry path -> hash of compile-time constants it contains
+        private final Map<String, String> entryConstantHashes = new HashMap<>();
+
+        // Class name of classpath classes referenced by compiled classes -> ABI hash
+        private final Map<String, String> externalAbis = new HashMap<>();
+
+        static State read(Path file) {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            try {
+                return JkUtilsIO.deserialize(file);
+            } catch (RuntimeException e) {
+                JkLog.trace("Can not read incremental compilation state " + file + " : " + e.getMessage());
+                return null;
+            }
+        }
+
+        void write(Path file) {
+            JkUtilsPath.createDirectories(file.toAbsolutePath().getParent());
+            JkUtilsIO.serialize(this, file);
+        }
+
+        // Forgets about compiled classes, keeping input stamps and hashes
+        State reset() {
+            classes.clear();
+            classesOfSource.clear();
+            externalAbis.clear();
+            return this;
+        }
+
+        Set<String> classesOf(String source) {
+            return classesOfSource.getOrDefault(source, Collections.emptySet());
+        }
+
+        void add(ClassFileInfo info, String source) {
+            classes.put(info.className, new ClassState(source, info));
+            classesOfSource.computeIfAbsent(source, key -> new HashSet<>()).add(info.className);
+        }
+
+        void removeSource(String source) {
+            final Set<String> classNames = classesOfSource.remove(source);
+            if (classNames != null) {
+                classes.keySet().removeAll(classNames);
+            }
+        }
+
+        // Returns the specified classes along with the compiled classes extending or implementing them, transitively
+        Set<String> withSubtypes(Set<String> classNames) {
+            final Set<String> result = new HashSet<>(classNames);
+            boolean added = !result.isEmpty();
+            while (added) {
+                added = false;
+                for (final Map.Entry<String, ClassState> entry : classes.entrySet()) {
+                    if (!result.contains(entry.getKey())
+                            && entry.getValue().supertypes.stream().anyMatch(result::contains)) {
+                        result.add(entry.getKey());
+                        added = true;
+                    }
+                }
+            }
+            return result;
+        }
+
+        Set<String> sourcesDependingOn(Set<String> classNames) {
+            if (classNames.isEmpty()) {
+                return Collections.emptySet();
+            }
+            return classes.values().stream()
+                    .filter(classState -> classState.references.stream().anyMatch(classNames::contains))
+                    .map(classState -> classState.source)
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    private static final class ClassState implements Serializable {
+
+        private static final long serialVersionUID = 2L;  // Supertypes added
+
+        private final String source;
+
+        private final String abiHash;
+
+        private final String constantsHash;
+
+        private final Set<String> references;
+
+        private final Set<String> supertypes;
+
+        ClassState(String source, ClassFileInfo info) {
+            this.source = source;
+            this.abiHash = info.abiHash;
+            this.constantsHash = info.constantsHash;
+            this.references = info.referencedClasses;
+            this.supertypes = info.supertypes;
+        }
+
+        ClassFileInfo toInfo(String className) {
+            return new ClassFileInfo(className, null, references, supertypes, abiHash, constantsHash);
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.file.JkPathMatcher;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.system.JkLog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Graph of dependencies between compiled classes, read from bytecode. A class depends on the classes referenced
+ * in its constant pool : super types, field and method types, invoked methods, annotations, nested and enclosing
+ * classes, ... <p>
+ * Note that compile-time constants (static final primitives and Strings) are inlined by the compiler, so classes
+ * using a constant do not depend on the class declaring it.
+ */
+public final class JkClassDependencyGraph {
+
+    // Class name -> referenced class names, limited to classes of the graph
+    private final Map<String, Set<String>> dependencies;
+
+    // Class name -> source path relative to source root, for classes having a SourceFile attribute
+    private final Map<String, String> sourcePaths;
+
+    private JkClassDependencyGraph(Map<String, Set<String>> dependencies, Map<String, String> sourcePaths) {
+        this.dependencies = dependencies;
+        this.sourcePaths = sourcePaths;
+    }
+
+    /**
+     * Creates a graph of the classes contained in the specified class directories. Non-existing directories
+     * are ignored.
+     */
+    public static JkClassDependencyGraph of(Iterable<Path> classDirs) {
+        final Map<String, Set<String>> referencedClasses = new HashMap<>();
+        final Map<String, String> sourcePaths = new HashMap<>();
+        for (final Path classDir : classDirs) {
+            if (!Files.isDirectory(classDir)) {
+                continue;
+            }
+            for (final Path relativeFile : JkPathTree.of(classDir).andMatcher(JkPathMatcher.of("**.class"))
+                    .getRelativeFiles()) {
+                final ClassFileInfo info = read(classDir.resolve(relativeFile));
+                if (info != null) {
+                    final Set<String> classNames = new HashSet<>();
+                    info.referencedClasses.forEach(name -> classNames.add(name.replace('/', '.')));
+                    final String className = info.className.replace('/', '.');
+                    if (referencedClasses.putIfAbsent(className, classNames) == null && info.sourceFile != null) {
+                        final int packageEnd = info.className.lastIndexOf('/');
+                        sourcePaths.put(className, info.className.substring(0, packageEnd + 1) + info.sourceFile);
+                    }
+                }
+            }
+        }
+        referencedClasses.values().forEach(classNames -> classNames.retainAll(referencedClasses.keySet()));
+        return new JkClassDependencyGraph(referencedClasses, sourcePaths);
+    }
+
+    /**
+     * Returns the names of all classes of this graph.
+     */
+    public Set<String> getClassNames() {
+        return Collections.unmodifiableSet(dependencies.keySet());
+    }
+
+    /**
+     * Returns the names of the classes of this graph directly referenced by the specified class.
+     */
+    public Set<String> getDependencies(String className) {
+        return Collections.unmodifiableSet(dependencies.getOrDefault(className, Collections.emptySet()));
+    }
+
+    /**
+     * Returns the path, relative to its source root, of the source file the specified class has been compiled
+     * from (as <code>pkg/Foo.java</code>), or <code>null</code> if the class file does not mention it.
+     */
+    public String getSourcePath(String className) {
+        return sourcePaths.get(className);
+    }
+
+    /**
+     * Returns the specified classes along all classes of this graph depending on them, directly or transitively.
+     */
+    public Set<String> getTransitiveDependents(Collection<String> classNames) {
+        final Map<String, List<String>> dependents = new HashMap<>();
+        dependencies.forEach((className, referencedClasses) -> referencedClasses.forEach(referencedClass ->
+                dependents.computeIfAbsent(referencedClass, key -> new ArrayList<>()).add(className)));
+        final Set<String> result = new HashSet<>(classNames);
+        final Deque<String> toVisit = new ArrayDeque<>(classNames);
+        while (!toVisit.isEmpty()) {
+            for (final String dependent : dependents.getOrDefault(toVisit.pop(), Collections.emptyList())) {
+                if (result.add(dependent)) {
+                    toVisit.push(dependent);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static ClassFileInfo read(Path classFile) {
+        try (InputStream inputStream = Files.newInputStream(classFile)) {
+            return ClassFileInfo.of(inputStream);
+        } catch (IOException | RuntimeException e) {
+            JkLog.trace("Can not read class file " + classFile + " : " + e.getMessage());
+            return null;
+        }
+    }
+
+}
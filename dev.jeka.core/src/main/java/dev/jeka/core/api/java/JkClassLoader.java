@@ -9,13 +9,14 @@ import dev.jeka.core.api.utils.JkUtilsString;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.function.Predicate;
 
 public class JkClassLoader {
 
+    // Beyond this nesting level of arrays, collections and maps, objects are serialized rather than inspected
+    private static final int MAX_SHARED_CHECK_DEPTH = 8;
+
     private final ClassLoader delegate;
 
     private JkClassLoader(ClassLoader delegate) {
@@ -130,9 +131,9 @@ public class JkClassLoader {
     /**
      * Invokes a static method on the specified class using the provided
      * arguments. <br/>
-     * If the argument classes are the same on the current class loader and this
-     * one then arguments are passed as is, otherwise arguments are serialized
-     * in the current class loader and deserialized in this class loader in
+     * If the argument classes, including the ones of array, collection or map elements, are the same
+     * on the current class loader and this one then arguments are passed as is, otherwise arguments are
+     * serialized in the current class loader and deserialized in this class loader in
      * order to be compliant with it. <br/>
      * The current thread context class loader is switched to this for the
      * method execution. <br/>
@@ -212,32 +213,83 @@ public class JkClassLoader {
 
     }
 
+    /*
+     * Objects are passed as is when their classes, and the classes of the elements they contain for arrays,
+     * collections and maps, resolve to the same classes in the target classloader : this is the case for JDK types
+     * and for types loaded by a common parent, as Jeka API types for embedded libraries. Otherwise, they are
+     * cloned by serialization.
+     */
     private static Object crossClassLoader(Object object, ClassLoader to) {
         if (object == null) {
             return null;
         }
-        if (JkClassLoader.of(to).isDescendantOf(object.getClass().getClassLoader())) {
+        if (isShared(object, to, new HashMap<>(), MAX_SHARED_CHECK_DEPTH)) {
             return object;
         }
-        final Class<?> clazz = object.getClass();
-        final String className;
-        if (clazz.isArray()) {
-            className = object.getClass().getComponentType().getName();
-        } else {
-            className = object.getClass().getName();
+        return JkUtilsIO.cloneBySerialization(object, to);
+    }
+
+    // Class kinds are cached as instanceof checks against interfaces are costly on large collections
+    private static boolean isShared(Object object, ClassLoader to, Map<Class<?>, ClassKind> kinds, int depth) {
+        if (object == null) {
+            return true;
         }
-        final JkClassLoader from = JkClassLoader.ofLoaderOf(object.getClass());
-        final Class<?> toClass = JkClassLoader.of(to).load(className);
-        final boolean container = Collection.class.isAssignableFrom(clazz)
-                || Map.class.isAssignableFrom(clazz);
-        if (from.delegate == null && !container) { // Class from JDK
-            return object;
+        final ClassKind kind = kinds.computeIfAbsent(object.getClass(), clazz -> ClassKind.of(clazz, to));
+        if (kind == ClassKind.NOT_SHARED) {
+            return false;
         }
-        if (toClass.equals(object.getClass()) && !container) {
-            return object;
+        if (kind == ClassKind.SHARED) {
+            return true;
         }
+        if (depth == 0) {
+            return false;
+        }
+        if (kind == ClassKind.SHARED_MAP) {
+            for (final Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+                if (!isShared(entry.getKey(), to, kinds, depth - 1)
+                        || !isShared(entry.getValue(), to, kinds, depth - 1)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        final Iterable<?> items = kind == ClassKind.SHARED_ARRAY ? Arrays.asList((Object[]) object)
+                : (Collection<?>) object;
+        for (final Object item : items) {
+            if (!isShared(item, to, kinds, depth - 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        return JkUtilsIO.cloneBySerialization(object, to);
+    private enum ClassKind {
+
+        NOT_SHARED, SHARED, SHARED_ARRAY, SHARED_COLLECTION, SHARED_MAP;
+
+        static ClassKind of(Class<?> clazz, ClassLoader to) {
+            if (clazz.getClassLoader() != null && !isSameClassIn(clazz, to)) {
+                return NOT_SHARED;
+            }
+            if (clazz.isArray()) {
+                return clazz.getComponentType().isPrimitive() ? SHARED : SHARED_ARRAY;
+            }
+            if (Collection.class.isAssignableFrom(clazz)) {
+                return SHARED_COLLECTION;
+            }
+            if (Map.class.isAssignableFrom(clazz)) {
+                return SHARED_MAP;
+            }
+            return SHARED;
+        }
+
+        private static boolean isSameClassIn(Class<?> clazz, ClassLoader to) {
+            try {
+                return Class.forName(clazz.getName(), false, to) == clazz;
+            } catch (final ClassNotFoundException | LinkageError e) {
+                return false;
+            }
+        }
     }
 
     /**
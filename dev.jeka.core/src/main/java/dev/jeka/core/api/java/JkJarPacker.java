@@ -6,6 +6,7 @@ import dev.jeka.core.api.utils.JkUtilsAssert;
 
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.util.zip.Deflater;
 
 /**
  * Utilities class to produce Jar files.
@@ -24,15 +25,25 @@ public final class JkJarPacker {
 
     private final JkPathTreeSet extraFiles;
 
-    private JkJarPacker(JkPathTreeSet classTrees, JkManifest manifest, JkPathTreeSet extraFiles) {
+    private final int compressionLevel;
+
+    private final boolean storeCompressedEntries;
+
+    private final boolean rawCopy;
+
+    private JkJarPacker(JkPathTreeSet classTrees, JkManifest<?> manifest, JkPathTreeSet extraFiles,
+                        int compressionLevel, boolean storeCompressedEntries, boolean rawCopy) {
         this.classtrees = classTrees;
         this.manifest = manifest;
         this.extraFiles = extraFiles;
+        this.compressionLevel = compressionLevel;
+        this.storeCompressedEntries = storeCompressedEntries;
+        this.rawCopy = rawCopy;
     }
 
     public static JkJarPacker of(JkPathTreeSet classTrees) {
         JkUtilsAssert.argument(!classTrees.toList().isEmpty(), "Nothing to create jar from : " + classTrees);
-        return new JkJarPacker(classTrees, null, null);
+        return new JkJarPacker(classTrees, null, null, Deflater.DEFAULT_COMPRESSION, true, true);
     }
 
     public static JkJarPacker of(Path classDir) {
@@ -40,11 +51,43 @@ public final class JkJarPacker {
     }
 
     public JkJarPacker withManifest(JkManifest manifest) {
-        return new JkJarPacker(this.classtrees, manifest, this.extraFiles);
+        return new JkJarPacker(this.classtrees, manifest, this.extraFiles, compressionLevel, storeCompressedEntries,
+                rawCopy);
     }
 
     public JkJarPacker withExtraFiles(JkPathTreeSet extraFiles) {
-        return new JkJarPacker(this.classtrees, this.manifest, extraFiles);
+        return new JkJarPacker(this.classtrees, this.manifest, extraFiles, compressionLevel, storeCompressedEntries,
+                rawCopy);
+    }
+
+    /**
+     * Returns a packer using the specified compression level, from 0 (no compression) to 9 (best compression).
+     * Default is {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public JkJarPacker withCompressionLevel(int compressionLevel) {
+        JkUtilsAssert.argument(compressionLevel == Deflater.DEFAULT_COMPRESSION
+                || (compressionLevel >= 0 && compressionLevel <= 9), "Compression level must be between 0 and 9.");
+        return new JkJarPacker(this.classtrees, this.manifest, this.extraFiles, compressionLevel,
+                storeCompressedEntries, rawCopy);
+    }
+
+    /**
+     * If <code>true</code>, entries already compressed (as nested jars or images) are stored in the jar without
+     * trying to compress them again. Default is <code>true</code>.
+     */
+    public JkJarPacker withStoreCompressedEntries(boolean storeCompressedEntries) {
+        return new JkJarPacker(this.classtrees, this.manifest, this.extraFiles, compressionLevel,
+                storeCompressedEntries, rawCopy);
+    }
+
+    /**
+     * If <code>true</code>, fat jars are made by copying entries of dependency jars as is, without decompressing and
+     * compressing them again. Otherwise, every entry is re-compressed using this packer compression settings.
+     * Default is <code>true</code>.
+     */
+    public JkJarPacker withRawCopy(boolean rawCopy) {
+        return new JkJarPacker(this.classtrees, this.manifest, this.extraFiles, compressionLevel,
+                storeCompressedEntries, rawCopy);
     }
 
     /**
@@ -56,7 +99,7 @@ public final class JkJarPacker {
             manifest.writeToStandardLocation(classtrees.toList().get(0).getRoot());
         }
         JkPathTreeSet treeSet = extraFiles == null ? JkPathTreeSet.ofEmpty() : extraFiles;
-        classtrees.and(treeSet).zipTo(resultFile);
+        writer().write(classtrees.and(treeSet), resultFile);
     }
 
     /**
@@ -64,7 +107,8 @@ public final class JkJarPacker {
      * The result jar does not contains other jars as zip entry but content of the other jars is merged with the content
      * of original jar.
      * @param resultFile Result file
-     * @param otherJars content of other jar to merge with the original jar
+     * @param otherJars content of other jar to merge with the original jar. Files of the original jar take precedence
+     *                  over files of these jars and, for files present in several of them, the last jar wins.
      * @param filter Only files matching this filter will be included in the resulting fat jar, either it comes from
      *               dependencies or not.
      */
@@ -72,9 +116,19 @@ public final class JkJarPacker {
         if (manifest != null && !manifest.isEmpty()) {
             manifest.writeToStandardLocation(classtrees.toList().get(0).getRoot());
         }
-        JkPathTreeSet.ofEmpty().andZips(otherJars).and(classtrees).andMatcher(EXCLUDE_SIGNATURE_MATCHER)
-                .andMatcher(filter)
-                .zipTo(resultFile);  // main jar files must take precedence over files coming form dependencies
+        if (rawCopy) {
+            JkPathMatcher matcher = EXCLUDE_SIGNATURE_MATCHER.and(filter);
+            writer().writeFatJar(classtrees.andMatcher(matcher), otherJars, matcher, resultFile);
+            return;
+        }
+        JkPathTreeSet treeSet = JkPathTreeSet.ofEmpty().andZips(otherJars).and(classtrees)
+                .andMatcher(EXCLUDE_SIGNATURE_MATCHER)
+                .andMatcher(filter);
+        writer().write(treeSet, resultFile);  // main jar files must take precedence over files coming form dependencies
+    }
+
+    private JarWriter writer() {
+        return new JarWriter(compressionLevel, storeCompressedEntries);
     }
 
 
@@ -6,6 +6,7 @@ import dev.jeka.core.api.file.JkPathTreeSet;
 import dev.jeka.core.api.utils.JkUtilsIterable;
 import dev.jeka.core.api.utils.JkUtilsPath;
 
+import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -198,6 +199,21 @@ public final class JkJavaCompileSpec<T> implements Cloneable {
         return this.setOption(CLASSPATH_OPTS, classpath);
     }
 
+    /**
+     * Returns the compiler classpath, or an empty sequence if no classpath has been set.
+     */
+    public JkPathSequence getClasspath() {
+        final String classpath = findValueAfter(CLASSPATH_OPTS);
+        if (classpath == null || classpath.isEmpty()) {
+            return JkPathSequence.of();
+        }
+        final List<Path> result = new LinkedList<>();
+        for (final String entry : classpath.split(File.pathSeparator)) {
+            result.add(Paths.get(entry));
+        }
+        return JkPathSequence.of(result);
+    }
+
 
     // ------------------ generic options -------------------------
 
@@ -177,6 +177,26 @@ public final class JkJavaCompiler<T> {
         return result;
     }
 
+    /**
+     * Same as {@link #compile(JkJavaCompileSpec)} but compiles only what is necessary since the last
+     * compilation recorded in the specified state file : modified sources plus the sources depending,
+     * directly or transitively, on a class whose ABI has changed. Changes in classpath entries are
+     * handled the same way. Class files of removed sources are deleted from the output directory.<p>
+     * A full compilation occurs if the state file does not exist, if compile options or classpath composition
+     * have changed, if a compile-time constant has changed or if annotation processors may be involved
+     * (unless <code>-proc:none</code> is specified).
+     *
+     * @param stateFile File where is stored information about the last compilation.
+     * @return <code>false</code> if a compilation error occurred.
+     */
+    public boolean compileIncrementally(JkJavaCompileSpec<?> compileSpec, Path stateFile) {
+        if (compileSpec.getOutputDir() == null) {
+            throw new IllegalArgumentException("Output dir option (-d) has not been specified on the compiler. "
+                    + "Specified options : " + compileSpec.getOptions());
+        }
+        return JavaIncrementalCompilation.compile(this, compileSpec, stateFile);
+    }
+
     private static String compileWhatMessage(List<Path> paths) {
         List<String> folders = new LinkedList<>();
         List<String> files = new LinkedList<>();
@@ -6,6 +6,8 @@ import dev.jeka.core.api.system.JkProcess;
 import dev.jeka.core.api.utils.*;
 import dev.jeka.core.api.utils.JkUtilsIO.JkStreamGobbler;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -216,50 +218,53 @@ public final class JkJavaProcess {
      * Returns a {@link JkProcess} ready to be run.
      */
     public JkProcess toProcess(String mainClassName, Path jar, String... arguments) {
-        JkUtilsAssert.argument(jar != null || mainClassName != null,
-                "main class name and jar can't be both null while launching a Java process, " +
-                        "please set at least one of them.");
-        final List<String> args = new LinkedList<>();
+        final List<String> args = command(optionsAndEnv(), mainClassName, jar, arguments);
+        return JkProcess.of(getRunningJavaCommand(), args.toArray(new String[0]))
+                .withLogCommand(printCommand);
+    }
+
+    /**
+     * Starts the specified class without waiting for termination. The class has to be on this classpath.
+     * Standard error is merged in standard output. Caller is responsible to consume the process output.
+     */
+    public Process startClass(String mainClassName, String... arguments) {
         final OptionAndEnv optionAndEnv = optionsAndEnv();
-        args.add(getRunningJavaCommand());
-        args.addAll(optionAndEnv.options);
-        if (jar != null) {
-            if (!Files.exists(jar)) {
-                throw new IllegalStateException("Executable jar " + jar + " not found.");
-            }
-            args.add("-jar");
-            args.add(jar.toString());
+        final List<String> command = command(optionAndEnv, mainClassName, null, arguments);
+        if (printCommand) {
+            JkLog.info("Start java program : " + String.join("\n", command));
         }
-        if (mainClassName != null) {
-            args.add(mainClassName);
+        try {
+            return processBuilder(command, optionAndEnv.env).start();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
         }
-        args.addAll(Arrays.asList(arguments));
-        return JkProcess.of(getRunningJavaCommand(), args.toArray(new String[0]))
-                .withLogCommand(printCommand);
     }
 
-    private void runClassOrJarSync(String mainClassName, Path jar, String... arguments) {
+    private List<String> command(OptionAndEnv optionAndEnv, String mainClassName, Path jar, String... arguments) {
         JkUtilsAssert.argument(jar != null || mainClassName != null,
                 "main class name and jar can't be both null while launching a Java process, " +
                 "please set at least one of them.");
         final List<String> command = new LinkedList<>();
-        final OptionAndEnv optionAndEnv = optionsAndEnv();
         command.add(getRunningJavaCommand());
         command.addAll(optionAndEnv.options);
-        String execPart = "";
         if (jar != null) {
             if (!Files.exists(jar)) {
                 throw new IllegalStateException("Executable jar " + jar + " not found.");
             }
             command.add("-jar");
             command.add(jar.toString());
-            execPart = execPart + jar.toString();
         }
         if (mainClassName != null) {
             command.add(mainClassName);
-            execPart = execPart + " " + mainClassName;
         }
         command.addAll(Arrays.asList(arguments));
+        return command;
+    }
+
+    private void runClassOrJarSync(String mainClassName, Path jar, String... arguments) {
+        final OptionAndEnv optionAndEnv = optionsAndEnv();
+        final List<String> command = command(optionAndEnv, mainClassName, jar, arguments);
+        final String execPart = (jar == null ? "" : jar.toString()) + (mainClassName == null ? "" : " " + mainClassName);
         if (printCommand) {
             JkLog.startTask("Start java program : " + execPart);
             JkLog.info(String.join("\n", command));
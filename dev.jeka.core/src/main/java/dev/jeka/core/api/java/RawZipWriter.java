@@ -0,0 +1,383 @@
+package dev.jeka.core.api.java;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+
+/*
+ * Minimal zip writer able to copy entries from other zip files as is, meaning that compressed data is transferred
+ * without being inflated then deflated again. Only the features needed to produce jar files are supported : no
+ * zip64, no encryption, no multi-disk archive. A ZipOverflowException is thrown when the result would need zip64.
+ */
+final class RawZipWriter implements Closeable {
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+
+    private static final int CENTRAL_HEADER_SIZE = 46;
+
+    private static final int END_SIZE = 22;
+
+    private static final int VERSION = 20;
+
+    private static final int UTF8_FLAG = 0x800;
+
+    // Zip specification encoding for names not flagged as UTF-8
+    private static final Charset LEGACY_CHARSET = Charset.isSupported("IBM437") ? Charset.forName("IBM437")
+            : StandardCharsets.UTF_8;
+
+    private static final int ENCRYPTED_FLAG = 0x1;
+
+    private static final long MAX_VALUE = 0xFFFFFFFFL;
+
+    private static final int MAX_ENTRIES = 0xFFFF;
+
+    private final OutputStream out;
+
+    private final WritableByteChannel outChannel;
+
+    private final List<CentralEntry> centralEntries = new ArrayList<>();
+
+    private long offset;
+
+    RawZipWriter(OutputStream out) {
+        this.out = out;
+        this.outChannel = Channels.newChannel(out);
+    }
+
+    /*
+     * Writes an entry whose data are already compressed with the specified method.
+     */
+    void write(String name, int method, long crc, byte[] data, int uncompressedSize, long time) throws IOException {
+        final CentralEntry entry = new CentralEntry(name.getBytes(StandardCharsets.UTF_8), UTF8_FLAG, method,
+                dosTime(time), crc, data.length, uncompressedSize);
+        writeLocalHeader(entry);
+        out.write(data);
+        offset += data.length;
+    }
+
+    /*
+     * Copies the specified entry, compressed data included, from its zip file.
+     */
+    void copy(SourceEntry sourceEntry) throws IOException {
+        // Sizes and crc are known from central directory so data descriptor flag is not kept
+        final CentralEntry entry = new CentralEntry(sourceEntry.nameBytes, sourceEntry.flags & UTF8_FLAG,
+                sourceEntry.method, sourceEntry.dosTime, sourceEntry.crc, sourceEntry.compressedSize,
+                sourceEntry.size);
+        writeLocalHeader(entry);
+        final FileChannel channel = sourceEntry.zip.channel;
+        long position = sourceEntry.dataOffset();
+        long remaining = sourceEntry.compressedSize;
+        out.flush();
+        while (remaining > 0) {
+            final long transferred = channel.transferTo(position, remaining, outChannel);
+            if (transferred <= 0) {
+                throw new IOException("Unexpected end of file while copying " + sourceEntry.getName());
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+        offset += sourceEntry.compressedSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            final long centralOffset = offset;
+            for (final CentralEntry entry : centralEntries) {
+                final ByteBuffer buffer = buffer(CENTRAL_HEADER_SIZE + entry.name.length);
+                buffer.putInt(CENTRAL_HEADER_SIGNATURE);
+                buffer.putShort((short) VERSION);
+                buffer.putShort((short) VERSION);
+                buffer.putShort((short) entry.flags);
+                buffer.putShort((short) entry.method);
+                buffer.putInt((int) entry.dosTime);
+                buffer.putInt((int) entry.crc);
+                buffer.putInt((int) entry.compressedSize);
+                buffer.putInt((int) entry.size);
+                buffer.putShort((short) entry.name.length);
+                buffer.putShort((short) 0);  // extra length
+                buffer.putShort((short) 0);  // comment length
+                buffer.putShort((short) 0);  // disk number
+                buffer.putShort((short) 0);  // internal attributes
+                buffer.putInt(0);  // external attributes
+                buffer.putInt((int) entry.offset);
+                buffer.put(entry.name);
+                writeBuffer(buffer);
+            }
+            final long centralSize = offset - centralOffset;
+            checkLimit(offset);
+            final ByteBuffer buffer = buffer(END_SIZE);
+            buffer.putInt(END_SIGNATURE);
+            buffer.putShort((short) 0);
+            buffer.putShort((short) 0);
+            buffer.putShort((short) centralEntries.size());
+            buffer.putShort((short) centralEntries.size());
+            buffer.putInt((int) centralSize);
+            buffer.putInt((int) centralOffset);
+            buffer.putShort((short) 0);
+            writeBuffer(buffer);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeLocalHeader(CentralEntry entry) throws IOException {
+        if (centralEntries.size() >= MAX_ENTRIES) {
+            throw new ZipOverflowException();
+        }
+        checkLimit(entry.compressedSize);
+        checkLimit(entry.size);
+        checkLimit(offset + entry.compressedSize + LOCAL_HEADER_SIZE + entry.name.length);
+        entry.offset = offset;
+        centralEntries.add(entry);
+        final ByteBuffer buffer = buffer(LOCAL_HEADER_SIZE + entry.name.length);
+        buffer.putInt(LOCAL_HEADER_SIGNATURE);
+        buffer.putShort((short) VERSION);
+        buffer.putShort((short) entry.flags);
+        buffer.putShort((short) entry.method);
+        buffer.putInt((int) entry.dosTime);
+        buffer.putInt((int) entry.crc);
+        buffer.putInt((int) entry.compressedSize);
+        buffer.putInt((int) entry.size);
+        buffer.putShort((short) entry.name.length);
+        buffer.putShort((short) 0);  // extra length
+        buffer.put(entry.name);
+        writeBuffer(buffer);
+    }
+
+    private void writeBuffer(ByteBuffer buffer) throws IOException {
+        out.write(buffer.array(), 0, buffer.position());
+        offset += buffer.position();
+    }
+
+    private static void checkLimit(long value) {
+        if (value >= MAX_VALUE) {
+            throw new ZipOverflowException();
+        }
+    }
+
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static long dosTime(long time) {
+        final LocalDateTime date = LocalDateTime.ofInstant(java.time.Instant.ofEpochMilli(time),
+                ZoneId.systemDefault());
+        if (date.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (date.getYear() - 1980) << 25 | date.getMonthValue() << 21 | date.getDayOfMonth() << 16
+                | date.getHour() << 11 | date.getMinute() << 5 | date.getSecond() >> 1;
+    }
+
+    /*
+     * Thrown when the zip to write requires zip64 extensions.
+     */
+    static final class ZipOverflowException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        ZipOverflowException() {
+            super("Zip file too large to be written without zip64 extensions");
+        }
+    }
+
+    private static final class CentralEntry {
+
+        final byte[] name;
+
+        final int flags;
+
+        final int method;
+
+        final long dosTime;
+
+        final long crc;
+
+        final long compressedSize;
+
+        final long size;
+
+        long offset;
+
+        CentralEntry(byte[] name, int flags, int method, long dosTime, long crc, long compressedSize, long size) {
+            this.name = name;
+            this.flags = flags;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+        }
+    }
+
+    /*
+     * Zip file opened for raw entry copy.
+     */
+    static final class SourceZip implements Closeable {
+
+        private final Path file;
+
+        private final FileChannel channel;
+
+        private SourceZip(Path file, FileChannel channel) {
+            this.file = file;
+            this.channel = channel;
+        }
+
+        static SourceZip of(Path file) throws IOException {
+            return new SourceZip(file, FileChannel.open(file, StandardOpenOption.READ));
+        }
+
+        /*
+         * Returns entries in central directory order, or <code>null</code> if this zip file can not be
+         * copied as is (zip64, encrypted entries, ...).
+         */
+        List<SourceEntry> entries() throws IOException {
+            final long fileSize = channel.size();
+            if (fileSize < END_SIZE) {
+                return null;
+            }
+            final int tailSize = (int) Math.min(fileSize, END_SIZE + MAX_ENTRIES);
+            final ByteBuffer tail = read(fileSize - tailSize, tailSize);
+            int endPosition = -1;
+            for (int i = tailSize - END_SIZE; i >= 0; i--) {
+                if (tail.getInt(i) == END_SIGNATURE) {
+                    endPosition = i;
+                    break;
+                }
+            }
+            if (endPosition < 0) {
+                return null;
+            }
+            final int entryCount = Short.toUnsignedInt(tail.getShort(endPosition + 10));
+            final long centralSize = Integer.toUnsignedLong(tail.getInt(endPosition + 12));
+            final long centralOffset = Integer.toUnsignedLong(tail.getInt(endPosition + 16));
+            if (entryCount == MAX_ENTRIES || centralSize == MAX_VALUE || centralOffset == MAX_VALUE
+                    || centralOffset + centralSize > fileSize) {
+                return null;
+            }
+            final ByteBuffer central = read(centralOffset, (int) centralSize);
+            final List<SourceEntry> result = new ArrayList<>(entryCount);
+            int position = 0;
+            for (int i = 0; i < entryCount; i++) {
+                if (position + CENTRAL_HEADER_SIZE > central.limit()
+                        || central.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+                    return null;
+                }
+                final int flags = Short.toUnsignedInt(central.getShort(position + 8));
+                final int method = Short.toUnsignedInt(central.getShort(position + 10));
+                final long dosTime = Integer.toUnsignedLong(central.getInt(position + 12));
+                final long crc = Integer.toUnsignedLong(central.getInt(position + 16));
+                final long compressedSize = Integer.toUnsignedLong(central.getInt(position + 20));
+                final long size = Integer.toUnsignedLong(central.getInt(position + 24));
+                final int nameLength = Short.toUnsignedInt(central.getShort(position + 28));
+                final int extraLength = Short.toUnsignedInt(central.getShort(position + 30));
+                final int commentLength = Short.toUnsignedInt(central.getShort(position + 32));
+                final long localOffset = Integer.toUnsignedLong(central.getInt(position + 42));
+                if ((flags & ENCRYPTED_FLAG) != 0 || compressedSize == MAX_VALUE || size == MAX_VALUE
+                        || localOffset == MAX_VALUE
+                        || (method != ZipEntry.STORED && method != ZipEntry.DEFLATED)) {
+                    return null;
+                }
+                final byte[] name = new byte[nameLength];
+                central.position(position + CENTRAL_HEADER_SIZE);
+                central.get(name);
+                result.add(new SourceEntry(this, name, flags, method, dosTime, crc, compressedSize, size,
+                        localOffset));
+                position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+            }
+            return result;
+        }
+
+        Path getFile() {
+            return file;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private ByteBuffer read(long position, int size) throws IOException {
+            final ByteBuffer buffer = buffer(size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of file " + file);
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    static final class SourceEntry {
+
+        private final SourceZip zip;
+
+        private final byte[] nameBytes;
+
+        private final int flags;
+
+        private final int method;
+
+        private final long dosTime;
+
+        private final long crc;
+
+        private final long compressedSize;
+
+        private final long size;
+
+        private final long localHeaderOffset;
+
+        private SourceEntry(SourceZip zip, byte[] nameBytes, int flags, int method, long dosTime, long crc,
+                            long compressedSize, long size, long localHeaderOffset) {
+            this.zip = zip;
+            this.nameBytes = nameBytes;
+            this.flags = flags;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        String getName() {
+            return new String(nameBytes, (flags & UTF8_FLAG) != 0 ? StandardCharsets.UTF_8 : LEGACY_CHARSET);
+        }
+
+        // Local header may have a different extra field than the central one, so it must be read
+        private long dataOffset() throws IOException {
+            final ByteBuffer header = zip.read(localHeaderOffset, LOCAL_HEADER_SIZE);
+            if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+                throw new IOException("Invalid local header for entry " + getName() + " in " + zip.file);
+            }
+            final int nameLength = Short.toUnsignedInt(header.getShort(26));
+            final int extraLength = Short.toUnsignedInt(header.getShort(28));
+            return localHeaderOffset + LOCAL_HEADER_SIZE + nameLength + extraLength;
+        }
+    }
+
+}
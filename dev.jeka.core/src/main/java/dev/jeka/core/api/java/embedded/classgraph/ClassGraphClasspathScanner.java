@@ -2,8 +2,9 @@ package dev.jeka.core.api.java.embedded.classgraph;
 
 import dev.jeka.core.api.file.JkPathSequence;
 import dev.jeka.core.api.java.JkInternalClasspathScanner;
+import dev.jeka.core.api.java.embedded.classgraph.ClasspathScanIndex.IndexedClass;
 import dev.jeka.core.api.utils.JkUtilsPath;
-import io.github.classgraph.*;
+import io.github.classgraph.ClassGraph;
 
 import java.io.File;
 import java.util.HashSet;
@@ -11,26 +12,36 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
+/*
+ * Classes are looked up in a persistent index of classpath entries rather than by scanning the whole classpath
+ * on each request. See ClasspathScanIndex.
+ */
 class ClassGraphClasspathScanner implements JkInternalClasspathScanner {
 
+    private static final String[] BLACKLISTED_PACKAGES = {"java", "org.apache.ivy", "org.bouncycastle",
+            "nonapi.io.github.classgraph", "org.commonmark", "io.github.classgraph"};
+
     static ClassGraphClasspathScanner of() {
         return new ClassGraphClasspathScanner();
     }
 
     @Override
     public Set<Class<?>> loadClassesHavingSimpleNameMatching(Predicate<String> predicate) {
-        return loadClassesMatching(hasSimpleName(predicate), false);
+        return loadClassesMatching(indexedClass -> predicate.test(indexedClass.simpleName));
     }
 
     @Override
     public <T> Class<T> loadClassesHavingNameOrSimpleName(String name, Class<T> superClass) {
-        for (Class<?> clazz : loadClassesMatching(classInfo -> classInfo.getName().equals(name), true)) {
+        final List<IndexedClass> indexedClasses = indexedClasses();
+        for (Class<?> clazz : loadClassesMatching(indexedClasses, indexedClass -> indexedClass.name.equals(name))) {
             if (superClass.isAssignableFrom(clazz)) {
                 return (Class<T>) clazz;
             }
         }
-        for (Class<?> clazz : loadClassesMatching(classInfo -> classInfo.getSimpleName().equals(name), true)) {
+        for (Class<?> clazz : loadClassesMatching(indexedClasses,
+                indexedClass -> indexedClass.simpleName.equals(name))) {
             if (superClass.isAssignableFrom(clazz)) {
                 return (Class<T>) clazz;
             }
@@ -38,78 +49,68 @@ class ClassGraphClasspathScanner implements JkInternalClasspathScanner {
         return null;
     }
 
-    private static Predicate<ClassInfo> hasSimpleName(Predicate<String> namePredicate) {
-        return classInfo ->  namePredicate.test(classInfo.getSimpleName());
-
+    private Set<Class<?>> loadClassesMatching(Predicate<IndexedClass> predicate) {
+        return loadClassesMatching(indexedClasses(), predicate);
     }
 
-    private Set<Class<?>> loadClassesMatching(Predicate<ClassInfo> predicate, boolean ignoreClassVisibility) {
-        ClassGraph classGraph = new ClassGraph()
-                .ignoreClassVisibility()
-                .enableClassInfo()
-                .blacklistPackages("java", "org.apache.ivy", "org.bouncycastle", "nonapi.io.github.classgraph",
-                        "org.commonmark", "io.github.classgraph");
-        if (ignoreClassVisibility) {
-            classGraph = classGraph.ignoreClassVisibility();
+    private static Set<Class<?>> loadClassesMatching(List<IndexedClass> indexedClasses,
+                                                     Predicate<IndexedClass> predicate) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = ClassGraphClasspathScanner.class.getClassLoader();
         }
-        final ScanResult scanResult = classGraph.scan();
         final Set<Class<?>> result = new HashSet<>();
-        for (final ClassInfo classInfo : scanResult.getAllClasses()) {
-            if (predicate.test(classInfo)) {
-                result.add(classInfo.loadClass());
+        for (final IndexedClass indexedClass : indexedClasses) {
+            if (!isBlacklisted(indexedClass.name) && predicate.test(indexedClass)) {
+                try {
+                    result.add(Class.forName(indexedClass.name, false, classLoader));
+                } catch (ClassNotFoundException | LinkageError e) {
+                    throw new IllegalStateException("Cannot load class " + indexedClass.name, e);
+                }
             }
         }
         return result;
     }
 
-    @Override
-    public List<String> findClassesHavingMainMethod(ClassLoader classloader) {
-        final ClassGraph classGraph = new ClassGraph()
-                .enableClassInfo()
-                .enableMethodInfo()
-                .overrideClassLoaders(classloader)
-                .ignoreParentClassLoaders();
-        final ScanResult scanResult = classGraph.scan();
-        final List<String> result = new LinkedList<>();
-        for (final ClassInfo classInfo : scanResult.getAllClasses()) {
-            MethodInfoList methodInfoList = classInfo.getMethodInfo("main");
-            for (MethodInfo methodInfo : methodInfoList) {
-                if (methodInfo.isPublic() && methodInfo.isStatic() && methodInfo.getParameterInfo().length == 1) {
-                    MethodParameterInfo methodParameterInfo = methodInfo.getParameterInfo()[0];
-                    if (methodParameterInfo.getTypeDescriptor() instanceof ArrayTypeSignature) {
-                        ArrayTypeSignature arrayTypeSignature = (ArrayTypeSignature) methodParameterInfo.getTypeDescriptor();
-                        if ("java.lang.String[]".equals(arrayTypeSignature.toString())) {
-                            result.add(classInfo.getName());
-                        }
-                    }
-                }
+    private static List<IndexedClass> indexedClasses() {
+        return ClasspathScanIndex.classes(new ClassGraph().getClasspathFiles());
+    }
+
+    private static List<IndexedClass> indexedClasses(ClassLoader classLoader) {
+        return ClasspathScanIndex.classes(new ClassGraph()
+                .overrideClassLoaders(classLoader)
+                .ignoreParentClassLoaders()
+                .getClasspathFiles());
+    }
+
+    private static boolean isBlacklisted(String className) {
+        for (final String packageName : BLACKLISTED_PACKAGES) {
+            if (className.startsWith(packageName + ".")) {
+                return true;
             }
         }
-        return result;
+        return false;
+    }
+
+    @Override
+    public List<String> findClassesHavingMainMethod(ClassLoader classloader) {
+        return indexedClasses(classloader).stream()
+                .filter(indexedClass -> indexedClass.mainMethod)
+                .map(indexedClass -> indexedClass.name)
+                .collect(Collectors.toCollection(LinkedList::new));
     }
 
     @Override
     public List<String> findClassesMatchingAnnotations(ClassLoader classloader,
                                                        Predicate<List<String>> annotationPredicate) {
-        final ClassGraph classGraph = new ClassGraph()
-                .enableClassInfo()
-                .overrideClassLoaders(classloader)
-                .enableAnnotationInfo()
-                .ignoreParentClassLoaders();
-        final ScanResult scanResult = classGraph.scan();
-        final List<String> result = new LinkedList<>();
-        for (final ClassInfo classInfo : scanResult.getAllClasses()) {
-            AnnotationInfoList annotationInfoList = classInfo.getAnnotationInfo();
-            List<String> annotationNames = annotationInfoList.getNames();
-            if (annotationPredicate.test(annotationNames)) {
-                result.add(classInfo.getName());
-            }
-        }
-        return result;
+        return indexedClasses(classloader).stream()
+                .filter(indexedClass -> annotationPredicate.test(indexedClass.annotationNames))
+                .map(indexedClass -> indexedClass.name)
+                .collect(Collectors.toCollection(LinkedList::new));
     }
 
     public JkPathSequence getClasspath(ClassLoader classLoader) {
-        List<File> files = new ClassGraph().scan().getClasspathFiles();
+        List<File> files = new ClassGraph().getClasspathFiles();
         return JkPathSequence.of(JkUtilsPath.toPaths(files));
     }
 
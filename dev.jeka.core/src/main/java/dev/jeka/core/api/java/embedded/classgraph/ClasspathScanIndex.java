@@ -0,0 +1,208 @@
+package dev.jeka.core.api.java.embedded.classgraph;
+
+import dev.jeka.core.api.file.JkFingerprint;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import io.github.classgraph.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Index of the classes contained in classpath entries. The index of each entry is stored in the Jeka user home and
+ * reused as long as the entry does not change : jar files are stamped with their size and last modification time,
+ * directories with the ones of all files they contain. Only entries missing from the index are scanned.
+ */
+final class ClasspathScanIndex {
+
+    private static final String DIR_NAME = "cache/classpath-index";
+
+    private static final Map<String, EntryIndex> MEMORY_CACHE = new ConcurrentHashMap<>();
+
+    private ClasspathScanIndex() {
+    }
+
+    /*
+     * Returns the classes contained in the specified classpath entries. When several entries contain a class
+     * having the same name, only the first one is returned, as a classloader would do.
+     */
+    static List<IndexedClass> classes(List<File> classpathFiles) {
+        final Map<File, EntryIndex> indexes = new LinkedHashMap<>();
+        final Map<File, String> missingStamps = new LinkedHashMap<>();
+        for (final File file : classpathFiles) {
+            if (!file.exists()) {
+                continue;
+            }
+            final String stamp = stamp(file.toPath());
+            final EntryIndex index = get(file, stamp);
+            if (index == null) {
+                missingStamps.put(file, stamp);
+            }
+            indexes.put(file, index);
+        }
+        if (!missingStamps.isEmpty()) {
+            scan(missingStamps).forEach((file, index) -> {
+                indexes.put(file, index);
+                put(file, index);
+            });
+        }
+        final Set<String> names = new HashSet<>();
+        final List<IndexedClass> result = new ArrayList<>();
+        for (final EntryIndex index : indexes.values()) {
+            for (final IndexedClass indexedClass : index.classes) {
+                if (names.add(indexedClass.name)) {
+                    result.add(indexedClass);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Map<File, EntryIndex> scan(Map<File, String> stamps) {
+        JkLog.trace("Scan classpath entries " + stamps.keySet());
+        final Map<File, EntryIndex> result = new HashMap<>();
+        final Map<String, EntryIndex> canonicalPathIndexes = new HashMap<>();
+        stamps.forEach((file, stamp) -> {
+            final EntryIndex index = new EntryIndex(stamp);
+            result.put(file, index);
+            canonicalPathIndexes.put(canonicalPath(file), index);
+        });
+        final ClassGraph classGraph = new ClassGraph()
+                .overrideClasspath(stamps.keySet())
+                .ignoreClassVisibility()
+                .enableClassInfo()
+                .enableExternalClasses()  // keeps super classes located in other entries
+                .enableMethodInfo()
+                .enableAnnotationInfo();
+        try (ScanResult scanResult = classGraph.scan()) {
+            for (final ClassInfo classInfo : scanResult.getAllClasses()) {
+                if (classInfo.isExternalClass()) {
+                    continue;
+                }
+                final File elementFile = classInfo.getClasspathElementFile();
+                final EntryIndex index = elementFile == null ? null
+                        : canonicalPathIndexes.get(canonicalPath(elementFile));
+                if (index != null) {
+                    index.classes.add(new IndexedClass(classInfo));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String canonicalPath(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (final IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    private static EntryIndex get(File file, String stamp) {
+        final String key = key(file);
+        EntryIndex index = MEMORY_CACHE.get(key);
+        if (index == null) {
+            final Path indexFile = indexFile(key);
+            if (!Files.exists(indexFile)) {
+                return null;
+            }
+            try {
+                index = JkUtilsIO.deserialize(indexFile);
+            } catch (final RuntimeException e) {
+                JkLog.trace("Can not read classpath index " + indexFile + " : " + e.getMessage());
+                return null;
+            }
+        }
+        if (!index.stamp.equals(stamp)) {
+            return null;
+        }
+        MEMORY_CACHE.put(key, index);
+        return index;
+    }
+
+    private static void put(File file, EntryIndex index) {
+        final String key = key(file);
+        MEMORY_CACHE.put(key, index);
+        final Path indexFile = indexFile(key);
+        try {
+            JkUtilsPath.createDirectories(indexFile.getParent());
+            final Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + "." + UUID.randomUUID()
+                    + ".tmp");
+            JkUtilsIO.serialize(index, tempFile);
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final IOException | RuntimeException e) {
+            JkLog.trace("Can not store classpath index in " + indexFile + " : " + e.getMessage());
+        }
+    }
+
+    private static String key(File file) {
+        return JkFingerprint.of().and(file.getAbsoluteFile().toPath().normalize().toString()).get();
+    }
+
+    private static String stamp(Path path) {
+        return JkFingerprint.of().andStamps(path).get();
+    }
+
+    private static Path indexFile(String key) {
+        return JkLocator.getJekaUserHomeDir().resolve(DIR_NAME).resolve(key + ".ser");
+    }
+
+    private static final class EntryIndex implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String stamp;
+
+        private final List<IndexedClass> classes = new ArrayList<>();
+
+        EntryIndex(String stamp) {
+            this.stamp = stamp;
+        }
+    }
+
+    static final class IndexedClass implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final String name;
+
+        final String simpleName;
+
+        final String superclassName;
+
+        final List<String> annotationNames;
+
+        final boolean mainMethod;
+
+        private IndexedClass(ClassInfo classInfo) {
+            this.name = classInfo.getName();
+            this.simpleName = classInfo.getSimpleName();
+            final ClassInfo superclass = classInfo.getSuperclass();
+            this.superclassName = superclass == null ? null : superclass.getName();
+            this.annotationNames = new ArrayList<>(classInfo.getAnnotationInfo().getNames());
+            this.mainMethod = hasMainMethod(classInfo);
+        }
+
+        private static boolean hasMainMethod(ClassInfo classInfo) {
+            for (final MethodInfo methodInfo : classInfo.getMethodInfo("main")) {
+                if (methodInfo.isPublic() && methodInfo.isStatic() && methodInfo.getParameterInfo().length == 1) {
+                    final MethodParameterInfo methodParameterInfo = methodInfo.getParameterInfo()[0];
+                    if (methodParameterInfo.getTypeDescriptor() instanceof ArrayTypeSignature
+                            && "java.lang.String[]".equals(methodParameterInfo.getTypeDescriptor().toString())) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+}
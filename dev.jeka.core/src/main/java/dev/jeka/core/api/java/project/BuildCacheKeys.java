@@ -0,0 +1,114 @@
+package dev.jeka.core.api.java.project;
+
+import dev.jeka.core.api.file.JkFingerprint;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.file.JkPathTreeSet;
+import dev.jeka.core.api.java.JkJavaCompileSpec;
+import dev.jeka.core.api.java.JkManifest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Computes build cache keys from the inputs of compilation and jar creation. Keys do not depend on the project
+ * location so outputs can be reused from another checkout : files located in the project are taken in account
+ * by their path relative to the project base dir and their content. Other files, as dependency jars, are taken in
+ * account by their name and content.
+ */
+final class BuildCacheKeys {
+
+    // Options whose value is a location, handled separately
+    private static final Set<String> LOCATION_OPTIONS = new HashSet<>(Arrays.asList("-d", "-cp", "-classpath"));
+
+    // Content hashes of classpath files, by stamp
+    private static final Map<String, String> FILE_HASHES = new ConcurrentHashMap<>();
+
+    private BuildCacheKeys() {
+    }
+
+    static String compilation(Path baseDir, String purpose, JkJavaCompileSpec<?> compileSpec,
+                              String resourceFingerprint) {
+        final JkFingerprint fingerprint = JkFingerprint.of("SHA-256")
+                .and("compilation", purpose)
+                .and(System.getProperty("java.vendor"), System.getProperty("java.version"))
+                .and(resourceFingerprint);
+        final List<String> options = compileSpec.getOptions();
+        for (final Iterator<String> it = options.iterator(); it.hasNext(); ) {
+            final String option = it.next();
+            if (LOCATION_OPTIONS.contains(option)) {
+                if (it.hasNext()) {
+                    it.next();
+                }
+                continue;
+            }
+            fingerprint.and(option.replace(baseDir.toAbsolutePath().normalize().toString(), "<base>"));
+        }
+        for (final Path source : compileSpec.getSourceFiles()) {
+            andLocatedContent(fingerprint, baseDir, source);
+        }
+        fingerprint.and("<classpath>");
+        for (final Path entry : compileSpec.getClasspath()) {
+            andLocatedContent(fingerprint, baseDir, entry);
+        }
+        return fingerprint.get();
+    }
+
+    static String binJar(Path baseDir, Path classDir, JkManifest<?> manifest, JkPathTreeSet extraFiles) {
+        final JkFingerprint fingerprint = JkFingerprint.of("SHA-256")
+                .and("bin-jar")
+                .andRelocatableContent(JkPathTree.of(classDir));
+        final ByteArrayOutputStream manifestContent = new ByteArrayOutputStream();
+        try {
+            manifest.getManifest().write(manifestContent);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        fingerprint.and(new String(manifestContent.toByteArray(), StandardCharsets.UTF_8));
+        for (final JkPathTree tree : extraFiles.toList()) {
+            fingerprint.and(location(baseDir, tree.getRoot())).andRelocatableContent(tree);
+        }
+        return fingerprint.get();
+    }
+
+    private static void andLocatedContent(JkFingerprint fingerprint, Path baseDir, Path path) {
+        fingerprint.and(location(baseDir, path));
+        if (Files.isDirectory(path)) {
+            fingerprint.andRelocatableContent(JkPathTree.of(path));
+        } else if (isInside(baseDir, path)) {
+            fingerprint.andFileContent(path);
+        } else if (Files.exists(path)) {
+            fingerprint.and(fileHash(path));  // Dependency jars rarely change, so their hash is computed once
+        } else {
+            fingerprint.and("<absent>");
+        }
+    }
+
+    private static boolean isInside(Path baseDir, Path path) {
+        return path.toAbsolutePath().normalize().startsWith(baseDir.toAbsolutePath().normalize());
+    }
+
+    private static String location(Path baseDir, Path path) {
+        final Path absolutePath = path.toAbsolutePath().normalize();
+        if (isInside(baseDir, path)) {
+            return baseDir.toAbsolutePath().normalize().relativize(absolutePath).toString().replace('\\', '/');
+        }
+        return absolutePath.getFileName() == null ? absolutePath.toString() : absolutePath.getFileName().toString();
+    }
+
+    private static String fileHash(Path file) {
+        final String stamp = JkFingerprint.of().andStamps(file).get();
+        return FILE_HASHES.computeIfAbsent(stamp, key -> JkFingerprint.of("SHA-256").andFileContent(file).get());
+    }
+
+}
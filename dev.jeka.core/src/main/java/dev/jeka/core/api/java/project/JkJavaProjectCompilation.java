@@ -2,18 +2,22 @@ package dev.jeka.core.api.java.project;
 
 import dev.jeka.core.api.depmanagement.JkDependencySet;
 import dev.jeka.core.api.depmanagement.resolution.JkResolveResult;
+import dev.jeka.core.api.file.JkBuildCache;
+import dev.jeka.core.api.file.JkFingerprint;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.file.JkPathTreeSet;
 import dev.jeka.core.api.file.JkResourceProcessor;
 import dev.jeka.core.api.function.JkConsumers;
 import dev.jeka.core.api.function.JkRunnables;
 import dev.jeka.core.api.java.JkJavaCompileSpec;
 import dev.jeka.core.api.java.JkJavaCompiler;
 import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsFile;
+import dev.jeka.core.api.utils.JkUtilsPath;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.*;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -28,6 +32,10 @@ public class JkJavaProjectCompilation<T> {
 
     private static final String TEST_PURPOSE = "test";
 
+    private static final String COMPILE_KEY = "compile";
+
+    private static final String OUTPUT_KEY = "output";
+
     /**
      * For parent chaining
      */
@@ -57,6 +65,10 @@ public class JkJavaProjectCompilation<T> {
 
     private boolean done;
 
+    private boolean upToDateCheck = true;
+
+    private boolean incremental;
+
     private String purpose;
 
     private Supplier<JkJavaCompileSpec> compileSpecSupplier;
@@ -122,17 +134,31 @@ public class JkJavaProjectCompilation<T> {
         preGenerateActions.run();
         sourceGenerator.accept(this.layout.resolveGeneratedSourceDir());
         resourceGenerator.accept(this.layout.resolveGeneratedResourceDir());
+        final Map<String, String> previousState = previousState();
+        final Map<String, String> state = new HashMap<>();
+        JkUtilsPath.deleteIfExists(stateFile());  // Remains absent if compilation fails
         processResources();
         preCompileActions.run();
-        runCompile();
+        final JkJavaCompileSpec<?> compileSpec = compileSpecSupplier.get();
+        state.put(COMPILE_KEY, compileFingerprint(compileSpec));
+        if (state.get(COMPILE_KEY).equals(previousState.get(COMPILE_KEY))) {
+            JkLog.info("Sources, classpath and compile options unchanged since last run. Skip compilation.");
+        } else {
+            compileOrRestore(compileSpec);
+        }
         postCompileActions.run();
+        if (upToDateCheck) {
+            state.put(OUTPUT_KEY, JkFingerprint.of().andStamps(layout.resolveClassDir()).get());
+            JkUtilsFile.writePropertyFile(stateFile(), state, "Fingerprints of last " + purpose
+                    + " compilation. Delete this file to force compilation.");
+        }
         JkLog.endTask();
     }
 
     /**
      * As #run but perform only if not already done.
      */
-    public void runIfNecessary() {
+    public synchronized void runIfNecessary() {
         if (done) {
             JkLog.trace("Compilation task already done. Won't perform again.");
         } else {
@@ -141,6 +167,44 @@ public class JkJavaProjectCompilation<T> {
         }
     }
 
+    /**
+     * Returns <code>true</code> if {@link #run()} skips compilation when neither its inputs nor the class dir
+     * has changed since the last run, and processes only resources changed since the last run.
+     */
+    public boolean isUpToDateCheck() {
+        return upToDateCheck;
+    }
+
+    /**
+     * Sets if {@link #run()} should skip compilation when neither its inputs (sources, classpath, compile options,
+     * Java version, encoding) nor the class dir has changed since the last run, and process only resources
+     * changed since the last run. Fingerprints of the last run are stored beside the class dir.
+     * Default is <code>true</code>.
+     * @see JkResourceProcessor#generateIncrementally(JkPathTreeSet, Path, Path)
+     */
+    public JkJavaProjectCompilation<T> setUpToDateCheck(boolean upToDateCheck) {
+        this.upToDateCheck = upToDateCheck;
+        return this;
+    }
+
+    /**
+     * Returns <code>true</code> if compilation only recompiles modified sources and the ones depending on them.
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Sets if compilation should only recompile modified sources and the sources depending on a class whose ABI
+     * has changed. Information about last compilation is stored beside the class dir.
+     * Default is <code>false</code>.
+     * @see JkJavaCompiler#compileIncrementally(JkJavaCompileSpec, Path)
+     */
+    public JkJavaProjectCompilation<T> setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+
     /**
      * Returns the runnables to run prior source and resource generation. User can chain its own runnable
      * to customise the process. Empty by default.
@@ -221,16 +285,93 @@ public class JkJavaProjectCompilation<T> {
     }
 
     private void processResources() {
-        this.getResourceProcessor().generate(layout.resolveResources(), layout.resolveClassDir());
+        final Path classDir = layout.resolveClassDir();
+        if (upToDateCheck) {
+            this.getResourceProcessor().generateIncrementally(layout.resolveResources(), classDir,
+                    resourceStateFile());
+        } else {
+            this.getResourceProcessor().generate(layout.resolveResources(), classDir);
+        }
     }
 
-    private void runCompile() {
-        boolean success = construction.getCompiler().compile(compileSpecSupplier.get());
+    private void compileOrRestore(JkJavaCompileSpec<?> compileSpec) {
+        final JkBuildCache buildCache = construction.getBuildCache();
+        if (buildCache == null) {
+            runCompile(compileSpec);
+            return;
+        }
+        final Path classDir = layout.resolveClassDir();
+
+        // Resources have just been processed, so their state avoids reading their content again
+        final String resourceFingerprint = upToDateCheck ? resourceProcessor.getFingerprint(resourceStateFile())
+                : null;
+        final String cacheKey = BuildCacheKeys.compilation(construction.getProject().getBaseDir(), purpose,
+                compileSpec, resourceFingerprint != null ? resourceFingerprint
+                        : resourceProcessor.getFingerprint(layout.resolveResources()));
+        if (buildCache.restore(cacheKey, classDir)) {
+            JkLog.info("Classes restored from build cache.");
+
+            // Incremental compilation state does not match restored classes anymore
+            JkUtilsPath.deleteIfExists(classDir.resolveSibling(classDir.getFileName() + ".incremental"));
+            return;
+        }
+        runCompile(compileSpec);
+        buildCache.store(cacheKey, classDir);
+    }
+
+    private void runCompile(JkJavaCompileSpec<?> compileSpec) {
+        final Path classDir = layout.resolveClassDir();
+        boolean success = incremental
+                ? construction.getCompiler().compileIncrementally(compileSpec,
+                        classDir.resolveSibling(classDir.getFileName() + ".incremental"))
+                : construction.getCompiler().compile(compileSpec);
         if (!success) {
             throw new IllegalStateException("Compilation of Java sources failed.");
         }
     }
 
+    private Path resourceStateFile() {
+        final Path classDir = layout.resolveClassDir();
+        return classDir.resolveSibling(classDir.getFileName() + ".resources");
+    }
+
+    private Path stateFile() {
+        final Path classDir = layout.resolveClassDir();
+        return classDir.resolveSibling(classDir.getFileName() + ".fingerprint");
+    }
+
+    /*
+     * Returns fingerprints stored by the last run, or an empty map if the class dir has been modified since.
+     */
+    private Map<String, String> previousState() {
+        final Path stateFile = stateFile();
+        if (!upToDateCheck || !Files.exists(stateFile)) {
+            return Collections.emptyMap();
+        }
+        final Map<String, String> result = JkUtilsFile.readPropertyFileAsMap(stateFile);
+        final String outputFingerprint = JkFingerprint.of().andStamps(layout.resolveClassDir()).get();
+        if (!outputFingerprint.equals(result.get(OUTPUT_KEY))) {
+            JkLog.trace("Content of " + layout.resolveClassDir() + " has changed since last run.");
+            return Collections.emptyMap();
+        }
+        return result;
+    }
+
+    private static String compileFingerprint(JkJavaCompileSpec<?> compileSpec) {
+        final List<Path> sourceFiles = compileSpec.getSourceFiles();
+        final JkFingerprint fingerprint = JkFingerprint.of()
+                .and(compileSpec.getOptions())
+                .and(System.getProperty("java.version"));
+        for (final Path source : sourceFiles) {
+            if (Files.isDirectory(source)) {
+                fingerprint.andContent(JkPathTree.of(source));
+            } else {
+                fingerprint.and(source.toString()).andFileContent(source);
+            }
+        }
+        return fingerprint.andStamps(compileSpec.getClasspath()).get();
+    }
+
     private JkJavaCompileSpec computeProdCompileSpec() {
         return JkJavaCompileSpec.of()
             .setSourceAndTargetVersion(construction.getJavaVersion())
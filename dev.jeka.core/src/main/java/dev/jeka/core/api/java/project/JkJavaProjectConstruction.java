@@ -5,6 +5,7 @@ import dev.jeka.core.api.depmanagement.JkModuleId;
 import dev.jeka.core.api.depmanagement.JkRepo;
 import dev.jeka.core.api.depmanagement.artifact.JkArtifactId;
 import dev.jeka.core.api.depmanagement.resolution.JkDependencyResolver;
+import dev.jeka.core.api.file.JkBuildCache;
 import dev.jeka.core.api.file.JkPathMatcher;
 import dev.jeka.core.api.file.JkPathSequence;
 import dev.jeka.core.api.file.JkPathTreeSet;
@@ -12,6 +13,7 @@ import dev.jeka.core.api.java.JkJarPacker;
 import dev.jeka.core.api.java.JkJavaCompiler;
 import dev.jeka.core.api.java.JkJavaVersion;
 import dev.jeka.core.api.java.JkManifest;
+import dev.jeka.core.api.system.JkLog;
 
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
@@ -60,6 +62,8 @@ public class JkJavaProjectConstruction {
     private JkPathTreeSet extraFilesToIncludeInFatJar = JkPathTreeSet.ofEmpty();
 
     private UnaryOperator<JkDependencySet> dependencySetModifier = x -> x;
+
+    private JkBuildCache buildCache;
     
     /**
      * For Parent chaining
@@ -139,7 +143,26 @@ public class JkJavaProjectConstruction {
         return project;
     }
 
-    private void addManifestDefaults() {
+    /**
+     * Returns the cache where compiled classes and bin jar are stored and restored from, or <code>null</code> if
+     * no cache is used.
+     */
+    public JkBuildCache getBuildCache() {
+        return buildCache;
+    }
+
+    /**
+     * Sets the cache where compiled classes and bin jar are stored and restored from. When sources, resources,
+     * classpath and compile options are the same as for a cached entry, classes are restored from the cache instead
+     * of being compiled, even if they have been compiled in another checkout. The same applies for the bin jar.
+     * Default is <code>null</code>, meaning no cache is used.
+     */
+    public JkJavaProjectConstruction setBuildCache(JkBuildCache buildCache) {
+        this.buildCache = buildCache;
+        return this;
+    }
+
+    private synchronized void addManifestDefaults() {
         JkModuleId moduleId = project.getPublication().getModuleId();
         String version = project.getPublication().getVersion();
         if (manifest.getMainAttribute(JkManifest.IMPLEMENTATION_TITLE) == null && moduleId != null) {
@@ -157,10 +180,20 @@ public class JkJavaProjectConstruction {
         compilation.runIfNecessary();
         testing.runIfNecessary();
         addManifestDefaults();
-        JkJarPacker.of(compilation.getLayout().resolveClassDir())
+        final Path classDir = compilation.getLayout().resolveClassDir();
+        final String cacheKey = buildCache == null ? null
+                : BuildCacheKeys.binJar(project.getBaseDir(), classDir, manifest, getExtraFilesToIncludeInJar());
+        if (cacheKey != null && buildCache.restore(cacheKey, target)) {
+            JkLog.info("Jar restored from build cache.");
+            return;
+        }
+        JkJarPacker.of(classDir)
                 .withManifest(manifest)
                 .withExtraFiles(getExtraFilesToIncludeInJar())
                 .makeJar(target);
+        if (cacheKey != null) {
+            buildCache.store(cacheKey, target);
+        }
     }
 
     public void createBinJar() {
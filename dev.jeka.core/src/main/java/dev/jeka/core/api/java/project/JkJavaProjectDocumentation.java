@@ -56,7 +56,7 @@ public class JkJavaProjectDocumentation {
         javadocProcessor.make(classpath, sources, dir);
     }
 
-    public void runIfNecessary() {
+    public synchronized void runIfNecessary() {
         if (done && !Files.exists(project.getOutputDir().resolve(javadocDir))) {
             JkLog.info("Javadoc already generated. Won't perfom again");
         } else {
@@ -102,6 +102,7 @@ public class JkJavaProjectPublication {
         artifactProducer.putMainArtifact(project.getConstruction()::createBinJar);
         artifactProducer.putArtifact(SOURCES_ARTIFACT_ID, project.getDocumentation()::createSourceJar);
         artifactProducer.putArtifact(JAVADOC_ARTIFACT_ID, project.getDocumentation()::createJavadocJar);
+        artifactProducer.getPreActions().append(() -> project.getConstruction().getCompilation().runIfNecessary());
     }
 
     public JkModuleId getModuleId() {
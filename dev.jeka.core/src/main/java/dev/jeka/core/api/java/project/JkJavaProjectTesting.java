@@ -157,7 +157,7 @@ public class JkJavaProjectTesting {
     /**
      * As #run but perfom only if not already done.
      */
-    public void runIfNecessary() {
+    public synchronized void runIfNecessary() {
         if (done) {
             JkLog.trace("Tests has already been performed. Won't do it again.");
         } else if (skipped) {
@@ -5,16 +5,21 @@ import dev.jeka.core.api.function.JkRunnables;
 import dev.jeka.core.api.function.JkUnaryOperator;
 import dev.jeka.core.api.java.*;
 import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsAssert;
 import dev.jeka.core.api.utils.JkUtilsIO;
 import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
 import org.junit.platform.launcher.core.LauncherConfig;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.ServiceLoader;
+import java.util.concurrent.*;
 
 /**
  * Processor executing a given bunch of tests existing in compiled Java classes. <p/>
@@ -69,6 +74,14 @@ public final class JkTestProcessor<T> {
 
     private JkJavaProcess forkingProcess = JkJavaProcess.of();  // Tests are forked by default
 
+    private int forkCount = 1;
+
+    private boolean reuseForkedProcesses;
+
+    private boolean cacheResults;
+
+    private int slowestTestCount;
+
     private JkEngineBehavior<T> engineBehavior;
 
     private final JkRunnables postActions = JkRunnables.of();
@@ -96,6 +109,22 @@ public final class JkTestProcessor<T> {
         return forkingProcess;
     }
 
+    public int getForkCount() {
+        return forkCount;
+    }
+
+    public boolean isReuseForkedProcesses() {
+        return reuseForkedProcesses;
+    }
+
+    public boolean isCacheResults() {
+        return cacheResults;
+    }
+
+    public int getSlowestTestCount() {
+        return slowestTestCount;
+    }
+
     public JkEngineBehavior<T> getEngineBehavior() {
         return engineBehavior;
     }
@@ -121,6 +150,54 @@ public final class JkTestProcessor<T> {
         return this;
     }
 
+    /**
+     * Sets the maximum number of forked processes running tests concurrently. Test classes are distributed among
+     * processes according durations recorded by previous partitioned runs. This applies only when tests run in a
+     * forked process and when test selection has no discovery configurer. Default is 1.
+     */
+    public JkTestProcessor<T> setForkCount(int forkCount) {
+        JkUtilsAssert.argument(forkCount > 0, "Fork count must be greater than 0. Was " + forkCount);
+        this.forkCount = forkCount;
+        return this;
+    }
+
+    /**
+     * If <code>true</code>, forked processes are kept alive after tests have run, so next launches in the same build
+     * (integration tests, other projects, ...) reuse them instead of starting new JVMs. Each launch loads test
+     * classes in a fresh classloader but static state of classes shared with Jeka, as system properties, remains
+     * from one launch to another. Agents writing their output at JVM exit (as Jacoco) are not compatible with
+     * this mode. Default is <code>false</code>.
+     */
+    public JkTestProcessor<T> setReuseForkedProcesses(boolean reuseForkedProcesses) {
+        this.reuseForkedProcesses = reuseForkedProcesses;
+        return this;
+    }
+
+    /**
+     * If <code>true</code>, results of launches are stored in the Jeka user home and replayed, along legacy XML
+     * reports, when neither the test classes nor the test classpath, the test selection, the engine behavior or
+     * the forked process has changed since the last successful launch. If only some test classes have changed,
+     * only those are run again, results of others being replayed. Test classes that failed are always run again.
+     * Tests relying on external resources not on the classpath, as well as agents producing output (as Jacoco),
+     * are not compatible with this mode. Launches running only tests affected by changes (see
+     * {@link JkTestSelection#setAffectedTestsOnly(boolean)}) are not cached. Default is <code>false</code>.
+     */
+    public JkTestProcessor<T> setCacheResults(boolean cacheResults) {
+        this.cacheResults = cacheResults;
+        return this;
+    }
+
+    /**
+     * Sets the number of slowest test classes and tests to log once tests have run. Default is 0, meaning
+     * that nothing is logged. Durations are available from {@link JkTestResult} as well.
+     */
+    public JkTestProcessor<T> setSlowestTestCount(int slowestTestCount) {
+        JkUtilsAssert.argument(slowestTestCount >= 0, "Slowest test count can not be negative. Was "
+                + slowestTestCount);
+        this.slowestTestCount = slowestTestCount;
+        return this;
+    }
+
     private List<Path> computeClasspath(JkPathSequence testClasspath) {
         JkClasspath result = JkClasspath.of(testClasspath);
         JkClassLoader classloader = JkClassLoader.ofCurrent();
@@ -162,27 +239,157 @@ public final class JkTestProcessor<T> {
         final JkTestResult result;
         if (forkingProcess == null) {
             JkLog.startTask("Executing tests");
-            result = launchInClassloader(extraTestClasspath, testSelection);
         } else {
             JkLog.startTask("Execute tests in forked process");
-            result = launchInForkedProcess(extraTestClasspath, testSelection);
+        }
+        JkTestSelection<?> selection = testSelection;
+        TestImpactAnalysis impactAnalysis = null;
+        boolean affectedOnly = false;
+        if (selection.isAffectedTestsOnly() && selection.getDiscoveryConfigurer() == null) {
+            impactAnalysis = TestImpactAnalysis.of(selection, extraTestClasspath);
+            List<String> affectedClassNames = impactAnalysis.getAffectedClassNames();
+            if (affectedClassNames != null) {
+                JkLog.info(affectedClassNames.size() + " test classes affected by changes since last successful run.");
+                selection = affectedClassNames.isEmpty() ? null : selection.withOnlyClassNames(affectedClassNames);
+                affectedOnly = true;
+            }
+        }
+
+        // A restricted selection would be cached under another key than the full one, overwriting its results
+        TestResultCache resultCache = cacheResults && !affectedOnly ? TestResultCache.of(selection,
+                extraTestClasspath, engineBehavior, forkingProcess == null ? null
+                        : forkingProcess.toProcess(JkTestProcessor.class.getName(), null).toString()) : null;
+        if (selection == null) {
+            result = JkTestResult.ofEmpty();
+        } else if (resultCache == null) {
+            result = launch(extraTestClasspath, selection, engineBehavior);
+        } else {
+            result = resultCache.launch((cacheSelection, reportDir) ->
+                    launch(extraTestClasspath, cacheSelection, engineBehavior.withLegacyReportDir(reportDir)));
+        }
+        if (impactAnalysis != null && result.getFailures().isEmpty()) {
+            impactAnalysis.saveKnownGood();
         }
         postActions.run();
         JkLog.info("Result : " + result.getTestCount());
+        if (slowestTestCount > 0) {
+            logSlowest(result);
+        }
         JkLog.endTask();
         return result;
     }
 
-    private JkTestResult launchInClassloader(JkPathSequence testClasspath, JkTestSelection testSelection) {
+    private void logSlowest(JkTestResult result) {
+        List<String> slowestClasses = result.getSlowestClasses(slowestTestCount);
+        if (!slowestClasses.isEmpty()) {
+            JkLog.info("Slowest test classes :");
+            slowestClasses.forEach(className -> JkLog.info(String.format("%8d ms  %s",
+                    result.getClassResults().get(className).getDuration(), className)));
+        }
+        List<JkTestResult.JkTestDuration> slowestTests = result.getSlowestTests(slowestTestCount);
+        if (!slowestTests.isEmpty()) {
+            JkLog.info("Slowest tests :");
+            slowestTests.forEach(testDuration -> JkLog.info(String.format("%8d ms  %s %s",
+                    testDuration.getDuration(), testDuration.getClassName(), testDuration.getDisplayName())));
+        }
+    }
+
+    private JkTestResult launch(JkPathSequence testClasspath, JkTestSelection<?> testSelection,
+                                JkEngineBehavior<?> engineBehavior) {
+        if (forkingProcess == null) {
+            return launchInClassloader(testClasspath, testSelection, engineBehavior);
+        }
+        return launchInForkedProcesses(testClasspath, testSelection, engineBehavior);
+    }
+
+    private JkTestResult launchInClassloader(JkPathSequence testClasspath, JkTestSelection<?> testSelection,
+                                             JkEngineBehavior<?> engineBehavior) {
         List<Path> classpath = computeClasspath(testClasspath);
         return JkInternalJunitDoer.instance(classpath).launch(engineBehavior, testSelection);
     }
 
-    private JkTestResult launchInForkedProcess(JkPathSequence testClasspath, JkTestSelection testSelection) {
+    private JkTestResult launchInForkedProcesses(JkPathSequence testClasspath, JkTestSelection<?> testSelection,
+                                                 JkEngineBehavior<?> engineBehavior) {
+        if (forkCount <= 1) {
+            return launchInForkedProcess(testClasspath, testSelection, engineBehavior);
+        }
+        if (testSelection.getDiscoveryConfigurer() != null) {
+            JkLog.info("Test selection has a discovery configurer : tests are run in a single forked process.");
+            return launchInForkedProcess(testClasspath, testSelection, engineBehavior);
+        }
+        TestForkPartitioner partitioner = TestForkPartitioner.of(testSelection);
+        List<List<String>> partitions = partitioner.partition(
+                TestForkPartitioner.discoverClassNames(testSelection), forkCount);
+        JkTestResult result = partitions.size() <= 1
+                ? launchInForkedProcess(testClasspath, testSelection, engineBehavior)
+                : launchPartitions(testClasspath, testSelection, engineBehavior, partitions);
+
+        // Durations of tests actually run here balance next partitions
+        if (!result.getClassResults().isEmpty()) {
+            partitioner.record(new ArrayList<>(result.getClassResults().keySet()), result);
+            partitioner.save();
+        }
+        return result;
+    }
+
+    private JkTestResult launchPartitions(JkPathSequence testClasspath, JkTestSelection<?> testSelection,
+                                          JkEngineBehavior<?> engineBehavior, List<List<String>> partitions) {
+        JkLog.info("Run " + partitions.size() + " forked processes concurrently.");
+        Path legacyReportDir = engineBehavior.getLegacyReportDir();
+        List<Path> forkReportDirs = new ArrayList<>();
+        List<Callable<JkTestResult>> tasks = new ArrayList<>();
+        for (int i = 0; i < partitions.size(); i++) {
+            List<String> classNames = partitions.get(i);
+            Path forkReportDir = legacyReportDir == null ? null : legacyReportDir.resolve("fork-" + (i + 1));
+            forkReportDirs.add(forkReportDir);
+            JkEngineBehavior<?> forkEngineBehavior = engineBehavior.forFork(forkReportDir);
+            JkTestSelection<?> forkSelection = testSelection.withOnlyClassNames(classNames);
+            tasks.add(JkLog.inCurrentContext(() -> launchInForkedProcess(testClasspath, forkSelection,
+                    forkEngineBehavior)));
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(partitions.size());
+        try {
+            JkTestResult result = null;
+            for (Future<JkTestResult> future : executorService.invokeAll(tasks)) {
+                JkTestResult forkResult = getResult(future);
+                result = result == null ? forkResult : result.and(forkResult);
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw JkUtilsThrowable.unchecked(e);
+        } finally {
+            executorService.shutdownNow();
+            if (legacyReportDir != null) {
+                LegacyXmlReportMerger.merge(forkReportDirs, legacyReportDir);
+            }
+        }
+    }
+
+    private static JkTestResult getResult(Future<JkTestResult> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw JkUtilsThrowable.unchecked(e.getCause(), "Error while running tests in forked process");
+        }
+    }
+
+    private JkTestResult launchInForkedProcess(JkPathSequence testClasspath, JkTestSelection<?> testSelection,
+                                               JkEngineBehavior<?> engineBehavior) {
+        if (reuseForkedProcesses) {
+            Args args = new Args();
+            args.engineBehavior = engineBehavior;
+            args.testSelection = testSelection;
+            JkJavaProcess process = forkingProcess
+                    .withPrintCommand(false)
+                    .andClasspath(JkClassLoader.ofCurrent().getClasspath().getEntries());
+            return TestWorkerPool.launch(process, JkClassLoader.ofCurrent().getClasspath()
+                    .and(computeClasspath(testClasspath)).withoutDuplicates().getEntries(), args);
+        }
         Path serializedResultPath = JkUtilsPath.createTempFile("testResult-", ".ser");
         Args args = new Args();
         args.resultFile = serializedResultPath.toAbsolutePath().toString();
-        args.engineBehavior = this.engineBehavior;
+        args.engineBehavior = engineBehavior;
         args.testSelection = testSelection;
         Path serializedArgPath = JkUtilsPath.createTempFile("testArgs-", ".ser");
         JkUtilsIO.serialize(args, serializedArgPath);
@@ -199,9 +406,13 @@ public final class JkTestProcessor<T> {
     }
 
     /**
-     * Non public API. Used by #launchInClassloader.
+     * Non public API. Used by #launchInForkedProcess.
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2 && TestWorkerPool.WORKER_ARG.equals(args[0])) {
+            TestWorkerPool.serve(Integer.parseInt(args[1]));
+            System.exit(0);
+        }
         Path argFile = Paths.get(args[0]);
         Args data = JkUtilsIO.deserialize(argFile);
         JkTestResult result =
@@ -210,7 +421,7 @@ public final class JkTestProcessor<T> {
         System.exit(0);  // Triggers shutdown hooks
     }
 
-    private static class Args implements Serializable {
+    static class Args implements Serializable {
 
         private static final long serialVersionUID = 1L;
 
@@ -241,6 +452,22 @@ public final class JkTestProcessor<T> {
             this.__ = __;
         }
 
+        private JkEngineBehavior<T> withLegacyReportDir(Path legacyReportDir) {
+            JkEngineBehavior<T> result = new JkEngineBehavior<>(__);
+            result.legacyReportDir = legacyReportDir == null ? null : legacyReportDir.toString();
+            result.progressDisplayer = progressDisplayer;
+            result.launcherConfigurer = launcherConfigurer;
+            return result;
+        }
+
+        // Concurrent forks can not share the console progress line
+        private JkEngineBehavior<T> forFork(Path forkLegacyReportDir) {
+            JkEngineBehavior<T> result = withLegacyReportDir(forkLegacyReportDir);
+            result.progressDisplayer = progressDisplayer == JkProgressOutputStyle.ONE_LINE
+                    ? JkProgressOutputStyle.SILENT : progressDisplayer;
+            return result;
+        }
+
         public Path getLegacyReportDir() {
             return legacyReportDir == null ? null : Paths.get(legacyReportDir);
         }
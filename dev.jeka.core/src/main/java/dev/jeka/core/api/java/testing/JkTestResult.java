@@ -1,9 +1,8 @@
 package dev.jeka.core.api.java.testing;
 
 import java.io.*;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.stream.Collectors;
 
 public final class JkTestResult implements Serializable {
 
@@ -19,16 +18,50 @@ public final class JkTestResult implements Serializable {
 
     private final List<JkFailure> failures;
 
-    private JkTestResult(long timeStarted, long timeFinished, JkCount containerCount, JkCount testCount, List<JkFailure> failures) {
+    private final Map<String, JkTestResult> classResults;
+
+    private final List<JkTestDuration> testDurations;
+
+    private JkTestResult(long timeStarted, long timeFinished, JkCount containerCount, JkCount testCount,
+                         List<JkFailure> failures, Map<String, JkTestResult> classResults,
+                         List<JkTestDuration> testDurations) {
         this.timeStarted = timeStarted;
         this.timeFinished = timeFinished;
         this.containerCount = containerCount;
         this.testCount = testCount;
         this.failures = failures;
+        this.classResults = classResults;
+        this.testDurations = testDurations;
     }
 
     public static JkTestResult of(long timeStarted, long timeFinished, JkCount containerCount, JkCount testCount, List<JkFailure> failures) {
-        return new JkTestResult(timeStarted, timeFinished, containerCount, testCount, failures);
+        return of(timeStarted, timeFinished, containerCount, testCount, failures, Collections.emptyMap());
+    }
+
+    // Result of a launch having no test to run
+    static JkTestResult ofEmpty() {
+        long now = System.currentTimeMillis();
+        JkCount count = JkCount.of(0, 0, 0, 0, 0, 0);
+        return of(now, now, count, count, Collections.emptyList());
+    }
+
+    /**
+     * Creates a result detailed by test class.
+     * @param classResults The results of each top-level test class, by class name. Results of engine level
+     *                     containers are not part of any class result.
+     */
+    public static JkTestResult of(long timeStarted, long timeFinished, JkCount containerCount, JkCount testCount,
+                                  List<JkFailure> failures, Map<String, JkTestResult> classResults) {
+        return new JkTestResult(timeStarted, timeFinished, containerCount, testCount, failures,
+                new TreeMap<>(classResults), Collections.emptyList());
+    }
+
+    /**
+     * Returns a copy of this result having the specified test durations.
+     */
+    public JkTestResult withTestDurations(List<JkTestDuration> testDurations) {
+        return new JkTestResult(timeStarted, timeFinished, containerCount, testCount, failures, classResults,
+                new ArrayList<>(testDurations));
     }
 
     public long getTimeStarted() {
@@ -39,6 +72,13 @@ public final class JkTestResult implements Serializable {
         return timeFinished;
     }
 
+    /**
+     * Returns the duration in milliseconds elapsed between the start of the first test and the end of the last one.
+     */
+    public long getDuration() {
+        return Math.max(0, timeFinished - timeStarted);
+    }
+
     public JkCount getContainerCount() {
         return containerCount;
     }
@@ -51,6 +91,58 @@ public final class JkTestResult implements Serializable {
         return failures;
     }
 
+    /**
+     * Returns the results of each top-level test class, by class name. The returned map is empty if the
+     * test engine did not detail results by class.
+     */
+    public Map<String, JkTestResult> getClassResults() {
+        return classResults == null ? Collections.emptyMap() : Collections.unmodifiableMap(classResults);
+    }
+
+    /**
+     * Returns the durations of each test run, or an empty list if the test engine did not measure them.
+     */
+    public List<JkTestDuration> getTestDurations() {
+        return testDurations == null ? Collections.emptyList() : Collections.unmodifiableList(testDurations);
+    }
+
+    /**
+     * Returns at most <code>count</code> of the longest tests, the longest first.
+     */
+    public List<JkTestDuration> getSlowestTests(int count) {
+        return getTestDurations().stream()
+                .sorted(Comparator.comparingLong(JkTestDuration::getDuration).reversed())
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the names of at most <code>count</code> of the longest test classes, the longest first.
+     */
+    public List<String> getSlowestClasses(int count) {
+        return getClassResults().entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, JkTestResult> entry) ->
+                        entry.getValue().getDuration()).reversed())
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns a result merging this result with the specified one, as if both test runs were a single one.
+     */
+    public JkTestResult and(JkTestResult other) {
+        List<JkFailure> mergedFailures = new ArrayList<>(failures);
+        mergedFailures.addAll(other.failures);
+        Map<String, JkTestResult> mergedClassResults = new TreeMap<>(getClassResults());
+        other.getClassResults().forEach((name, result) -> mergedClassResults.merge(name, result, JkTestResult::and));
+        List<JkTestDuration> mergedTestDurations = new ArrayList<>(getTestDurations());
+        mergedTestDurations.addAll(other.getTestDurations());
+        return new JkTestResult(Math.min(timeStarted, other.timeStarted), Math.max(timeFinished, other.timeFinished),
+                containerCount.and(other.containerCount), testCount.and(other.testCount), mergedFailures,
+                mergedClassResults, mergedTestDurations);
+    }
+
     @Override
     public String toString() {
         return "{" +
@@ -115,6 +207,14 @@ public final class JkTestResult implements Serializable {
             return failed;
         }
 
+        /**
+         * Returns the sum of this count and the specified one.
+         */
+        public JkCount and(JkCount other) {
+            return new JkCount(found + other.found, started + other.started, skipped + other.skipped,
+                    aborted + other.aborted, succeded + other.succeded, failed + other.failed);
+        }
+
         @Override
         public String toString() {
             return "{" +
@@ -203,6 +303,61 @@ public final class JkTestResult implements Serializable {
         }
     }
 
+    /**
+     * Duration of a single test.
+     */
+    public static final class JkTestDuration implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String className;
+
+        private final String testId;
+
+        private final String displayName;
+
+        private final long duration;
+
+        private JkTestDuration(String className, String testId, String displayName, long duration) {
+            this.className = className;
+            this.testId = testId;
+            this.displayName = displayName;
+            this.duration = duration;
+        }
+
+        /**
+         * @param className The name of the class containing the test, <code>null</code> if not located in a class.
+         * @param duration The duration in milliseconds.
+         */
+        public static JkTestDuration of(String className, String testId, String displayName, long duration) {
+            return new JkTestDuration(className, testId, displayName, duration);
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getTestId() {
+            return testId;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        /**
+         * Returns the duration in milliseconds.
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        @Override
+        public String toString() {
+            return (className == null ? "" : className + " ") + displayName + " : " + duration + " ms";
+        }
+    }
+
     public static final class JkTestIdentifier implements Serializable {
 
         private static final long serialVersionUID = 1L;
@@ -10,6 +10,8 @@ import java.io.Serializable;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 /**
  * Mutable object to specify a set of test to run according class root dirs, file patterns and tags.<p>
@@ -37,6 +39,8 @@ public final class JkTestSelection<T> implements Cloneable, Serializable {
 
     private JkUnaryOperator<LauncherDiscoveryRequestBuilder> discoveryConfigurer;
 
+    private boolean affectedTestsOnly;
+
     /**
      * For parent chaining
      */
@@ -152,6 +156,24 @@ public final class JkTestSelection<T> implements Cloneable, Serializable {
         return discoveryConfigurer;
     }
 
+    public boolean isAffectedTestsOnly() {
+        return affectedTestsOnly;
+    }
+
+    /**
+     * If <code>true</code>, only the selected test classes affected by changes since the last launch without
+     * failure are run. A test class is affected if it depends, directly or transitively, on a class whose bytecode
+     * has changed, according a dependency graph read from the class directories of the test classpath. All
+     * selected tests are run if no launch has succeeded yet, or if a jar of the classpath, a non-class file of a
+     * class directory or the selection patterns and tags have changed. This does not apply when a discovery
+     * configurer is set. Results of launches running only affected tests are not cached, even if
+     * {@link JkTestProcessor#setCacheResults(boolean)} is set. Default is <code>false</code>.
+     */
+    public JkTestSelection<T> setAffectedTestsOnly(boolean affectedTestsOnly) {
+        this.affectedTestsOnly = affectedTestsOnly;
+        return this;
+    }
+
     public JkTestSelection<T> setTestClassRoots(UnaryOperator<JkPathSequence> pathSequencer) {
         testClassRoots = pathSequencer.apply(testClassRoots);
         return this;
@@ -178,6 +200,17 @@ public final class JkTestSelection<T> implements Cloneable, Serializable {
         return this;
     }
 
+    /*
+     * Returns a copy of this selection restricted to the specified classes.
+     */
+    @SuppressWarnings("unchecked")  // clone() returns a raw type
+    JkTestSelection<T> withOnlyClassNames(Collection<String> classNames) {
+        JkTestSelection<T> result = clone();
+        result.includePatterns = classNames.stream().map(Pattern::quote)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        return result;
+    }
+
     @Override
     public JkTestSelection clone() {
         try {
@@ -199,6 +232,7 @@ public final class JkTestSelection<T> implements Cloneable, Serializable {
                 ", excludePatterns=" + excludePatterns +
                 ", includeTags=" + includeTags +
                 ", excludeTags=" + excludeTags +
-                ", discoveryConfigurer=" + discoveryConfigurer;
+                ", discoveryConfigurer=" + discoveryConfigurer +
+                (affectedTestsOnly ? ", affectedTestsOnly=true" : "");
     }
 }
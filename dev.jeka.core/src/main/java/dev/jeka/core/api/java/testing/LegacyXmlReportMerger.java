@@ -0,0 +1,133 @@
+package dev.jeka.core.api.java.testing;
+
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsXml;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/*
+ * Merges legacy XML reports generated by several forked processes in separate directories. Reports having the same
+ * file name (one per test engine) are merged in a single test suite, summing counters and gathering test cases.
+ */
+final class LegacyXmlReportMerger {
+
+    private static final String[] INT_COUNTERS = {"tests", "skipped", "failures", "errors"};
+
+    private LegacyXmlReportMerger() {
+    }
+
+    static void merge(List<Path> forkReportDirs, Path targetDir) {
+        final Map<String, List<Path>> reportsByName = new TreeMap<>();
+        for (final Path dir : forkReportDirs) {
+            if (!Files.isDirectory(dir)) {
+                continue;
+            }
+            JkPathTree.of(dir).andMatching(true, "*.xml").getFiles().forEach(file ->
+                    reportsByName.computeIfAbsent(file.getFileName().toString(), name -> new ArrayList<>())
+                            .add(file));
+        }
+        JkUtilsPath.createDirectories(targetDir);
+        reportsByName.forEach((name, files) -> {
+            final Document merged = JkUtilsXml.documentFrom(files.get(0));
+            for (final Path file : files.subList(1, files.size())) {
+                append(merged, JkUtilsXml.documentFrom(file));
+            }
+            try (OutputStream out = Files.newOutputStream(targetDir.resolve(name))) {
+                JkUtilsXml.output(merged, out);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        forkReportDirs.stream().filter(Files::exists).forEach(dir -> JkPathTree.of(dir).deleteRoot());
+    }
+
+    /*
+     * Removes from the reports of the specified directory the test cases not belonging to the specified top-level
+     * classes, updating counters accordingly.
+     */
+    static void retainClasses(Path reportDir, Set<String> classNames) {
+        if (!Files.isDirectory(reportDir)) {
+            return;
+        }
+        JkPathTree.of(reportDir).andMatching(true, "*.xml").getFiles().forEach(file -> {
+            final Document document = JkUtilsXml.documentFrom(file);
+            final Element suite = document.getDocumentElement();
+            for (final Element testCase : JkUtilsXml.directChildren(suite, "testcase")) {
+                final String className = testCase.getAttribute("classname");
+                final int nestedIndex = className.indexOf('$');
+                if (classNames.contains(nestedIndex < 0 ? className : className.substring(0, nestedIndex))) {
+                    continue;
+                }
+                suite.removeChild(testCase);
+                decrement(suite, "tests");
+                decrementIfChild(suite, testCase, "skipped", "skipped");
+                decrementIfChild(suite, testCase, "failure", "failures");
+                decrementIfChild(suite, testCase, "error", "errors");
+                if (suite.hasAttribute("time")) {
+                    final double time = parseDouble(suite.getAttribute("time"))
+                            - parseDouble(testCase.getAttribute("time"));
+                    suite.setAttribute("time", String.format(Locale.ROOT, "%.3f", Math.max(0, time)));
+                }
+            }
+            try (OutputStream out = Files.newOutputStream(file)) {
+                JkUtilsXml.output(document, out);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static void decrementIfChild(Element suite, Element testCase, String childName, String counter) {
+        if (JkUtilsXml.directChild(testCase, childName) != null) {
+            decrement(suite, counter);
+        }
+    }
+
+    private static void decrement(Element suite, String counter) {
+        if (suite.hasAttribute(counter)) {
+            suite.setAttribute(counter, Long.toString(Math.max(0, parseLong(suite.getAttribute(counter)) - 1)));
+        }
+    }
+
+    private static void append(Document target, Document source) {
+        final Element targetSuite = target.getDocumentElement();
+        final Element sourceSuite = source.getDocumentElement();
+        for (final String counter : INT_COUNTERS) {
+            if (targetSuite.hasAttribute(counter) || sourceSuite.hasAttribute(counter)) {
+                final long value = parseLong(targetSuite.getAttribute(counter))
+                        + parseLong(sourceSuite.getAttribute(counter));
+                targetSuite.setAttribute(counter, Long.toString(value));
+            }
+        }
+        if (targetSuite.hasAttribute("time") || sourceSuite.hasAttribute("time")) {
+            final double time = parseDouble(targetSuite.getAttribute("time"))
+                    + parseDouble(sourceSuite.getAttribute("time"));
+            targetSuite.setAttribute("time", String.format(Locale.ROOT, "%.3f", time));
+        }
+        final Node insertionPoint = JkUtilsXml.directChild(targetSuite, "system-out");
+        for (final Element testCase : JkUtilsXml.directChildren(sourceSuite, "testcase")) {
+            targetSuite.insertBefore(target.importNode(testCase, true), insertionPoint);
+        }
+    }
+
+    private static long parseLong(String value) {
+        return value == null || value.isEmpty() ? 0 : Long.parseLong(value.trim());
+    }
+
+    private static double parseDouble(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        return Double.parseDouble(value.trim().replace(",", ""));
+    }
+
+}
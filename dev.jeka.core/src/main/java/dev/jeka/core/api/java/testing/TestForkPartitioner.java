@@ -0,0 +1,155 @@
+package dev.jeka.core.api.java.testing;
+
+import dev.jeka.core.api.file.JkFingerprint;
+import dev.jeka.core.api.file.JkPathMatcher;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/*
+ * Distributes test classes over several forked processes. Classes are discovered from the test class roots of a
+ * selection, by applying include/exclude class name patterns the same way Junit-platform does. Partitions are
+ * balanced according the durations recorded by previous partitioned runs, which are stored in the Jeka user home.
+ * This history holds the last measured duration of each test class : as a fork is always given whole classes,
+ * durations of individual tests are not kept.
+ */
+final class TestForkPartitioner {
+
+    private static final String DIR_NAME = "cache/test-durations";
+
+    private static final long DEFAULT_DURATION = 1;
+
+    private final Path historyFile;
+
+    private final Map<String, Long> durations;
+
+    private TestForkPartitioner(Path historyFile, Map<String, Long> durations) {
+        this.historyFile = historyFile;
+        this.durations = durations;
+    }
+
+    static TestForkPartitioner of(JkTestSelection<?> testSelection) {
+        final List<String> roots = testSelection.getTestClassRoots().getEntries().stream()
+                .map(path -> path.toAbsolutePath().normalize().toString())
+                .collect(Collectors.toList());
+        final String key = JkFingerprint.of().and(roots).get();
+        final Path file = JkLocator.getJekaUserHomeDir().resolve(DIR_NAME).resolve(key + ".properties");
+        return new TestForkPartitioner(file, load(file));
+    }
+
+    /*
+     * Returns the names of the classes matching the specified selection patterns.
+     */
+    static List<String> discoverClassNames(JkTestSelection<?> testSelection) {
+        final List<Pattern> includes = testSelection.getIncludePatterns().stream()
+                .map(Pattern::compile).collect(Collectors.toList());
+        final List<Pattern> excludes = testSelection.getExcludePatterns().stream()
+                .map(Pattern::compile).collect(Collectors.toList());
+        final Set<String> result = new TreeSet<>();
+        for (final Path root : testSelection.getTestClassRoots().getEntries()) {
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            JkPathTree.of(root).andMatcher(JkPathMatcher.of("**.class")).getRelativeFiles().stream()
+                    .map(TestForkPartitioner::className)
+                    .filter(name -> !name.endsWith("package-info") && !name.endsWith("module-info"))
+                    .filter(name -> includes.isEmpty() || includes.stream().anyMatch(p -> p.matcher(name).matches()))
+                    .filter(name -> excludes.stream().noneMatch(p -> p.matcher(name).matches()))
+                    .forEach(result::add);
+        }
+        return new ArrayList<>(result);
+    }
+
+    /*
+     * Splits the specified classes in at most <code>count</code> non-empty partitions having a similar expected
+     * duration. Classes without recorded duration are assumed to last the average of recorded ones.
+     */
+    List<List<String>> partition(List<String> classNames, int count) {
+        final long defaultDuration = (long) durations.values().stream().mapToLong(Long::longValue).average()
+                .orElse(DEFAULT_DURATION);
+        final List<String> sorted = new ArrayList<>(classNames);
+        sorted.sort(Comparator.comparing((String name) -> durations.getOrDefault(name, defaultDuration))
+                .reversed().thenComparing(Comparator.naturalOrder()));
+        final int partitionCount = Math.min(count, sorted.size());
+        final List<List<String>> result = new ArrayList<>();
+        final long[] loads = new long[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            result.add(new ArrayList<>());
+        }
+        for (final String className : sorted) {
+            int lightest = 0;
+            for (int i = 1; i < partitionCount; i++) {
+                if (loads[i] < loads[lightest]) {
+                    lightest = i;
+                }
+            }
+            result.get(lightest).add(className);
+            loads[lightest] += Math.max(1, durations.getOrDefault(className, defaultDuration));
+        }
+        return result;
+    }
+
+    /*
+     * Records the durations of the specified classes. Durations are taken from class results when available,
+     * otherwise the duration of the whole run is shared equally among classes.
+     */
+    synchronized void record(List<String> classNames, JkTestResult result) {
+        if (classNames.isEmpty()) {
+            return;
+        }
+        final long share = result.getDuration() / classNames.size();
+        final Map<String, JkTestResult> classResults = result.getClassResults();
+        classNames.forEach(name -> durations.put(name,
+                classResults.containsKey(name) ? classResults.get(name).getDuration() : share));
+    }
+
+    synchronized void save() {
+        final Properties properties = new Properties();
+        durations.forEach((name, duration) -> properties.setProperty(name, Long.toString(duration)));
+        try {
+            JkUtilsPath.createDirectories(historyFile.getParent());
+            final Path tempFile = historyFile.resolveSibling(historyFile.getFileName() + "."
+                    + UUID.randomUUID() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                properties.store(out, null);
+            }
+            Files.move(tempFile, historyFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            JkLog.trace("Can not store test durations in " + historyFile + " : " + e.getMessage());
+        }
+    }
+
+    private static Map<String, Long> load(Path file) {
+        final Map<String, Long> result = new HashMap<>();
+        if (!Files.exists(file)) {
+            return result;
+        }
+        final Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+            properties.stringPropertyNames().forEach(name ->
+                    result.put(name, Long.parseLong(properties.getProperty(name))));
+        } catch (IOException | RuntimeException e) {
+            JkLog.trace("Can not read test durations from " + file + " : " + e.getMessage());
+            result.clear();
+        }
+        return result;
+    }
+
+    private static String className(Path relativeClassFile) {
+        final String path = relativeClassFile.toString().replace('\\', '/');
+        return path.substring(0, path.length() - ".class".length()).replace('/', '.');
+    }
+
+}
@@ -0,0 +1,207 @@
+package dev.jeka.core.api.java.testing;
+
+import dev.jeka.core.api.file.JkFingerprint;
+import dev.jeka.core.api.file.JkPathSequence;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.java.JkClassDependencyGraph;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/*
+ * Selects the test classes affected by changes since the last launch without failure (the known-good state).
+ * The state, stored in the Jeka user home, holds a hash of each class found in the class directories of the
+ * test classpath, along a hash of everything else (jars, non-class files, selection patterns and tags). When
+ * the latter differs, all tests are considered as affected. Otherwise, affected tests are the ones depending,
+ * directly or transitively, on a class added, removed or modified since the known-good state.
+ * As for compilation up-to-date checks, a class file whose stamp (size and last modification time) matches the one
+ * of the known-good state is not hashed again. Files modified shortly before being stamped get no stamp, as their
+ * modification time may not reflect subsequent changes, due to timestamp granularity.
+ */
+final class TestImpactAnalysis {
+
+    private static final String DIR_NAME = "cache/test-impact";
+
+    private static final long RACY_MILLIS = 2000;
+
+    private final Path stateFile;
+
+    private final JkTestSelection<?> testSelection;
+
+    private final List<Path> classDirs;
+
+    private final State knownGood;
+
+    private final State current;
+
+    private TestImpactAnalysis(Path stateFile, JkTestSelection<?> testSelection, List<Path> classDirs,
+                               State knownGood, State current) {
+        this.stateFile = stateFile;
+        this.testSelection = testSelection;
+        this.classDirs = classDirs;
+        this.knownGood = knownGood;
+        this.current = current;
+    }
+
+    static TestImpactAnalysis of(JkTestSelection<?> testSelection, JkPathSequence classpath) {
+        final List<String> roots = testSelection.getTestClassRoots().getEntries().stream()
+                .map(path -> path.toAbsolutePath().normalize().toString())
+                .collect(Collectors.toList());
+        final String key = JkFingerprint.of().and(roots).get();
+        return of(JkLocator.getJekaUserHomeDir().resolve(DIR_NAME).resolve(key + ".ser"), testSelection,
+                classpath);
+    }
+
+    static TestImpactAnalysis of(Path stateFile, JkTestSelection<?> testSelection, JkPathSequence classpath) {
+        final State knownGood = load(stateFile);
+        final long racyTime = System.currentTimeMillis() - RACY_MILLIS;
+        final List<Path> classDirs = new ArrayList<>();
+        final JkFingerprint contextFingerprint = JkFingerprint.of("SHA-256")
+                .and(sorted(testSelection.getIncludePatterns())).and("<exclude>")
+                .and(sorted(testSelection.getExcludePatterns())).and("<include-tags>")
+                .and(sorted(testSelection.getIncludeTags())).and("<exclude-tags>")
+                .and(sorted(testSelection.getExcludeTags()));
+        final State state = new State();
+        final Set<Path> dirs = new LinkedHashSet<>();
+        testSelection.getTestClassRoots().forEach(root -> dirs.add(root.toAbsolutePath().normalize()));
+        classpath.forEach(entry -> dirs.add(entry.toAbsolutePath().normalize()));
+        for (final Path entry : dirs) {
+            if (!Files.isDirectory(entry)) {
+                contextFingerprint.and(entry.toString());
+                if (Files.exists(entry)) {
+                    contextFingerprint.andStamps(entry);
+                }
+                continue;
+            }
+            classDirs.add(entry);
+            contextFingerprint.and(entry.toString());
+            final List<Path> relativeFiles = new ArrayList<>(JkPathTree.of(entry).getRelativeFiles());
+            relativeFiles.sort(Comparator.comparing(Path::toString));
+            for (final Path relativeFile : relativeFiles) {
+                final String relativeName = relativeFile.toString().replace('\\', '/');
+                if (relativeName.endsWith(".class")) {
+                    final String className = relativeName.substring(0, relativeName.length() - ".class".length())
+                            .replace('/', '.');
+                    if (!state.classHashes.containsKey(className)) {
+                        hashClass(state, knownGood, className, entry.resolve(relativeFile), racyTime);
+                    }
+                } else {
+                    contextFingerprint.and(relativeName).andFileContent(entry.resolve(relativeFile));
+                }
+            }
+        }
+        state.contextHash = contextFingerprint.get();
+        return new TestImpactAnalysis(stateFile, testSelection, classDirs, knownGood, state);
+    }
+
+    private static void hashClass(State state, State knownGood, String className, Path classFile, long racyTime) {
+        final String stamp = isRacy(classFile, racyTime) ? null : JkFingerprint.of().andStamps(classFile).get();
+        final String knownGoodHash = knownGood == null || stamp == null ? null
+                : knownGood.hashForStamp(className, stamp);
+        state.classHashes.put(className, knownGoodHash != null ? knownGoodHash
+                : JkFingerprint.of().andFileContent(classFile).get());
+        if (stamp != null) {
+            state.classStamps.put(className, stamp);
+        }
+    }
+
+    private static boolean isRacy(Path file, long racyTime) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis() >= racyTime;
+        } catch (final IOException e) {
+            return true;
+        }
+    }
+
+    /*
+     * Returns the names of the selected test classes affected by changes since the known-good state,
+     * or <code>null</code> if all tests have to be run.
+     */
+    List<String> getAffectedClassNames() {
+        if (knownGood == null) {
+            JkLog.info("No known-good test state : all tests are affected.");
+            return null;
+        }
+        if (!knownGood.contextHash.equals(current.contextHash)) {
+            JkLog.info("Classpath jars, resources or test selection changed : all tests are affected.");
+            return null;
+        }
+        final Set<String> changedClassNames = new HashSet<>(knownGood.classHashes.keySet());
+        changedClassNames.addAll(current.classHashes.keySet());
+        changedClassNames.removeIf(name -> Objects.equals(knownGood.classHashes.get(name),
+                current.classHashes.get(name)));
+        if (changedClassNames.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final JkClassDependencyGraph graph = JkClassDependencyGraph.of(classDirs);
+        for (final String changedClassName : changedClassNames) {
+            if (current.classHashes.containsKey(changedClassName)
+                    && !graph.getClassNames().contains(changedClassName)) {
+                JkLog.info("Can not read dependencies of " + changedClassName + " : all tests are affected.");
+                return null;
+            }
+        }
+        final Set<String> affected = graph.getTransitiveDependents(changedClassNames);
+        JkLog.trace("Classes changed since known-good state : " + changedClassNames);
+        return TestForkPartitioner.discoverClassNames(testSelection).stream()
+                .filter(affected::contains)
+                .collect(Collectors.toList());
+    }
+
+    /*
+     * Records the current state as the known-good one.
+     */
+    void saveKnownGood() {
+        try {
+            JkUtilsPath.createDirectories(stateFile.getParent());
+            final Path tempFile = stateFile.resolveSibling(stateFile.getFileName() + "." + UUID.randomUUID()
+                    + ".tmp");
+            JkUtilsIO.serialize(current, tempFile);
+            Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            JkLog.trace("Can not store known-good test state in " + stateFile + " : " + e.getMessage());
+        }
+    }
+
+    private static State load(Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return JkUtilsIO.deserialize(file);
+        } catch (final RuntimeException e) {
+            JkLog.trace("Can not read known-good test state from " + file + " : " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static List<String> sorted(Collection<String> values) {
+        return values.stream().sorted().collect(Collectors.toList());
+    }
+
+    private static final class State implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String contextHash;
+
+        private final Map<String, String> classHashes = new HashMap<>();
+
+        private final Map<String, String> classStamps = new HashMap<>();  // null if read from an older state
+
+        String hashForStamp(String className, String stamp) {
+            return classStamps != null && stamp.equals(classStamps.get(className)) ? classHashes.get(className)
+                    : null;
+        }
+    }
+
+}
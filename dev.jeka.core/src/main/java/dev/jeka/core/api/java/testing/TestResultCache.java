@@ -0,0 +1,309 @@
+package dev.jeka.core.api.java.testing;
+
+import dev.jeka.core.api.file.JkFingerprint;
+import dev.jeka.core.api.file.JkPathMatcher;
+import dev.jeka.core.api.file.JkPathSequence;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/*
+ * Stores results of test launches in the Jeka user home, so launches whose inputs have not changed replay stored
+ * results instead of running tests. Inputs are split in : <ul>
+ *     <li>a context : classpath entries other than test class roots, selection patterns and tags, engine
+ *     behavior, forked process command line, JDK and files of test class roots not belonging to a test class</li>
+ *     <li>the bytecode of each top-level test class, including its nested classes</li>
+ * </ul>
+ * If the context has not changed, only test classes whose bytecode changed, new ones and the ones that failed are
+ * run again, results of others being replayed. If nothing has changed, the stored result and legacy XML reports are
+ * replayed as is. When the selection has a discovery configurer, test classes can not be known in advance so all
+ * test class root files are part of the context.
+ */
+final class TestResultCache {
+
+    private static final String DIR_NAME = "cache/test-results";
+
+    private static final String STATE_FILE = "state.ser";
+
+    private static final String REPORT_DIR = "reports";
+
+    private final Path dir;
+
+    private final JkTestSelection<?> testSelection;
+
+    private final Path legacyReportDir;
+
+    private final String contextKey;
+
+    private final List<String> classNames;
+
+    private final Map<String, String> classHashes;
+
+    private final State previous;
+
+    private TestResultCache(Path dir, JkTestSelection<?> testSelection, Path legacyReportDir, String contextKey,
+                            List<String> classNames, Map<String, String> classHashes) {
+        this.dir = dir;
+        this.testSelection = testSelection;
+        this.legacyReportDir = legacyReportDir;
+        this.contextKey = contextKey;
+        this.classNames = classNames;
+        this.classHashes = classHashes;
+        this.previous = load(dir.resolve(STATE_FILE));
+    }
+
+    /*
+     * Returns a cache for the specified launch inputs, or <code>null</code> if the inputs can not be fingerprinted.
+     * @param forkKey The command line of the forked process running tests, <code>null</code> if tests are
+     *                run in process.
+     */
+    static TestResultCache of(JkTestSelection<?> testSelection, JkPathSequence classpath,
+                              JkTestProcessor.JkEngineBehavior<?> engineBehavior, String forkKey) {
+        final List<String> roots = testSelection.getTestClassRoots().getEntries().stream()
+                .map(path -> path.toAbsolutePath().normalize().toString())
+                .collect(Collectors.toList());
+        final String key = JkFingerprint.of().and(roots).get();
+        return of(JkLocator.getJekaUserHomeDir().resolve(DIR_NAME).resolve(key), testSelection, classpath,
+                engineBehavior, forkKey);
+    }
+
+    static TestResultCache of(Path dir, JkTestSelection<?> testSelection, JkPathSequence classpath,
+                              JkTestProcessor.JkEngineBehavior<?> engineBehavior, String forkKey) {
+        final String discoveryConfigurerHash = serializedHash(testSelection.getDiscoveryConfigurer());
+        final String launcherConfigurerHash = serializedHash(engineBehavior.getLauncherConfigurer());
+        if (discoveryConfigurerHash == null || launcherConfigurerHash == null) {
+            JkLog.info("Discovery or launcher configurer is not serializable : test results are not cached.");
+            return null;
+        }
+        final List<String> classNames = testSelection.getDiscoveryConfigurer() == null
+                ? TestForkPartitioner.discoverClassNames(testSelection) : Collections.emptyList();
+        final Set<String> topLevelClassNames = classNames.stream().map(TestResultCache::topLevel)
+                .collect(Collectors.toSet());
+        final Map<String, JkFingerprint> classFingerprints = new TreeMap<>();
+        final JkFingerprint contextFingerprint = JkFingerprint.of("SHA-256")
+                .and(System.getProperty("java.vendor"), System.getProperty("java.version"))
+                .and(forkKey == null ? "<in-process>" : forkKey)
+                .and(sorted(testSelection.getIncludePatterns())).and("<exclude>")
+                .and(sorted(testSelection.getExcludePatterns())).and("<include-tags>")
+                .and(sorted(testSelection.getIncludeTags())).and("<exclude-tags>")
+                .and(sorted(testSelection.getExcludeTags()))
+                .and(discoveryConfigurerHash, launcherConfigurerHash)
+                .and(Boolean.toString(engineBehavior.getLegacyReportDir() != null));
+        final Set<Path> roots = new HashSet<>();
+        for (final Path root : testSelection.getTestClassRoots().getEntries()) {
+            roots.add(root.toAbsolutePath().normalize());
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            final List<Path> relativeFiles = new ArrayList<>(JkPathTree.of(root).getRelativeFiles());
+            relativeFiles.sort(Comparator.comparing(path -> path.toString().replace('\\', '/')));
+            for (final Path relativeFile : relativeFiles) {
+                final String relativeName = relativeFile.toString().replace('\\', '/');
+                final String className = className(relativeName);
+                final JkFingerprint fingerprint = className != null && topLevelClassNames.contains(className)
+                        ? classFingerprints.computeIfAbsent(className, name -> JkFingerprint.of("SHA-256"))
+                        : contextFingerprint;
+                fingerprint.and(relativeName).andFileContent(root.resolve(relativeFile));
+            }
+        }
+        contextFingerprint.and("<classpath>");
+        for (final Path entry : classpath) {
+            final Path normalizedEntry = entry.toAbsolutePath().normalize();
+            if (roots.contains(normalizedEntry)) {
+                continue;
+            }
+            if (Files.isDirectory(entry)) {
+                contextFingerprint.andContent(JkPathTree.of(entry));
+            } else if (Files.exists(entry)) {
+                contextFingerprint.andStamps(entry);
+            } else {
+                contextFingerprint.and(normalizedEntry.toString(), "<absent>");
+            }
+        }
+        final Map<String, String> classHashes = new TreeMap<>();
+        topLevelClassNames.forEach(name -> classHashes.put(name, classFingerprints.containsKey(name)
+                ? classFingerprints.get(name).get() : ""));
+        return new TestResultCache(dir, testSelection, engineBehavior.getLegacyReportDir(),
+                contextFingerprint.get(), classNames, classHashes);
+    }
+
+    /*
+     * Returns the result of the tests, running only the ones whose inputs changed since the last launch.
+     * @param runner Runs the specified selection, generating legacy reports in the specified directory.
+     */
+    JkTestResult launch(BiFunction<JkTestSelection<?>, Path, JkTestResult> runner) {
+        if (isUpToDate()) {
+            JkLog.info("Test classes and classpath unchanged since last successful run : replay its results.");
+            if (legacyReportDir != null) {
+                JkUtilsPath.createDirectories(legacyReportDir);
+                JkUtilsPath.copyDirContent(dir.resolve(REPORT_DIR), legacyReportDir, JkPathMatcher.of("*.xml"),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+            return previous.result;
+        }
+        final Set<String> reusedClassNames = reusableClassNames();
+        final JkTestResult result;
+        if (reusedClassNames.isEmpty()) {
+            result = runner.apply(testSelection, legacyReportDir);
+        } else {
+            final List<String> staleClassNames = classNames.stream()
+                    .filter(name -> !reusedClassNames.contains(topLevel(name)))
+                    .collect(Collectors.toList());
+            JkLog.info(reusedClassNames.size() + " test classes unchanged since last run, "
+                    + (classHashes.size() - reusedClassNames.size()) + " to run.");
+            final Path freshReportDir = legacyReportDir == null ? null
+                    : JkUtilsPath.createTempDirectory("jeka-test-report");
+            JkTestResult mergedResult = staleClassNames.isEmpty() ? null
+                    : runner.apply(testSelection.withOnlyClassNames(staleClassNames), freshReportDir);
+            for (final String className : reusedClassNames) {
+                final JkTestResult classResult = previous.result.getClassResults().get(className);
+                if (classResult != null) {
+                    final JkTestResult replayed = JkTestResult.of(classResult.getTimeStarted(),
+                            classResult.getTimeFinished(), classResult.getContainerCount(),
+                            classResult.getTestCount(), classResult.getFailures(),
+                            Collections.singletonMap(className, classResult))
+                            .withTestDurations(classResult.getTestDurations());
+                    mergedResult = mergedResult == null ? replayed : mergedResult.and(replayed);
+                }
+            }
+            result = mergedResult != null ? mergedResult : JkTestResult.ofEmpty();
+            if (legacyReportDir != null) {
+                final Path reusedReportDir = JkUtilsPath.createTempDirectory("jeka-test-report");
+                JkUtilsPath.copyDirContent(dir.resolve(REPORT_DIR), reusedReportDir, JkPathMatcher.of("*.xml"),
+                        StandardCopyOption.REPLACE_EXISTING);
+                LegacyXmlReportMerger.retainClasses(reusedReportDir, reusedClassNames);
+                LegacyXmlReportMerger.merge(Arrays.asList(reusedReportDir, freshReportDir), legacyReportDir);
+            }
+        }
+        save(result);
+        return result;
+    }
+
+    private boolean isUpToDate() {
+        return previous != null
+                && previous.contextKey.equals(contextKey)
+                && previous.classHashes.equals(classHashes)
+                && previous.result.getFailures().isEmpty()
+                && (legacyReportDir == null || Files.isDirectory(dir.resolve(REPORT_DIR)));
+    }
+
+    // Classes whose results can be taken from the previous launch
+    private Set<String> reusableClassNames() {
+        if (previous == null || !previous.contextKey.equals(contextKey) || !previous.detailed
+                || (legacyReportDir != null && !Files.isDirectory(dir.resolve(REPORT_DIR)))) {
+            return Collections.emptySet();
+        }
+        return classHashes.entrySet().stream()
+                .filter(entry -> entry.getValue().equals(previous.classHashes.get(entry.getKey())))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    // Only classes that succeeded are recorded, so failed ones are run again on next launch
+    private void save(JkTestResult result) {
+        final Map<String, JkTestResult> classResults = result.getClassResults();
+        final long classFailureCount = classResults.values().stream()
+                .mapToLong(classResult -> classResult.getFailures().size()).sum();
+        final State state = new State();
+        state.contextKey = contextKey;
+        state.result = result;
+        state.detailed = !classResults.isEmpty() || result.getTestCount().getFound() == 0;
+        if (result.getFailures().isEmpty() || (state.detailed && classFailureCount == result.getFailures().size())) {
+            classHashes.forEach((name, hash) -> {
+                final JkTestResult classResult = classResults.get(name);
+                if (classResult == null || classResult.getFailures().isEmpty()) {
+                    state.classHashes.put(name, hash);
+                }
+            });
+        }
+        final Path stateFile = dir.resolve(STATE_FILE);
+        try {
+            JkUtilsPath.createDirectories(dir);
+            final Path reportDir = dir.resolve(REPORT_DIR);
+            if (Files.exists(reportDir)) {
+                JkPathTree.of(reportDir).deleteRoot();
+            }
+            if (legacyReportDir != null && Files.isDirectory(legacyReportDir)) {
+                JkUtilsPath.createDirectories(reportDir);
+                JkUtilsPath.copyDirContent(legacyReportDir, reportDir, JkPathMatcher.of("*.xml"),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+            final Path tempFile = stateFile.resolveSibling(STATE_FILE + "." + UUID.randomUUID() + ".tmp");
+            JkUtilsIO.serialize(state, tempFile);
+            Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            JkLog.trace("Can not store test results in " + dir + " : " + e.getMessage());
+        }
+    }
+
+    private static State load(Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return JkUtilsIO.deserialize(file);
+        } catch (final RuntimeException e) {
+            JkLog.trace("Can not read test results from " + file + " : " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Returns "" for null, null if the object can not be serialized
+    private static String serializedHash(Object object) {
+        if (object == null) {
+            return "";
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            JkUtilsIO.serialize(object, out);
+        } catch (final RuntimeException e) {
+            return null;
+        }
+        return JkFingerprint.of().and(Base64.getEncoder().encodeToString(out.toByteArray())).get();
+    }
+
+    private static List<String> sorted(Collection<String> values) {
+        return values.stream().sorted().collect(Collectors.toList());
+    }
+
+    // Returns the top-level class name for a class file, null if it is not a class file
+    private static String className(String relativeName) {
+        if (!relativeName.endsWith(".class")) {
+            return null;
+        }
+        return topLevel(relativeName.substring(0, relativeName.length() - ".class".length()).replace('/', '.'));
+    }
+
+    private static String topLevel(String className) {
+        final int nestedIndex = className.indexOf('$');
+        return nestedIndex < 0 ? className : className.substring(0, nestedIndex);
+    }
+
+    private static final class State implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String contextKey;
+
+        // Hashes of classes that succeeded
+        private final Map<String, String> classHashes = new TreeMap<>();
+
+        // Whether result is detailed by class
+        private boolean detailed;
+
+        private JkTestResult result;
+    }
+
+}
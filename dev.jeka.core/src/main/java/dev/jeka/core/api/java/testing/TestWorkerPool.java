@@ -0,0 +1,273 @@
+package dev.jeka.core.api.java.testing;
+
+import dev.jeka.core.api.java.JkJavaProcess;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+ * Pool of long-lived forked processes running tests. A worker process receives test requests over a local socket
+ * and returns results the same way, so the JVM startup cost is paid once per build instead of once per launch.
+ * Each request is run in a fresh classloader isolated from the worker one and having the same classpath a
+ * one-shot forked process would have, so test classes recompiled between two launches are picked up.
+ * Workers are shared among launches using the same process configuration and are stopped when this JVM exits.
+ */
+final class TestWorkerPool {
+
+    static final String WORKER_ARG = "-worker";
+
+    private static final int CONNECTION_TIMEOUT_MILLIS = 60 * 1000;
+
+    private static final Map<String, Deque<Worker>> IDLE_WORKERS = new HashMap<>();
+
+    private static final List<Worker> ALL_WORKERS = new LinkedList<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(TestWorkerPool::stopAll));
+    }
+
+    private TestWorkerPool() {
+    }
+
+    /*
+     * Runs the specified tests in an idle worker created with the specified process, creating a new one if needed.
+     */
+    static JkTestResult launch(JkJavaProcess process, List<Path> classpath, JkTestProcessor.Args args) {
+        final String key = process.toProcess(JkTestProcessor.class.getName(), null, WORKER_ARG).toString();
+        Worker worker = take(key);
+        if (worker == null) {
+            worker = Worker.start(process);
+            synchronized (IDLE_WORKERS) {
+                ALL_WORKERS.add(worker);
+            }
+        } else {
+            JkLog.trace("Reuse test worker process " + worker.name);
+        }
+        final Request request = new Request();
+        request.classpath = classpath.stream().map(Path::toString).collect(Collectors.toList());
+        final ByteArrayOutputStream argsOut = new ByteArrayOutputStream();
+        JkUtilsIO.serialize(args, argsOut);
+        request.args = argsOut.toByteArray();
+        final Object response;
+        try {
+            response = worker.send(request);
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            stop(worker);
+            throw JkUtilsThrowable.unchecked(e, "Test worker process " + worker.name + " failed");
+        }
+        release(key, worker);
+        if (response instanceof byte[]) {
+            return JkUtilsIO.deserialize(new ByteArrayInputStream((byte[]) response));
+        }
+        throw new IllegalStateException("Error while running tests in worker process " + worker.name + " :\n"
+                + response);
+    }
+
+    /*
+     * Entry point of worker processes.
+     */
+    static void serve(int port) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            final ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.flush();
+            final ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            while (true) {
+                final Request request;
+                try {
+                    request = (Request) in.readObject();
+                } catch (EOFException e) {
+                    return;
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalStateException(e);
+                }
+                Object response;
+                try {
+                    response = runInIsolatedClassloader(request);
+                } catch (Exception | Error e) {
+                    final Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+                    final StringWriter stringWriter = new StringWriter();
+                    cause.printStackTrace(new PrintWriter(stringWriter));
+                    response = stringWriter.toString();
+                }
+                out.writeObject(response);
+                out.reset();
+                out.flush();
+                System.out.flush();
+                System.err.flush();
+            }
+        }
+    }
+
+    private static byte[] runInIsolatedClassloader(Request request) throws Exception {
+        final URL[] urls = new URL[request.classpath.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = Paths.get(request.classpath.get(i)).toUri().toURL();
+        }
+        final ClassLoader parent = ClassLoader.getSystemClassLoader().getParent();
+        final Thread thread = Thread.currentThread();
+        final ClassLoader contextClassLoader = thread.getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(urls, parent)) {
+            thread.setContextClassLoader(classLoader);
+            final Method method = classLoader.loadClass(TestWorkerPool.class.getName())
+                    .getDeclaredMethod("run", byte[].class);
+            method.setAccessible(true);
+            return (byte[]) method.invoke(null, (Object) request.args);
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    // Invoked reflectively in the isolated classloader
+    private static byte[] run(byte[] serializedArgs) {
+        final JkTestProcessor.Args args = JkUtilsIO.deserialize(new ByteArrayInputStream(serializedArgs));
+        final JkTestResult result = JkInternalJunitDoer.instance(Collections.emptyList())
+                .launch(args.engineBehavior, args.testSelection);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JkUtilsIO.serialize(result, out);
+        return out.toByteArray();
+    }
+
+    private static Worker take(String key) {
+        synchronized (IDLE_WORKERS) {
+            final Deque<Worker> workers = IDLE_WORKERS.get(key);
+            while (workers != null && !workers.isEmpty()) {
+                final Worker worker = workers.pop();
+                if (worker.process.isAlive()) {
+                    return worker;
+                }
+                ALL_WORKERS.remove(worker);
+            }
+            return null;
+        }
+    }
+
+    private static void release(String key, Worker worker) {
+        synchronized (IDLE_WORKERS) {
+            IDLE_WORKERS.computeIfAbsent(key, k -> new ArrayDeque<>()).push(worker);
+        }
+    }
+
+    private static void stop(Worker worker) {
+        synchronized (IDLE_WORKERS) {
+            ALL_WORKERS.remove(worker);
+        }
+        worker.close();
+    }
+
+    private static void stopAll() {
+        final List<Worker> workers;
+        synchronized (IDLE_WORKERS) {
+            workers = new ArrayList<>(ALL_WORKERS);
+            ALL_WORKERS.clear();
+            IDLE_WORKERS.clear();
+        }
+        workers.forEach(Worker::close);
+    }
+
+    private static class Request implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        List<String> classpath;
+
+        byte[] args;
+    }
+
+    private static final class Worker {
+
+        private static int count;
+
+        private final String name;
+
+        private final Process process;
+
+        private final Socket socket;
+
+        private final ObjectOutputStream out;
+
+        private final ObjectInputStream in;
+
+        private Worker(String name, Process process, Socket socket) throws IOException {
+            this.name = name;
+            this.process = process;
+            this.socket = socket;
+            this.out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            this.out.flush();
+            this.in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+        }
+
+        static Worker start(JkJavaProcess javaProcess) {
+            final String name;
+            synchronized (Worker.class) {
+                name = "jeka-test-worker-" + (++count);
+            }
+            JkLog.trace("Start test worker process " + name);
+            try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+                serverSocket.setSoTimeout(CONNECTION_TIMEOUT_MILLIS);
+                final Process process = javaProcess.startClass(JkTestProcessor.class.getName(), WORKER_ARG,
+                        Integer.toString(serverSocket.getLocalPort()));
+                pipeOutput(name, process.getInputStream());
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (SocketTimeoutException e) {
+                    process.destroyForcibly();
+                    throw new IllegalStateException("Test worker process " + name + " did not connect within "
+                            + CONNECTION_TIMEOUT_MILLIS + " ms.");
+                }
+                return new Worker(name, process, socket);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        Object send(Request request) throws IOException, ClassNotFoundException {
+            out.writeObject(request);
+            out.reset();
+            out.flush();
+            return in.readObject();
+        }
+
+        // Closing the socket makes the worker exit its serving loop
+        void close() {
+            JkUtilsIO.closeQuietly(socket);
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+
+        // Daemon thread, so idle workers do not prevent this JVM from exiting
+        private static void pipeOutput(String name, InputStream inputStream) {
+            final Thread thread = new Thread(() -> {
+                final byte[] buffer = new byte[8192];
+                try {
+                    int len;
+                    while ((len = inputStream.read(buffer)) != -1) {
+                        JkLog.getOutputStream().write(buffer, 0, len);
+                        JkLog.getOutputStream().flush();
+                    }
+                } catch (IOException e) {
+                    // process has been terminated
+                }
+            }, name + "-output");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+package dev.jeka.core.api.java.testing.embedded.junitplatform;
+
+import dev.jeka.core.api.java.testing.JkTestResult;
+import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.engine.TestSource;
+import org.junit.platform.engine.support.descriptor.ClassSource;
+import org.junit.platform.engine.support.descriptor.MethodSource;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
+
+import java.util.*;
+
+/*
+ * Gathers results by top-level test class, counting the same way SummaryGeneratingListener does, so results of
+ * a class can be stored and replayed independently of others. Tests and containers not located in a class
+ * (as engine containers) are not part of any class result. The duration of each test is measured as well.
+ */
+class ClassResultListener implements TestExecutionListener {
+
+    private static final int FOUND = 0, STARTED = 1, SKIPPED = 2, ABORTED = 3, SUCCEEDED = 4, FAILED = 5;
+
+    private final Map<String, ClassCounter> counters = new HashMap<>();
+
+    private final Map<String, Long> startNanos = new HashMap<>();
+
+    private final List<JkTestResult.JkTestDuration> testDurations = new ArrayList<>();
+
+    private TestPlan testPlan;
+
+    @Override
+    public synchronized void testPlanExecutionStarted(TestPlan testPlan) {
+        this.testPlan = testPlan;
+        for (TestIdentifier root : testPlan.getRoots()) {
+            for (TestIdentifier identifier : testPlan.getDescendants(root)) {
+                increment(identifier, FOUND);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void executionSkipped(TestIdentifier testIdentifier, String reason) {
+        increment(testIdentifier, SKIPPED);
+        testPlan.getDescendants(testIdentifier).forEach(descendant -> increment(descendant, SKIPPED));
+    }
+
+    @Override
+    public synchronized void executionStarted(TestIdentifier testIdentifier) {
+        increment(testIdentifier, STARTED);
+        startNanos.put(testIdentifier.getUniqueId(), System.nanoTime());
+        ClassCounter counter = counter(testIdentifier);
+        if (counter != null && counter.timeStarted == 0) {
+            counter.timeStarted = System.currentTimeMillis();
+        }
+    }
+
+    @Override
+    public synchronized void executionFinished(TestIdentifier testIdentifier, TestExecutionResult result) {
+        ClassCounter counter = counter(testIdentifier);
+        Long startNano = startNanos.remove(testIdentifier.getUniqueId());
+        if (testIdentifier.isTest() && startNano != null) {
+            JkTestResult.JkTestDuration testDuration = JkTestResult.JkTestDuration.of(sourceClassName(testIdentifier),
+                    testIdentifier.getUniqueId(), testIdentifier.getDisplayName(),
+                    (System.nanoTime() - startNano) / 1000000);
+            testDurations.add(testDuration);
+            if (counter != null) {
+                counter.testDurations.add(testDuration);
+            }
+        }
+        switch (result.getStatus()) {
+            case SUCCESSFUL:
+                increment(testIdentifier, SUCCEEDED);
+                break;
+            case ABORTED:
+                increment(testIdentifier, ABORTED);
+                break;
+            default:
+                increment(testIdentifier, FAILED);
+                if (counter != null) {
+                    counter.failures.add(JunitPlatformDoer.toFailure(testIdentifier,
+                            result.getThrowable().orElse(null)));
+                }
+                break;
+        }
+        if (counter != null) {
+            counter.timeFinished = System.currentTimeMillis();
+        }
+    }
+
+    synchronized List<JkTestResult.JkTestDuration> getTestDurations() {
+        return new ArrayList<>(testDurations);
+    }
+
+    synchronized Map<String, JkTestResult> getResults() {
+        Map<String, JkTestResult> result = new TreeMap<>();
+        counters.forEach((className, counter) -> result.put(className, counter.toResult()));
+        return result;
+    }
+
+    private void increment(TestIdentifier testIdentifier, int index) {
+        ClassCounter counter = counter(testIdentifier);
+        if (counter == null) {
+            return;
+        }
+        if (testIdentifier.isContainer()) {
+            counter.containers[index]++;
+        }
+        if (testIdentifier.isTest()) {
+            counter.tests[index]++;
+        }
+    }
+
+    private ClassCounter counter(TestIdentifier testIdentifier) {
+        String className = className(testIdentifier);
+        return className == null ? null : counters.computeIfAbsent(className, name -> new ClassCounter());
+    }
+
+    // Top-level class name
+    private String className(TestIdentifier testIdentifier) {
+        String className = sourceClassName(testIdentifier);
+        if (className == null) {
+            return null;
+        }
+        int nestedIndex = className.indexOf('$');
+        return nestedIndex < 0 ? className : className.substring(0, nestedIndex);
+    }
+
+    private String sourceClassName(TestIdentifier testIdentifier) {
+        TestSource source = testIdentifier.getSource().orElse(null);
+        if (source instanceof ClassSource) {
+            return ((ClassSource) source).getClassName();
+        } else if (source instanceof MethodSource) {
+            return ((MethodSource) source).getClassName();
+        }
+        return testPlan.getParent(testIdentifier).map(this::sourceClassName).orElse(null);
+    }
+
+    private static class ClassCounter {
+
+        private final long[] containers = new long[6];
+
+        private final long[] tests = new long[6];
+
+        private final List<JkTestResult.JkFailure> failures = new ArrayList<>();
+
+        private final List<JkTestResult.JkTestDuration> testDurations = new ArrayList<>();
+
+        private long timeStarted;
+
+        private long timeFinished;
+
+        JkTestResult toResult() {
+            return JkTestResult.of(timeStarted, Math.max(timeStarted, timeFinished), count(containers), count(tests),
+                    new ArrayList<>(failures)).withTestDurations(testDurations);
+        }
+
+        private static JkTestResult.JkCount count(long[] values) {
+            return JkTestResult.JkCount.of(values[FOUND], values[STARTED], values[SKIPPED], values[ABORTED],
+                    values[SUCCEEDED], values[FAILED]);
+        }
+    }
+
+}
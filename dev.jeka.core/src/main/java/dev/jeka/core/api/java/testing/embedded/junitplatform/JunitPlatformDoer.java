@@ -14,6 +14,7 @@ import org.junit.platform.engine.discovery.DiscoverySelectors;
 import org.junit.platform.launcher.Launcher;
 import org.junit.platform.launcher.TagFilter;
 import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
 import org.junit.platform.launcher.TestPlan;
 import org.junit.platform.launcher.core.LauncherConfig;
 import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
@@ -26,6 +27,7 @@ import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -58,8 +60,10 @@ class JunitPlatformDoer implements JkInternalJunitDoer {
 
         // Setting forced listeners
         SummaryGeneratingListener summaryListener = new SummaryGeneratingListener();
+        ClassResultListener classResultListener = new ClassResultListener();
         List<TestExecutionListener> listeners = new LinkedList<>();
         listeners.add(summaryListener);
+        listeners.add(classResultListener);
         TestExecutionListener progressListener = ProgressListeners.get(engineBehavior.getProgressDisplayer());
         if (engineBehavior.getProgressDisplayer() != null) {
             listeners.add(progressListener);
@@ -75,7 +79,8 @@ class JunitPlatformDoer implements JkInternalJunitDoer {
         // Execution
         launcher.execute(testPlan, listeners.toArray(new TestExecutionListener[0]));
         TestExecutionSummary summary = summaryListener.getSummary();
-        return toTestResult(summary);
+        return toTestResult(summary, classResultListener.getResults())
+                .withTestDurations(classResultListener.getTestDurations());
     }
 
     private static Filter[] getFilters(JkTestSelection testSelection) {
@@ -95,7 +100,7 @@ class JunitPlatformDoer implements JkInternalJunitDoer {
         return result.toArray(new Filter[0]);
     }
 
-    private static JkTestResult toTestResult(TestExecutionSummary summary) {
+    private static JkTestResult toTestResult(TestExecutionSummary summary, Map<String, JkTestResult> classResults) {
         JkTestResult.JkCount containerCount = JkTestResult.JkCount.of(
                 summary.getContainersFoundCount(),
                 summary.getContainersStartedCount(),
@@ -111,18 +116,19 @@ class JunitPlatformDoer implements JkInternalJunitDoer {
                 summary.getTestsSucceededCount(),
                 summary.getTestsFailedCount());
         List<JkTestResult.JkFailure> failures = summary.getFailures().stream()
-                .map(JunitPlatformDoer::toFailure).collect(Collectors.toList());
+                .map(failure -> toFailure(failure.getTestIdentifier(), failure.getException()))
+                .collect(Collectors.toList());
         return JkTestResult.of(summary.getTimeStarted(), summary.getTimeFinished(),
-                containerCount, testCount, failures);
+                containerCount, testCount, failures, classResults);
     }
 
     private static String[] toArray(Set<String> strings) {
         return new ArrayList<>(strings).toArray(new String[0]);
     }
 
-    private static JkTestResult.JkFailure toFailure(TestExecutionSummary.Failure failure) {
+    static JkTestResult.JkFailure toFailure(TestIdentifier testIdentifier, Throwable throwable) {
         JkTestResult.JkTestIdentifier.JkType type;
-        switch (failure.getTestIdentifier().getType()) {
+        switch (testIdentifier.getType()) {
             case CONTAINER:
                 type = JkTestResult.JkTestIdentifier.JkType.CONTAINER;
                 break;
@@ -133,13 +139,15 @@ class JunitPlatformDoer implements JkInternalJunitDoer {
                 type = JkTestResult.JkTestIdentifier.JkType.TEST;
                 break;
         }
-        String testId = failure.getTestIdentifier().getUniqueId();
-        String displayName = failure.getTestIdentifier().getDisplayName();
-        Set<String> tags = failure.getTestIdentifier().getTags().stream().map(TestTag::toString)
+        String testId = testIdentifier.getUniqueId();
+        String displayName = testIdentifier.getDisplayName();
+        Set<String> tags = testIdentifier.getTags().stream().map(TestTag::toString)
                 .collect(Collectors.toSet());
         JkTestResult.JkTestIdentifier id = JkTestResult.JkTestIdentifier.of(type, testId, displayName, tags);
-        return JkTestResult.JkFailure.of(id, failure.getException().getMessage(),
-                failure.getException().getStackTrace());
+        if (throwable == null) {
+            return JkTestResult.JkFailure.of(id, null, new StackTraceElement[0]);
+        }
+        return JkTestResult.JkFailure.of(id, throwable.getMessage(), throwable.getStackTrace());
     }
 
     private static class RestoreJkLogListener implements TestExecutionListener {
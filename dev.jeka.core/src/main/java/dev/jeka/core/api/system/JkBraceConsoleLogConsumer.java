@@ -134,6 +134,25 @@ public final class JkBraceConsoleLogConsumer implements JkLog.JkEventLogConsumer
             lastByte = aByte;
         }
 
+        // Writes line by line, so the delegate receives blocks instead of single bytes.
+        @Override
+        public void write(byte[] bytes, int offset, int len) throws IOException {
+            final int end = offset + len;
+            int lineStart = offset;
+            while (lineStart < end) {
+                int lineEnd = lineStart;
+                while (lineEnd < end - 1 && bytes[lineEnd] != LINE_SEPARATOR) {
+                    lineEnd++;
+                }
+                write(bytes[lineStart]);
+                if (lineEnd > lineStart) {
+                    delegate.write(bytes, lineStart + 1, lineEnd - lineStart);
+                    lastByte = bytes[lineEnd];
+                }
+                lineStart = lineEnd + 1;
+            }
+        }
+
         @Override
         public void flush() {
             delegate.flush();
@@ -0,0 +1,384 @@
+package dev.jeka.core.api.system;
+
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Records the tasks delimited by {@link JkLog#startTask(String, Object...)} and {@link JkLog#endTask()} as spans
+ * holding wall time, CPU time, allocated bytes and the thread having run the task. Recording starts once the
+ * timeline is registered using {@link JkLog#setTimeline(JkBuildTimeline)}.<p>
+ *
+ * CPU time and allocated bytes are the ones of the thread running the task : work delegated to other threads is
+ * accounted in the spans of tasks run in these threads, if any. They are reported as -1 when the JVM does not
+ * support measuring them. As for log events, tasks started while logs are muted are not recorded.<p>
+ *
+ * Recorded spans can be exported as a <a href="https://docs.google.com/document/d/1CvAClvFfyA5R-PhYUmn5OOQtYMH4h6I0nSsKchNAySU">
+ * Chrome trace</a>, readable by <i>chrome://tracing</i> or <i>https://ui.perfetto.dev</i>, or summarized in a
+ * table listing the phases taking the most time.
+ */
+public final class JkBuildTimeline {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private static final boolean CPU_TIME_SUPPORTED = cpuTimeSupported();
+
+    private static final boolean ALLOCATED_BYTES_SUPPORTED = allocatedBytesSupported();
+
+    private final long originNanos = System.nanoTime();
+
+    private final Queue<JkSpan> spans = new ConcurrentLinkedQueue<>();
+
+    private JkBuildTimeline() {
+    }
+
+    /**
+     * Creates an empty timeline. Time of spans is relative to the creation time of the timeline.
+     */
+    public static JkBuildTimeline of() {
+        return new JkBuildTimeline();
+    }
+
+    /**
+     * Returns the recorded spans, ordered by start time.
+     */
+    public List<JkSpan> getSpans() {
+        final List<JkSpan> result = new ArrayList<>(spans);
+        result.sort(Comparator.comparingLong(JkSpan::getStartNanos));
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Returns the recorded spans grouped by task name, ordered by decreasing self time : the time spent in a task
+     * excluding the time spent in its sub-tasks run in the same thread.
+     */
+    public List<JkPhase> getTopPhases(int maxCount) {
+        final Map<String, JkPhase> phases = new LinkedHashMap<>();
+        for (final JkSpan span : getSpans()) {
+            phases.computeIfAbsent(span.name, JkPhase::new).add(span);
+        }
+        return phases.values().stream()
+                .sorted(Comparator.comparingLong(JkPhase::getSelfNanos).reversed())
+                .limit(maxCount)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns a text table of the phases returned by {@link #getTopPhases(int)}.
+     */
+    public String getTopPhasesTable(int maxCount) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%8s %10s %10s %10s %10s  %s%n", "Count", "Self(ms)", "Total(ms)", "CPU(ms)",
+                "Alloc(MB)", "Phase"));
+        for (final JkPhase phase : getTopPhases(maxCount)) {
+            sb.append(String.format("%8d %10d %10d %10s %10s  %s%n", phase.count, millis(phase.selfNanos),
+                    millis(phase.wallNanos), phase.cpuNanos < 0 ? "-" : Long.toString(millis(phase.cpuNanos)),
+                    phase.allocatedBytes < 0 ? "-" : String.format("%.1f", phase.allocatedBytes / 1024d / 1024d),
+                    JkUtilsString.elipse(phase.name, 100)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns recorded spans in Chrome trace JSON format : one complete event per span, plus the name of each
+     * thread. Timestamps are in microseconds.
+     */
+    public String toChromeTrace() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        final Map<Long, String> threadNames = new TreeMap<>();
+        String separator = "\n";
+        for (final JkSpan span : getSpans()) {
+            threadNames.putIfAbsent(span.threadId, span.threadName);
+            sb.append(separator).append("{\"name\":").append(quote(span.name))
+                    .append(",\"cat\":\"task\",\"ph\":\"X\",\"pid\":1,\"tid\":").append(span.threadId)
+                    .append(",\"ts\":").append(span.startNanos / 1000)
+                    .append(",\"dur\":").append(span.wallNanos / 1000)
+                    .append(",\"args\":{\"level\":").append(span.level)
+                    .append(",\"selfMs\":").append(millis(span.selfNanos))
+                    .append(",\"cpuMs\":").append(span.cpuNanos < 0 ? -1 : millis(span.cpuNanos))
+                    .append(",\"allocatedBytes\":").append(span.allocatedBytes).append("}}");
+            separator = ",\n";
+        }
+        for (final Map.Entry<Long, String> entry : threadNames.entrySet()) {
+            sb.append(separator).append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":")
+                    .append(entry.getKey()).append(",\"args\":{\"name\":").append(quote(entry.getValue()))
+                    .append("}}");
+        }
+        sb.append("\n]}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Writes the result of {@link #toChromeTrace()} to the specified file, creating parent directories if needed.
+     */
+    public void writeChromeTrace(Path file) {
+        if (file.getParent() != null) {
+            JkUtilsPath.createDirectories(file.getParent());
+        }
+        try {
+            Files.write(file, toChromeTrace().getBytes(StandardCharsets.UTF_8));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * Measures the start of a task run in the current thread. Line breaks used to lay out the log are removed
+     * from the name.
+     */
+    SpanStart start(String name, int level) {
+        return new SpanStart(name.trim().replaceAll("\\s*\\R\\s*", " "), level, System.nanoTime(), cpuNanos(),
+                allocatedBytes());
+    }
+
+    /*
+     * Records the span of the specified task, which is ending in the current thread. The parent, if any, is the
+     * enclosing task run in the same thread.
+     */
+    void end(SpanStart start, SpanStart parent) {
+        final long wallNanos = System.nanoTime() - start.nanos;
+        final long cpuNanos = start.cpuNanos < 0 ? -1 : cpuNanos() - start.cpuNanos;
+        final long allocatedBytes = start.allocatedBytes < 0 ? -1 : allocatedBytes() - start.allocatedBytes;
+        if (parent != null) {
+            parent.childNanos += wallNanos;
+        }
+        final Thread thread = Thread.currentThread();
+        spans.add(new JkSpan(start.name, thread.getId(), thread.getName(), start.level,
+                start.nanos - originNanos, wallNanos, Math.max(0, wallNanos - start.childNanos), cpuNanos,
+                allocatedBytes));
+    }
+
+    private static long cpuNanos() {
+        return CPU_TIME_SUPPORTED ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long allocatedBytes() {
+        return ALLOCATED_BYTES_SUPPORTED ? ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN)
+                .getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+    }
+
+    private static boolean cpuTimeSupported() {
+        try {
+            return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+        } catch (final UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private static boolean allocatedBytesSupported() {
+        try {
+            return THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemorySupported()
+                    && ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemoryEnabled();
+        } catch (final LinkageError | UnsupportedOperationException e) {  // com.sun.management missing in this JVM
+            return false;
+        }
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000;
+    }
+
+    private static String quote(String value) {
+        final StringBuilder sb = new StringBuilder("\"");
+        for (final char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /*
+     * Measures taken when a task starts. Child time is only updated by the thread running the task.
+     */
+    static final class SpanStart {
+
+        private final String name;
+
+        private final int level;
+
+        private final long nanos;
+
+        private final long cpuNanos;
+
+        private final long allocatedBytes;
+
+        private long childNanos;
+
+        private SpanStart(String name, int level, long nanos, long cpuNanos, long allocatedBytes) {
+            this.name = name;
+            this.level = level;
+            this.nanos = nanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    /**
+     * A task run, as recorded in the timeline.
+     */
+    public static final class JkSpan {
+
+        private final String name;
+
+        private final long threadId;
+
+        private final String threadName;
+
+        private final int level;
+
+        private final long startNanos;
+
+        private final long wallNanos;
+
+        private final long selfNanos;
+
+        private final long cpuNanos;
+
+        private final long allocatedBytes;
+
+        private JkSpan(String name, long threadId, String threadName, int level, long startNanos, long wallNanos,
+                       long selfNanos, long cpuNanos, long allocatedBytes) {
+            this.name = name;
+            this.threadId = threadId;
+            this.threadName = threadName;
+            this.level = level;
+            this.startNanos = startNanos;
+            this.wallNanos = wallNanos;
+            this.selfNanos = selfNanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        /**
+         * Returns the message of the task.
+         */
+        public String getName() {
+            return name;
+        }
+
+        public long getThreadId() {
+            return threadId;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        /**
+         * Returns the nested task level at which the task has been started.
+         */
+        public int getLevel() {
+            return level;
+        }
+
+        /**
+         * Returns the start time of the task, relative to the creation time of the timeline.
+         */
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /**
+         * Returns the wall time minus the wall time of sub-tasks run in the same thread.
+         */
+        public long getSelfNanos() {
+            return selfNanos;
+        }
+
+        /**
+         * Returns the CPU time consumed by the thread running the task, or -1 if not supported.
+         */
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        /**
+         * Returns the bytes allocated by the thread running the task, or -1 if not supported.
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + millis(wallNanos) + " ms on " + threadName + ")";
+        }
+    }
+
+    /**
+     * Aggregation of the spans of the tasks having the same name.
+     */
+    public static final class JkPhase {
+
+        private final String name;
+
+        private int count;
+
+        private long wallNanos;
+
+        private long selfNanos;
+
+        private long cpuNanos;
+
+        private long allocatedBytes;
+
+        private JkPhase(String name) {
+            this.name = name;
+        }
+
+        private void add(JkSpan span) {
+            count++;
+            wallNanos += span.wallNanos;
+            selfNanos += span.selfNanos;
+            cpuNanos = cpuNanos < 0 || span.cpuNanos < 0 ? -1 : cpuNanos + span.cpuNanos;
+            allocatedBytes = allocatedBytes < 0 || span.allocatedBytes < 0 ? -1
+                    : allocatedBytes + span.allocatedBytes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        public long getSelfNanos() {
+            return selfNanos;
+        }
+
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+
+}
@@ -20,6 +20,10 @@ public final class JkLocator {
 
     private final static String JK_REPOSITORY_CACHE_ENV_NAME = "JEKA_REPO";
 
+    private final static String JK_USER_HOME_PROP_NAME = "jeka.user.home";
+
+    private final static String JK_REPOSITORY_CACHE_PROP_NAME = "jeka.repo";
+
     private static Path JEKA_JAR_FILE;
 
     /**
@@ -57,11 +61,12 @@ public final class JkLocator {
     }
 
     /**
-     * Returns the Jeka user directory.
+     * Returns the Jeka user directory. It can be set through the <code>jeka.user.home</code> system property or the
+     * <code>JEKA_USER_HOME</code> environment variable, the system property taking precedence.
      */
     public static Path getJekaUserHomeDir() {
         final Path result;
-        final String env = System.getenv(JK_USER_HOME_ENV_NAME);
+        final String env = valueOf(JK_USER_HOME_PROP_NAME, JK_USER_HOME_ENV_NAME);
         if (!JkUtilsString.isBlank(env)) {
             result = Paths.get(env);
         } else {
@@ -75,10 +80,11 @@ public final class JkLocator {
     }
 
     /**
-     * Returns the location of the artifact repository cache.
+     * Returns the location of the artifact repository cache. It can be set through the <code>jeka.repo</code>
+     * system property or the <code>JEKA_REPO</code> environment variable, the system property taking precedence.
      */
     public static Path getJekaRepositoryCache() {
-        final String jekaCacheOption = System.getenv(JK_REPOSITORY_CACHE_ENV_NAME);
+        final String jekaCacheOption = valueOf(JK_REPOSITORY_CACHE_PROP_NAME, JK_REPOSITORY_CACHE_ENV_NAME);
         final Path result;
         if (!JkUtilsString.isBlank(jekaCacheOption)) {
             result = Paths.get(jekaCacheOption);
@@ -89,5 +95,9 @@ public final class JkLocator {
         return result;
     }
 
+    private static String valueOf(String propertyName, String envName) {
+        final String property = System.getProperty(propertyName);
+        return JkUtilsString.isBlank(property) ? System.getenv(envName) : property;
+    }
 
 }
@@ -5,10 +5,14 @@ import dev.jeka.core.api.utils.JkUtilsIO;
 import dev.jeka.core.api.utils.JkUtilsObject;
 import dev.jeka.core.api.utils.JkUtilsTime;
 
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.PrintStream;
 import java.io.Serializable;
 import java.lang.reflect.Method;
-import java.util.LinkedList;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
@@ -20,7 +24,13 @@ import java.util.function.Consumer;
  * By default, logging events turns in a no-op.<p>
  *
  * This class provides task concept for hierarchical log. A log event happening during a task will be assigned a nested
- * task level (task can be nested).
+ * task level (task can be nested).<p>
+ *
+ * Tasks may run concurrently : work submitted to other threads can be wrapped using
+ * {@link #inCurrentContext(Runnable)}, so its logs are nested in the submitting task and do not interleave with
+ * others. Events are handed to the consumer through a lock-free queue, drained by one thread at a time.<p>
+ *
+ * Tasks can be recorded in a {@link JkBuildTimeline} registered using {@link #setTimeline(JkBuildTimeline)}.
  */
 public final class JkLog implements Serializable {
 
@@ -60,10 +70,31 @@ public final class JkLog implements Serializable {
 
     private static AtomicInteger currentNestedTaskLevel = new AtomicInteger(0);
 
-    private static final ThreadLocal<LinkedList<Long>> START_TIMES = new ThreadLocal<>();
+    private static volatile JkBuildTimeline timeline;
+
+    private static final ThreadLocal<LinkedList<TaskStart>> START_TIMES = new ThreadLocal<>();
+
+    // Log context bound to the current thread, null meaning the root one.
+    private static final ThreadLocal<LogContext> CONTEXTS = new ThreadLocal<>();
+
+    // Blocks of entries waiting to be dispatched to the consumer. Entries of a block are dispatched contiguously.
+    private static final Queue<List<Entry>> QUEUE = new ConcurrentLinkedQueue<>();
 
-    private static LinkedList<Long> getStartTimes() {
-        LinkedList<Long> result = START_TIMES.get();
+    private static final AtomicInteger QUEUE_WORK = new AtomicInteger();
+
+    private static final OutputStream ROOT_OUT = new ContextOutputStream(null, false);
+
+    private static final OutputStream ROOT_ERR = new ContextOutputStream(null, true);
+
+    // Nested level of the entry being dispatched by the current thread, null if it does not dispatch any.
+    private static final ThreadLocal<Integer> DISPATCH_LEVEL = new ThreadLocal<>();
+
+    private static LinkedList<TaskStart> getStartTimes() {
+        final LogContext context = CONTEXTS.get();
+        if (context != null) {
+            return context.startTimes;
+        }
+        LinkedList<TaskStart> result = START_TIMES.get();
         if (result == null) {
             result = new LinkedList<>();
             START_TIMES.set(result);
@@ -94,27 +125,60 @@ public final class JkLog implements Serializable {
         setConsumer(style.consumer);
     }
 
+    /**
+     * Makes tasks started from now on recorded in the specified timeline. Recording stops when
+     * <code>null</code> is passed.
+     */
+    public static void setTimeline(JkBuildTimeline timelineArg) {
+        timeline = timelineArg;
+    }
+
+    /**
+     * Returns the timeline in which tasks are currently recorded, or <code>null</code> if none.
+     */
+    public static JkBuildTimeline getTimeline() {
+        return timeline;
+    }
+
     public static void setVerbosity(Verbosity verbosityArg) {
         JkUtilsAssert.argument(verbosityArg != null, "Verbosity can noot be set to null.");
         verbosity = verbosityArg;
     }
 
+    /**
+     * Returns the nested task level of the current thread. While an event is dispatched to the consumer, returns
+     * the level of the task in which this event has been emitted.
+     */
     public static int getCurrentNestedLevel() {
-        return currentNestedTaskLevel.get();
+        final Integer dispatchLevel = DISPATCH_LEVEL.get();
+        if (dispatchLevel != null) {
+            return dispatchLevel;
+        }
+        final LogContext context = CONTEXTS.get();
+        return context == null ? currentNestedTaskLevel.get() : context.baseLevel() + context.nestedTaskLevel.get();
     }
 
+    /**
+     * Returns a stream to write raw output in the log. Output is attached to the log context of the current thread,
+     * even if the stream is written from another thread, as it happens for process output.
+     */
     public static OutputStream getOutputStream() {
         if (Verbosity.MUTE == verbosity()) {
             return JkUtilsIO.nopPrintStream();
         }
-        return JkUtilsObject.firstNonNull(stream, JkUtilsIO.nopOuputStream());
+        final LogContext context = CONTEXTS.get();
+        return context == null ? ROOT_OUT : context.out;
     }
 
+    /**
+     * Same as {@link #getOutputStream()} but for error output.
+     */
     public static OutputStream getErrorStream() {
         if (Verbosity.MUTE == verbosity()) {
             return JkUtilsIO.nopPrintStream();
         }
-        return JkUtilsObject.firstNonNull(errorStream, JkUtilsIO.nopOuputStream());
+        final LogContext context = CONTEXTS.get();
+        return context == null ? ROOT_ERR : context.err;
     }
 
     public static void info(String message, Object... params) {
@@ -149,10 +213,14 @@ public final class JkLog implements Serializable {
      * Logs the start of the current task. Subsequent logs will be nested in this task log until #endTask is invoked.
      */
     public static void startTask(String message, Object ... params) {
-        consume(JkLogEvent.ofRegular(Type.START_TASK, String.format(message, params)));
+        final String formattedMessage = String.format(message, params);
+        consume(JkLogEvent.ofRegular(Type.START_TASK, formattedMessage));
         if (shouldPrint(Type.START_TASK)) {
-            currentNestedTaskLevel.incrementAndGet();
-            getStartTimes().addLast(System.nanoTime());
+            final JkBuildTimeline currentTimeline = timeline;
+            final JkBuildTimeline.SpanStart span = currentTimeline == null ? null
+                    : currentTimeline.start(formattedMessage, getCurrentNestedLevel());
+            nestedTaskLevel().incrementAndGet();
+            getStartTimes().addLast(new TaskStart(System.nanoTime(), currentTimeline, span));
         }
     }
 
@@ -163,9 +231,11 @@ public final class JkLog implements Serializable {
      */
     public static void endTask(String message) {
         if (shouldPrint(Type.END_TASK)) {
-            currentNestedTaskLevel.decrementAndGet();
-            Long startTime = getStartTimes().pollLast();
-            if (startTime == null) {
+            final LogContext context = CONTEXTS.get();
+            nestedTaskLevel().decrementAndGet();
+            final LinkedList<TaskStart> startTimes = getStartTimes();
+            final TaskStart taskStart = startTimes.pollLast();
+            if (taskStart == null) {
                 for (StackTraceElement ste : Thread.currentThread().getStackTrace()) {
                     System.err.println(ste);
                 }
@@ -173,8 +243,16 @@ public final class JkLog implements Serializable {
                         "used an 'endTask' one too many in your code.");
 
             }
-            Long durationMillis = JkUtilsTime.durationInMillis(startTime);
+            if (taskStart.span != null) {
+                final TaskStart parent = startTimes.peekLast();
+                taskStart.timeline.end(taskStart.span,
+                        parent == null || parent.timeline != taskStart.timeline ? null : parent.span);
+            }
+            Long durationMillis = JkUtilsTime.durationInMillis(taskStart.nanoTime);
             consume(JkLogEvent.ofRegular(Type.END_TASK, String.format(message, durationMillis)));
+            if (context != null && context.nestedTaskLevel.get() == 0) {
+                context.flush();
+            }
         }
     }
 
@@ -185,6 +263,100 @@ public final class JkLog implements Serializable {
         endTask("Done in %d milliseconds.");
     }
 
+    /**
+     * Forgets about tasks started but not ended on the current thread, as it happens when an exception is thrown.
+     * This is useful when several builds are run successively in the same JVM.
+     */
+    public static void resetNestedLevel() {
+        currentNestedTaskLevel.set(0);
+        CONTEXTS.remove();
+        getStartTimes().clear();
+    }
+
+    /**
+     * Makes logs emitted by the current thread, including the ones written in {@link #getOutputStream()} and
+     * {@link #getErrorStream()}, kept in memory until {@link #flushBuffer()} is invoked. This prevents logs of tasks
+     * running concurrently to be interleaved : each task output appears as a single block, nested in the task
+     * that was current when the block is flushed. Logs of each first level task are flushed as soon as this task ends.
+     */
+    public static void startBuffering() {
+        if (CONTEXTS.get() == null) {
+            CONTEXTS.set(new LogContext(null));
+        }
+    }
+
+    /**
+     * Stops buffering logs of the current thread and forwards the buffered ones to the consumer at once.
+     * Does nothing if {@link #startBuffering()} has not been invoked on the current thread.
+     */
+    public static void flushBuffer() {
+        final LogContext context = CONTEXTS.get();
+        if (context == null) {
+            return;
+        }
+        if (context.fixedBaseLevel != null) {  // bound by #inCurrentContext, which is in charge of closing it
+            context.flush();
+            return;
+        }
+        CONTEXTS.remove();
+        context.close();
+    }
+
+    /**
+     * Returns a runnable executing the specified one in a log context derived from the one of the current thread.
+     * Wherever the returned runnable is executed, its logs are nested in the task current at the time this method
+     * is invoked, and are buffered so that they appear as a single block : logs of each first level task
+     * are flushed when the task ends, remaining ones when the runnable completes.
+     */
+    public static Runnable inCurrentContext(Runnable runnable) {
+        final int level = getCurrentNestedLevel();
+        return () -> {
+            final LogContext formerContext = bind(new LogContext(level));
+            try {
+                runnable.run();
+            } finally {
+                unbind(formerContext);
+            }
+        };
+    }
+
+    /**
+     * Same as {@link #inCurrentContext(Runnable)} but for a {@link Callable}.
+     */
+    public static <T> Callable<T> inCurrentContext(Callable<T> callable) {
+        final int level = getCurrentNestedLevel();
+        return () -> {
+            final LogContext formerContext = bind(new LogContext(level));
+            try {
+                return callable.call();
+            } finally {
+                unbind(formerContext);
+            }
+        };
+    }
+
+    // Returns the context formerly bound to the current thread
+    private static LogContext bind(LogContext context) {
+        final LogContext formerContext = CONTEXTS.get();
+        CONTEXTS.set(context);
+        return formerContext;
+    }
+
+    private static void unbind(LogContext formerContext) {
+        final LogContext context = CONTEXTS.get();
+        if (formerContext == null) {
+            CONTEXTS.remove();
+        } else {
+            CONTEXTS.set(formerContext);
+        }
+        context.close();
+    }
+
+    private static AtomicInteger nestedTaskLevel() {
+        final LogContext context = CONTEXTS.get();
+        return context == null ? currentNestedTaskLevel : context.nestedTaskLevel;
+    }
+
     public static boolean isVerbose() {
         return verbosity == Verbosity.VERBOSE;
     }
@@ -196,7 +368,63 @@ public final class JkLog implements Serializable {
         if (!shouldPrint(event.getType()) ){
             return;
         }
+        final LogContext context = CONTEXTS.get();
+        if (context != null && context.add(event)) {
+            return;
+        }
+        publish(Collections.singletonList(new Entry(event, null, false, getCurrentNestedLevel())));
+    }
 
+    /*
+     * Adds the specified block to the queue, then drains the queue unless another thread is already doing so :
+     * in this case, this thread will dispatch the block as well. Only failures of the specified block are thrown,
+     * failures of blocks published by other threads are reported in the error stream.
+     */
+    private static void publish(List<Entry> block) {
+        QUEUE.add(block);
+        if (QUEUE_WORK.getAndIncrement() != 0) {
+            return;
+        }
+        RuntimeException failure = null;
+        int missed = 1;
+        while (missed != 0) {
+            List<Entry> entries;
+            while ((entries = QUEUE.poll()) != null) {
+                for (final Entry entry : entries) {
+                    try {
+                        entry.dispatch();
+                    } catch (final RuntimeException e) {
+                        if (entries != block) {
+                            reportDispatchFailure(e);
+                        } else if (failure == null) {
+                            failure = e;
+                        }
+                    }
+                }
+            }
+            missed = QUEUE_WORK.addAndGet(-missed);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Called while draining the queue, so nothing else is written in the error stream meanwhile
+    private static void reportDispatchFailure(RuntimeException e) {
+        final OutputStream target = errorStream;
+        if (target == null) {
+            return;
+        }
+        final PrintStream printStream = new PrintStream(target, true);
+        printStream.println("Log consumer failed to handle an entry emitted by another thread :");
+        e.printStackTrace(printStream);
+        printStream.flush();
+    }
+
+    private static void dispatch(JkLogEvent event) {
+        if (consumer == null) {
+            return;
+        }
         // This is necessary for avoing class cast exception when run in other classloader (unit tests)
         if (event.getClass().getClassLoader() != consumer.getClass().getClassLoader()) {  // survive to classloader change
             final Object evt = JkUtilsIO.cloneBySerialization(event, consumer.getClass().getClassLoader());
@@ -212,6 +440,168 @@ public final class JkLog implements Serializable {
         }
     }
 
+    /*
+     * Start of a task, along its measures if it is recorded in a timeline.
+     */
+    private static final class TaskStart {
+
+        private final long nanoTime;
+
+        private final JkBuildTimeline timeline;
+
+        private final JkBuildTimeline.SpanStart span;
+
+        TaskStart(long nanoTime, JkBuildTimeline timeline, JkBuildTimeline.SpanStart span) {
+            this.nanoTime = nanoTime;
+            this.timeline = timeline;
+            this.span = span;
+        }
+    }
+
+    /*
+     * Log event or raw output, along the nested level of the task it belongs to.
+     */
+    private static final class Entry {
+
+        private final JkLogEvent event;
+
+        private final byte[] bytes;
+
+        private final boolean error;
+
+        private final int level;
+
+        Entry(JkLogEvent event, byte[] bytes, boolean error, int level) {
+            this.event = event;
+            this.bytes = bytes;
+            this.error = error;
+            this.level = level;
+        }
+
+        Entry withLevel(int level) {
+            return new Entry(event, bytes, error, level);
+        }
+
+        void dispatch() {
+            DISPATCH_LEVEL.set(level);
+            try {
+                if (event != null) {
+                    JkLog.dispatch(event);
+                    return;
+                }
+                final OutputStream target = JkUtilsObject.firstNonNull(error ? errorStream : stream,
+                        JkUtilsIO.nopOuputStream());
+                target.write(bytes);
+                target.flush();
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                DISPATCH_LEVEL.remove();
+            }
+        }
+    }
+
+    /*
+     * Log context of a thread running a task concurrently with others. Log events and raw outputs are buffered,
+     * with a level relative to the base level of the context. Raw outputs may be written from other threads
+     * (as process stream gobblers), so access is synchronized. Once closed, entries are published straight.
+     */
+    private static final class LogContext {
+
+        // null means the level of the root context at the time entries are flushed
+        private final Integer fixedBaseLevel;
+
+        private final AtomicInteger nestedTaskLevel = new AtomicInteger(0);
+
+        private final LinkedList<TaskStart> startTimes = new LinkedList<>();
+
+        private final List<Entry> entries = new ArrayList<>();
+
+        private final OutputStream out = new ContextOutputStream(this, false);
+
+        private final OutputStream err = new ContextOutputStream(this, true);
+
+        private boolean closed;
+
+        LogContext(Integer fixedBaseLevel) {
+            this.fixedBaseLevel = fixedBaseLevel;
+        }
+
+        int baseLevel() {
+            return fixedBaseLevel == null ? currentNestedTaskLevel.get() : fixedBaseLevel;
+        }
+
+        synchronized boolean add(JkLogEvent event) {
+            if (closed) {
+                return false;
+            }
+            entries.add(new Entry(event, null, false, nestedTaskLevel.get()));
+            return true;
+        }
+
+        synchronized boolean add(boolean error, byte[] bytes) {
+            if (closed) {
+                return false;
+            }
+            entries.add(new Entry(null, bytes, error, nestedTaskLevel.get()));
+            return true;
+        }
+
+        void flush() {
+            final List<Entry> block = new ArrayList<>();
+            synchronized (this) {
+                if (entries.isEmpty()) {
+                    return;
+                }
+                final int baseLevel = baseLevel();
+                entries.forEach(entry -> block.add(entry.withLevel(baseLevel + entry.level)));
+                entries.clear();
+            }
+            publish(block);
+        }
+
+        void close() {
+            synchronized (this) {
+                closed = true;
+            }
+            flush();
+        }
+    }
+
+    /*
+     * Raw output stream attached to a log context, or to the root context if null.
+     */
+    private static final class ContextOutputStream extends OutputStream {
+
+        private final LogContext context;
+
+        private final boolean error;
+
+        ContextOutputStream(LogContext context, boolean error) {
+            this.context = context;
+            this.error = error;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int len) {
+            if (consumer == null || len == 0) {
+                return;
+            }
+            final byte[] copy = Arrays.copyOfRange(bytes, offset, offset + len);
+            if (context != null && context.add(error, copy)) {
+                return;
+            }
+            final int level = context == null ? currentNestedTaskLevel.get()
+                    : context.baseLevel() + context.nestedTaskLevel.get();
+            publish(Collections.singletonList(new Entry(null, copy, error, level)));
+        }
+    }
+
     public static JkEventLogConsumer getConsumer() {
         return consumer;
     }
@@ -46,6 +46,9 @@ public final class JkProcess implements Runnable {
 
     private static final Path CURRENT_JAVA_DIR = Paths.get(System.getProperty("java.home")).resolve("bin");
 
+    // Number of last output bytes reported when a process fails without having its output logged
+    private static final int OUTPUT_TAIL_SIZE = 8 * 1024;
+
     private final String command;
 
     private final List<String> parameters;
@@ -254,21 +257,24 @@ public final class JkProcess implements Runnable {
             } catch (IOException e) {
                 throw new UncheckedIOException(e);
             }
-            OutputStream consoleOutputStream = logOutput ? JkLog.getOutputStream() : JkUtilsIO.nopOuputStream();
-            OutputStream consoleErrStream = logOutput ? JkLog.getErrorStream() : JkUtilsIO.nopOuputStream();
+            // Error stream is redirected to output stream, so only one gobbler is needed
+            final OutputStream consoleOutputStream = logOutput ? JkLog.getOutputStream() : JkUtilsIO.nopOuputStream();
+            final JkUtilsIO.JkRingBufferOutputStream outputTail = JkUtilsIO.newRingBufferOutputStream(OUTPUT_TAIL_SIZE);
             final JkUtilsIO.JkStreamGobbler outputStreamGobbler = JkUtilsIO.newStreamGobbler(
-                        process.getInputStream(), consoleOutputStream, collectOs);
-                final JkUtilsIO.JkStreamGobbler errorStreamGobbler = JkUtilsIO.newStreamGobbler(
-                        process.getErrorStream(), consoleErrStream, collectOs);
+                    process.getInputStream(), consoleOutputStream, collectOs, outputTail);
             try {
                 exitCode.set(process.waitFor());
             } catch (InterruptedException e) {
                 throw new RuntimeException(e);
             }
             outputStreamGobbler.join();
-            errorStreamGobbler.join();
             if (exitCode.get() != 0 && failOnError) {
-                throw new IllegalStateException("Process " + commands + " has returned with error code " + exitCode);
+                String message = "Process " + commands + " has returned with error code " + exitCode;
+                if (!logOutput && outputTail.getWrittenCount() > 0) {
+                    message = message + ". Output " + (outputTail.isTruncated() ? "tail " : "") + ":\n"
+                            + outputTail;
+                }
+                throw new IllegalStateException(message);
             }
         };
         if (logCommand) {
@@ -2,6 +2,7 @@ package dev.jeka.core.api.utils;
 
 import java.io.File;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Files;
@@ -35,6 +36,20 @@ public final class JkUtilsFile {
         return JkUtilsIterable.propertiesToMap(properties);
     }
 
+    /**
+     * Writes the specified map as a property file, replacing any existing one.
+     */
+    public static void writePropertyFile(Path propertyfile, Map<String, String> props, String comment) {
+        final Properties properties = new Properties();
+        properties.putAll(props);
+        JkUtilsPath.createDirectories(propertyfile.toAbsolutePath().getParent());
+        try (OutputStream outputStream = Files.newOutputStream(propertyfile)) {
+            properties.store(outputStream, comment);
+        } catch (final Exception e) {
+            throw JkUtilsThrowable.unchecked(e);
+        }
+    }
+
     /**
      * Get the url to the specified file.
      */
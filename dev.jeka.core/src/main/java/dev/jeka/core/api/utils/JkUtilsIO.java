@@ -5,10 +5,16 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipFile;
 
 /**
@@ -38,6 +44,11 @@ public final class JkUtilsIO {
             public void write(int paramInt) throws IOException {
                 // Do nothing
             }
+
+            @Override
+            public void write(byte[] bytes, int offset, int len) {
+                // Do nothing
+            }
         };
     }
 
@@ -345,42 +356,70 @@ public final class JkUtilsIO {
     }
 
     /**
-     * Returns a thread that write each data read to the specified input
-     * getOutputStream to the specified output getOutputStream.
+     * Returns a gobbler writing each data read from the specified input stream to the specified output streams.
+     * Output streams are flushed at each end of line, or when no more data is immediately available from the input
+     * stream.
      */
     public static JkStreamGobbler newStreamGobbler(InputStream is, OutputStream ... outputStreams) {
         return new JkStreamGobbler(is, outputStreams);
     }
 
     /**
-     * Runs a thread copying all data from the specified input stream to sepecified  output streams. The
-     * thread is started when the instance is created. You have to call
-     * {@link #stop()} to stop the thread.
+     * Returns an output stream keeping only the last bytes written to it, up to the specified capacity.
+     */
+    public static JkRingBufferOutputStream newRingBufferOutputStream(int capacity) {
+        return new JkRingBufferOutputStream(capacity);
+    }
+
+    /**
+     * Copies all data from the specified input stream to sepecified output streams, by blocks of bytes, in a
+     * thread taken from a pool shared by all gobblers. The copy starts when the instance is created. You can call
+     * {@link #stop()} to stop it before the end of input stream is reached.
      */
     public static final class JkStreamGobbler {
 
+        private static final int BUFFER_SIZE = 8192;
+
+        private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+        // Threads are daemons, so pending gobblers never prevent the JVM to exit.
+        private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "jeka-stream-gobbler-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
         private final InnerRunnable innerRunnable;
 
-        private final Thread thread;
+        private final Future<?> future;
 
         private JkStreamGobbler(InputStream is, OutputStream... outputStreams) {
             this.innerRunnable = new InnerRunnable(is, outputStreams);
-            thread = new Thread(innerRunnable);
-            thread.start();
+            this.future = EXECUTOR.submit(innerRunnable);
         }
 
         /**
-         * Stop the gobbling, meaning stop the thread.
+         * Stop the gobbling. The copy stops after the block currently read has been written.
          */
         public void stop() {
             this.innerRunnable.stop.set(true);
         }
 
+        /**
+         * Waits until all data has been copied, or the gobbling has been stopped.
+         * @throws UncheckedIOException if reading or writing data failed.
+         */
         public void join() {
             try {
-                thread.join();
+                future.get();
             } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
                 throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
             }
         }
 
@@ -399,22 +438,114 @@ public final class JkUtilsIO {
 
             @Override
             public void run() {
-                try (InputStreamReader isr = new InputStreamReader(in); BufferedReader br = new BufferedReader(isr)) {
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                try (InputStream inputStream = in) {
                     while (!stop.get()) {
-                        int c = br.read();
-                        if (c == -1) {
+                        final int count = inputStream.read(buffer);
+                        if (count == -1) {
                             break;
                         }
                         for (OutputStream out : outs) {
-                            out.write((char) c);
-                            out.flush();
+                            out.write(buffer, 0, count);
+                        }
+                        if (containsLineEnd(buffer, count) || inputStream.available() == 0) {
+                            flush();
                         }
                     }
+                    flush();
                 } catch (final IOException e) {
                     throw new UncheckedIOException(e);
                 }
             }
+
+            private void flush() throws IOException {
+                for (OutputStream out : outs) {
+                    out.flush();
+                }
+            }
+
+            private static boolean containsLineEnd(byte[] buffer, int count) {
+                for (int i = 0; i < count; i++) {
+                    if (buffer[i] == '\n') {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Output stream keeping only the last bytes written to it in a fixed size circular buffer. This is useful to
+     * capture the end of a possibly huge output, as the one of an external process, in bounded memory.
+     */
+    public static final class JkRingBufferOutputStream extends OutputStream {
+
+        private final byte[] buffer;
+
+        private long writtenCount;
+
+        private JkRingBufferOutputStream(int capacity) {
+            JkUtilsAssert.argument(capacity > 0, "Capacity must be greater than 0, was " + capacity);
+            this.buffer = new byte[capacity];
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            buffer[(int) (writtenCount % buffer.length)] = (byte) b;
+            writtenCount++;
+        }
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int len) {
+            if (len > buffer.length) {
+                writtenCount += len - buffer.length;
+                offset += len - buffer.length;
+                len = buffer.length;
+            }
+            final int position = (int) (writtenCount % buffer.length);
+            final int firstPart = Math.min(len, buffer.length - position);
+            System.arraycopy(bytes, offset, buffer, position, firstPart);
+            System.arraycopy(bytes, offset + firstPart, buffer, 0, len - firstPart);
+            writtenCount += len;
         }
+
+        /**
+         * Returns the total number of bytes written in this stream, including the ones no longer retained.
+         */
+        public synchronized long getWrittenCount() {
+            return writtenCount;
+        }
+
+        /**
+         * Returns <code>true</code> if some bytes written in this stream are no longer retained.
+         */
+        public synchronized boolean isTruncated() {
+            return writtenCount > buffer.length;
+        }
+
+        /**
+         * Returns the retained bytes, in the order they have been written.
+         */
+        public synchronized byte[] toByteArray() {
+            if (writtenCount <= buffer.length) {
+                return Arrays.copyOf(buffer, (int) writtenCount);
+            }
+            final int position = (int) (writtenCount % buffer.length);
+            final byte[] result = new byte[buffer.length];
+            System.arraycopy(buffer, position, result, 0, buffer.length - position);
+            System.arraycopy(buffer, 0, result, buffer.length - position, position);
+            return result;
+        }
+
+        /**
+         * Returns the retained bytes decoded using the platform default charset.
+         */
+        @Override
+        public String toString() {
+            return new String(toByteArray());
+        }
+
     }
 
     /* table mapping primitive type names to corresponding class objects */
@@ -0,0 +1,509 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.file.JkFingerprint;
+import dev.jeka.core.api.java.JkClasspath;
+import dev.jeka.core.api.java.JkJavaProcess;
+import dev.jeka.core.api.java.JkUrlClassLoader;
+import dev.jeka.core.api.system.JkLocator;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsFile;
+import dev.jeka.core.api.utils.JkUtilsIO;
+import dev.jeka.core.api.utils.JkUtilsPath;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.Permission;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/*
+ * Long-lived JVM running Jeka commands for a given project directory, so JVM startup, JIT warm-up, def classpath
+ * resolution and classpath scanning are paid once for a series of commands instead of once per command.
+ * A client forwards its command line through a loopback socket and prints the output streamed back by the daemon.
+ * <p>
+ * The def classloader is kept between commands as long as def sources and boot libraries of the project and of
+ * the projects it imports do not change. A daemon is bound to the Jeka classpath and JDK it has been started
+ * with : if they change, the client stops it and starts a fresh one. Daemons stop by themselves when idle for a while.
+ * <p>
+ * <code>System.exit</code> calls made by def classes while a command runs end the command instead of the daemon, when
+ * the JDK still supports security managers.
+ */
+final class Daemon {
+
+    static final String SERVE_ARG = "-daemon";
+
+    private static final String STOP_REQUEST = "-daemon-stop";
+
+    private static final String DIR_NAME = "daemons";
+
+    private static final long IDLE_TIMEOUT_MILLIS = 3 * 60 * 60 * 1000L;
+
+    private static final int ACCEPT_TIMEOUT_MILLIS = 60 * 1000;
+
+    private static final int STARTUP_TIMEOUT_MILLIS = 30 * 1000;
+
+    private static final byte OUT = 1;
+
+    private static final byte ERR = 2;
+
+    private static final byte EXIT = 3;
+
+    private static volatile boolean serving;
+
+    private Daemon() {
+    }
+
+    /*
+     * Returns <code>true</code> if this JVM is a daemon. In this case, commands must not be forwarded again.
+     */
+    static boolean isServing() {
+        return serving;
+    }
+
+    // ----------------------------------------- client side ------------------------------------------
+
+    /*
+     * Runs the specified command in the daemon bound to the working directory, starting it if needed.
+     * Returns the exit code of the command.
+     */
+    static int forward(String[] args) {
+        final Path workingDir = Paths.get("").toAbsolutePath();
+        final Path registrationFile = registrationFile(workingDir);
+        final String runtimeStamp = runtimeStamp();
+        Registration registration = Registration.read(registrationFile);
+        if (registration != null && !registration.runtimeStamp.equals(runtimeStamp)) {
+            JkLog.trace("Jeka classpath has changed since daemon has been started. Restart it.");
+            stop(registration);
+            registration = null;
+        }
+        if (registration != null) {
+            try {
+                return send(registration, args);
+            } catch (final ConnectException e) {
+                JkLog.trace("Daemon registered in " + registrationFile + " does not respond. Start a new one.");
+            }
+        }
+        JkUtilsPath.deleteIfExists(registrationFile);
+        registration = start(workingDir, registrationFile);
+        try {
+            return send(registration, args);
+        } catch (final ConnectException e) {
+            throw new JkException("Can not connect to Jeka daemon on port %s.", registration.port);
+        }
+    }
+
+    private static Registration start(Path workingDir, Path registrationFile) {
+        JkLog.info("Start Jeka daemon for " + workingDir);
+        final Process process = JkJavaProcess.of()
+                .andOptions(jvmOptions())
+                .withClasspath(JkClasspath.ofCurrentRuntime())
+                .withWorkingDir(workingDir)
+                .withPrintCommand(false)
+                .startClass(Main.class.getName(), SERVE_ARG);
+
+        // Daemon writes in its own log file, so the client does not need to consume its output
+        JkUtilsIO.closeQuietly(process.getInputStream(), process.getErrorStream(), process.getOutputStream());
+        final long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            final Registration registration = Registration.read(registrationFile);
+            if (registration != null) {
+                return registration;
+            }
+            if (!process.isAlive()) {
+                throw new JkException("Jeka daemon failed to start. See %s for details.", logFile(registrationFile));
+            }
+            try {
+                Thread.sleep(50);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JkException("Interrupted while waiting for Jeka daemon to start.");
+            }
+        }
+        process.destroyForcibly();
+        throw new JkException("Jeka daemon did not start within %s ms.", STARTUP_TIMEOUT_MILLIS);
+    }
+
+    private static void stop(Registration registration) {
+        try {
+            send(registration, new String[] {STOP_REQUEST});
+        } catch (final ConnectException e) {
+            // already stopped
+        }
+    }
+
+    private static int send(Registration registration, String[] args) throws ConnectException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), registration.port)) {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeUTF(registration.token);
+            out.writeInt(args.length);
+            for (final String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            while (true) {
+                final byte type;
+                try {
+                    type = in.readByte();
+                } catch (final EOFException e) {
+                    return 1;  // daemon has exited during the command
+                }
+                if (type == EXIT) {
+                    return in.readInt();
+                }
+                final byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                final PrintStream printStream = type == ERR ? System.err : System.out;
+                printStream.write(bytes);
+                printStream.flush();
+            }
+        } catch (final ConnectException e) {
+            throw e;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ----------------------------------------- daemon side ------------------------------------------
+
+    /*
+     * Serves commands until the daemon has been idle for too long, has been replaced by another one,
+     * or has been asked to stop.
+     */
+    static void serve() throws IOException {
+        serving = true;
+        final Path workingDir = Paths.get("").toAbsolutePath();
+        final Path registrationFile = registrationFile(workingDir);
+        JkUtilsPath.createDirectories(registrationFile.getParent());
+        final PrintStream log = new PrintStream(new FileOutputStream(logFile(registrationFile).toFile()), true);
+        System.setOut(log);
+        System.setErr(log);
+        final Properties systemProperties = (Properties) System.getProperties().clone();
+        final DefClassLoader defClassLoader = new DefClassLoader(workingDir);
+        final ExitInterceptor exitInterceptor = ExitInterceptor.install(log);
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            serverSocket.setSoTimeout(ACCEPT_TIMEOUT_MILLIS);
+            final Registration registration = new Registration(serverSocket.getLocalPort(),
+                    UUID.randomUUID().toString(), runtimeStamp());
+            registration.write(registrationFile);
+            log.println("Jeka daemon listening on port " + registration.port);
+            long lastActivity = System.currentTimeMillis();
+            boolean keepServing = true;
+            while (keepServing) {
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (final SocketTimeoutException e) {
+                    final boolean idle = System.currentTimeMillis() - lastActivity > IDLE_TIMEOUT_MILLIS;
+                    keepServing = !idle && registration.equals(Registration.read(registrationFile));
+                    continue;
+                }
+                try (Socket s = socket) {
+                    keepServing = handle(s, registration.token, systemProperties, defClassLoader, exitInterceptor,
+                            log);
+                } catch (final IOException | RuntimeException e) {
+                    e.printStackTrace(log);
+                }
+                lastActivity = System.currentTimeMillis();
+            }
+            if (registration.equals(Registration.read(registrationFile))) {
+                JkUtilsPath.deleteIfExists(registrationFile);
+            }
+            log.println("Jeka daemon stopped.");
+        }
+    }
+
+    static boolean handle(Socket socket, String token, Properties systemProperties, DefClassLoader defClassLoader,
+                          ExitInterceptor exitInterceptor, PrintStream log) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        if (!token.equals(in.readUTF())) {
+            log.println("Reject request having an invalid token.");
+            return true;
+        }
+        final String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+        if (args.length == 1 && STOP_REQUEST.equals(args[0])) {
+            return false;
+        }
+        log.println("Run " + String.join(" ", args));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        final Thread thread = Thread.currentThread();
+        final ClassLoader contextClassLoader = thread.getContextClassLoader();
+        final Properties properties = new Properties();
+        properties.putAll(systemProperties);
+        System.setProperties(properties);
+        JkLog.setVerbosity(JkLog.Verbosity.NORMAL);
+        JkLog.resetNestedLevel();
+        System.setOut(new PrintStream(new FrameOutputStream(out, OUT), true));
+        System.setErr(new PrintStream(new FrameOutputStream(out, ERR), true));
+        thread.setContextClassLoader(defClassLoader.get());
+        int exitCode = 1;
+        exitInterceptor.startCommand();
+        try {
+            exitCode = Main.run(args, System.nanoTime());
+        } finally {
+            final Integer exitStatus = exitInterceptor.endCommand();
+            if (exitStatus != null) {
+                exitCode = exitStatus;
+            }
+            System.out.flush();
+            System.err.flush();
+            if (JkLog.getConsumer() != null) {
+                JkLog.getConsumer().restore();
+            }
+            System.setOut(log);
+            System.setErr(log);
+            thread.setContextClassLoader(contextClassLoader);
+            defClassLoader.watchLoadedProjects();
+        }
+        synchronized (out) {
+            out.writeByte(EXIT);
+            out.writeInt(exitCode);
+            out.flush();
+        }
+        return true;
+    }
+
+    private static Path registrationFile(Path workingDir) {
+        final String key = JkFingerprint.of().and(workingDir.normalize().toString()).get();
+        return JkLocator.getJekaUserHomeDir().resolve(DIR_NAME).resolve(key + ".properties");
+    }
+
+    private static Path logFile(Path registrationFile) {
+        return registrationFile.resolveSibling(registrationFile.getFileName().toString()
+                .replace(".properties", ".log"));
+    }
+
+    // Boot libs are part of the Jeka classpath, so they are covered by this stamp
+    private static String runtimeStamp() {
+        return JkFingerprint.of()
+                .and(System.getProperty("java.home"))
+                .and(jvmOptions())
+                .andStamps(JkClasspath.ofCurrentRuntime())
+                .get();
+    }
+
+    // Options of the client JVM (as JEKA_OPTS), except debug ones that would conflict with the client
+    private static List<String> jvmOptions() {
+        return ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                .filter(option -> !option.startsWith("-agentlib:jdwp") && !option.startsWith("-Xrunjdwp")
+                        && !option.equals("-Xdebug"))
+                .collect(Collectors.toList());
+    }
+
+    /*
+     * Classloader for def classes. It is renewed when def sources or boot libraries of the loaded projects change.
+     */
+    static final class DefClassLoader {
+
+        private final List<Path> defaultWatchedPaths;
+
+        private List<Path> watchedPaths;
+
+        private URLClassLoader classLoader;
+
+        private String stamp;
+
+        DefClassLoader(Path workingDir) {
+            this.defaultWatchedPaths = projectPaths(workingDir);
+            this.watchedPaths = defaultWatchedPaths;
+        }
+
+        ClassLoader get() {
+            final String currentStamp = JkFingerprint.of().andStamps(watchedPaths).get();
+            if (classLoader != null && currentStamp.equals(stamp)) {
+                return classLoader;
+            }
+            if (classLoader != null) {
+                JkUtilsIO.closeQuietly(classLoader);
+                PluginDictionary.clearCache();
+            }
+            this.classLoader = new URLClassLoader(new URL[0], ClassLoader.getSystemClassLoader());
+            this.watchedPaths = defaultWatchedPaths;
+            this.stamp = JkFingerprint.of().andStamps(watchedPaths).get();
+            return classLoader;
+        }
+
+        /*
+         * Watches def sources and boot libs of every project whose def classes have been loaded, plus the
+         * jars added to the def classpath.
+         */
+        void watchLoadedProjects() {
+            final Set<Path> paths = new LinkedHashSet<>(defaultWatchedPaths);
+            final Path defClassDir = Paths.get(JkConstants.DEF_BIN_DIR);
+            for (final Path entry : JkUrlClassLoader.of(classLoader).getDirectClasspath()) {
+                if (entry.endsWith(defClassDir)) {
+                    Path projectDir = entry;
+                    for (int i = 0; i < defClassDir.getNameCount(); i++) {
+                        projectDir = projectDir.getParent();
+                    }
+                    paths.addAll(projectPaths(projectDir));
+                } else if (Files.isRegularFile(entry)) {
+                    paths.add(entry);
+                }
+            }
+            this.watchedPaths = new ArrayList<>(paths);
+            this.stamp = JkFingerprint.of().andStamps(watchedPaths).get();
+        }
+
+        private static List<Path> projectPaths(Path projectDir) {
+            return Arrays.asList(projectDir.resolve(JkConstants.DEF_DIR), projectDir.resolve(JkConstants.BOOT_DIR));
+        }
+    }
+
+    /*
+     * Security manager rejecting <code>System.exit</code> calls while a command runs. It grants every other
+     * permission. The status of a rejected call becomes the exit code of the command.
+     */
+    @SuppressWarnings("removal")  // security manager is deprecated for removal since Java 17
+    static final class ExitInterceptor extends SecurityManager {
+
+        private volatile boolean commandRunning;
+
+        private volatile Integer exitStatus;
+
+        static ExitInterceptor install(PrintStream log) {
+            final ExitInterceptor result = new ExitInterceptor();
+            try {
+                System.setSecurityManager(result);
+            } catch (final UnsupportedOperationException | SecurityException e) {
+                log.println("Can not intercept System.exit calls, they will stop the daemon : " + e.getMessage());
+            }
+            return result;
+        }
+
+        void startCommand() {
+            exitStatus = null;
+            commandRunning = true;
+        }
+
+        /*
+         * Returns the status of the last rejected <code>System.exit</code> call made during the command, if any.
+         */
+        Integer endCommand() {
+            commandRunning = false;
+            return exitStatus;
+        }
+
+        @Override
+        public void checkExit(int status) {
+            if (commandRunning) {
+                exitStatus = status;
+                throw new SecurityException("System.exit(" + status + ") has been intercepted by Jeka daemon.");
+            }
+        }
+
+        @Override
+        public void checkPermission(Permission permission) {
+        }
+
+        @Override
+        public void checkPermission(Permission permission, Object context) {
+        }
+    }
+
+    /*
+     * Writes bytes as frames prefixed with the stream type and length, so standard output and error can be
+     * multiplexed on a single socket.
+     */
+    private static final class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+
+        private final byte type;
+
+        FrameOutputStream(DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeInt(length);
+                out.write(bytes, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+    }
+
+    static final class Registration {
+
+        final int port;
+
+        final String token;
+
+        final String runtimeStamp;
+
+        Registration(int port, String token, String runtimeStamp) {
+            this.port = port;
+            this.token = token;
+            this.runtimeStamp = runtimeStamp;
+        }
+
+        static Registration read(Path file) {
+            if (!Files.isRegularFile(file)) {
+                return null;
+            }
+            try {
+                final Map<String, String> props = JkUtilsFile.readPropertyFileAsMap(file);
+                return new Registration(Integer.parseInt(props.get("port")), props.get("token"),
+                        props.get("runtimeStamp"));
+            } catch (final RuntimeException e) {
+                return null;
+            }
+        }
+
+        // Written in a temp file first, so clients never read a partial registration
+        void write(Path file) {
+            final Map<String, String> props = new HashMap<>();
+            props.put("port", Integer.toString(port));
+            props.put("token", token);
+            props.put("runtimeStamp", runtimeStamp);
+            final Path tempFile = file.resolveSibling(file.getFileName() + "." + UUID.randomUUID() + ".tmp");
+            JkUtilsFile.writePropertyFile(tempFile, props, "Jeka daemon registration");
+            try {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Registration that = (Registration) o;
+            return port == that.port && token.equals(that.token);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(port, token);
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsThrowable;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/*
+ * Runs an action on each node of a directed acyclic graph, using a pool of workers. An action is run on a node
+ * only once actions on all nodes it depends on have completed, so independent nodes are processed concurrently.
+ * Dependencies that are not part of the node collection are ignored, as are edges closing a cycle.
+ * Once an action fails, no new action is started and the first failure is rethrown. Logs of actions run
+ * concurrently are buffered, so each action logs as a block nested in the task running the scheduler.
+ */
+final class DagScheduler<T> {
+
+    private final Collection<T> nodes;
+
+    private final Function<T, ? extends Collection<T>> dependencies;
+
+    private final int workerCount;
+
+    private DagScheduler(Collection<T> nodes, Function<T, ? extends Collection<T>> dependencies, int workerCount) {
+        this.nodes = new LinkedHashSet<>(nodes);
+        this.dependencies = dependencies;
+        this.workerCount = workerCount;
+    }
+
+    static <T> DagScheduler<T> of(Collection<T> nodes, Function<T, ? extends Collection<T>> dependencies,
+                                  int workerCount) {
+        return new DagScheduler<>(nodes, dependencies, workerCount);
+    }
+
+    /*
+     * Returns nodes sorted so that each node comes after the nodes it depends on.
+     */
+    List<T> sorted() {
+        final List<T> result = new LinkedList<>();
+        final Set<T> visited = new HashSet<>();
+        for (final T node : nodes) {
+            visit(node, visited, new HashSet<>(), result);
+        }
+        return result;
+    }
+
+    void run(Consumer<T> action) {
+        final List<T> sortedNodes = sorted();
+        if (workerCount <= 1 || sortedNodes.size() <= 1) {
+            sortedNodes.forEach(action);
+            return;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(workerCount, sortedNodes.size()),
+                new WorkerThreadFactory());
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Map<T, CompletableFuture<Void>> futures = new HashMap<>();
+        try {
+            for (final T node : sortedNodes) {
+                final CompletableFuture<?>[] dependencyFutures = dependenciesOf(node).stream()
+                        .map(futures::get)
+                        .filter(Objects::nonNull)
+                        .toArray(CompletableFuture<?>[]::new);
+                final CompletableFuture<Void> future = CompletableFuture.allOf(dependencyFutures)
+                        .thenRunAsync(JkLog.inCurrentContext(() -> {
+                            if (failure.get() != null) {
+                                throw new CancellationException();
+                            }
+                            try {
+                                action.accept(node);
+                            } catch (final RuntimeException | Error e) {
+                                failure.compareAndSet(null, e);
+                                throw e;
+                            }
+                        }), executor);
+                futures.put(node, future);
+            }
+            try {
+                CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+            } catch (final CompletionException | CancellationException e) {
+                // failure is reported below
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        final Throwable throwable = failure.get();
+        if (throwable instanceof Error) {
+            throw (Error) throwable;
+        }
+        if (throwable != null) {
+            throw JkUtilsThrowable.unchecked((Exception) throwable);
+        }
+    }
+
+    private void visit(T node, Set<T> visited, Set<T> visiting, List<T> result) {
+        if (visited.contains(node) || visiting.contains(node)) {
+            return;
+        }
+        visiting.add(node);
+        for (final T dependency : dependenciesOf(node)) {
+            visit(dependency, visited, visiting, result);
+        }
+        visiting.remove(node);
+        visited.add(node);
+        result.add(node);
+    }
+
+    private List<T> dependenciesOf(T node) {
+        final List<T> result = new LinkedList<>();
+        for (final T dependency : dependencies.apply(node)) {
+            if (nodes.contains(dependency) && !dependency.equals(node)) {
+                result.add(dependency);
+            }
+        }
+        return result;
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "jeka-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setContextClassLoader(Thread.currentThread().getContextClassLoader());
+            return thread;
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.file.JkFingerprint;
+import dev.jeka.core.api.file.JkPathFile;
+import dev.jeka.core.api.file.JkPathSequence;
+import dev.jeka.core.api.utils.JkUtilsFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/*
+ * Fingerprint of the last successful def compilation. It stores a hash of the compilation context
+ * (classpath and compile options) and a content hash for each def source file. It is persisted
+ * beside the def-classes directory so next runs can skip or narrow the def compilation.
+ *
+ * @author Jerome Angibaud
+ */
+final class DefCompileFingerprint {
+
+    private static final String FILE_NAME = JkConstants.DEF_BIN_DIR_NAME + ".fingerprint";
+
+    private static final String CONTEXT_KEY = "context";
+
+    private static final String SOURCE_PREFIX = "source:";
+
+    private static final String HASH_ALGORITHM = "MD5";
+
+    private final String contextHash;
+
+    // Relative source path (using '/' separator) -> content hash
+    private final Map<String, String> sourceHashes;
+
+    private DefCompileFingerprint(String contextHash, Map<String, String> sourceHashes) {
+        this.contextHash = contextHash;
+        this.sourceHashes = sourceHashes;
+    }
+
+    static Path file(Path defClassDir) {
+        return defClassDir.resolveSibling(FILE_NAME);
+    }
+
+    static DefCompileFingerprint of(Path sourceDir, List<Path> sourceFiles, JkPathSequence classpath,
+                                    List<String> compileOptions) {
+        final Map<String, String> sourceHashes = new TreeMap<>();
+        for (final Path sourceFile : sourceFiles) {
+            sourceHashes.put(relativeName(sourceDir, sourceFile), JkPathFile.of(sourceFile).getChecksum(HASH_ALGORITHM));
+        }
+        return new DefCompileFingerprint(contextHash(classpath, compileOptions), sourceHashes);
+    }
+
+    /*
+     * Returns the fingerprint stored in the specified file or <code>null</code> if it does not exist
+     * or can not be read.
+     */
+    static DefCompileFingerprint read(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        final Map<String, String> props;
+        try {
+            props = JkUtilsFile.readPropertyFileAsMap(file);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        final String contextHash = props.get(CONTEXT_KEY);
+        if (contextHash == null) {
+            return null;
+        }
+        final Map<String, String> sourceHashes = new TreeMap<>();
+        props.forEach((key, value) -> {
+            if (key.startsWith(SOURCE_PREFIX)) {
+                sourceHashes.put(key.substring(SOURCE_PREFIX.length()), value);
+            }
+        });
+        return new DefCompileFingerprint(contextHash, sourceHashes);
+    }
+
+    void save(Path file) {
+        final Map<String, String> props = new HashMap<>();
+        props.put(CONTEXT_KEY, contextHash);
+        sourceHashes.forEach((key, value) -> props.put(SOURCE_PREFIX + key, value));
+        JkUtilsFile.writePropertyFile(file, props,
+                "Fingerprint of def compilation. Delete this file to force a full def compilation.");
+    }
+
+    boolean hasSameContext(DefCompileFingerprint other) {
+        return this.contextHash.equals(other.contextHash);
+    }
+
+    /*
+     * Returns relative paths of sources that have been added or modified since the specified fingerprint.
+     */
+    Set<String> modifiedSourcesSince(DefCompileFingerprint previous) {
+        final Set<String> result = new TreeSet<>();
+        sourceHashes.forEach((path, hash) -> {
+            if (!hash.equals(previous.sourceHashes.get(path))) {
+                result.add(path);
+            }
+        });
+        return result;
+    }
+
+    /*
+     * Returns relative paths of sources that have been removed since the specified fingerprint.
+     */
+    Set<String> removedSourcesSince(DefCompileFingerprint previous) {
+        final Set<String> result = new TreeSet<>(previous.sourceHashes.keySet());
+        result.removeAll(this.sourceHashes.keySet());
+        return result;
+    }
+
+    static String relativeName(Path sourceDir, Path sourceFile) {
+        return sourceDir.relativize(sourceFile).toString().replace('\\', '/');
+    }
+
+    private static String contextHash(JkPathSequence classpath, List<String> compileOptions) {
+        return JkFingerprint.of(HASH_ALGORITHM)
+                .andStamps(classpath)
+                .and(compileOptions)
+                .and(System.getProperty("java.version"))
+                .get();
+    }
+
+}
@@ -6,6 +6,7 @@ import dev.jeka.core.api.depmanagement.resolution.JkResolveResult;
 import dev.jeka.core.api.file.JkPathMatcher;
 import dev.jeka.core.api.file.JkPathSequence;
 import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.java.JkClassDependencyGraph;
 import dev.jeka.core.api.java.JkClasspath;
 import dev.jeka.core.api.java.JkJavaCompileSpec;
 import dev.jeka.core.api.java.JkJavaCompiler;
@@ -20,11 +21,13 @@ import dev.jeka.core.api.utils.JkUtilsString;
 import dev.jeka.core.api.utils.JkUtilsTime;
 
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static dev.jeka.core.api.depmanagement.JkDependencySet.Hint.lastAndIf;
 
@@ -59,6 +62,15 @@ final class Engine {
 
     private final JkClassResolver resolver;
 
+    private final List<Engine> importedEngines = new LinkedList<>();
+
+    // Projects imported before this one by a same importer, whose def classes this one refers to
+    private final List<Engine> siblingEngines = new LinkedList<>();
+
+    private JkPathSequence dependencyPath;
+
+    private volatile JkPathSequence compileResult;
+
     /**
      * Constructs an engine for the specified base directory.
      */
@@ -129,9 +141,18 @@ final class Engine {
         }
     }
 
+    /*
+     * Returns the modules the def classpath of this project is made of, as declared in def sources and in the
+     * command line, without compiling anything.
+     */
+    Set<JkVersionedModule> resolveDefModules() {
+        preCompile();
+        final JkDependencySet dependencies = defDependencies.and(Environment.commandLine.getDefDependencies());
+        return getDefDependencyResolver().resolve(dependencies).getInvolvedModules();
+    }
+
     private void preCompile() {
-        final List<Path> sourceFiles = JkPathTree.of(resolver.defSourceDir)
-                .andMatcher(JAVA_DEF_SOURCE_MATCHER.or(KOTLIN_DEF_SOURCE_MATCHER)).getFiles();
+        final List<Path> sourceFiles = defSourceFiles();
         JkLog.trace("Parse source code of " + sourceFiles);
         final SourceParser parser = SourceParser.of(this.projectBaseDir, sourceFiles);
         this.defDependencies = this.defDependencies.and(parser.dependencies());
@@ -143,32 +164,111 @@ final class Engine {
     /*
      * Resolves dependencies and compiles and sources classes contained in jeka/def.
      * It returns a path sequence containing the resolved dependencies and result of compilation.
+     * Imported projects are compiled first, independent ones concurrently.
      */
     private JkPathSequence resolveAndCompile(boolean compileSources) {
-        return resolveAndCompile(new HashSet<>(), JkPathSequence.of(), compileSources);
+        final Map<Path, Engine> engines = new LinkedHashMap<>();
+        prepare(engines, JkPathSequence.of());
+        if (engines.size() > 1) {
+            JkLog.trace("Compile Jeka classes of dependent projects : "
+                    + toRelativePaths(this.projectBaseDir, this.rootsOfImportedJekaClasses));
+        }
+        engines.values().forEach(Engine::linkSiblings);
+        DagScheduler.of(engines.values(), Engine::compileDependencies, Environment.standardOptions.workerCount)
+                .run(engine -> engine.compile(compileSources));
+        return this.compileResult;
     }
 
-    private JkPathSequence resolveAndCompile(Set<Path> yetCompiledProjects, JkPathSequence path, boolean compileSources) {
-        if (!this.resolver.hasDefSource() || yetCompiledProjects.contains(this.projectBaseDir)) {
-            if (Environment.commandLine.getDefDependencies().isEmpty()) {
-                return JkPathSequence.of();
-            } else {
-                return dependenciesPath();
-            }
+    /*
+     * Parses def sources and resolves def dependencies of this project, then of the projects it imports,
+     * recursively. Engines are registered in the specified map by project dir.
+     */
+    private void prepare(Map<Path, Engine> engines, JkPathSequence inheritedPath) {
+        engines.put(this.projectBaseDir, this);
+        if (!this.resolver.hasDefSource()) {
+            this.dependencyPath = Environment.commandLine.getDefDependencies().isEmpty()
+                    ? JkPathSequence.of() : dependenciesPath();
+            return;
         }
-        yetCompiledProjects.add(this.projectBaseDir);
         preCompile(); // This enrich dependencies
+        this.dependencyPath = dependenciesPath().andPrepend(inheritedPath).withoutDuplicates();
+        for (final Path root : this.rootsOfImportedJekaClasses) {
+            final Path projectDir = root.toAbsolutePath().normalize();
+            Engine engine = engines.get(projectDir);
+            if (engine == null) {
+                engine = new Engine(projectDir);
+                engine.prepare(engines, this.dependencyPath);
+            }
+            this.importedEngines.add(engine);
+        }
+    }
+
+    /*
+     * Imported projects used to be compiled one after the other, each one having outputs of the previous ones
+     * in its classpath, so def classes of an imported project may refer to def classes of a project imported
+     * before it by the same importer. Such references, detected by looking for simple class names in def
+     * sources, are turned into compile dependencies.
+     */
+    private void linkSiblings() {
+        for (int i = 1; i < importedEngines.size(); i++) {
+            final Engine engine = importedEngines.get(i);
+            for (final Engine sibling : importedEngines.subList(0, i)) {
+                if (sibling != engine && !engine.siblingEngines.contains(sibling) && engine.refersTo(sibling)) {
+                    JkLog.trace("Def classes of " + engine.projectBaseDir + " refer to def classes of "
+                            + sibling.projectBaseDir + ". Compile them after.");
+                    engine.siblingEngines.add(sibling);
+                }
+            }
+        }
+    }
+
+    private boolean refersTo(Engine other) {
+        if (!this.resolver.hasDefSource() || !other.resolver.hasDefSource()) {
+            return false;
+        }
+        final List<String> simpleNames = other.defSourceFiles().stream()
+                .map(path -> JkUtilsString.substringBeforeLast(path.getFileName().toString(), "."))
+                .collect(Collectors.toList());
+        return defSourceFiles().stream()
+                .map(path -> new String(JkUtilsPath.readAllBytes(path), StandardCharsets.UTF_8))
+                .anyMatch(code -> simpleNames.stream().anyMatch(code::contains));
+    }
+
+    private List<Path> defSourceFiles() {
+        return JkPathTree.of(resolver.defSourceDir)
+                .andMatcher(JAVA_DEF_SOURCE_MATCHER.or(KOTLIN_DEF_SOURCE_MATCHER)).getFiles();
+    }
+
+    private List<Engine> compileDependencies() {
+        final List<Engine> result = new LinkedList<>(importedEngines);
+        result.addAll(siblingEngines);
+        return result;
+    }
+
+    /*
+     * Compiles def classes of this project. Imported projects and siblings it refers to are expected
+     * to be compiled yet.
+     */
+    private void compile(boolean compileSources) {
+        if (!this.resolver.hasDefSource()) {
+            this.compileResult = this.dependencyPath;
+            return;
+        }
+        JkPathSequence importedProjectsPath = JkPathSequence.of();
+        for (final Engine engine : compileDependencies()) {
+            if (engine.compileResult != null) {  // null when imports are cyclic
+                importedProjectsPath = importedProjectsPath.and(engine.compileResult);
+            }
+        }
         final String msg = "Compiling def classes for project " + this.projectBaseDir.getFileName().toString();
         final long start = System.nanoTime();
         JkLog.startTask(msg);
-        JkPathSequence dependencyPath = dependenciesPath().andPrepend(path).withoutDuplicates();
-        JkPathSequence projectDependenciesPath =
-                resolveAndCompileDependentProjects(yetCompiledProjects, dependencyPath, compileSources);
+        final JkPathSequence classpath = this.dependencyPath.and(importedProjectsPath).withoutDuplicates();
         if (compileSources) {
-            compileDef(dependencyPath.and(projectDependenciesPath));
+            compileDef(classpath);
         }
         JkLog.endTask("Done in " + JkUtilsTime.durationInMillis(start) + " milliseconds.");
-        return dependencyPath.and(projectDependenciesPath).and(this.resolver.defClassDir).withoutDuplicates();
+        this.compileResult = classpath.and(this.resolver.defClassDir).withoutDuplicates();
     }
 
     private JkPathSequence dependenciesPath() {
@@ -181,9 +281,8 @@ final class Engine {
     }
 
     private JkClass getJkClassInstance(String jkClassHint, JkPathSequence runtimePath) {
-        final JkUrlClassLoader classLoader = JkUrlClassLoader.ofCurrent();
-        classLoader.addEntries(runtimePath);
-        JkLog.trace("Setting def execution classpath to : " + classLoader.getDirectClasspath());
+        addToCurrentClassLoader(runtimePath);
+        JkLog.trace("Setting def execution classpath to : " + JkUrlClassLoader.ofCurrent().getDirectClasspath());
         final JkClass jkClass = resolver.resolve(jkClassHint);
         if (jkClass == null) {
             return null;
@@ -216,43 +315,126 @@ final class Engine {
         return JkPathSequence.of(extraLibs).withoutDuplicates();
     }
 
-    /*
-     * Resolves dependencies and compiles project that this one depends on.
-     * It returns a path resulting of the dependency resolution and compilation output.
-     */
-    private JkPathSequence resolveAndCompileDependentProjects(Set<Path> yetCompiledProjects,
-                                                              JkPathSequence compilePath,
-                                                              boolean compileSources) {
-        boolean compileImports = !this.rootsOfImportedJekaClasses.isEmpty();
-        if (compileImports) {
-            JkLog.startTask("Compile Jeka classes of dependent projects : "
-                    + toRelativePaths(this.projectBaseDir, this.rootsOfImportedJekaClasses));
-        }
-        JkPathSequence inputPath = compilePath;
-        JkPathSequence result = JkPathSequence.of();
-        for (final Path file : this.rootsOfImportedJekaClasses) {
-            final Engine engine = new Engine(file.toAbsolutePath().normalize());
-            JkPathSequence resultPath = engine.resolveAndCompile(yetCompiledProjects, inputPath, compileSources);
-            inputPath = inputPath.and(resultPath);
-            result = result.and(resultPath);
-        }
-        if (compileImports) {
-            JkLog.endTask();
-        }
-        return result.withoutDuplicates();
-    }
-
     private void compileDef(JkPathSequence defClasspath) {
+        final List<Path> sourceFiles = defSourceFiles();
+        final Path fingerprintFile = DefCompileFingerprint.file(resolver.defClassDir);
+        final DefCompileFingerprint previous = DefCompileFingerprint.read(fingerprintFile);
+        final DefCompileFingerprint current = DefCompileFingerprint.of(resolver.defSourceDir, sourceFiles,
+                defClasspath, this.compileOptions);
+        final boolean hasKotlin = hasKotlin();
+        JkUtilsPath.deleteIfExists(fingerprintFile);  // Remains absent if compilation fails
+        if (previous != null && previous.hasSameContext(current) && Files.isDirectory(resolver.defClassDir)) {
+            final Set<String> modifiedSources = current.modifiedSourcesSince(previous);
+            final Set<String> removedSources = current.removedSourcesSince(previous);
+            if (modifiedSources.isEmpty() && removedSources.isEmpty()) {
+                JkLog.trace("Def sources, classpath and compile options unchanged. Skip def compilation.");
+                if (hasKotlin) {
+                    addToCurrentClassLoader(JkKotlinCompiler.ofKotlinHome().getStdLib());
+                }
+                copyDefResources();
+                current.save(fingerprintFile);
+                return;
+            }
+            if (!hasKotlin) {
+                compileDefIncrementally(defClasspath, sourceFiles, modifiedSources, removedSources);
+                copyDefResources();
+                current.save(fingerprintFile);
+                return;
+            }
+        }
         JkPathTree.of(resolver.defClassDir).deleteContent();
-        if (hasKotlin()) {
+        if (hasKotlin) {
             final JkKotlinJvmCompileSpec kotlinCompileSpec = defKotlinCompileSpec(defClasspath);
             JkKotlinCompiler kotlinCompiler = JkKotlinCompiler.ofKotlinHome();
             wrapCompile(() -> kotlinCompiler.compile(kotlinCompileSpec));
-            JkUrlClassLoader classLoader = JkUrlClassLoader.ofCurrent();
-            classLoader.addEntries(kotlinCompiler.getStdLib());
+            addToCurrentClassLoader(kotlinCompiler.getStdLib());
         }
         final JkJavaCompileSpec javaCompileSpec = defJavaCompileSpec(defClasspath);
         wrapCompile(() -> JkJavaCompiler.of().compile(javaCompileSpec));
+        copyDefResources();
+        current.save(fingerprintFile);
+    }
+
+    /*
+     * Recompiles only modified sources plus the unchanged sources that refer, directly or not, to a
+     * modified or removed one. References are detected by looking for the simple class name in source code.
+     */
+    private void compileDefIncrementally(JkPathSequence defClasspath, List<Path> sourceFiles,
+                                         Set<String> modifiedSources, Set<String> removedSources) {
+        final Map<String, Path> javaSources = new TreeMap<>();
+        sourceFiles.stream()
+                .filter(path -> path.getFileName().toString().endsWith(".java"))
+                .forEach(path -> javaSources.put(DefCompileFingerprint.relativeName(resolver.defSourceDir, path), path));
+        final Set<String> affected = new TreeSet<>(modifiedSources);
+        final Deque<String> simpleNamesToCheck = new LinkedList<>();
+        modifiedSources.forEach(name -> simpleNamesToCheck.add(simpleClassName(name)));
+        removedSources.forEach(name -> simpleNamesToCheck.add(simpleClassName(name)));
+        final Map<String, String> sourceCodes = new HashMap<>();
+        while (!simpleNamesToCheck.isEmpty()) {
+            final String simpleName = simpleNamesToCheck.poll();
+            for (final Map.Entry<String, Path> entry : javaSources.entrySet()) {
+                if (affected.contains(entry.getKey())) {
+                    continue;
+                }
+                final String code = sourceCodes.computeIfAbsent(entry.getKey(),
+                        key -> new String(JkUtilsPath.readAllBytes(entry.getValue()), StandardCharsets.UTF_8));
+                if (code.contains(simpleName)) {
+                    affected.add(entry.getKey());
+                    simpleNamesToCheck.add(simpleClassName(entry.getKey()));
+                }
+            }
+        }
+        final Set<String> staleSources = new HashSet<>(affected);
+        staleSources.addAll(removedSources);
+        deleteDefClassFiles(staleSources);
+        final List<Path> sourcesToCompile = new LinkedList<>();
+        affected.forEach(name -> sourcesToCompile.add(javaSources.get(name)));
+        JkLog.trace("Def sources to recompile : " + affected + ", removed : " + removedSources);
+        if (sourcesToCompile.isEmpty()) {
+            return;
+        }
+        JkUtilsPath.createDirectories(resolver.defClassDir);
+        final JkJavaCompileSpec<Void> javaCompileSpec = JkJavaCompileSpec.of()
+                .setClasspath(defClasspath.and(resolver.defClassDir))
+                .setOutputDir(resolver.defClassDir)
+                .addSources(sourcesToCompile)
+                .addOptions(this.compileOptions);
+        wrapCompile(() -> JkJavaCompiler.of().compile(javaCompileSpec));
+    }
+
+    /*
+     * Deletes class files generated from the specified sources : classes whose bytecode mentions one of these
+     * sources, including extra top level classes declared in the same file, plus top level classes named
+     * after them and their nested ones for classes compiled without source information.
+     */
+    private void deleteDefClassFiles(Set<String> relativeSourceNames) {
+        final JkClassDependencyGraph classGraph = JkClassDependencyGraph.of(
+                Collections.singleton(resolver.defClassDir));
+        classGraph.getClassNames().stream()
+                .filter(className -> relativeSourceNames.contains(classGraph.getSourcePath(className)))
+                .map(className -> resolver.defClassDir.resolve(className.replace('.', '/') + ".class"))
+                .forEach(JkUtilsPath::deleteIfExists);
+        for (final String relativeSourceName : relativeSourceNames) {
+            final String classBaseName = JkUtilsString.substringBeforeLast(relativeSourceName, ".");
+            final Path classFile = resolver.defClassDir.resolve(classBaseName + ".class");
+            final Path packageDir = classFile.getParent();
+            JkUtilsPath.deleteIfExists(classFile);
+            if (Files.isDirectory(packageDir)) {
+                final String nestedPrefix = classFile.getFileName().toString().replace(".class", "$");
+                JkUtilsPath.listDirectChildren(packageDir).stream()
+                        .filter(path -> path.getFileName().toString().startsWith(nestedPrefix))
+                        .forEach(JkUtilsPath::deleteIfExists);
+            }
+        }
+    }
+
+    private static String simpleClassName(String relativeSourceName) {
+        final String fileName = relativeSourceName.contains("/")
+                ? JkUtilsString.substringAfterLast(relativeSourceName, "/") : relativeSourceName;
+        return JkUtilsString.substringBeforeLast(fileName, ".");
+    }
+
+    private void copyDefResources() {
         JkPathTree.of(this.resolver.defSourceDir)
                 .andMatching(false, "**/*.java", "*.java", "**/*.kt", "*.kt")
                 .copyTo(this.resolver.defClassDir, StandardCopyOption.REPLACE_EXISTING);
@@ -268,10 +450,11 @@ final class Engine {
 
     private void launch(JkClass jkClass, CommandLine commandLine) {
         if (!commandLine.getSubProjectMethods().isEmpty()) {
-            for (final JkClass importedJkClass : jkClass.getImportedJkClasses().getAll()) {
-                runProject(importedJkClass, commandLine.getSubProjectMethods());
-            }
-            runProject(jkClass, commandLine.getSubProjectMethods());
+            final List<JkClass> jkClasses = new LinkedList<>(jkClass.getImportedJkClasses().getAll());
+            jkClasses.add(jkClass);
+            DagScheduler.of(jkClasses, importer -> importer.getImportedJkClasses().getDirects(),
+                    Environment.standardOptions.workerCount)
+                    .run(project -> runProject(project, commandLine.getSubProjectMethods()));
         }
         List<CommandLine.MethodInvocation> methods = commandLine.getMasterMethods();
         if (methods.isEmpty() && Environment.standardOptions.logRuntimeInformation == null) {
@@ -354,6 +537,15 @@ final class Engine {
         return JkRepoSet.of(JkRepoConfigOptionLoader.defRepository(), JkRepo.ofLocal());
     }
 
+    /*
+     * Class loader entries are added from a single thread at a time as def classes of imported projects
+     * may be compiled concurrently.
+     */
+    @SuppressWarnings("deprecation")
+    private static synchronized void addToCurrentClassLoader(Iterable<Path> entries) {
+        JkUrlClassLoader.ofCurrent().addEntries(entries);
+    }
+
     private static List<String> toRelativePaths(Path from, LinkedHashSet<Path>  files) {
         final List<String> result = new LinkedList<>();
         for (final Path file : files) {
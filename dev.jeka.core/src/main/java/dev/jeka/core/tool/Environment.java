@@ -1,5 +1,6 @@
 package dev.jeka.core.tool;
 
+import dev.jeka.core.api.depmanagement.resolution.JkResolutionParameters;
 import dev.jeka.core.api.system.JkLocator;
 import dev.jeka.core.api.system.JkLog;
 import dev.jeka.core.api.system.JkSquareConsoleLogConsumer;
@@ -53,6 +54,8 @@ class Environment {
             JkLog.setVerbosity(JkLog.Verbosity.QUITE_VERBOSE);
         }
         JkSquareConsoleLogConsumer.setMaxLength(standardOptions.logMaxLength);
+        JkResolutionParameters.setDefaultOffline(standardOptions.offline);
+        JkResolutionParameters.setDefaultRefreshed(standardOptions.refreshDependencies);
         Environment.systemProps = sysProps;
         Environment.commandLine = commandLine;
         Environment.standardOptions = standardOptions;
@@ -103,6 +106,21 @@ class Environment {
 
         int logMaxLength = -1;
 
+        /*
+         * Greater than 1, def classes of imported projects are compiled concurrently and methods invoked on
+         * imported projects run concurrently, so Jeka classes and plugins of these projects must not share
+         * mutable state, nor modify Environment or class loaders. Hence concurrency is opt-in.
+         */
+        int workerCount;
+
+        boolean useDaemon;
+
+        boolean offline;
+
+        boolean refreshDependencies;
+
+        boolean logTimeline;
+
         private String jkClassName;
 
         private final Set<String> names = new HashSet<>();
@@ -116,6 +134,11 @@ class Environment {
             this.logStyle = valueOf(JkLog.Style.class, map, JkLog.Style.INDENT, "LogStyle", "LS");
             this.logMaxLength = valueOf(Integer.class, map, -1,"LogMaxLength", "LML");
             this.jkClassName = valueOf(String.class, map, null, "JekaClass", "JKC");
+            this.workerCount = valueOf(Integer.class, map, 1, "WorkerCount", "WC");
+            this.useDaemon = valueOf(Boolean.class, map, false, "UseDaemon", "UD");
+            this.offline = valueOf(Boolean.class, map, false, "Offline", "OFF");
+            this.refreshDependencies = valueOf(Boolean.class, map, false, "RefreshDependencies", "RD");
+            this.logTimeline = valueOf(Boolean.class, map, false, "LogTimeline", "LT");
         }
 
         Set<String> names() {
@@ -50,7 +50,12 @@ final class HelpDisplayer {
         sb.append("  -LogBanner (shorthand -LB) : logs intro and outro banners.\n");
         sb.append("  -LogSetup (shorthand -LSU) : logs Jeka classes setup process.\n");
         sb.append("  -LogStyle (shorthand -LS) : choose the display log style : INDENT(default), BRACE, SQUARE or DEBUG.\n");
+        sb.append("  -LogTimeline (shorthand -LT) : records duration, CPU time and allocated memory of logged tasks, prints the phases taking the most time and writes a Chrome trace in jeka/output/jeka-timeline.json.\n");
         sb.append("  -LogMaxLength (shorthand -LML) : Console will do a carriage return automatically after N characters are outputted in a single line (ex : -LML=120).\n");
+        sb.append("  -WorkerCount (shorthand -WC) : Max number of imported projects compiled or executed concurrently. Default is 1. Use greater values only if Jeka classes and plugins of imported projects do not share mutable state.\n");
+        sb.append("  -UseDaemon (shorthand -UD) : runs the command in a long-lived JVM kept warm between commands, started if needed.\n");
+        sb.append("  -Offline (shorthand -OFF) : resolves dependencies from the Jeka repository cache only, failing on modules or artifacts not in cache.\n");
+        sb.append("  -RefreshDependencies (shorthand -RD) : checks snapshot and dynamic versions against remote repositories even if metadata in cache have not expired.\n");
         sb.append("  -JekaClass (shorthand -JKC) : Force to use the specified class as the Jeka class to invoke. It can be the short name of the class (without package prefix).\n");
         return sb.toString();
     }
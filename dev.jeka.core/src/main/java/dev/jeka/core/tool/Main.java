@@ -1,18 +1,21 @@
 package dev.jeka.core.tool;
 
 import dev.jeka.core.api.java.JkClassLoader;
+import dev.jeka.core.api.system.JkBuildTimeline;
 import dev.jeka.core.api.system.JkLog;
 import dev.jeka.core.api.utils.JkUtilsIO;
 import dev.jeka.core.api.utils.JkUtilsString;
 import dev.jeka.core.api.utils.JkUtilsSystem;
 import dev.jeka.core.api.utils.JkUtilsTime;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Main class for launching Jeka from command line.
@@ -21,6 +24,10 @@ import java.util.List;
  */
 public final class Main {
 
+    private static final int TOP_PHASE_COUNT = 15;
+
+    private static final String TIMELINE_FILE_NAME = "jeka-timeline.json";
+
     /**
      * Entry point for Jeka application when launched from command-line
      */
@@ -33,11 +40,33 @@ public final class Main {
             JkClassLoader.of(urlClassLoader).invokeStaticMethod(false, "dev.jeka.core.tool.Main", "main" , argArray);
             return;
         }
+        if (args.length > 0 && Daemon.SERVE_ARG.equals(args[0])) {
+            try {
+                Daemon.serve();
+            } catch (final IOException e) {
+                e.printStackTrace(System.err);
+                System.exit(1);
+            }
+            System.exit(0);
+        }
         final long start = System.nanoTime();
         JkUtilsSystem.disableUnsafeWarning();
+        System.exit(run(args, start)); // Triggers shutdown hooks
+    }
+
+    /*
+     * Runs the specified command line and returns the exit code.
+     */
+    static int run(String[] args, long start) {
         try {
             Environment.initialize(args);
             JkLog.setConsumer(Environment.standardOptions.logStyle);
+            if (Environment.standardOptions.useDaemon && !Daemon.isServing()) {
+                return Daemon.forward(args);
+            }
+            if (Environment.standardOptions.logTimeline) {
+                JkLog.setTimeline(JkBuildTimeline.of());
+            }
             final JkLog.Verbosity verbosity = JkLog.verbosity();
             if (Environment.standardOptions.logBanner) {
                 displayIntro();
@@ -54,7 +83,7 @@ public final class Main {
             if (Environment.standardOptions.logBanner) {
                 displayOutro(start);
             }
-            System.exit(0); // Triggers shutdown hooks
+            return 0;
         } catch (final RuntimeException e) {
             JkLog.JkEventLogConsumer consumer = JkLog.getConsumer();
             if (consumer != null) {
@@ -79,7 +108,31 @@ public final class Main {
             } else {
                 System.err.println("Failed !");
             }
-            System.exit(1);
+            return 1;
+        } finally {
+            reportTimeline();
+        }
+    }
+
+    private static void reportTimeline() {
+        final JkBuildTimeline timeline = JkLog.getTimeline();
+        if (timeline == null) {
+            return;
+        }
+        JkLog.setTimeline(null);
+        if (timeline.getSpans().isEmpty()) {
+            return;
+        }
+        System.out.println();
+        System.out.println("Top phases :");
+        System.out.print(timeline.getTopPhasesTable(TOP_PHASE_COUNT));
+        final Path traceFile = Paths.get(JkConstants.OUTPUT_PATH, TIMELINE_FILE_NAME).toAbsolutePath();
+        try {
+            timeline.writeChromeTrace(traceFile);
+            System.out.println("Build timeline written in " + traceFile
+                    + " (open it with chrome://tracing or https://ui.perfetto.dev).");
+        } catch (final RuntimeException e) {
+            System.err.println("Can not write build timeline in " + traceFile + " : " + e.getMessage());
         }
     }
 
@@ -104,6 +157,23 @@ public final class Main {
         engine.execute(Environment.commandLine, verbosity);
     }
 
+    /**
+     * Entry point to call Jeka on several folders at once. Folders are processed concurrently, as many at a time as
+     * specified by the -WorkerCount option of the current run, and share the current class loader unless their def
+     * classes or the versions of their def classpath modules clash.
+     * Returns the failures by folder.
+     */
+    public static Map<Path, RuntimeException> execAll(List<Path> projectDirs, String... args) {
+        final ClassLoader originalClassloader = Thread.currentThread().getContextClassLoader();
+        if (!(originalClassloader instanceof URLClassLoader)) {
+            final URLClassLoader urlClassLoader = new URLClassLoader(new URL[] {}, originalClassloader);
+            Thread.currentThread().setContextClassLoader(urlClassLoader);
+            return JkClassLoader.of(urlClassLoader).invokeStaticMethod(false, "dev.jeka.core.tool.Main",
+                    "execAll", projectDirs, args);
+        }
+        return ProjectBatch.of(projectDirs).execute(args);
+    }
+
     private static int printAscii(boolean error, String fileName) {
         final InputStream inputStream = Main.class.getResourceAsStream(fileName);
         final List<String> lines = JkUtilsIO.readAsLines(inputStream);
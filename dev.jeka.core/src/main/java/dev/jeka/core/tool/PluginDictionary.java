@@ -58,6 +58,13 @@ final class PluginDictionary {
         return loadPluginsHavingLongName(name);
     }
 
+    /*
+     * Forgets plugins found so far. Needed when the classloader they have been loaded from is discarded.
+     */
+    static void clearCache() {
+        SHORTNAME_CACHE.clear();
+    }
+
     private static String simpleClassName(String pluginName) {
         return JkPlugin.class.getSimpleName() + JkUtilsString.capitalize(pluginName);
     }
@@ -0,0 +1,158 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.depmanagement.JkModuleId;
+import dev.jeka.core.api.depmanagement.JkVersion;
+import dev.jeka.core.api.depmanagement.JkVersionedModule;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import dev.jeka.core.api.utils.JkUtilsString;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/*
+ * Runs a command line on several projects in the current JVM, projects being processed concurrently by as many
+ * workers as specified by the -WorkerCount option of the current run. Environment is initialized once for all
+ * projects and dependency resolutions are shared through the resolution cache. Def classes are loaded in the
+ * current class loader, so jars and classes common to projects are loaded once, except for projects having a def
+ * class named as a def class of another project or a def classpath module in another version than another
+ * project : each of them runs in its own class loader. Jars added to the def classpath as files (as boot libs)
+ * are not compared. As verbosity is global, setup logs are not muted as they are when running a single project.
+ */
+final class ProjectBatch {
+
+    private final List<Path> projectDirs;
+
+    private ProjectBatch(List<Path> projectDirs) {
+        this.projectDirs = projectDirs;
+    }
+
+    static ProjectBatch of(List<Path> projectDirs) {
+        return new ProjectBatch(projectDirs.stream()
+                .map(dir -> dir.toAbsolutePath().normalize())
+                .distinct()
+                .collect(Collectors.toList()));
+    }
+
+    /*
+     * Runs the specified command line on each project and returns failures by project dir, in project order.
+     * The current thread context class loader is expected to be an URLClassLoader.
+     */
+    Map<Path, RuntimeException> execute(String... args) {
+        final int workerCount = Environment.standardOptions.workerCount;
+        Environment.initialize(args);
+        final JkLog.Verbosity verbosity = JkLog.verbosity();
+        final URLClassLoader sharedClassLoader = (URLClassLoader) Thread.currentThread().getContextClassLoader();
+        final Map<Path, ClassLoader> classLoaders = classLoaders(sharedClassLoader);
+        final Map<Path, RuntimeException> failures = new ConcurrentHashMap<>();
+        try {
+            DagScheduler.of(projectDirs, dir -> Collections.emptyList(), workerCount)
+                    .run(dir -> execute(dir, classLoaders.get(dir), verbosity, failures));
+        } finally {
+            classLoaders.values().stream()
+                    .filter(classLoader -> classLoader != sharedClassLoader)
+                    .forEach(ProjectBatch::close);
+        }
+        final Map<Path, RuntimeException> result = new LinkedHashMap<>();
+        projectDirs.stream()
+                .filter(failures::containsKey)
+                .forEach(dir -> result.put(dir, failures.get(dir)));
+        return result;
+    }
+
+    private static void execute(Path projectDir, ClassLoader classLoader, JkLog.Verbosity verbosity,
+                                Map<Path, RuntimeException> failures) {
+        final Thread thread = Thread.currentThread();
+        final ClassLoader formerClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(classLoader);
+        try {
+            new Engine(projectDir).execute(Environment.commandLine, verbosity);
+        } catch (final RuntimeException e) {
+            failures.put(projectDir, e);
+        } finally {
+            thread.setContextClassLoader(formerClassLoader);
+        }
+    }
+
+    /*
+     * Projects whose def classes are already loaded by the shared class loader claim their class names and
+     * def classpath modules first, so they keep running with it.
+     */
+    Map<Path, ClassLoader> classLoaders(URLClassLoader sharedClassLoader) {
+        final Set<Path> sharedEntries = entries(sharedClassLoader);
+        final List<Path> orderedDirs = new ArrayList<>(projectDirs);
+        orderedDirs.sort(Comparator.comparing(dir -> !sharedEntries.contains(dir.resolve(JkConstants.DEF_BIN_DIR))));
+        final Map<String, Path> classOwners = new HashMap<>();
+        final Map<JkModuleId, JkVersion> sharedVersions = new HashMap<>();
+        final Map<Path, ClassLoader> result = new HashMap<>();
+        for (final Path dir : orderedDirs) {
+            final List<String> classNames = defClassNames(dir);
+            final Set<JkVersionedModule> modules = new Engine(dir).resolveDefModules();
+            final String clashingName = classNames.stream()
+                    .filter(classOwners::containsKey)
+                    .findFirst().orElse(null);
+            final JkVersionedModule clashingModule = modules.stream()
+                    .filter(module -> sharedVersions.containsKey(module.getModuleId()))
+                    .filter(module -> !sharedVersions.get(module.getModuleId()).equals(module.getVersion()))
+                    .findFirst().orElse(null);
+            if (clashingName == null && clashingModule == null) {
+                classNames.forEach(name -> classOwners.put(name, dir));
+                modules.forEach(module -> sharedVersions.put(module.getModuleId(), module.getVersion()));
+                result.put(dir, sharedClassLoader);
+                continue;
+            }
+            if (clashingName != null) {
+                JkLog.trace("Def class " + clashingName + " of " + dir + " is also defined in "
+                        + classOwners.get(clashingName) + ". Use a dedicated class loader.");
+            } else {
+                JkLog.trace("Def classpath of " + dir + " contains " + clashingModule + " while "
+                        + sharedVersions.get(clashingModule.getModuleId()) + " is already shared. Use a dedicated"
+                        + " class loader.");
+            }
+            result.put(dir, new URLClassLoader(new URL[] {JkUtilsPath.toUrl(dir.resolve(JkConstants.DEF_BIN_DIR))},
+                    JkClass.class.getClassLoader()));
+        }
+        return result;
+    }
+
+    private static List<String> defClassNames(Path projectDir) {
+        final Path defDir = projectDir.resolve(JkConstants.DEF_DIR);
+        if (!Files.isDirectory(defDir)) {
+            return Collections.emptyList();
+        }
+        return JkPathTree.of(defDir).andMatching(true, "**.java", "**.kt").andMatching(false, "**/_*", "_*")
+                .getRelativeFiles().stream()
+                .map(path -> JkUtilsString.substringBeforeLast(path.toString().replace('\\', '/'), "."))
+                .collect(Collectors.toList());
+    }
+
+    private static Set<Path> entries(URLClassLoader classLoader) {
+        final Set<Path> result = new HashSet<>();
+        for (final URL url : classLoader.getURLs()) {
+            try {
+                result.add(Paths.get(url.toURI()).toAbsolutePath().normalize());
+            } catch (final URISyntaxException | RuntimeException e) {
+                JkLog.trace("Ignore class loader entry " + url + " : " + e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    private static void close(ClassLoader classLoader) {
+        try {
+            ((URLClassLoader) classLoader).close();
+        } catch (final IOException e) {
+            JkLog.trace("Can not close class loader : " + e.getMessage());
+        }
+    }
+
+}
@@ -15,8 +15,10 @@ import java.io.PrintWriter;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @JkDoc("Generation of Idea Intellij metadata files (*.iml and modules.xml).")
@@ -130,31 +132,31 @@ public final class JkPluginIntellij extends JkPlugin {
         JkLog.info("File generated at : " + modulesXmlGenerator.outputFile());
     }
 
-    @JkDoc("Generates iml files on this folder and its descendant recursively.")
+    @JkDoc("Generates iml files on this folder and its descendant recursively. Folders are processed concurrently " +
+            "(see -WorkerCount option).")
     public void allIml() {
-        final Iterable<Path> folders = getJkClass().getBaseTree()
+        final List<Path> projectFolders = getJkClass().getBaseTree()
                 .andMatching(true, "**/" + JkConstants.DEF_DIR, JkConstants.DEF_DIR)
                 .andMatching(false, "**/" + JkConstants.OUTPUT_PATH + "/**")
-                .stream().collect(Collectors.toList());
-        for (final Path folder : folders) {
-            final Path projectFolder = folder.getParent().getParent();
-            JkLog.startTask("Generate iml file on " + projectFolder);
-            try {
-                Main.exec(projectFolder, "intellij#iml");
-            } catch (Exception e) {
-                JkLog.warn("Generating Iml failed : Try to generate it using -CC=JkClass option. Failure cause : ");
+                .stream()
+                .map(folder -> folder.getParent().getParent())
+                .collect(Collectors.toList());
+        JkLog.startTask("Generate iml files on " + projectFolders.size() + " folders");
+        final Map<Path, RuntimeException> failures = Main.execAll(projectFolders, "intellij#iml");
+        if (!failures.isEmpty()) {
+            failures.forEach((projectFolder, e) -> {
+                JkLog.warn("Generating Iml failed on " + projectFolder + " : Try to generate it using -JKC=JkClass " +
+                        "option. Failure cause : ");
                 JkLog.warn(e.getMessage());
                 PrintWriter printWriter = new PrintWriter(JkLog.getErrorStream());
                 e.printStackTrace(printWriter);
                 printWriter.flush();
-                try {
-                    Main.exec(projectFolder, "intellij#iml", "-CC=JkClass");
-                } catch (Exception e1) {
-                    JkLog.warn("Generating Iml file failed;");
-                }
-            }
-            JkLog.endTask();
+            });
+            Main.execAll(new ArrayList<>(failures.keySet()), "intellij#iml", "-JKC=JkClass")
+                    .keySet()
+                    .forEach(projectFolder -> JkLog.warn("Generating Iml file failed on " + projectFolder));
         }
+        JkLog.endTask();
     }
 
     @JkDoc("Shorthand for intellij#allIml + intellij#modulesXml.")
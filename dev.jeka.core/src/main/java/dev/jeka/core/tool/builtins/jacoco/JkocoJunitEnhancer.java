@@ -60,6 +60,7 @@ public final class JkocoJunitEnhancer {
         JkJavaProcess process = JkUtilsObject.firstNonNull(testProcessor.getForkingProcess(), JkJavaProcess.of());
         process = process.andAgent(agent, options());
         testProcessor.setForkingProcess(process);
+        testProcessor.setReuseForkedProcesses(false);  // Jacoco writes its data file at JVM exit
         testProcessor.getPostActions().append(new Reporter());
     }
 
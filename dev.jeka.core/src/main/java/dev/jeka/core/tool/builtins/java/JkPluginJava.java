@@ -8,6 +8,7 @@ import dev.jeka.core.api.depmanagement.artifact.JkStandardFileArtifactProducer;
 import dev.jeka.core.api.depmanagement.resolution.JkDependencyResolver;
 import dev.jeka.core.api.depmanagement.resolution.JkResolveResult;
 import dev.jeka.core.api.depmanagement.resolution.JkResolvedDependencyNode;
+import dev.jeka.core.api.file.JkLocalBuildCache;
 import dev.jeka.core.api.file.JkPathFile;
 import dev.jeka.core.api.java.JkJavaCompiler;
 import dev.jeka.core.api.java.JkJavaProcess;
@@ -55,6 +56,10 @@ public class JkPluginJava extends JkPlugin implements JkJavaIdeSupport.JkSupplie
     @JkDoc("Extra arguments to be passed to the compiler (e.g. -Xlint:unchecked).")
     public String compilerExtraArgs;
 
+    @JkDoc("If true, compiled classes and bin jar are restored from the local build cache, located in Jeka user " +
+            "home, when sources, resources, classpath and compile options match a cached entry.")
+    public boolean buildCache;
+
     @JkDoc("Scaffolded code won't use the simple facade over JkJavaProject")
     public boolean noFacade;
 
@@ -133,6 +138,12 @@ public class JkPluginJava extends JkPlugin implements JkJavaIdeSupport.JkSupplie
             Consumer<Path> javadocJar = project.getDocumentation()::createJavadocJar;
             artifactProducer.putArtifact(javadoc, javadocJar);
         }
+        if (buildCache && project.getConstruction().getBuildCache() == null) {
+            project.getConstruction().setBuildCache(JkLocalBuildCache.of());
+        }
+        if (pack.parallelism != null) {
+            artifactProducer.setParallelism(pack.parallelism);
+        }
         JkTestProcessor testProcessor = project.getConstruction().getTesting().getTestProcessor();
         if (test.fork != null && test.fork && testProcessor.getForkingProcess() == null) {
             final JkJavaProcess javaProcess = JkJavaProcess.of().andCommandLine(this.test.jvmOptions);
@@ -140,6 +151,21 @@ public class JkPluginJava extends JkPlugin implements JkJavaIdeSupport.JkSupplie
         } else if (test.fork != null && !test.fork && testProcessor.getForkingProcess() != null) {
             testProcessor.setForkingProcess(false);
         }
+        if (test.forkCount != null) {
+            testProcessor.setForkCount(test.forkCount);
+        }
+        if (test.reuseForks != null) {
+            testProcessor.setReuseForkedProcesses(test.reuseForks);
+        }
+        if (test.cacheResults != null) {
+            testProcessor.setCacheResults(test.cacheResults);
+        }
+        if (test.slowest != null) {
+            testProcessor.setSlowestTestCount(test.slowest);
+        }
+        if (test.affectedOnly != null) {
+            project.getConstruction().getTesting().getTestSelection().setAffectedTestsOnly(test.affectedOnly);
+        }
         if (test.skip != null) {
             project.getConstruction().getTesting().setSkipped(test.skip);
         }
@@ -325,6 +351,10 @@ public class JkPluginJava extends JkPlugin implements JkJavaIdeSupport.JkSupplie
         @JkDoc("If true, sources jar is added in the list of artifact to produce/publish.")
         public Boolean sources;
 
+        /** Max number of artifacts produced concurrently. */
+        @JkDoc("Max number of artifacts (as jar, sources and javadoc) produced concurrently.")
+        public Integer parallelism;
+
     }
 
     /**
@@ -340,6 +370,27 @@ public class JkPluginJava extends JkPlugin implements JkJavaIdeSupport.JkSupplie
         @JkDoc("If true, tests will be executed in a withForking process.")
         public Boolean fork;
 
+        /** Number of forked processes running tests concurrently. */
+        @JkDoc("Number of forked processes running tests concurrently, if tests are executed in a forked process.")
+        public Integer forkCount;
+
+        /** Turn it on to keep forked processes alive and reuse them for next test launches. */
+        @JkDoc("If true, forked processes running tests are reused across test launches of the same build.")
+        public Boolean reuseForks;
+
+        /** Turn it on to replay results of previous runs when test classes and classpath have not changed. */
+        @JkDoc("If true, only tests whose classes or classpath changed since the last successful run are executed, " +
+                "results of others being replayed.")
+        public Boolean cacheResults;
+
+        /** Number of slowest test classes and tests to display once tests have run. */
+        @JkDoc("Number of slowest test classes and tests to display once tests have run.")
+        public Integer slowest;
+
+        /** Turn it on to run only tests affected by class changes since the last successful run. */
+        @JkDoc("If true, only tests depending on classes changed since the last successful test run are executed.")
+        public Boolean affectedOnly;
+
         /** Argument passed to the JVM if tests are withForking. Example : -Xms2G -Xmx2G */
         @JkDoc("Argument passed to the JVM if tests are withForking. E.g. -Xms2G -Xmx2G.")
         public String jvmOptions;
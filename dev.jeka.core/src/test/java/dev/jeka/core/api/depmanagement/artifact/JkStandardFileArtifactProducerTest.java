@@ -0,0 +1,138 @@
+package dev.jeka.core.api.depmanagement.artifact;
+
+import dev.jeka.core.api.system.JkLog;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class JkStandardFileArtifactProducerTest {
+
+    @Test
+    public void testMakeArtifactsConcurrently() throws Exception {
+        Path dir = Files.createTempDirectory("jeka-artifact-test");
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        AtomicInteger preActionCount = new AtomicInteger();
+        JkStandardFileArtifactProducer<Void> producer = JkStandardFileArtifactProducer
+                .of(artifactId -> dir.resolve(artifactId.toFileName("foo")))
+                .setParallelism(2);
+        producer.getPreActions().append(preActionCount::incrementAndGet);
+        producer.putMainArtifact(path -> awaitAndWrite(barrier, path));
+        producer.putArtifact(JkArtifactId.of("sources", "jar"), path -> awaitAndWrite(barrier, path));
+        producer.makeAllArtifacts();  // would time out if artifacts were made one after the other
+        assertTrue(Files.exists(producer.getMainArtifactPath()));
+        assertTrue(Files.exists(producer.getArtifactPath(JkArtifactId.of("sources", "jar"))));
+        assertEquals(1, preActionCount.get());
+        JkUtilsPath.deleteFile(producer.getMainArtifactPath());
+        producer.makeAllMissingArtifacts();
+        assertTrue(Files.exists(producer.getMainArtifactPath()));
+    }
+
+    @Test
+    public void testFailureIsRethrown() throws Exception {
+        Path dir = Files.createTempDirectory("jeka-artifact-test");
+        JkStandardFileArtifactProducer<Void> producer = JkStandardFileArtifactProducer
+                .of(artifactId -> dir.resolve(artifactId.toFileName("foo")))
+                .setParallelism(2);
+        producer.putMainArtifact(path -> JkUtilsPath.write(path, new byte[0]));
+        producer.putArtifact(JkArtifactId.of("sources", "jar"), path -> {
+            throw new IllegalStateException("Boom");
+        });
+        try {
+            producer.makeAllArtifacts();
+            fail("Failure should have been rethrown");
+        } catch (IllegalStateException e) {
+            assertEquals("Boom", e.getMessage());
+        }
+        assertTrue(Files.exists(producer.getMainArtifactPath()));
+    }
+
+    @Test
+    public void testLogsOfConcurrentArtifactsAreNotInterleaved() throws Exception {
+        Path dir = Files.createTempDirectory("jeka-artifact-test");
+        List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        JkLog.JkState.save();
+        JkLog.setConsumer(new RecordingConsumer(messages));
+        try {
+            CyclicBarrier barrier = new CyclicBarrier(2);
+            JkStandardFileArtifactProducer<Void> producer = JkStandardFileArtifactProducer
+                    .of(artifactId -> dir.resolve(artifactId.toFileName("foo")))
+                    .setParallelism(2);
+            producer.putMainArtifact(path -> {
+                JkLog.info("main-1");
+                awaitAndWrite(barrier, path);
+                JkLog.info("main-2");
+            });
+            producer.putArtifact(JkArtifactId.of("sources", "jar"), path -> {
+                JkLog.info("sources-1");
+                awaitAndWrite(barrier, path);
+                JkLog.info("sources-2");
+            });
+            producer.makeAllArtifacts();
+        } finally {
+            JkLog.JkState.restore();
+        }
+        int mainIndex = messages.indexOf("INFO main-1");
+        int sourcesIndex = messages.indexOf("INFO sources-1");
+        assertEquals("INFO main-2", messages.get(mainIndex + 1));
+        assertEquals("INFO sources-2", messages.get(sourcesIndex + 1));
+        assertEquals("START_TASK Make artifact foo.jar", messages.get(mainIndex - 1));
+        assertEquals("START_TASK Make artifact foo-sources.jar", messages.get(sourcesIndex - 1));
+        assertTrue(messages.get(mainIndex + 3).startsWith("END_TASK"));
+        assertTrue(messages.get(sourcesIndex + 3).startsWith("END_TASK"));
+    }
+
+    private static void awaitAndWrite(CyclicBarrier barrier, Path path) {
+        try {
+            barrier.await(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        JkUtilsPath.write(path, new byte[0]);
+    }
+
+    private static class RecordingConsumer implements JkLog.JkEventLogConsumer {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> messages;
+
+        RecordingConsumer(List<String> messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public void accept(JkLog.JkLogEvent event) {
+            messages.add(event.getType() + " " + event.getMessage());
+        }
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public void restore() {
+        }
+
+        @Override
+        public OutputStream getOutStream() {
+            return System.out;
+        }
+
+        @Override
+        public OutputStream getErrorStream() {
+            return System.err;
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package dev.jeka.core.api.depmanagement.embedded.ivy;
+
+import com.sun.net.httpserver.HttpServer;
+import dev.jeka.core.api.depmanagement.JkQualifiedDependencySet;
+import dev.jeka.core.api.depmanagement.JkRepoSet;
+import dev.jeka.core.api.depmanagement.resolution.JkResolutionParameters;
+import dev.jeka.core.api.depmanagement.resolution.JkResolveResult;
+import dev.jeka.core.api.file.JkPathTree;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IvyParallelArtifactDownloaderTest {
+
+    private static final int MODULE_COUNT = 8;
+
+    private Path repositoryCache;
+
+    private String formerRepositoryCache;
+
+    @Before
+    public void setRepositoryCache() throws Exception {
+        repositoryCache = Files.createTempDirectory("jkrepocache");
+        formerRepositoryCache = System.setProperty("jeka.repo", repositoryCache.toString());
+    }
+
+    @After
+    public void restoreRepositoryCache() {
+        if (formerRepositoryCache == null) {
+            System.clearProperty("jeka.repo");
+        } else {
+            System.setProperty("jeka.repo", formerRepositoryCache);
+        }
+        JkPathTree.of(repositoryCache).deleteRoot();
+    }
+
+    @Test
+    public void resolve_latencyBoundRepo_downloadsConcurrentlyWithinRepoLimit() throws Exception {
+        String group = "jkparallel";
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            byte[] body = null;
+            if (path.endsWith(".pom")) {
+                String artifactId = path.substring(path.lastIndexOf('/') + 1, path.lastIndexOf('-'));
+                body = pom(group, artifactId).getBytes();
+            } else if (path.endsWith(".jar")) {
+                int current = running.incrementAndGet();
+                maxRunning.accumulateAndGet(current, Math::max);
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                body = new byte[] {'P', 'K'};
+            }
+            if (body == null || "HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(body == null ? 404 : 200, -1);
+            } else {
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort() + "/repo";
+            JkQualifiedDependencySet deps = JkQualifiedDependencySet.of();
+            for (int i = 0; i < MODULE_COUNT; i++) {
+                deps = deps.and("compile", group + ":module" + i + ":1.0");
+            }
+            JkResolutionParameters<?> parameters = JkResolutionParameters.of()
+                    .setDownloadThreadCount(8).setMaxDownloadsPerRepo(3);
+            JkResolveResult result = IvyInternalDependencyResolver.of(JkRepoSet.of(url))
+                    .resolve(null, deps, parameters);
+
+            assertFalse(result.getErrorReport().toString(), result.getErrorReport().hasErrors());
+            assertEquals(MODULE_COUNT, result.getFiles().getEntries().size());
+            assertTrue("Max concurrent downloads was " + maxRunning.get(), maxRunning.get() > 1);
+            assertTrue("Max concurrent downloads was " + maxRunning.get(), maxRunning.get() <= 3);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static String pom(String group, String artifactId) {
+        return "<project><modelVersion>4.0.0</modelVersion><groupId>" + group + "</groupId><artifactId>"
+                + artifactId + "</artifactId><version>1.0</version></project>";
+    }
+
+}
@@ -0,0 +1,130 @@
+package dev.jeka.core.api.depmanagement.embedded.ivy;
+
+import com.sun.net.httpserver.HttpServer;
+import dev.jeka.core.api.depmanagement.JkQualifiedDependencySet;
+import dev.jeka.core.api.depmanagement.JkRepoSet;
+import dev.jeka.core.api.depmanagement.resolution.JkResolutionParameters;
+import dev.jeka.core.api.depmanagement.resolution.JkResolveResult;
+import dev.jeka.core.api.file.JkPathTree;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+public class IvyRepositoryCacheManagerTest {
+
+    private final String group = "jkcachettl";
+
+    private final List<String> requestedPaths = new CopyOnWriteArrayList<>();
+
+    private HttpServer server;
+
+    private JkRepoSet repos;
+
+    private Path repositoryCache;
+
+    private String formerRepositoryCache;
+
+    @Before
+    public void startRepo() throws Exception {
+        repositoryCache = Files.createTempDirectory("jkrepocache");
+        formerRepositoryCache = System.setProperty("jeka.repo", repositoryCache.toString());
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            requestedPaths.add(path);
+            byte[] body = null;
+            if (path.endsWith(".pom")) {
+                String[] parts = path.split("/");
+                body = pom(parts[parts.length - 3], parts[parts.length - 2]).getBytes();
+            } else if (path.endsWith(".jar")) {
+                body = new byte[] {'P', 'K'};
+            }
+            if (body == null || "HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(body == null ? 404 : 200, -1);
+            } else {
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        repos = JkRepoSet.of("http://localhost:" + server.getAddress().getPort() + "/repo");
+    }
+
+    @After
+    public void stopRepo() {
+        server.stop(0);
+        if (formerRepositoryCache == null) {
+            System.clearProperty("jeka.repo");
+        } else {
+            System.setProperty("jeka.repo", formerRepositoryCache);
+        }
+        JkPathTree.of(repositoryCache).deleteRoot();
+    }
+
+    @Test
+    public void resolve_warmCache_checksOnlyExpiredSnapshots() {
+        JkQualifiedDependencySet deps = JkQualifiedDependencySet.of()
+                .and("compile", group + ":release:1.0")
+                .and("compile", group + ":snapshot:1.0-SNAPSHOT");
+        resolve(deps, JkResolutionParameters.of());
+        assertTrue(requestCount("release") > 0);
+        assertTrue(requestCount("snapshot") > 0);
+
+        requestedPaths.clear();
+        resolve(deps, JkResolutionParameters.of());
+        assertEquals(requestedPaths.toString(), 0, requestedPaths.size());
+
+        resolve(deps, JkResolutionParameters.of().setMetadataTtl(Duration.ZERO));
+        assertEquals(requestedPaths.toString(), 0, requestCount("release"));
+        assertTrue(requestCount("snapshot") > 0);
+
+        requestedPaths.clear();
+        resolve(deps, JkResolutionParameters.of().setRefreshed(true));
+        assertEquals(requestedPaths.toString(), 0, requestCount("release"));
+        assertTrue(requestCount("snapshot") > 0);
+    }
+
+    @Test
+    public void resolve_offline_usesCacheOnly() {
+        JkQualifiedDependencySet deps = JkQualifiedDependencySet.of().and("compile", group + ":module:1.0");
+        JkResolveResult result = IvyInternalDependencyResolver.of(repos)
+                .resolve(null, deps, JkResolutionParameters.of().setOffline(true));
+        assertTrue(result.getErrorReport().hasErrors());
+        assertEquals(requestedPaths.toString(), 0, requestedPaths.size());
+
+        resolve(deps, JkResolutionParameters.of());
+        requestedPaths.clear();
+        result = resolve(deps, JkResolutionParameters.of().setOffline(true).setRefreshed(true));
+        assertEquals(1, result.getFiles().getEntries().size());
+        assertEquals(requestedPaths.toString(), 0, requestedPaths.size());
+    }
+
+    private JkResolveResult resolve(JkQualifiedDependencySet deps, JkResolutionParameters<?> parameters) {
+        JkResolveResult result = IvyInternalDependencyResolver.of(repos).resolve(null, deps, parameters);
+        assertFalse(result.getErrorReport().toString(), result.getErrorReport().hasErrors());
+        return result;
+    }
+
+    private long requestCount(String artifactId) {
+        return requestedPaths.stream().filter(path -> path.contains("/" + artifactId + "/")).count();
+    }
+
+    private String pom(String artifactId, String version) {
+        return "<project><modelVersion>4.0.0</modelVersion><groupId>" + group + "</groupId><artifactId>"
+                + artifactId + "</artifactId><version>" + version + "</version></project>";
+    }
+
+}
@@ -0,0 +1,90 @@
+package dev.jeka.core.api.depmanagement.resolution;
+
+import dev.jeka.core.api.depmanagement.*;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.utils.JkUtilsIterable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ResolveResultCacheTest {
+
+    private Path userHome;
+
+    private String formerUserHome;
+
+    @Before
+    public void setUserHome() throws Exception {
+        userHome = Files.createTempDirectory("jkuserhome");
+        formerUserHome = System.setProperty("jeka.user.home", userHome.toString());
+    }
+
+    @After
+    public void restoreUserHome() {
+        ResolveResultCache.clear();
+        if (formerUserHome == null) {
+            System.clearProperty("jeka.user.home");
+        } else {
+            System.setProperty("jeka.user.home", formerUserHome);
+        }
+        JkPathTree.of(userHome).deleteRoot();
+    }
+
+    @Test
+    public void key_dynamicVersion_notCached() {
+        JkQualifiedDependencySet deps = JkQualifiedDependencySet.of()
+                .and("compile", "com.google.guava:guava:1.+");
+        assertNull(ResolveResultCache.key(null, deps, JkRepoSet.of("https://repo1.maven.org/maven2"),
+                JkResolutionParameters.of()));
+        deps = JkQualifiedDependencySet.of().and("compile", "com.google.guava:guava:1.0-SNAPSHOT");
+        assertNull(ResolveResultCache.key(null, deps, JkRepoSet.of("https://repo1.maven.org/maven2"),
+                JkResolutionParameters.of()));
+    }
+
+    @Test
+    public void key_dependsOnDependenciesReposAndParameters() {
+        JkQualifiedDependencySet deps = JkQualifiedDependencySet.of()
+                .and("compile", "com.google.guava:guava:30.0-jre");
+        JkRepoSet repos = JkRepoSet.of("https://repo1.maven.org/maven2");
+        String key = ResolveResultCache.key(null, deps, repos, JkResolutionParameters.of());
+        assertEquals(key, ResolveResultCache.key(null, JkQualifiedDependencySet.of()
+                .and("compile", "com.google.guava:guava:30.0-jre"), repos, JkResolutionParameters.of()));
+        assertNotEquals(key, ResolveResultCache.key(null, deps.and("test", "junit:junit:4.13"), repos,
+                JkResolutionParameters.of()));
+        assertNotEquals(key, ResolveResultCache.key(null, deps, repos.and(JkRepo.of("https://foo.org/repo")),
+                JkResolutionParameters.of()));
+        assertNotEquals(key, ResolveResultCache.key(null, deps, repos, JkResolutionParameters.of()
+                .setConflictResolver(JkResolutionParameters.JkConflictResolver.STRICT)));
+    }
+
+    @Test
+    public void putAndGet_sameTree_untilFileDisappears() throws Exception {
+        Path jar = Files.createTempFile("jkcache", ".jar");
+        JkResolvedDependencyNode.JkModuleNodeInfo guavaInfo = JkResolvedDependencyNode.JkModuleNodeInfo.of(
+                JkModuleId.of("com.google.guava:guava"), JkVersion.of("30.0-jre"),
+                JkUtilsIterable.setOf("default"), JkUtilsIterable.setOf("compile"), JkVersion.of("30.0-jre"),
+                Collections.singletonList(jar));
+        JkResolvedDependencyNode tree = JkResolvedDependencyNode.ofModuleDep(
+                JkResolvedDependencyNode.JkModuleNodeInfo.ofAnonymousRoot(),
+                JkUtilsIterable.listOf(JkResolvedDependencyNode.ofModuleDep(guavaInfo, Collections.emptyList())));
+        String key = "test-" + System.nanoTime();
+        ResolveResultCache.put(key, JkResolveResult.of(tree, JkResolveResult.JkErrorReport.allFine()));
+
+        JkResolvedDependencyNode cached = ResolveResultCache.get(key);
+        assertNotNull(cached);
+        assertTrue(Files.exists(userHome.resolve("cache/resolutions").resolve(key + ".ser")));
+        assertEquals(tree.toStringTree(), cached.toStringTree());
+        assertEquals(JkVersion.of("30.0-jre"), JkResolveResult.of(cached, JkResolveResult.JkErrorReport.allFine())
+                .getVersionOf(JkModuleId.of("com.google.guava:guava")));
+
+        Files.delete(jar);
+        assertNull(ResolveResultCache.get(key));
+    }
+
+}
@@ -0,0 +1,31 @@
+package dev.jeka.core.api.file;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class JkFingerprintTest {
+
+    @Test
+    public void testContentAndStamps() throws Exception {
+        Path dir = Files.createTempDirectory("jkfingerprint");
+        Path file = dir.resolve("sub/foo.txt");
+        Files.createDirectories(file.getParent());
+        Files.write(file, "foo".getBytes());
+        String contentFingerprint = JkFingerprint.of().andContent(JkPathTree.of(dir)).get();
+        String stampFingerprint = JkFingerprint.of().andStamps(dir).get();
+        Assert.assertEquals(contentFingerprint, JkFingerprint.of().andContent(JkPathTree.of(dir)).get());
+        Assert.assertEquals(stampFingerprint, JkFingerprint.of().andStamps(dir).get());
+        Assert.assertNotEquals(contentFingerprint, JkFingerprint.of().and("foo")
+                .andContent(JkPathTree.of(dir)).get());
+
+        Files.write(file, "bar".getBytes());
+        Assert.assertNotEquals(contentFingerprint, JkFingerprint.of().andContent(JkPathTree.of(dir)).get());
+        Files.write(dir.resolve("bar.txt"), "foo".getBytes());
+        Assert.assertNotEquals(stampFingerprint, JkFingerprint.of().andStamps(dir).get());
+        JkPathTree.of(dir).deleteRoot();
+    }
+
+}
@@ -0,0 +1,70 @@
+package dev.jeka.core.api.file;
+
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.*;
+
+public class JkLocalBuildCacheTest {
+
+    @Test
+    public void testStoreAndRestore() throws Exception {
+        Path base = Files.createTempDirectory("jeka-build-cache-test");
+        JkLocalBuildCache cache = JkLocalBuildCache.of(base.resolve("cache"), 1024 * 1024);
+        Path classDir = base.resolve("classes");
+        write(classDir.resolve("a/A.class"), "A");
+        write(classDir.resolve("B.class"), "B");
+        Path jar = base.resolve("foo.jar");
+        write(jar, "jar");
+
+        assertFalse(cache.restore("classes-key", base.resolve("restored")));
+        cache.store("classes-key", classDir);
+        cache.store("jar-key", jar);
+
+        Path restoredDir = base.resolve("restored");
+        write(restoredDir.resolve("Stale.class"), "stale");
+        assertTrue(cache.restore("classes-key", restoredDir));
+        assertEquals("A", read(restoredDir.resolve("a/A.class")));
+        assertEquals("B", read(restoredDir.resolve("B.class")));
+        assertFalse(Files.exists(restoredDir.resolve("Stale.class")));
+
+        Path restoredJar = base.resolve("other/foo.jar");
+        assertTrue(cache.restore("jar-key", restoredJar));
+        assertEquals("jar", read(restoredJar));
+        JkPathTree.of(base).deleteRoot();
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws Exception {
+        Path base = Files.createTempDirectory("jeka-build-cache-test");
+        JkLocalBuildCache cache = JkLocalBuildCache.of(base.resolve("cache"), 25);
+        Path file = base.resolve("file.bin");
+        write(file, "0123456789");
+        cache.store("first", file);
+        cache.store("second", file);
+        long old = System.currentTimeMillis() - 60_000;
+        Files.setLastModifiedTime(base.resolve("cache/first"), FileTime.fromMillis(old - 1000));
+        Files.setLastModifiedTime(base.resolve("cache/second"), FileTime.fromMillis(old));
+        assertTrue(cache.restore("first", base.resolve("restored.bin")));  // first becomes the most recently used
+        cache.store("third", file);
+        assertTrue(cache.restore("first", base.resolve("restored.bin")));
+        assertFalse(cache.restore("second", base.resolve("restored.bin")));
+        assertTrue(cache.restore("third", base.resolve("restored.bin")));
+        JkPathTree.of(base).deleteRoot();
+    }
+
+    private static void write(Path file, String content) {
+        JkUtilsPath.createDirectories(file.getParent());
+        JkUtilsPath.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path file) throws Exception {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+}
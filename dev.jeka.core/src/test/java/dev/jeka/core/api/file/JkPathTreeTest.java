@@ -10,6 +10,7 @@ import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.file.*;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
@@ -57,6 +58,37 @@ public class JkPathTreeTest {
         assertTrue(JkPathTree.of(sampleDir).stream().anyMatch(path -> path.equals(sampleDir)));
     }
 
+    @Test
+    public void testStreamSameAsWalk() throws Exception {
+        Path dir = Files.createTempDirectory("jeka-tree-test");
+        for (int i = 0; i < 30; i++) {
+            JkUtilsPath.write(Files.createDirectories(dir.resolve("d" + (i % 4) + "/sub" + (i % 3)))
+                    .resolve("f" + i + ".txt"), new byte[0]);
+        }
+        try (Stream<Path> stream = Files.walk(dir)) {
+            assertEquals(stream.collect(Collectors.toList()),
+                    JkPathTree.of(dir).stream().collect(Collectors.toList()));
+        }
+        assertEquals(30, JkPathTree.of(dir).getFiles().size());
+        assertEquals(8, JkPathTree.of(dir).andMatching(true, "d1/**").getRelativeFiles().size());
+        JkPathTree.of(dir).deleteRoot();
+    }
+
+    @Test
+    public void testSnapshotSeesChanges() throws Exception {
+        Path dir = Files.createTempDirectory("jeka-tree-test");
+        JkUtilsPath.write(Files.createDirectories(dir.resolve("a/b")).resolve("foo.txt"), new byte[0]);
+        JkPathTree tree = JkPathTree.of(dir);
+        assertEquals(1, tree.getFiles().size());
+        JkUtilsPath.write(dir.resolve("a/b/bar.txt"), new byte[0]);
+        JkUtilsPath.write(Files.createDirectories(dir.resolve("c")).resolve("baz.txt"), new byte[0]);
+        assertEquals(3, tree.getFiles().size());
+        Files.delete(dir.resolve("a/b/foo.txt"));
+        assertEquals(2, tree.getRelativeFiles().size());
+        assertFalse(tree.getRelativeFiles().contains(Paths.get("a/b/foo.txt")));
+        tree.deleteRoot();
+    }
+
     @Test
     public void testZipTo() throws Exception {
         Path zip = Files.createTempFile("filetree", ".zip");
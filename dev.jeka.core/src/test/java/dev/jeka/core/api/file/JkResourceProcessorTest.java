@@ -0,0 +1,90 @@
+package dev.jeka.core.api.file;
+
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+public class JkResourceProcessorTest {
+
+    @Test
+    public void testGenerateIncrementally() throws Exception {
+        Path base = Files.createTempDirectory("jeka-resource-test");
+        Path sourceDir = base.resolve("resources");
+        Path outputDir = base.resolve("classes");
+        Path stateFile = base.resolve("classes.resources");
+        write(sourceDir.resolve("app.properties"), "version=${version}");
+        write(sourceDir.resolve("img/logo.png"), "binary");
+        write(sourceDir.resolve("removed.txt"), "removed");
+        JkResourceProcessor<Void> processor = JkResourceProcessor.of()
+                .addInterpolator("**.properties", "${version}", "1.0");
+        JkPathTreeSet resources = JkPathTreeSet.of(sourceDir);
+
+        processor.generateIncrementally(resources, outputDir, stateFile);
+        Assert.assertEquals("version=1.0", read(outputDir.resolve("app.properties")));
+        Assert.assertEquals("binary", read(outputDir.resolve("img/logo.png")));
+        Assert.assertTrue(Files.exists(stateFile));
+
+        // Unchanged resources are not copied again, even if touched
+        FileTime outputTime = Files.getLastModifiedTime(outputDir.resolve("img/logo.png"));
+        Files.setLastModifiedTime(sourceDir.resolve("img/logo.png"),
+                FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        Thread.sleep(10);
+        Files.delete(sourceDir.resolve("removed.txt"));
+        write(sourceDir.resolve("app.properties"), "version=${version}.");
+        processor.generateIncrementally(resources, outputDir, stateFile);
+        Assert.assertEquals(outputTime, Files.getLastModifiedTime(outputDir.resolve("img/logo.png")));
+        Assert.assertEquals("version=1.0.", read(outputDir.resolve("app.properties")));
+        Assert.assertFalse(Files.exists(outputDir.resolve("removed.txt")));
+
+        // Changing interpolated values or deleting an output makes the resource processed again
+        Files.delete(outputDir.resolve("img/logo.png"));
+        JkResourceProcessor.of().addInterpolator("**.properties", "${version}", "2.0")
+                .generateIncrementally(resources, outputDir, stateFile);
+        Assert.assertEquals("version=2.0.", read(outputDir.resolve("app.properties")));
+        Assert.assertEquals("binary", read(outputDir.resolve("img/logo.png")));
+        JkPathTree.of(base).deleteRoot();
+    }
+
+    @Test
+    public void testGetFingerprintOfState() throws Exception {
+        Path base = Files.createTempDirectory("jeka-resource-test");
+        JkResourceProcessor<Void> processor = JkResourceProcessor.of()
+                .addInterpolator("**.properties", "${version}", "1.0");
+        Assert.assertNull(processor.getFingerprint(base.resolve("first.resources")));
+        for (String name : new String[] {"first", "second"}) {
+            write(base.resolve(name).resolve("app.properties"), "version=${version}");
+            write(base.resolve(name).resolve("img/logo.png"), "binary");
+            processor.generateIncrementally(JkPathTreeSet.of(base.resolve(name)), base.resolve(name + "-classes"),
+                    base.resolve(name + ".resources"));
+        }
+        String fingerprint = processor.getFingerprint(base.resolve("first.resources"));
+        Assert.assertEquals(fingerprint, processor.getFingerprint(base.resolve("second.resources")));
+
+        // Touched resources keep the fingerprint, modified ones change it
+        Files.setLastModifiedTime(base.resolve("first/img/logo.png"),
+                FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+        processor.generateIncrementally(JkPathTreeSet.of(base.resolve("first")), base.resolve("first-classes"),
+                base.resolve("first.resources"));
+        Assert.assertEquals(fingerprint, processor.getFingerprint(base.resolve("first.resources")));
+        write(base.resolve("first/img/logo.png"), "binary2");
+        processor.generateIncrementally(JkPathTreeSet.of(base.resolve("first")), base.resolve("first-classes"),
+                base.resolve("first.resources"));
+        Assert.assertNotEquals(fingerprint, processor.getFingerprint(base.resolve("first.resources")));
+        JkPathTree.of(base).deleteRoot();
+    }
+
+    private static void write(Path file, String content) {
+        JkUtilsPath.createDirectories(file.getParent());
+        JkUtilsPath.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(Path file) throws Exception {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+    }
+
+}
@@ -0,0 +1,60 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.file.JkPathTree;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JkClassDependencyGraphTest {
+
+    @Test
+    public void getTransitiveDependents_followsReferencesAcrossDirs() throws Exception {
+        Path base = Files.createTempDirectory("jkclassgraph");
+        write(base.resolve("src/pkg/A.java"), "package pkg; public class A { }");
+        write(base.resolve("src/pkg/B.java"), "package pkg; public class B extends A { }");
+        write(base.resolve("src/pkg/C.java"), "package pkg; public class C { java.util.List<B> bs; }");
+        write(base.resolve("src/pkg/D.java"), "package pkg; public class D { String s; }");
+        Path classes = base.resolve("classes");
+        assertTrue(JkJavaCompiler.of().compile(JkJavaCompileSpec.of().setOutputDir(classes)
+                .addSources(base.resolve("src"))));
+
+        JkClassDependencyGraph graph = JkClassDependencyGraph.of(Arrays.asList(classes, base.resolve("none")));
+
+        assertEquals(new HashSet<>(Arrays.asList("pkg.A", "pkg.B", "pkg.C", "pkg.D")), graph.getClassNames());
+        assertEquals(Collections.singleton("pkg.A"), graph.getDependencies("pkg.B"));
+        assertEquals(Collections.emptySet(), graph.getDependencies("pkg.D"));
+        assertEquals(new HashSet<>(Arrays.asList("pkg.A", "pkg.B", "pkg.C")),
+                graph.getTransitiveDependents(Collections.singleton("pkg.A")));
+        JkPathTree.of(base).deleteRoot();
+    }
+
+    @Test
+    public void getSourcePath_coversNestedAndExtraTopLevelClasses() throws Exception {
+        Path base = Files.createTempDirectory("jkclassgraph");
+        write(base.resolve("src/pkg/A.java"), "package pkg; public class A { class Inner { } } class Extra { }");
+        Path classes = base.resolve("classes");
+        assertTrue(JkJavaCompiler.of().compile(JkJavaCompileSpec.of().setOutputDir(classes)
+                .addSources(base.resolve("src"))));
+
+        JkClassDependencyGraph graph = JkClassDependencyGraph.of(Collections.singleton(classes));
+
+        assertEquals("pkg/A.java", graph.getSourcePath("pkg.A"));
+        assertEquals("pkg/A.java", graph.getSourcePath("pkg.A$Inner"));
+        assertEquals("pkg/A.java", graph.getSourcePath("pkg.Extra"));
+        JkPathTree.of(base).deleteRoot();
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes());
+    }
+
+}
@@ -0,0 +1,50 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.utils.JkUtilsIO;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.*;
+
+/*
+ * Compares the cost of passing a large argument and result to a classloader sharing Jeka types with the
+ * current one : first by serializing them as it used to be done, then through JkClassLoader.
+ */
+@SuppressWarnings("javadoc")
+public class JkClassLoaderRunner {
+
+    private static final int ITERATIONS = 200;
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, List<String>> payload = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            payload.put("org.group" + i + ":module", Arrays.asList("1.0." + i, "compile", "runtime", "test"));
+        }
+        try (URLClassLoader child = new URLClassLoader(new URL[0], JkClassLoaderRunner.class.getClassLoader())) {
+            final JkClassLoader classLoader = JkClassLoader.of(child);
+            for (int i = 0; i < ITERATIONS; i++) {  // warm up
+                JkUtilsIO.cloneBySerialization(JkUtilsIO.cloneBySerialization(payload, child),
+                        JkClassLoaderRunner.class.getClassLoader());
+                classLoader.invokeStaticMethod(true, JkClassLoaderRunner.class.getName(), "echo", payload);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                JkUtilsIO.cloneBySerialization(JkUtilsIO.cloneBySerialization(payload, child),
+                        JkClassLoaderRunner.class.getClassLoader());
+            }
+            System.out.println("Serialization round-trip : " + (System.nanoTime() - start) / ITERATIONS / 1000
+                    + " µs per call");
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                classLoader.invokeStaticMethod(true, JkClassLoaderRunner.class.getName(), "echo", payload);
+            }
+            System.out.println("JkClassLoader#invokeStaticMethod : " + (System.nanoTime() - start) / ITERATIONS / 1000
+                    + " µs per call");
+        }
+    }
+
+    public static Object echo(Object object) {
+        return object;
+    }
+
+}
@@ -0,0 +1,63 @@
+package dev.jeka.core.api.java;
+
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class JkClassLoaderTest {
+
+    @Test
+    public void invokeStaticMethod_sharedTypes_passesObjectsAsIs() throws Exception {
+        try (URLClassLoader child = new URLClassLoader(new URL[0], JkClassLoaderTest.class.getClassLoader())) {
+            Map<String, List<Payload>> map = new HashMap<>();
+            map.put("a", Arrays.asList(new Payload("a1"), new Payload("a2")));
+            String[] array = {"x", "y"};
+
+            Object result = JkClassLoader.of(child).invokeStaticMethod(true, Echo.class.getName(), "echo", map);
+            assertSame(map, result);
+            result = JkClassLoader.of(child).invokeStaticMethod(true, Echo.class.getName(), "echo",
+                    (Object) array);
+            assertSame(array, result);
+        }
+    }
+
+    @Test
+    public void invokeStaticMethod_isolatedTypes_clonesObjects() throws Exception {
+        URL testClasses = JkClassLoaderTest.class.getProtectionDomain().getCodeSource().getLocation();
+        ClassLoader jdkLoader = ClassLoader.getSystemClassLoader().getParent();
+        try (URLClassLoader isolated = new URLClassLoader(new URL[] {testClasses}, jdkLoader)) {
+            List<Payload> list = new ArrayList<>();
+            list.add(new Payload("a"));
+
+            Object result = JkClassLoader.of(isolated).invokeStaticMethod(true, Echo.class.getName(), "echo", list);
+            assertNotSame(list, result);
+            Object item = ((List<?>) result).get(0);
+            assertEquals(Payload.class, item.getClass());
+            assertEquals("a", ((Payload) item).value);
+        }
+    }
+
+    public static class Echo {
+
+        public static Object echo(Object object) {
+            return object;
+        }
+    }
+
+    public static class Payload implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final String value;
+
+        Payload(String value) {
+            this.value = value;
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package dev.jeka.core.api.java;
+
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.file.JkPathTreeSet;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.jar.JarInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+
+public class JkJarPackerTest {
+
+    @Test
+    public void makeFatJar_mergesContentWithManifestFirstInDeterministicOrder() throws Exception {
+        Path base = Files.createTempDirectory("jkjarpacker");
+        Path classDir = base.resolve("classes");
+        write(classDir.resolve("foo/Main.class"), "main");
+        write(classDir.resolve("foo/logo.png"), "png");
+        write(classDir.resolve("shared.txt"), "from classes");
+        Path extraDir = base.resolve("extra");
+        write(extraDir.resolve("extra.txt"), "extra");
+        Path dependency = base.resolve("dep.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(dependency))) {
+            addEntry(out, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\nMain-Class: dep.Main\n");
+            addEntry(out, "bar/Dep.class", "dep");
+            addEntry(out, "shared.txt", "from dep");
+        }
+        Path fatJar = base.resolve("out/fat.jar");
+        JkJarPacker.of(classDir)
+                .withManifest(JkManifest.of().addMainClass("foo.Main"))
+                .withExtraFiles(JkPathTreeSet.of(extraDir))
+                .withRawCopy(false)
+                .makeFatJar(fatJar, Collections.singletonList(dependency), path -> true);
+
+        try (JarInputStream jarInputStream = new JarInputStream(Files.newInputStream(fatJar))) {
+            assertNotNull("Manifest should be first", jarInputStream.getManifest());
+            assertEquals("foo.Main", jarInputStream.getManifest().getMainAttributes().getValue("Main-Class"));
+        }
+        try (ZipFile zipFile = new ZipFile(fatJar.toFile())) {
+            List<String> names = new ArrayList<>();
+            zipFile.stream().forEach(entry -> names.add(entry.getName()));
+            assertEquals(Arrays.asList("META-INF/", "META-INF/MANIFEST.MF", "bar/", "bar/Dep.class",
+                    "foo/", "foo/Main.class", "foo/logo.png", "shared.txt"), names);
+            assertEquals("from classes", read(zipFile, "shared.txt"));
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("foo/logo.png").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("foo/Main.class").getMethod());
+        }
+
+        // Rewriting does not keep stale entries
+        Files.delete(classDir.resolve("foo/logo.png"));
+        JkJarPacker.of(classDir)
+                .withManifest(JkManifest.of().addMainClass("foo.Main"))
+                .makeJar(fatJar);
+        try (ZipFile zipFile = new ZipFile(fatJar.toFile())) {
+            assertNull(zipFile.getEntry("foo/logo.png"));
+            assertNull(zipFile.getEntry("bar/Dep.class"));
+            assertNotNull(zipFile.getEntry("foo/Main.class"));
+        }
+        JkPathTree.of(base).deleteRoot();
+    }
+
+    @Test
+    public void makeFatJar_rawCopy_copiesDependencyEntriesAsIsWithMainClassesFirst() throws Exception {
+        Path base = Files.createTempDirectory("jkjarpacker");
+        Path classDir = base.resolve("classes");
+        write(classDir.resolve("foo/Main.class"), "main");
+        write(classDir.resolve("shared.txt"), "from classes");
+        Path dependency = base.resolve("dep.jar");
+        String bigContent = String.join("", Collections.nCopies(1000, "some repeated content "));
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(dependency))) {
+            addEntry(out, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\nMain-Class: dep.Main\n");
+            addEntry(out, "bar/", "");
+            addEntry(out, "bar/Dep.class", bigContent);
+            addEntry(out, "bar/excluded.txt", "excluded");
+            addEntry(out, "shared.txt", "from dep");
+        }
+        Path fatJar = base.resolve("fat.jar");
+        JkJarPacker.of(classDir)
+                .withManifest(JkManifest.of().addMainClass("foo.Main"))
+                .makeFatJar(fatJar, Collections.singletonList(dependency),
+                        path -> !path.toString().endsWith("excluded.txt"));
+
+        try (JarInputStream jarInputStream = new JarInputStream(Files.newInputStream(fatJar))) {
+            assertEquals("foo.Main", jarInputStream.getManifest().getMainAttributes().getValue("Main-Class"));
+        }
+        try (ZipFile zipFile = new ZipFile(fatJar.toFile()); ZipFile depFile = new ZipFile(dependency.toFile())) {
+            List<String> names = new ArrayList<>();
+            zipFile.stream().forEach(entry -> names.add(entry.getName()));
+            assertEquals(Arrays.asList("META-INF/", "META-INF/MANIFEST.MF", "foo/", "foo/Main.class",
+                    "shared.txt", "bar/", "bar/Dep.class"), names);
+            assertEquals("from classes", read(zipFile, "shared.txt"));
+            assertEquals(bigContent, read(zipFile, "bar/Dep.class"));
+            ZipEntry copied = zipFile.getEntry("bar/Dep.class");
+            ZipEntry original = depFile.getEntry("bar/Dep.class");
+            assertEquals(ZipEntry.DEFLATED, copied.getMethod());
+            assertEquals(original.getCompressedSize(), copied.getCompressedSize());
+            assertEquals(original.getCrc(), copied.getCrc());
+        }
+        JkPathTree.of(base).deleteRoot();
+    }
+
+    @Test
+    public void makeFatJar_duplicateDependencyEntries_lastJarWinsInBothModes() throws Exception {
+        Path base = Files.createTempDirectory("jkjarpacker");
+        Path classDir = base.resolve("classes");
+        write(classDir.resolve("foo/Main.class"), "main");
+        Path dep1 = base.resolve("dep1.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(dep1))) {
+            addEntry(out, "shared.txt", "from dep1");
+        }
+        Path dep2 = base.resolve("dep2.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(dep2))) {
+            addEntry(out, "shared.txt", "from dep2");
+        }
+        for (boolean rawCopy : new boolean[] {true, false}) {
+            Path fatJar = base.resolve("fat-" + rawCopy + ".jar");
+            JkJarPacker.of(classDir).withRawCopy(rawCopy)
+                    .makeFatJar(fatJar, Arrays.asList(dep1, dep2), path -> true);
+            try (ZipFile zipFile = new ZipFile(fatJar.toFile())) {
+                assertEquals("Raw copy " + rawCopy, "from dep2", read(zipFile, "shared.txt"));
+            }
+        }
+        JkPathTree.of(base).deleteRoot();
+    }
+
+    @Test
+    public void rawZipWriter_nameWithoutUtf8Flag_decodedAsCp437() throws Exception {
+        Path base = Files.createTempDirectory("jkjarpacker");
+        Path zip = base.resolve("legacy.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip), Charset.forName("IBM437"))) {
+            addEntry(out, "caf\u00e9.txt", "content");
+        }
+        try (RawZipWriter.SourceZip sourceZip = RawZipWriter.SourceZip.of(zip)) {
+            assertEquals("caf\u00e9.txt", sourceZip.entries().get(0).getName());
+        }
+        JkPathTree.of(base).deleteRoot();
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes());
+    }
+
+    private static void addEntry(ZipOutputStream out, String name, String content) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(content.getBytes());
+        out.closeEntry();
+    }
+
+    private static String read(ZipFile zipFile, String name) throws IOException {
+        try (java.io.InputStream inputStream = zipFile.getInputStream(zipFile.getEntry(name))) {
+            return new String(readAll(inputStream));
+        }
+    }
+
+    private static byte[] readAll(java.io.InputStream inputStream) throws IOException {
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int len;
+        while ((len = inputStream.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+        return out.toByteArray();
+    }
+
+}
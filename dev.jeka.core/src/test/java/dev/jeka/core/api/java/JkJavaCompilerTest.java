@@ -1,7 +1,12 @@
 package dev.jeka.core.api.java;
 
+import dev.jeka.core.api.file.JkPathTree;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import static org.junit.Assert.*;
 
 public class JkJavaCompilerTest {
@@ -12,4 +17,70 @@ public class JkJavaCompilerTest {
         assertEquals("8", JkJavaCompiler.runningJdkVersion("1.8.0_211"));
         assertEquals("9", JkJavaCompiler.runningJdkVersion("9.0.1"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void compileIncrementally_recompilesOnlyAffectedSources() throws Exception {
+        Path base = Files.createTempDirectory("jkincremental");
+        Path src = base.resolve("src");
+        Path classes = base.resolve("classes");
+        Path stateFile = base.resolve("classes.incremental");
+        write(src.resolve("pkg/A.java"), "package pkg; public class A { public static int foo() { return 1; } }");
+        write(src.resolve("pkg/B.java"), "package pkg; public class B { long bar() { return A.foo(); } }");
+        write(src.resolve("pkg/C.java"), "package pkg; public class C { class Inner {} }");
+        JkJavaCompileSpec<Void> spec = JkJavaCompileSpec.of().setOutputDir(classes).addSources(src);
+        JkJavaCompiler<Void> compiler = JkJavaCompiler.of();
+        assertTrue(compiler.compileIncrementally(spec, stateFile));
+        long bTime = lastModified(classes.resolve("pkg/B.class"));
+        long cTime = lastModified(classes.resolve("pkg/C.class"));
+        Thread.sleep(1100);  // Some file systems have a one second precision
+
+        // Change implementation only : dependents are not recompiled
+        write(src.resolve("pkg/A.java"), "package pkg; public class A { public static int foo() { return 2; } }");
+        assertTrue(compiler.compileIncrementally(spec, stateFile));
+        assertEquals(bTime, lastModified(classes.resolve("pkg/B.class")));
+        assertEquals(cTime, lastModified(classes.resolve("pkg/C.class")));
+
+        // Change ABI : dependents are recompiled
+        write(src.resolve("pkg/A.java"), "package pkg; public class A { public static long foo() { return 2; } }");
+        assertTrue(compiler.compileIncrementally(spec, stateFile));
+        assertNotEquals(bTime, lastModified(classes.resolve("pkg/B.class")));
+        assertEquals(cTime, lastModified(classes.resolve("pkg/C.class")));
+
+        // Remove source : class files are deleted
+        Files.delete(src.resolve("pkg/C.java"));
+        assertTrue(compiler.compileIncrementally(spec, stateFile));
+        assertFalse(Files.exists(classes.resolve("pkg/C.class")));
+        assertFalse(Files.exists(classes.resolve("pkg/C$Inner.class")));
+        assertTrue(Files.exists(classes.resolve("pkg/A.class")));
+        JkPathTree.of(base).deleteRoot();
+    }
+
+    @Test
+    public void compileIncrementally_inheritedMemberRemoved_recompilesSubclassesUsingIt() throws Exception {
+        Path base = Files.createTempDirectory("jkincremental");
+        Path src = base.resolve("src");
+        Path classes = base.resolve("classes");
+        Path stateFile = base.resolve("classes.incremental");
+        write(src.resolve("pkg/A.java"), "package pkg; public class A { public void foo() {} }");
+        write(src.resolve("pkg/B.java"), "package pkg; public class B extends A {}");
+        write(src.resolve("pkg/C.java"), "package pkg; public class C extends B { void m() { foo(); } }");
+        JkJavaCompileSpec<Void> spec = JkJavaCompileSpec.of().setOutputDir(classes).addSources(src);
+        JkJavaCompiler<Void> compiler = JkJavaCompiler.of();
+        assertTrue(compiler.compileIncrementally(spec, stateFile));
+
+        // C refers to B only, but uses a member inherited from A
+        write(src.resolve("pkg/A.java"), "package pkg; public class A {}");
+        assertFalse(compiler.compileIncrementally(spec, stateFile));
+        JkPathTree.of(base).deleteRoot();
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes());
+    }
+
+    private static long lastModified(Path file) throws IOException {
+        return Files.getLastModifiedTime(file).toMillis();
+    }
+
+}
@@ -0,0 +1,80 @@
+package dev.jeka.core.api.java.embedded.classgraph;
+
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.java.embedded.classgraph.ClasspathScanIndex.IndexedClass;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+public class ClasspathScanIndexTest {
+
+    private Path userHome;
+
+    private String formerUserHome;
+
+    @Before
+    public void setUserHome() throws Exception {
+        userHome = Files.createTempDirectory("jkuserhome");
+        formerUserHome = System.setProperty("jeka.user.home", userHome.toString());
+    }
+
+    @After
+    public void restoreUserHome() {
+        if (formerUserHome == null) {
+            System.clearProperty("jeka.user.home");
+        } else {
+            System.setProperty("jeka.user.home", formerUserHome);
+        }
+        JkPathTree.of(userHome).deleteRoot();
+    }
+
+    @Test
+    public void classes_dirEntry_indexesClassesAndRescansWhenChanged() throws Exception {
+        Path dir = Files.createTempDirectory("jkscanindex");
+        copyClass(Sample.class, dir);
+
+        List<IndexedClass> classes = ClasspathScanIndex.classes(Collections.singletonList(dir.toFile()));
+        IndexedClass sample = find(classes, Sample.class.getName()).get();
+        assertEquals("ClasspathScanIndexTest$Sample", sample.simpleName);
+        assertEquals(ClasspathScanIndexTest.class.getName(), sample.superclassName);
+        assertTrue(sample.mainMethod);
+        assertEquals(Collections.singletonList(Deprecated.class.getName()), sample.annotationNames);
+        assertEquals(1, JkPathTree.of(userHome.resolve("cache/classpath-index")).andMatching("*.ser").count(10, false));
+
+        copyClass(ClasspathScanIndexTest.class, dir);
+        classes = ClasspathScanIndex.classes(Collections.singletonList(dir.toFile()));
+        assertTrue(find(classes, ClasspathScanIndexTest.class.getName()).isPresent());
+        assertFalse(find(classes, ClasspathScanIndexTest.class.getName()).get().mainMethod);
+        JkPathTree.of(dir).deleteRoot();
+    }
+
+    private static Optional<IndexedClass> find(List<IndexedClass> classes, String name) {
+        return classes.stream().filter(indexedClass -> indexedClass.name.equals(name)).findFirst();
+    }
+
+    private static void copyClass(Class<?> clazz, Path dir) throws Exception {
+        String resource = clazz.getName().replace('.', '/') + ".class";
+        Path target = dir.resolve(resource);
+        Files.createDirectories(target.getParent());
+        try (InputStream inputStream = clazz.getClassLoader().getResourceAsStream(resource)) {
+            Files.copy(inputStream, target);
+        }
+    }
+
+    @Deprecated
+    public static class Sample extends ClasspathScanIndexTest {
+
+        public static void main(String[] args) {
+        }
+    }
+
+}
@@ -171,6 +171,26 @@ public class JkJavaProjectTest {
         JkPathTree.of(top).deleteRoot();
     }
 
+    @Test
+    public void compilation_runTwiceWithoutChange_skipCompile() throws Exception {
+        final Path base = Files.createTempDirectory(JkJavaProjectTest.class.getName());
+        final Path sourceFile = base.resolve("src/main/java/foo/Foo.java");
+        Files.createDirectories(sourceFile.getParent());
+        Files.write(sourceFile, "package foo; public class Foo {}".getBytes());
+        final JkJavaProjectCompilation<?> compilation = JkJavaProject.of().setBaseDir(base)
+                .getConstruction().getCompilation();
+        compilation.run();
+        final Path classFile = compilation.getLayout().resolveClassDir().resolve("foo/Foo.class");
+        final long firstModificationTime = Files.getLastModifiedTime(classFile).toMillis();
+        Thread.sleep(1100);  // Some file systems have a one second precision
+        compilation.run();
+        Assert.assertEquals(firstModificationTime, Files.getLastModifiedTime(classFile).toMillis());
+        Files.write(sourceFile, "package foo; public class Foo { int i; }".getBytes());
+        compilation.run();
+        Assert.assertNotEquals(firstModificationTime, Files.getLastModifiedTime(classFile).toMillis());
+        JkPathTree.of(base).deleteRoot();
+    }
+
     private static Path unzipToDir(String zipName) throws IOException, URISyntaxException {
         final Path dest = Files.createTempDirectory(JkJavaProjectTest.class.getName());
         final Path zip = Paths.get(JkJavaProjectTest.class.getResource(zipName).toURI());
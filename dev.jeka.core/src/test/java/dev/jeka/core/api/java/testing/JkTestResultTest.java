@@ -0,0 +1,43 @@
+package dev.jeka.core.api.java.testing;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class JkTestResultTest {
+
+    @Test
+    public void and_classResultsAndDurations_areMerged() {
+        JkTestResult first = classResult("foo.ATest", 1000, 1300, 200, 50);
+        JkTestResult second = classResult("foo.BTest", 1100, 1200, 80);
+        JkTestResult third = classResult("foo.ATest", 2000, 2500, 400);
+
+        JkTestResult result = first.and(second).and(third);
+
+        assertEquals(Arrays.asList("foo.ATest", "foo.BTest"), result.getSlowestClasses(5));
+        assertEquals(1500, result.getClassResults().get("foo.ATest").getDuration());
+        assertEquals(4, result.getTestDurations().size());
+        assertEquals(400, result.getSlowestTests(2).get(0).getDuration());
+        assertEquals(200, result.getSlowestTests(2).get(1).getDuration());
+        assertEquals(4, result.getTestCount().getSucceded());
+    }
+
+    private static JkTestResult classResult(String className, long start, long end, long... durations) {
+        JkTestResult.JkCount tests = JkTestResult.JkCount.of(durations.length, durations.length, 0, 0,
+                durations.length, 0);
+        JkTestResult.JkCount containers = JkTestResult.JkCount.of(1, 1, 0, 0, 1, 0);
+        JkTestResult.JkTestDuration[] testDurations = new JkTestResult.JkTestDuration[durations.length];
+        for (int i = 0; i < durations.length; i++) {
+            testDurations[i] = JkTestResult.JkTestDuration.of(className, className + "#test" + i, "test" + i,
+                    durations[i]);
+        }
+        JkTestResult classResult = JkTestResult.of(start, end, containers, tests, Collections.emptyList())
+                .withTestDurations(Arrays.asList(testDurations));
+        return JkTestResult.of(start, end, containers, tests, Collections.emptyList(),
+                Collections.singletonMap(className, classResult)).withTestDurations(Arrays.asList(testDurations));
+    }
+
+}
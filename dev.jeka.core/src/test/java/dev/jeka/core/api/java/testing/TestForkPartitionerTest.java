@@ -0,0 +1,70 @@
+package dev.jeka.core.api.java.testing;
+
+import dev.jeka.core.api.file.JkPathTree;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestForkPartitionerTest {
+
+    @Test
+    public void discoverClassNames_appliesIncludeAndExcludePatterns() throws Exception {
+        Path root = Files.createTempDirectory("jktestfork");
+        for (String file : Arrays.asList("foo/FooTest.class", "foo/FooTest$Inner.class", "foo/Helper.class",
+                "bar/BarIT.class", "bar/BarTest.class", "foo/package-info.class")) {
+            Path path = root.resolve(file);
+            Files.createDirectories(path.getParent());
+            Files.createFile(path);
+        }
+        JkTestSelection<Void> selection = JkTestSelection.of().addTestClassRoots(root)
+                .addIncludeStandardPatterns()
+                .addExcludePatterns("bar\\..*");
+
+        assertEquals(Collections.singletonList("foo.FooTest"), TestForkPartitioner.discoverClassNames(selection));
+        JkPathTree.of(root).deleteRoot();
+    }
+
+    @Test
+    public void partition_recordedDurations_balancesLoad() throws Exception {
+        Path root = Files.createTempDirectory("jktestfork");
+        TestForkPartitioner partitioner = TestForkPartitioner.of(JkTestSelection.of().addTestClassRoots(root));
+        List<String> classNames = Arrays.asList("A", "B", "C", "D", "E");
+
+        List<List<String>> partitions = partitioner.partition(classNames, 2);
+        assertEquals(Arrays.asList(Arrays.asList("A", "C", "E"), Arrays.asList("B", "D")), partitions);
+
+        partitioner.record(Collections.singletonList("A"), result(900));
+        partitioner.record(Arrays.asList("B", "C", "D", "E"), result(400));
+        partitions = partitioner.partition(classNames, 2);
+        assertEquals(Arrays.asList(Collections.singletonList("A"), Arrays.asList("B", "C", "D", "E")), partitions);
+
+        assertEquals(5, partitioner.partition(classNames, 8).size());
+        JkPathTree.of(root).deleteRoot();
+    }
+
+    @Test
+    public void record_classResults_usesClassDurations() throws Exception {
+        Path root = Files.createTempDirectory("jktestfork");
+        TestForkPartitioner partitioner = TestForkPartitioner.of(JkTestSelection.of().addTestClassRoots(root));
+        JkTestResult.JkCount count = JkTestResult.JkCount.of(0, 0, 0, 0, 0, 0);
+        Map<String, JkTestResult> classResults = new HashMap<>();
+        classResults.put("A", result(100));
+        classResults.put("B", result(700));
+        JkTestResult result = JkTestResult.of(1000, 1800, count, count, Collections.emptyList(), classResults);
+
+        partitioner.record(Arrays.asList("A", "B", "C"), result);
+        List<List<String>> partitions = partitioner.partition(Arrays.asList("A", "B", "C"), 2);
+        assertEquals(Arrays.asList(Collections.singletonList("B"), Arrays.asList("C", "A")), partitions);
+        JkPathTree.of(root).deleteRoot();
+    }
+
+    private static JkTestResult result(long duration) {
+        JkTestResult.JkCount count = JkTestResult.JkCount.of(0, 0, 0, 0, 0, 0);
+        return JkTestResult.of(1000, 1000 + duration, count, count, Collections.emptyList());
+    }
+
+}
@@ -0,0 +1,107 @@
+package dev.jeka.core.api.java.testing;
+
+import dev.jeka.core.api.file.JkPathSequence;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.java.JkJavaCompileSpec;
+import dev.jeka.core.api.java.JkJavaCompiler;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestImpactAnalysisTest {
+
+    @Test
+    public void getAffectedClassNames_changedClass_selectsDependentTests() throws Exception {
+        Path base = Files.createTempDirectory("jktestimpact");
+        Path prodClasses = base.resolve("classes");
+        Path testClasses = base.resolve("test-classes");
+        Path stateFile = base.resolve("state.ser");
+        write(base.resolve("src/pkg/A.java"), "package pkg; public class A { public int foo() { return 1; } }");
+        write(base.resolve("src/pkg/B.java"), "package pkg; public class B { int bar() { return new A().foo(); } }");
+        write(base.resolve("src/pkg/C.java"), "package pkg; public class C { }");
+        write(base.resolve("test/pkg/ATest.java"), "package pkg; public class ATest { A a; }");
+        write(base.resolve("test/pkg/BTest.java"), "package pkg; public class BTest { "
+                + "class Inner { Object b = new B(); } }");
+        write(base.resolve("test/pkg/CTest.java"), "package pkg; public class CTest { C c; }");
+        compile(base, prodClasses, testClasses);
+        JkTestSelection<Void> selection = JkTestSelection.of().addTestClassRoots(testClasses)
+                .addIncludeStandardPatterns();
+        JkPathSequence classpath = JkPathSequence.of(testClasses).and(prodClasses);
+
+        TestImpactAnalysis analysis = TestImpactAnalysis.of(stateFile, selection, classpath);
+        assertNull(analysis.getAffectedClassNames());
+        analysis.saveKnownGood();
+        assertEquals(Collections.emptyList(),
+                TestImpactAnalysis.of(stateFile, selection, classpath).getAffectedClassNames());
+
+        write(base.resolve("src/pkg/B.java"), "package pkg; public class B { int bar() { return 2; } }");
+        compile(base, prodClasses, testClasses);
+        assertEquals(Collections.singletonList("pkg.BTest"),
+                TestImpactAnalysis.of(stateFile, selection, classpath).getAffectedClassNames());
+
+        write(base.resolve("src/pkg/A.java"), "package pkg; public class A { public int foo() { return 3; } }");
+        compile(base, prodClasses, testClasses);
+        assertEquals(Arrays.asList("pkg.ATest", "pkg.BTest"),
+                TestImpactAnalysis.of(stateFile, selection, classpath).getAffectedClassNames());
+
+        Files.write(prodClasses.resolve("config.properties"), "a=b".getBytes());
+        assertNull(TestImpactAnalysis.of(stateFile, selection, classpath).getAffectedClassNames());
+        JkPathTree.of(base).deleteRoot();
+    }
+
+    @Test
+    public void of_unchangedClassFileStamps_reusesKnownGoodHashes() throws Exception {
+        Path base = Files.createTempDirectory("jktestimpact");
+        Path testClasses = base.resolve("test-classes");
+        Path stateFile = base.resolve("state.ser");
+        write(base.resolve("test/pkg/ATest.java"), "package pkg; public class ATest { int i = 1; }");
+        JkJavaCompiler.of().compile(JkJavaCompileSpec.of().setOutputDir(testClasses).addSources(base.resolve("test")));
+        Path classFile = testClasses.resolve("pkg/ATest.class");
+        FileTime past = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        Files.setLastModifiedTime(classFile, past);
+        JkTestSelection<Void> selection = JkTestSelection.of().addTestClassRoots(testClasses)
+                .addIncludeStandardPatterns();
+        JkPathSequence classpath = JkPathSequence.of(testClasses);
+        TestImpactAnalysis.of(stateFile, selection, classpath).saveKnownGood();
+
+        // Same size and modification time : content is not read again
+        write(base.resolve("test2/pkg/ATest.java"), "package pkg; public class ATest { int i = 2; }");
+        Path otherClasses = base.resolve("other-classes");
+        JkJavaCompiler.of().compile(JkJavaCompileSpec.of().setOutputDir(otherClasses)
+                .addSources(base.resolve("test2")));
+        byte[] content = Files.readAllBytes(otherClasses.resolve("pkg/ATest.class"));
+        assertEquals(Files.size(classFile), content.length);
+        Files.write(classFile, content);
+        Files.setLastModifiedTime(classFile, past);
+        assertEquals(Collections.emptyList(),
+                TestImpactAnalysis.of(stateFile, selection, classpath).getAffectedClassNames());
+
+        Files.setLastModifiedTime(classFile, FileTime.fromMillis(past.toMillis() + 1000));
+        assertEquals(Collections.singletonList("pkg.ATest"),
+                TestImpactAnalysis.of(stateFile, selection, classpath).getAffectedClassNames());
+        JkPathTree.of(base).deleteRoot();
+    }
+
+    private static void compile(Path base, Path prodClasses, Path testClasses) {
+        JkJavaCompiler<Void> compiler = JkJavaCompiler.of();
+        assertTrue(compiler.compile(JkJavaCompileSpec.of().setOutputDir(prodClasses)
+                .addSources(base.resolve("src"))));
+        assertTrue(compiler.compile(JkJavaCompileSpec.of().setOutputDir(testClasses)
+                .setClasspath(Collections.singletonList(prodClasses)).addSources(base.resolve("test"))));
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes());
+    }
+
+}
@@ -0,0 +1,151 @@
+package dev.jeka.core.api.java.testing;
+
+import dev.jeka.core.api.file.JkPathSequence;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.utils.JkUtilsXml;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.BiFunction;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestResultCacheTest {
+
+    @Test
+    public void launch_unchangedInputs_replaysResultsAndReports() throws Exception {
+        Path root = createClassRoot();
+        Path cacheDir = Files.createTempDirectory("jktestcache");
+        Path reportDir = Files.createTempDirectory("jktestreport");
+        FakeRunner runner = new FakeRunner();
+
+        JkTestResult result = cache(root, cacheDir, reportDir).launch(runner);
+        assertEquals(Collections.singletonList(Arrays.asList("foo.ATest", "foo.BTest")), runner.runs);
+        assertEquals(3, result.getTestCount().getSucceded());
+
+        JkPathTree.of(reportDir).deleteContent();
+        result = cache(root, cacheDir, reportDir).launch(runner);
+        assertEquals(1, runner.runs.size());
+        assertEquals(3, result.getTestCount().getSucceded());
+        assertEquals(3, testCaseCount(reportDir));
+
+        Files.write(root.resolve("foo/Helper.class"), "changed".getBytes(StandardCharsets.UTF_8));
+        cache(root, cacheDir, reportDir).launch(runner);
+        assertEquals(2, runner.runs.size());
+
+        JkPathTree.of(root).deleteRoot();
+        JkPathTree.of(cacheDir).deleteRoot();
+        JkPathTree.of(reportDir).deleteRoot();
+    }
+
+    @Test
+    public void launch_changedOrFailedClasses_rerunsOnlyThem() throws Exception {
+        Path root = createClassRoot();
+        Path cacheDir = Files.createTempDirectory("jktestcache");
+        Path reportDir = Files.createTempDirectory("jktestreport");
+        FakeRunner runner = new FakeRunner();
+        runner.failingClass = "foo.ATest";
+
+        JkTestResult result = cache(root, cacheDir, reportDir).launch(runner);
+        assertEquals(1, result.getFailures().size());
+
+        runner.failingClass = null;
+        result = cache(root, cacheDir, reportDir).launch(runner);
+        assertEquals(Collections.singletonList("foo.ATest"), runner.runs.get(1));
+        assertEquals(3, result.getTestCount().getSucceded());
+        assertEquals(0, result.getFailures().size());
+        assertEquals(3, testCaseCount(reportDir));
+
+        Files.write(root.resolve("foo/BTest$Inner.class"), "changed".getBytes(StandardCharsets.UTF_8));
+        result = cache(root, cacheDir, reportDir).launch(runner);
+        assertEquals(Collections.singletonList("foo.BTest"), runner.runs.get(2));
+        assertEquals(3, result.getTestCount().getSucceded());
+        assertEquals(3, testCaseCount(reportDir));
+
+        cache(root, cacheDir, reportDir).launch(runner);
+        assertEquals(3, runner.runs.size());
+
+        JkPathTree.of(root).deleteRoot();
+        JkPathTree.of(cacheDir).deleteRoot();
+        JkPathTree.of(reportDir).deleteRoot();
+    }
+
+    private static Path createClassRoot() throws Exception {
+        Path root = Files.createTempDirectory("jktestclasses");
+        for (String file : Arrays.asList("foo/ATest.class", "foo/BTest.class", "foo/BTest$Inner.class",
+                "foo/Helper.class")) {
+            Path path = root.resolve(file);
+            Files.createDirectories(path.getParent());
+            Files.write(path, file.getBytes(StandardCharsets.UTF_8));
+        }
+        return root;
+    }
+
+    private static TestResultCache cache(Path root, Path cacheDir, Path reportDir) {
+        JkTestSelection<Void> selection = JkTestSelection.of().addTestClassRoots(root).addIncludeStandardPatterns();
+        JkTestProcessor.JkEngineBehavior<Void> engineBehavior = JkTestProcessor.of().getEngineBehavior()
+                .setLegacyReportDir(reportDir);
+        return TestResultCache.of(cacheDir, selection, JkPathSequence.of(root), engineBehavior, null);
+    }
+
+    private static int testCaseCount(Path reportDir) {
+        Document document = JkUtilsXml.documentFrom(reportDir.resolve("TEST-fake.xml"));
+        int count = JkUtilsXml.directChildren(document.getDocumentElement(), "testcase").size();
+        assertEquals(Integer.toString(count), document.getDocumentElement().getAttribute("tests"));
+        return count;
+    }
+
+    // Runs 2 tests for ATest and 1 for BTest
+    private static class FakeRunner implements BiFunction<JkTestSelection<?>, Path, JkTestResult> {
+
+        private final List<List<String>> runs = new ArrayList<>();
+
+        private String failingClass;
+
+        @Override
+        public JkTestResult apply(JkTestSelection<?> selection, Path reportDir) {
+            List<String> classNames = TestForkPartitioner.discoverClassNames(selection);
+            runs.add(classNames);
+            StringBuilder report = new StringBuilder();
+            JkTestResult result = null;
+            int testCount = 0;
+            for (String className : classNames) {
+                int count = className.equals("foo.ATest") ? 2 : 1;
+                boolean failed = className.equals(failingClass);
+                List<JkTestResult.JkFailure> failures = failed ? Collections.singletonList(JkTestResult.JkFailure.of(
+                        JkTestResult.JkTestIdentifier.of(JkTestResult.JkTestIdentifier.JkType.TEST, className,
+                                className, Collections.emptySet()), "failed", new StackTraceElement[0]))
+                        : Collections.emptyList();
+                JkTestResult.JkCount tests = JkTestResult.JkCount.of(count, count, 0, 0,
+                        failed ? count - 1 : count, failed ? 1 : 0);
+                JkTestResult.JkCount containers = JkTestResult.JkCount.of(1, 1, 0, 0, 1, 0);
+                JkTestResult classResult = JkTestResult.of(0, 1, containers, tests, failures);
+                JkTestResult classLaunchResult = JkTestResult.of(0, 1, containers, tests, failures,
+                        Collections.singletonMap(className, classResult));
+                result = result == null ? classLaunchResult : result.and(classLaunchResult);
+                for (int i = 0; i < count; i++) {
+                    report.append("<testcase classname=\"").append(className).append("\" name=\"t").append(i)
+                            .append("\"/>");
+                }
+                testCount += count;
+            }
+            writeReport(reportDir, "<testsuite name=\"fake\" tests=\"" + testCount + "\">" + report
+                    + "</testsuite>");
+            return result;
+        }
+
+        private static void writeReport(Path reportDir, String content) {
+            try {
+                Files.createDirectories(reportDir);
+                Files.write(reportDir.resolve("TEST-fake.xml"), content.getBytes(StandardCharsets.UTF_8));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+}
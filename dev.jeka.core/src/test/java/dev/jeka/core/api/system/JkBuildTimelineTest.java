@@ -0,0 +1,134 @@
+package dev.jeka.core.api.system;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JkBuildTimelineTest {
+
+    private final JkBuildTimeline timeline = JkBuildTimeline.of();
+
+    @Before
+    public void setUp() {
+        JkLog.JkState.save();
+        JkLog.setConsumer(new NopConsumer());
+        JkLog.setTimeline(timeline);
+    }
+
+    @After
+    public void tearDown() {
+        JkLog.setTimeline(null);
+        JkLog.resetNestedLevel();
+        JkLog.JkState.restore();
+    }
+
+    @Test
+    public void endTask_nestedTasks_recordsSpansWithSelfTime() throws Exception {
+        JkLog.startTask("build \"all\"");
+        JkLog.startTask("compile");
+        Thread.sleep(30);
+        JkLog.endTask();
+        Thread thread = new Thread(JkLog.inCurrentContext(() -> {
+            JkLog.startTask("test");
+            allocate();
+            JkLog.endTask();
+        }), "test-worker");
+        thread.start();
+        thread.join();
+        JkLog.endTask();
+
+        List<JkBuildTimeline.JkSpan> spans = timeline.getSpans();
+        assertEquals(3, spans.size());
+        JkBuildTimeline.JkSpan build = spans.get(0);
+        JkBuildTimeline.JkSpan compile = spans.get(1);
+        JkBuildTimeline.JkSpan test = spans.get(2);
+        assertEquals("build \"all\"", build.getName());
+        assertEquals(0, build.getLevel());
+        assertEquals(1, compile.getLevel());
+        assertEquals(1, test.getLevel());
+        assertEquals("test-worker", test.getThreadName());
+        assertEquals(Thread.currentThread().getName(), build.getThreadName());
+        assertTrue(compile.getWallNanos() >= 30_000_000);
+        assertTrue(build.getWallNanos() >= compile.getWallNanos() + test.getWallNanos());
+
+        // Test task runs in another thread, so it is part of the self time of the build task
+        assertEquals(build.getWallNanos() - compile.getWallNanos(), build.getSelfNanos());
+        if (test.getAllocatedBytes() >= 0) {
+            assertTrue(test.getAllocatedBytes() >= 1024 * 1024);
+        }
+    }
+
+    @Test
+    public void getTopPhases_repeatedTasks_aggregatesByName() {
+        for (int i = 0; i < 3; i++) {
+            JkLog.startTask("resolve");
+            JkLog.endTask();
+        }
+        JkLog.startTask("pack");
+        JkLog.endTask();
+
+        List<JkBuildTimeline.JkPhase> phases = timeline.getTopPhases(10);
+        assertEquals(2, phases.size());
+        JkBuildTimeline.JkPhase resolve = phases.stream().filter(phase -> phase.getName().equals("resolve"))
+                .findFirst().get();
+        assertEquals(3, resolve.getCount());
+        assertEquals(1, timeline.getTopPhases(1).size());
+        assertTrue(timeline.getTopPhasesTable(10).contains("resolve"));
+    }
+
+    @Test
+    public void toChromeTrace_recordedTasks_writesCompleteEventsAndThreadNames() {
+        JkLog.startTask("compile \"main\"");
+        JkLog.endTask();
+        JkLog.setTimeline(null);
+        JkLog.startTask("not recorded");
+        JkLog.endTask();
+
+        String trace = timeline.toChromeTrace();
+        assertTrue(trace, trace.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        assertTrue(trace, trace.contains("{\"name\":\"compile \\\"main\\\"\",\"cat\":\"task\",\"ph\":\"X\""));
+        assertTrue(trace, trace.contains("\"name\":\"thread_name\",\"ph\":\"M\""));
+        assertFalse(trace, trace.contains("not recorded"));
+    }
+
+    private static void allocate() {
+        byte[][] blocks = new byte[16][];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = new byte[128 * 1024];
+        }
+        assertEquals(16, blocks.length);
+    }
+
+    private static class NopConsumer implements JkLog.JkEventLogConsumer {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public void restore() {
+        }
+
+        @Override
+        public void accept(JkLog.JkLogEvent event) {
+        }
+
+        @Override
+        public OutputStream getOutStream() {
+            return null;
+        }
+
+        @Override
+        public OutputStream getErrorStream() {
+            return null;
+        }
+    }
+
+}
@@ -1,7 +1,40 @@
 package dev.jeka.core.api.system;
 
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
 public class JkLogTest {
 
+    private final List<String> records = Collections.synchronizedList(new ArrayList<>());
+
+    private final RecordingConsumer consumer = new RecordingConsumer(records);
+
+    @Before
+    public void setConsumer() {
+        JkLog.JkState.save();
+        JkLog.setConsumer(consumer);
+    }
+
+    @After
+    public void restoreConsumer() {
+        JkLog.resetNestedLevel();
+        JkLog.JkState.restore();
+    }
+
     //@Test
     public void testMultithread() throws Exception {
         JkLog.setConsumer(JkLog.Style.INDENT);
@@ -14,4 +47,201 @@ public class JkLogTest {
         thread.start();
         thread.join();
     }
+
+    @Test
+    public void inCurrentContext_concurrentTasks_logAsNestedBlocks() throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        JkLog.startTask("parent");
+        Thread first = new Thread(JkLog.inCurrentContext(() -> task("a", barrier)));
+        Thread second = new Thread(JkLog.inCurrentContext(() -> task("b", barrier)));
+        first.start();
+        second.start();
+        first.join();
+        second.join();
+        JkLog.endTask();
+
+        int aIndex = records.indexOf("1 START_TASK a");
+        int bIndex = records.indexOf("1 START_TASK b");
+        assertTrue(records.toString(), aIndex > 0 && bIndex > 0);
+        for (int index : new int[] {aIndex, bIndex}) {
+            String name = records.get(index).substring(records.get(index).length() - 1);
+            assertEquals(records.toString(), "2 INFO " + name + "-1", records.get(index + 1));
+            assertEquals(records.toString(), "2 RAW " + name + "-output", records.get(index + 2));
+            assertEquals(records.toString(), "2 INFO " + name + "-2", records.get(index + 3));
+            assertTrue(records.toString(), records.get(index + 4).startsWith("1 END_TASK"));
+        }
+        assertEquals("0 START_TASK parent", records.get(0));
+        assertTrue(records.get(records.size() - 1).startsWith("0 END_TASK"));
+        assertEquals(0, JkLog.getCurrentNestedLevel());
+    }
+
+    @Test
+    public void info_concurrentThreads_dispatchesAllEventsOneAtATime() throws Exception {
+        int threadCount = 4;
+        int eventCount = 2000;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            int threadIndex = i;
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < eventCount; j++) {
+                    JkLog.info("t" + threadIndex + "-" + j);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse("Consumer has been invoked concurrently", consumer.concurrentAccess.get());
+        assertEquals(threadCount * eventCount, records.size());
+        for (int i = 0; i < threadCount; i++) {
+            String prefix = "0 INFO t" + i + "-";
+            List<String> threadRecords = new ArrayList<>();
+            records.stream().filter(record -> record.startsWith(prefix)).forEach(threadRecords::add);
+            for (int j = 0; j < eventCount; j++) {
+                assertEquals(prefix + j, threadRecords.get(j));
+            }
+        }
+    }
+
+    @Test
+    public void info_consumerFailsOnEntryOfOtherThread_reportsFailureInDrainingThread() throws Exception {
+        consumer.dispatching = new CountDownLatch(1);
+        consumer.resume = new CountDownLatch(1);
+        AtomicReference<RuntimeException> drainerFailure = new AtomicReference<>();
+        Thread drainer = new Thread(() -> {
+            try {
+                JkLog.info("pause");
+            } catch (RuntimeException e) {
+                drainerFailure.set(e);
+            }
+        });
+        drainer.start();
+        consumer.dispatching.await();
+        JkLog.info("fail");  // dispatched by the drainer
+        consumer.resume.countDown();
+        drainer.join();
+        assertNull(drainerFailure.get());
+        assertTrue(records.toString(), records.stream().anyMatch(record -> record.contains("another thread")));
+
+        try {
+            JkLog.info("fail");
+            fail("Failure of an entry dispatched by its emitting thread should be thrown");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    private static void task(String name, CyclicBarrier barrier) {
+        OutputStream out = JkLog.getOutputStream();
+        JkLog.startTask(name);
+        JkLog.info(name + "-1");
+        await(barrier);
+        Thread writer = new Thread(() -> write(out, name + "-output"));  // as a process stream gobbler
+        writer.start();
+        join(writer);
+        await(barrier);
+        JkLog.info(name + "-2");
+        JkLog.endTask();
+    }
+
+    private static void write(OutputStream out, String text) {
+        try {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class RecordingConsumer implements JkLog.JkEventLogConsumer {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<String> records;
+
+        // Dispatching of a "pause" message is signaled then waits for resume
+        private transient volatile CountDownLatch dispatching;
+
+        private transient volatile CountDownLatch resume;
+
+        private final AtomicInteger running = new AtomicInteger();
+
+        private final AtomicBoolean concurrentAccess = new AtomicBoolean();
+
+        RecordingConsumer(List<String> records) {
+            this.records = records;
+        }
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public void restore() {
+        }
+
+        @Override
+        public void accept(JkLog.JkLogEvent event) {
+            if (running.incrementAndGet() > 1) {
+                concurrentAccess.set(true);
+            }
+            Thread.yield();
+            if ("pause".equals(event.getMessage())) {
+                dispatching.countDown();
+                await(resume);
+            } else if ("fail".equals(event.getMessage())) {
+                running.decrementAndGet();
+                throw new IllegalStateException("fail");
+            }
+            records.add(JkLog.getCurrentNestedLevel() + " " + event.getType() + " " + event.getMessage());
+            running.decrementAndGet();
+        }
+
+        @Override
+        public OutputStream getOutStream() {
+            return new OutputStream() {
+
+                @Override
+                public void write(int b) {
+                    write(new byte[] {(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int len) {
+                    records.add(JkLog.getCurrentNestedLevel() + " RAW "
+                            + new String(bytes, offset, len, StandardCharsets.UTF_8));
+                }
+            };
+        }
+
+        @Override
+        public OutputStream getErrorStream() {
+            return getOutStream();
+        }
+    }
+
 }
@@ -3,6 +3,7 @@ package dev.jeka.core.api.system;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 
 import dev.jeka.core.api.utils.JkUtilsSystem;
 import org.junit.Assert;
@@ -27,4 +28,25 @@ public class JkProcessTest {
         }
     }
 
+    @Test
+    public void runSync_failingWithoutLoggedOutput_reportsOutputTail() {
+        JkProcess process = JkProcess.ofJavaTool("java", "-cp", "", "NoSuchMainClass")
+                .withFailOnError(true)
+                .withLogOutput(false);
+        try {
+            process.runSync();
+            Assert.fail("Process should have failed");
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("Output :"));
+        }
+    }
+
+    @Test
+    public void runAndReturnOutputAsLines_collectsWholeOutput() {
+        List<String> lines = JkProcess.ofJavaTool("java", "-version").withLogOutput(false)
+                .runAndReturnOutputAsLines();
+        Assert.assertFalse(lines.isEmpty());
+        Assert.assertTrue(lines.get(0), lines.get(0).contains("version"));
+    }
+
 }
@@ -0,0 +1,87 @@
+package dev.jeka.core.api.utils;
+
+import dev.jeka.core.api.system.JkLog;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the cost of relaying the output of a chatty process to the console log, using the former
+ * char-by-char copy and the {@link JkUtilsIO.JkStreamGobbler}. Console output is redirected to a temp file, so
+ * the measures do not depend on the terminal. Usage : <code>JkStreamGobblerRunner [lineCount]</code>.
+ */
+@SuppressWarnings("javadoc")
+public class JkStreamGobblerRunner {
+
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) throws Exception {
+        final int lineCount = args.length == 0 ? 200_000 : Integer.parseInt(args[0]);
+        final PrintStream report = System.out;
+        final Path consoleFile = Files.createTempFile("jk-gobbler-bench", ".txt");
+        System.setOut(new PrintStream(new FileOutputStream(consoleFile.toFile()), true));
+        JkLog.setConsumer(JkLog.Style.INDENT);
+        final List<String> command = Arrays.asList(
+                javaExecutable(), "-cp", System.getProperty("java.class.path"), Chatty.class.getName(),
+                Integer.toString(lineCount));
+        report.println("Relaying " + lineCount + " lines, best of " + RUNS + " runs :");
+        for (final boolean legacy : new boolean[] {true, false}) {
+            long bestWall = Long.MAX_VALUE;
+            long bestCpu = Long.MAX_VALUE;
+            for (int i = 0; i < RUNS; i++) {
+                final long cpuStart = processCpuNanos();
+                final long wallStart = System.nanoTime();
+                final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+                if (legacy) {
+                    charByCharCopy(process.getInputStream(), JkLog.getOutputStream());
+                } else {
+                    JkUtilsIO.newStreamGobbler(process.getInputStream(), JkLog.getOutputStream()).join();
+                }
+                process.waitFor();
+                bestWall = Math.min(bestWall, System.nanoTime() - wallStart);
+                bestCpu = Math.min(bestCpu, processCpuNanos() - cpuStart);
+            }
+            report.printf("  %-14s wall %6d ms, relaying JVM cpu %6d ms%n", legacy ? "char-by-char" : "block gobbler",
+                    bestWall / 1_000_000, bestCpu / 1_000_000);
+        }
+        Files.deleteIfExists(consoleFile);
+    }
+
+    // Copy as done before JkStreamGobbler reads by blocks
+    private static void charByCharCopy(InputStream in, OutputStream out) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
+            int c;
+            while ((c = reader.read()) != -1) {
+                out.write((char) c);
+                out.flush();
+            }
+        }
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                .getProcessCpuTime();
+    }
+
+    private static String javaExecutable() {
+        return Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    public static class Chatty {
+
+        public static void main(String[] args) {
+            final int lineCount = Integer.parseInt(args[0]);
+            final PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 8192), false);
+            for (int i = 0; i < lineCount; i++) {
+                out.println("[INFO] line " + i + " : some verbose output from a noisy test fork");
+            }
+            out.flush();
+        }
+    }
+
+}
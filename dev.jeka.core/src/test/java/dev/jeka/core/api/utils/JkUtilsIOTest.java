@@ -0,0 +1,65 @@
+package dev.jeka.core.api.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("javadoc")
+public class JkUtilsIOTest {
+
+    @Test
+    public void streamGobbler_copiesAllBytesToAllOutputs() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            content.append("line ").append(i).append(" é\n");
+        }
+        byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        FlushCountingOutputStream second = new FlushCountingOutputStream();
+        JkUtilsIO.newStreamGobbler(new ByteArrayInputStream(bytes), first, second).join();
+        assertArrayEquals(bytes, first.toByteArray());
+        assertArrayEquals(bytes, second.delegate.toByteArray());
+        assertTrue(second.flushCount > 0);
+        assertTrue("Flushed by block, not by byte", second.flushCount < 100);
+    }
+
+    @Test
+    public void ringBufferOutputStream_keepsLastBytes() {
+        JkUtilsIO.JkRingBufferOutputStream ringBuffer = JkUtilsIO.newRingBufferOutputStream(5);
+        ringBuffer.write('a');
+        ringBuffer.write("bc".getBytes(StandardCharsets.UTF_8), 0, 2);
+        assertEquals("abc", ringBuffer.toString());
+        assertFalse(ringBuffer.isTruncated());
+
+        ringBuffer.write("defg".getBytes(StandardCharsets.UTF_8), 0, 4);
+        assertEquals("cdefg", ringBuffer.toString());
+        assertTrue(ringBuffer.isTruncated());
+
+        ringBuffer.write("0123456789".getBytes(StandardCharsets.UTF_8), 2, 7);
+        assertEquals("45678", ringBuffer.toString());
+        assertEquals(14, ringBuffer.getWrittenCount());
+    }
+
+    private static class FlushCountingOutputStream extends OutputStream {
+
+        private final ByteArrayOutputStream delegate = new ByteArrayOutputStream();
+
+        private int flushCount;
+
+        @Override
+        public void write(int b) {
+            delegate.write(b);
+        }
+
+        @Override
+        public void flush() {
+            flushCount++;
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.file.JkPathTree;
+import org.junit.Test;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class DaemonTest {
+
+    @Test
+    public void handle_invalidToken_rejectsRequest() throws Exception {
+        ByteArrayOutputStream logBytes = new ByteArrayOutputStream();
+        PrintStream log = new PrintStream(logBytes, true);
+        Daemon.ExitInterceptor exitInterceptor = new Daemon.ExitInterceptor();
+        try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            assertTrue(handle(serverSocket, "wrong-token", exitInterceptor, log));
+            assertTrue(logBytes.toString().contains("invalid token"));
+            assertFalse(handle(serverSocket, "token", exitInterceptor, log));
+        }
+    }
+
+    @Test
+    public void registration_writeAndRead_roundTrips() throws Exception {
+        Path dir = Files.createTempDirectory("jkdaemon");
+        Path file = dir.resolve("daemon.properties");
+        assertNull(Daemon.Registration.read(file));
+        Daemon.Registration registration = new Daemon.Registration(1234, "token", "stamp");
+        registration.write(file);
+        Daemon.Registration read = Daemon.Registration.read(file);
+        assertEquals(registration, read);
+        assertEquals("stamp", read.runtimeStamp);
+        assertNotEquals(registration, new Daemon.Registration(1234, "other-token", "stamp"));
+        Files.write(file, "port=none".getBytes(StandardCharsets.UTF_8));
+        assertNull(Daemon.Registration.read(file));
+        JkPathTree.of(dir).deleteRoot();
+    }
+
+    @Test
+    public void defClassLoader_get_renewsClassLoaderWhenDefSourcesChange() throws Exception {
+        Path projectDir = Files.createTempDirectory("jkdaemon");
+        Path defDir = Files.createDirectories(projectDir.resolve(JkConstants.DEF_DIR));
+        Files.write(defDir.resolve("Build.java"), "class Build {}".getBytes(StandardCharsets.UTF_8));
+        Daemon.DefClassLoader defClassLoader = new Daemon.DefClassLoader(projectDir);
+        ClassLoader classLoader = defClassLoader.get();
+        assertSame(classLoader, defClassLoader.get());
+        defClassLoader.watchLoadedProjects();
+        assertSame(classLoader, defClassLoader.get());
+
+        Files.write(defDir.resolve("Other.java"), "class Other {}".getBytes(StandardCharsets.UTF_8));
+        ClassLoader renewed = defClassLoader.get();
+        assertNotSame(classLoader, renewed);
+        assertSame(renewed, defClassLoader.get());
+        JkPathTree.of(projectDir).deleteRoot();
+    }
+
+    @Test
+    public void exitInterceptor_checkExit_rejectsOnlyWhileCommandRuns() {
+        Daemon.ExitInterceptor exitInterceptor = new Daemon.ExitInterceptor();
+        exitInterceptor.checkExit(2);
+        exitInterceptor.startCommand();
+        try {
+            exitInterceptor.checkExit(3);
+            fail("System.exit should have been rejected");
+        } catch (SecurityException e) {
+            // expected
+        }
+        assertEquals(Integer.valueOf(3), exitInterceptor.endCommand());
+        exitInterceptor.checkExit(4);
+        exitInterceptor.startCommand();
+        assertNull(exitInterceptor.endCommand());
+    }
+
+    // Sends a stop request with the specified token and returns whether the daemon would keep serving
+    private static boolean handle(ServerSocket serverSocket, String token, Daemon.ExitInterceptor exitInterceptor,
+                                  PrintStream log) throws IOException {
+        try (Socket client = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+             Socket socket = serverSocket.accept()) {
+            DataOutputStream out = new DataOutputStream(client.getOutputStream());
+            out.writeUTF(token);
+            out.writeInt(1);
+            out.writeUTF("-daemon-stop");
+            out.flush();
+            return Daemon.handle(socket, "token", new Properties(), null, exitInterceptor, log);
+        }
+    }
+
+}
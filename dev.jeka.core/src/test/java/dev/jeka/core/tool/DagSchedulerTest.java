@@ -0,0 +1,74 @@
+package dev.jeka.core.tool;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DagSchedulerTest {
+
+    // root depends on a and b, which both depend on c
+    private static final Map<String, List<String>> GRAPH = new HashMap<>();
+
+    static {
+        GRAPH.put("root", Arrays.asList("a", "b"));
+        GRAPH.put("a", Collections.singletonList("c"));
+        GRAPH.put("b", Collections.singletonList("c"));
+        GRAPH.put("c", Collections.emptyList());
+    }
+
+    @Test
+    public void run_honoursDependenciesAndRunsIndependentNodesConcurrently() {
+        List<String> done = Collections.synchronizedList(new LinkedList<>());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        DagScheduler.of(Arrays.asList("root", "a", "b", "c"), GRAPH::get, 4).run(node -> {
+            for (String dependency : GRAPH.get(node)) {
+                assertTrue(node + " started before " + dependency, done.contains(dependency));
+            }
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(200);
+            running.decrementAndGet();
+            done.add(node);
+        });
+        assertEquals(4, done.size());
+        assertEquals("root", done.get(3));
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    public void run_failure_isRethrownAndDependentsAreSkipped() {
+        List<String> done = Collections.synchronizedList(new LinkedList<>());
+        try {
+            DagScheduler.of(Arrays.asList("root", "a", "b", "c"), GRAPH::get, 4).run(node -> {
+                if (node.equals("a")) {
+                    throw new JkException("a failed");
+                }
+                done.add(node);
+            });
+            fail("Exception expected");
+        } catch (JkException e) {
+            assertEquals("a failed", e.getMessage());
+        }
+        assertFalse(done.contains("root"));
+    }
+
+    @Test
+    public void sorted_cyclicGraph_breaksCycle() {
+        Map<String, List<String>> graph = new HashMap<>();
+        graph.put("a", Collections.singletonList("b"));
+        graph.put("b", Collections.singletonList("a"));
+        assertEquals(Arrays.asList("b", "a"), DagScheduler.of(Arrays.asList("a", "b"), graph::get, 1).sorted());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
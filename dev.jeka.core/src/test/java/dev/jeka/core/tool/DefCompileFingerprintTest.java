@@ -0,0 +1,59 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.file.JkPathSequence;
+import dev.jeka.core.api.file.JkPathTree;
+import dev.jeka.core.api.utils.JkUtilsIterable;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+public class DefCompileFingerprintTest {
+
+    private Path sourceDir;
+
+    @After
+    public void deleteSourceDir() {
+        if (sourceDir != null) {
+            JkPathTree.of(sourceDir).deleteRoot();
+        }
+    }
+
+    @Test
+    public void testDetectChanges() throws Exception {
+        sourceDir = JkUtilsPath.createTempDirectory("def-source");
+        Path foo = write(sourceDir.resolve("Foo.java"), "class Foo {}");
+        Path bar = write(sourceDir.resolve("pkg/Bar.java"), "class Bar {}");
+        List<Path> sources = JkUtilsIterable.listOf(foo, bar);
+        DefCompileFingerprint previous = DefCompileFingerprint.of(sourceDir, sources, JkPathSequence.of(),
+                Collections.emptyList());
+        Path fingerprintFile = DefCompileFingerprint.file(sourceDir.resolve("def-classes"));
+        previous.save(fingerprintFile);
+        previous = DefCompileFingerprint.read(fingerprintFile);
+
+        DefCompileFingerprint current = DefCompileFingerprint.of(sourceDir, sources, JkPathSequence.of(),
+                Collections.emptyList());
+        Assert.assertTrue(current.hasSameContext(previous));
+        Assert.assertTrue(current.modifiedSourcesSince(previous).isEmpty());
+        Assert.assertTrue(current.removedSourcesSince(previous).isEmpty());
+
+        write(bar, "class Bar { int i; }");
+        current = DefCompileFingerprint.of(sourceDir, Collections.singletonList(bar), JkPathSequence.of(),
+                Collections.singletonList("-g"));
+        Assert.assertFalse(current.hasSameContext(previous));
+        Assert.assertEquals(Collections.singleton("pkg/Bar.java"), current.modifiedSourcesSince(previous));
+        Assert.assertEquals(Collections.singleton("Foo.java"), current.removedSourcesSince(previous));
+    }
+
+    private static Path write(Path file, String content) throws Exception {
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
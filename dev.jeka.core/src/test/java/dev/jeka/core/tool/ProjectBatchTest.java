@@ -0,0 +1,97 @@
+package dev.jeka.core.tool;
+
+import dev.jeka.core.api.java.JkClasspath;
+import dev.jeka.core.api.java.JkJavaCompileSpec;
+import dev.jeka.core.api.java.JkJavaCompiler;
+import dev.jeka.core.api.utils.JkUtilsPath;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ProjectBatchTest {
+
+    private Path root;
+
+    private Path projectA;
+
+    private Path projectB;
+
+    private Path projectC;
+
+    @Before
+    public void createProjects() throws Exception {
+        root = Files.createTempDirectory("jk-project-batch");
+        projectA = project("a", "Build.java", "_Draft.java");
+        projectB = project("b", "Build.java");
+        projectC = project("c", "other/Build.java", "_Draft.java");
+    }
+
+    @After
+    public void deleteProjects() {
+        JkUtilsPath.walk(root).sorted((path1, path2) -> path2.compareTo(path1))
+                .forEach(JkUtilsPath::deleteIfExists);
+    }
+
+    @Test
+    public void classLoaders_clashingDefClasses_getDedicatedClassLoader() throws Exception {
+        try (URLClassLoader shared = new URLClassLoader(new URL[0], getClass().getClassLoader())) {
+            Map<Path, ClassLoader> classLoaders = ProjectBatch.of(Arrays.asList(projectA, projectB, projectC))
+                    .classLoaders(shared);
+            assertSame(shared, classLoaders.get(projectA));
+            assertNotSame(shared, classLoaders.get(projectB));
+            assertSame(shared, classLoaders.get(projectC));
+        }
+    }
+
+    @Test
+    public void classLoaders_clashingDefClasses_loadDefClassesSeeingJekaClasses() throws Exception {
+        Path source = projectB.resolve(JkConstants.DEF_DIR).resolve("Build.java");
+        Files.write(source, "class Build extends dev.jeka.core.tool.JkClass {}".getBytes(StandardCharsets.UTF_8));
+        JkJavaCompiler<Void> compiler = JkJavaCompiler.of();
+        assertTrue(compiler.compile(JkJavaCompileSpec.of()
+                .setOutputDir(projectB.resolve(JkConstants.DEF_BIN_DIR))
+                .setClasspath(JkClasspath.ofCurrentRuntime())
+                .addSources(source)));
+        try (URLClassLoader shared = new URLClassLoader(new URL[0], getClass().getClassLoader());
+             URLClassLoader classLoader = (URLClassLoader) ProjectBatch.of(Arrays.asList(projectA, projectB))
+                     .classLoaders(shared).get(projectB)) {
+            assertNotSame(shared, classLoader);
+            Class<?> buildClass = classLoader.loadClass("Build");
+            assertSame(classLoader, buildClass.getClassLoader());
+            assertSame(JkClass.class, buildClass.getSuperclass());
+        }
+    }
+
+    @Test
+    public void classLoaders_defClassesAlreadyLoaded_keepSharedClassLoader() throws Exception {
+        URL defClassDir = projectB.resolve(JkConstants.DEF_BIN_DIR).toUri().toURL();
+        try (URLClassLoader shared = new URLClassLoader(new URL[] {defClassDir}, getClass().getClassLoader())) {
+            Map<Path, ClassLoader> classLoaders = ProjectBatch.of(Arrays.asList(projectA, projectB, projectC))
+                    .classLoaders(shared);
+            assertNotSame(shared, classLoaders.get(projectA));
+            assertSame(shared, classLoaders.get(projectB));
+            assertSame(shared, classLoaders.get(projectC));
+        }
+    }
+
+    private Path project(String name, String... defSources) throws Exception {
+        Path dir = root.resolve(name);
+        for (String defSource : defSources) {
+            Path file = dir.resolve(JkConstants.DEF_DIR).resolve(defSource);
+            Files.createDirectories(file.getParent());
+            Files.write(file, new byte[0]);
+        }
+        return dir;
+    }
+
+}